@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Benchmark.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.benchmark;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.util.Assert;
+
+/**
+ * Records a startup milestone when the application context declaring this bean gets refreshed.
+ * <p>
+ * Refresh events of child contexts are propagated to their parents, so they are ignored.
+ * 
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ * 
+ * @see StartupProbe
+ */
+public class ContextRefreshedProbe implements ApplicationListener<ContextRefreshedEvent>, ApplicationContextAware,
+        InitializingBean {
+
+    /**
+     * The milestone to be recorded.
+     */
+    private StartupMilestone milestone;
+
+    /**
+     * The application context declaring this bean.
+     */
+    private ApplicationContext applicationContext;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() throws Exception {
+
+        Assert.notNull(this.getMilestone(), "this.getMilestone()");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+
+        if (event.getApplicationContext() == this.applicationContext) {
+            StartupProbe.record(this.getMilestone());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) {
+
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Gets the milestone.
+     * 
+     * @return the milestone.
+     */
+    public final StartupMilestone getMilestone() {
+
+        return this.milestone;
+    }
+
+    /**
+     * Sets the milestone.
+     * 
+     * @param milestone
+     *            the milestone to set.
+     */
+    public final void setMilestone(StartupMilestone milestone) {
+
+        Assert.notNull(milestone, "milestone");
+
+        this.milestone = milestone;
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Benchmark.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.SystemUtils;
+import org.bluebell.richclient.application.RcpMain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Time-to-first-window benchmark harness.
+ * <p>
+ * Launches the application through {@link StartupProbe} (hence through {@link RcpMain#main(String[])}) in a fresh JVM
+ * several times for every JVM flags variant, and reports as JSON the minimum, median, 90th and 95th percentiles and
+ * maximum elapsed milliseconds from process launch to every {@link StartupMilestone}. Runs use the classpath of the
+ * harness, so the application being measured is whatever is on it (the samples application by default).
+ * <p>
+ * Accepted arguments:
+ * <dl>
+ * <dt><code>-runs &lt;n&gt;</code>
+ * <dd>The number of runs per variant, <code>10</code> by default.
+ * <dt><code>-variant &lt;name&gt;=&lt;flags&gt;</code>
+ * <dd>A JVM flags variant, flags are separated by white spaces (i.e.: <code>-variant "cds=-Xshare:on"</code>,
+ * <code>-variant "noTiered=-XX:-TieredCompilation"</code> or <code>-variant "heap=-Xms256m -Xmx256m"</code>). May be
+ * repeated, if none is given a single variant with no flags is run.
+ * <dt><code>-timeout &lt;seconds&gt;</code>
+ * <dd>The time after which a run is killed and counted as failed, <code>120</code> by default.
+ * <dt><code>-xvfb</code>
+ * <dd>Launches every run under its own Xvfb server through <code>xvfb-run -a</code>.
+ * <dt><code>-output &lt;file&gt;</code>
+ * <dd>The file where the JSON report is written, the standard output by default.
+ * </dl>
+ * 
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class StartupBenchmark {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    /**
+     * The name of the variant with no JVM flags.
+     */
+    private static final String DEFAULT_VARIANT = "default";
+
+    /**
+     * The milliseconds between two consecutive checks of a running process.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * The reported percentiles.
+     */
+    private static final int[] PERCENTILES = { 50, 90, 95 };
+
+    /**
+     * The number of runs per variant.
+     */
+    private int runs = 10;
+
+    /**
+     * The seconds after which a run is killed.
+     */
+    private int timeout = 120;
+
+    /**
+     * Whether to launch every run under Xvfb.
+     */
+    private Boolean xvfb = Boolean.FALSE;
+
+    /**
+     * The file where the report is written, <code>null</code> for the standard output.
+     */
+    private File output;
+
+    /**
+     * The JVM flags indexed by variant name.
+     */
+    private final Map<String, List<String>> variants = new LinkedHashMap<String, List<String>>();
+
+    /**
+     * Utility classes should not have a public or default constructor.
+     */
+    private StartupBenchmark() {
+
+        super();
+    }
+
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args
+     *            the benchmark args.
+     * 
+     * @throws Exception
+     *             if the report cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+
+        final StartupBenchmark benchmark = new StartupBenchmark();
+        benchmark.parse(args);
+
+        final StringBuilder report = new StringBuilder("{\n  \"runs\": ").append(benchmark.runs);
+        report.append(",\n  \"variants\": [");
+        String separator = "\n";
+        for (final Map.Entry<String, List<String>> variant : benchmark.variants.entrySet()) {
+            report.append(separator).append(benchmark.runVariant(variant.getKey(), variant.getValue()));
+            separator = ",\n";
+        }
+        report.append("\n  ]\n}\n");
+
+        final PrintStream printStream = (benchmark.output != null) ? new PrintStream(benchmark.output, "UTF-8")
+                : System.out;
+        try {
+            printStream.print(report);
+        } finally {
+            printStream.flush();
+            if (printStream != System.out) {
+                printStream.close();
+            }
+        }
+    }
+
+    /**
+     * Parses the benchmark args.
+     * 
+     * @param args
+     *            the args.
+     */
+    private void parse(String[] args) {
+
+        for (int i = 0; i < args.length; ++i) {
+            if ("-runs".equals(args[i])) {
+                this.runs = Integer.valueOf(args[++i]);
+            } else if ("-timeout".equals(args[i])) {
+                this.timeout = Integer.valueOf(args[++i]);
+            } else if ("-xvfb".equals(args[i])) {
+                this.xvfb = Boolean.TRUE;
+            } else if ("-output".equals(args[i])) {
+                this.output = new File(args[++i]);
+            } else if ("-variant".equals(args[i])) {
+                final String variant = args[++i];
+                final String name = StringUtils.substringBefore(variant, "=");
+                final String flags = StringUtils.substringAfter(variant, "=");
+                Assert.hasText(name, "name");
+                this.variants.put(name, Arrays.asList(StringUtils.split(flags)));
+            } else {
+                throw new IllegalArgumentException("Unknown argument \"" + args[i] + "\"");
+            }
+        }
+
+        Assert.isTrue(this.runs > 0, "this.runs > 0");
+        Assert.isTrue(this.timeout > 0, "this.timeout > 0");
+        if (this.variants.isEmpty()) {
+            this.variants.put(StartupBenchmark.DEFAULT_VARIANT, Collections.<String> emptyList());
+        }
+    }
+
+    /**
+     * Runs a variant and reports its statistics.
+     * 
+     * @param name
+     *            the variant name.
+     * @param flags
+     *            the variant JVM flags.
+     * @return the JSON report of the variant.
+     */
+    private String runVariant(String name, List<String> flags) {
+
+        final Map<StartupMilestone, List<Long>> samples = new EnumMap<StartupMilestone, List<Long>>(
+                StartupMilestone.class);
+        for (final StartupMilestone milestone : StartupMilestone.values()) {
+            samples.put(milestone, new ArrayList<Long>());
+        }
+
+        int failedRuns = 0;
+        for (int run = 0; run < this.runs; ++run) {
+            final Map<StartupMilestone, Long> milestones = this.runOnce(flags);
+            if (milestones == null) {
+                ++failedRuns;
+                StartupBenchmark.LOGGER.warn("Run " + run + " of variant \"" + name + "\" failed");
+                continue;
+            }
+            for (final Map.Entry<StartupMilestone, Long> entry : milestones.entrySet()) {
+                samples.get(entry.getKey()).add(entry.getValue());
+            }
+        }
+
+        final StringBuilder sb = new StringBuilder("    {\n      \"name\": ").append(StartupBenchmark.quote(name));
+        sb.append(",\n      \"jvmFlags\": [");
+        for (int i = 0; i < flags.size(); ++i) {
+            sb.append((i > 0) ? ", " : StringUtils.EMPTY).append(StartupBenchmark.quote(flags.get(i)));
+        }
+        sb.append("],\n      \"failedRuns\": ").append(failedRuns);
+        sb.append(",\n      \"milestones\": {");
+        String separator = "\n";
+        for (final Map.Entry<StartupMilestone, List<Long>> entry : samples.entrySet()) {
+            sb.append(separator).append("        ").append(StartupBenchmark.quote(entry.getKey().name()));
+            sb.append(": ").append(StartupBenchmark.statistics(entry.getValue()));
+            separator = ",\n";
+        }
+        sb.append("\n      }\n    }");
+
+        return sb.toString();
+    }
+
+    /**
+     * Launches the application once in a fresh JVM.
+     * 
+     * @param flags
+     *            the JVM flags.
+     * @return the milliseconds from process launch to every recorded milestone or <code>null</code> if the run
+     *         failed.
+     */
+    private Map<StartupMilestone, Long> runOnce(List<String> flags) {
+
+        File milestonesFile = null;
+        Process process = null;
+        try {
+            milestonesFile = File.createTempFile("startup-milestones", ".properties");
+            milestonesFile.deleteOnExit();
+
+            final List<String> command = new ArrayList<String>();
+            if (this.xvfb) {
+                command.addAll(Arrays.asList("xvfb-run", "-a"));
+            }
+            command.add(new File(SystemUtils.getJavaHome(), "bin/java").getAbsolutePath());
+            command.addAll(flags);
+            command.add("-D" + StartupProbe.OUTPUT_PROPERTY + "=" + milestonesFile.getAbsolutePath());
+            command.addAll(Arrays.asList("-cp", SystemUtils.JAVA_CLASS_PATH, StartupProbe.class.getName()));
+
+            final long launchTime = System.currentTimeMillis();
+            process = new ProcessBuilder(command).redirectErrorStream(Boolean.TRUE).start();
+            StartupBenchmark.discard(process.getInputStream());
+
+            final Integer exitValue = this.waitFor(process);
+            if ((exitValue == null) || (exitValue != 0)) {
+                return null;
+            }
+
+            return StartupBenchmark.readMilestones(milestonesFile, launchTime);
+        } catch (IOException e) {
+            StartupBenchmark.LOGGER.error("Unable to launch application", e);
+            return null;
+        } finally {
+            if (process != null) {
+                process.destroy();
+            }
+            if (milestonesFile != null) {
+                milestonesFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Waits for a process to exit, up to the configured timeout.
+     * 
+     * @param process
+     *            the process.
+     * @return the process exit value or <code>null</code> if timed out.
+     */
+    private Integer waitFor(Process process) {
+
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(this.timeout);
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                return process.exitValue();
+            } catch (IllegalThreadStateException e) {
+                try {
+                    Thread.sleep(StartupBenchmark.POLL_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the milestones written by a run.
+     * 
+     * @param milestonesFile
+     *            the file written by {@link StartupProbe}.
+     * @param launchTime
+     *            the process launch time in epoch milliseconds.
+     * @return the milliseconds from process launch to every recorded milestone.
+     * 
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    private static Map<StartupMilestone, Long> readMilestones(File milestonesFile, long launchTime) throws IOException {
+
+        final Properties properties = new Properties();
+        final InputStream inputStream = new FileInputStream(milestonesFile);
+        try {
+            properties.load(inputStream);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        final Map<StartupMilestone, Long> milestones = new EnumMap<StartupMilestone, Long>(StartupMilestone.class);
+        for (final StartupMilestone milestone : StartupMilestone.values()) {
+            final String timestamp = properties.getProperty(milestone.name());
+            if (timestamp != null) {
+                milestones.put(milestone, Long.valueOf(timestamp) - launchTime);
+            }
+        }
+
+        return milestones;
+    }
+
+    /**
+     * Reports the statistics of a milestone samples.
+     * 
+     * @param samples
+     *            the samples in milliseconds.
+     * @return the JSON report.
+     */
+    private static String statistics(List<Long> samples) {
+
+        final List<Long> sorted = new ArrayList<Long>(samples);
+        Collections.sort(sorted);
+
+        final StringBuilder sb = new StringBuilder("{ \"samples\": ").append(sorted.size());
+        if (!sorted.isEmpty()) {
+            sb.append(", \"min\": ").append(sorted.get(0));
+            for (final int percentile : StartupBenchmark.PERCENTILES) {
+                final String key = (percentile == 50) ? "median" : "p" + percentile;
+                sb.append(", ").append(StartupBenchmark.quote(key)).append(": ");
+                sb.append(StartupBenchmark.percentile(sorted, percentile));
+            }
+            sb.append(", \"max\": ").append(sorted.get(sorted.size() - 1));
+        }
+
+        return sb.append(" }").toString();
+    }
+
+    /**
+     * Gets a percentile of sorted samples using the nearest rank method.
+     * 
+     * @param sorted
+     *            the sorted samples, not empty.
+     * @param percentile
+     *            the percentile, between <code>1</code> and <code>100</code>.
+     * @return the percentile.
+     */
+    private static Long percentile(List<Long> sorted, int percentile) {
+
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Quotes a JSON string.
+     * 
+     * @param value
+     *            the value.
+     * @return the quoted value.
+     */
+    private static String quote(String value) {
+
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Consumes a process output in background, so the process never blocks writing it.
+     * 
+     * @param inputStream
+     *            the process output.
+     */
+    private static void discard(final InputStream inputStream) {
+
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final OutputStream nullOutputStream = new OutputStream() {
+
+                    @Override
+                    public void write(int b) {
+
+                        // Nothing to do
+                    }
+                };
+                try {
+                    IOUtils.copy(inputStream, nullOutputStream);
+                } catch (IOException e) {
+                    StartupBenchmark.LOGGER.debug("Process output closed", e);
+                } finally {
+                    IOUtils.closeQuietly(inputStream);
+                }
+            }
+        }, "startup-benchmark-output");
+        thread.setDaemon(Boolean.TRUE);
+        thread.start();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Benchmark.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.benchmark;
+
+/**
+ * The milestones recorded while an application starts up, in chronological order.
+ * 
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public enum StartupMilestone {
+
+    /**
+     * The JVM has started, as reported by the runtime management bean.
+     */
+    JVM_START,
+
+    /**
+     * The startup application context (splash screen and look and feel) has been refreshed.
+     */
+    STARTUP_CONTEXT_LOADED,
+
+    /**
+     * The main application context has been refreshed.
+     */
+    MAIN_CONTEXT_REFRESHED,
+
+    /**
+     * The first application window has been opened.
+     */
+    FIRST_WINDOW_VISIBLE,
+
+    /**
+     * The page of the first application window has been laid out.
+     */
+    FIRST_PAGE_LAID_OUT,
+
+    /**
+     * The first paint after the page has been laid out has completed.
+     */
+    FIRST_PAINT
+}
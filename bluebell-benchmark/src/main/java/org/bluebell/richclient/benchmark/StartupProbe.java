@@ -0,0 +1,517 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Benchmark.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.benchmark;
+
+import java.applet.Applet;
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+
+import org.apache.commons.io.IOUtils;
+import org.bluebell.richclient.application.RcpMain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.richclient.application.Application;
+import org.springframework.richclient.application.ApplicationPage;
+import org.springframework.richclient.application.ApplicationWindow;
+import org.springframework.richclient.application.support.AbstractApplicationPage;
+import org.springframework.richclient.application.support.AbstractApplicationWindow;
+import org.springframework.util.Assert;
+
+/**
+ * Launches an application through {@link RcpMain#main(String[])} recording its startup milestones.
+ * <p>
+ * Context related milestones are recorded by {@link ContextRefreshedProbe} beans, while UI related ones are detected
+ * listening to AWT events and painting through a probing repaint manager that wraps the one installed by the
+ * application, whatever it is. Once the first paint completes milestones
+ * are written, as epoch milliseconds, into the properties file given by the {@value #OUTPUT_PROPERTY} system property
+ * and the JVM exits. Without that property the application keeps running and milestones are just logged.
+ * 
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ * 
+ * @see StartupBenchmark
+ */
+public final class StartupProbe {
+
+    /**
+     * The system property with the file where milestones are written.
+     */
+    public static final String OUTPUT_PROPERTY = "bb.benchmark.output";
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupProbe.class);
+
+    /**
+     * The recorded milestones.
+     */
+    private static final Map<StartupMilestone, Long> MILESTONES = new EnumMap<StartupMilestone, Long>(
+            StartupMilestone.class);
+
+    /**
+     * Utility classes should not have a public or default constructor.
+     */
+    private StartupProbe() {
+
+        super();
+    }
+
+    /**
+     * Installs the probes and launches the application.
+     * 
+     * @param args
+     *            the main args, passed through to {@link RcpMain#main(String[])}.
+     */
+    public static void main(String[] args) {
+
+        StartupProbe.record(StartupMilestone.JVM_START, ManagementFactory.getRuntimeMXBean().getStartTime());
+
+        Toolkit.getDefaultToolkit().addAWTEventListener(new UiProbe(), //
+                AWTEvent.WINDOW_EVENT_MASK | AWTEvent.COMPONENT_EVENT_MASK);
+
+        RcpMain.main(args);
+    }
+
+    /**
+     * Records a milestone now, unless it was already recorded.
+     * 
+     * @param milestone
+     *            the milestone.
+     */
+    public static void record(StartupMilestone milestone) {
+
+        StartupProbe.record(milestone, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a milestone, unless it was already recorded.
+     * 
+     * @param milestone
+     *            the milestone.
+     * @param timestamp
+     *            the milestone timestamp in epoch milliseconds.
+     */
+    private static void record(StartupMilestone milestone, Long timestamp) {
+
+        Assert.notNull(milestone, "milestone");
+        Assert.notNull(timestamp, "timestamp");
+
+        synchronized (StartupProbe.MILESTONES) {
+            if (StartupProbe.MILESTONES.containsKey(milestone)) {
+                return;
+            }
+            StartupProbe.MILESTONES.put(milestone, timestamp);
+        }
+
+        if (StartupProbe.LOGGER.isInfoEnabled()) {
+            StartupProbe.LOGGER.info("Startup milestone " + milestone + " reached at " + timestamp);
+        }
+
+        if (milestone == StartupMilestone.FIRST_PAINT) {
+            StartupProbe.finish();
+        }
+    }
+
+    /**
+     * Determines whether a milestone has been recorded.
+     * 
+     * @param milestone
+     *            the milestone.
+     * @return <code>true</code> if recorded and <code>false</code> in other case.
+     */
+    private static Boolean isRecorded(StartupMilestone milestone) {
+
+        synchronized (StartupProbe.MILESTONES) {
+            return StartupProbe.MILESTONES.containsKey(milestone);
+        }
+    }
+
+    /**
+     * Writes the recorded milestones and exits, if an output file was requested.
+     */
+    private static void finish() {
+
+        final String output = System.getProperty(StartupProbe.OUTPUT_PROPERTY);
+        if (output == null) {
+            return;
+        }
+
+        final Properties properties = new Properties();
+        synchronized (StartupProbe.MILESTONES) {
+            for (final Map.Entry<StartupMilestone, Long> entry : StartupProbe.MILESTONES.entrySet()) {
+                properties.setProperty(entry.getKey().name(), String.valueOf(entry.getValue()));
+            }
+        }
+
+        OutputStream outputStream = null;
+        int status = 0;
+        try {
+            outputStream = new FileOutputStream(new File(output));
+            properties.store(outputStream, "Startup milestones");
+        } catch (IOException e) {
+            StartupProbe.LOGGER.error("Unable to write startup milestones into " + output, e);
+            status = 1;
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+
+        System.exit(status);
+    }
+
+    /**
+     * Finds the application window whose control is a given window.
+     * 
+     * @param window
+     *            the window.
+     * @return the application window or <code>null</code> if not found.
+     */
+    private static ApplicationWindow findApplicationWindow(Window window) {
+
+        if (!Application.isLoaded()) {
+            return null;
+        }
+
+        for (final ApplicationWindow applicationWindow : Application.instance().getWindowManager().getWindows()) {
+            if ((applicationWindow instanceof AbstractApplicationWindow)
+                    && ((AbstractApplicationWindow) applicationWindow).isControlCreated()
+                    && (applicationWindow.getControl() == window)) {
+                return applicationWindow;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Listens to AWT events in order to detect when the first application window is visible and its page laid out.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class UiProbe implements AWTEventListener {
+
+        /**
+         * The first application window, once visible.
+         */
+        private ApplicationWindow applicationWindow;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void eventDispatched(AWTEvent event) {
+
+            if ((this.applicationWindow == null) && (event.getID() == WindowEvent.WINDOW_OPENED)) {
+                this.applicationWindow = StartupProbe.findApplicationWindow(((WindowEvent) event).getWindow());
+                if (this.applicationWindow != null) {
+                    StartupProbe.record(StartupMilestone.FIRST_WINDOW_VISIBLE);
+                }
+            } else if ((this.applicationWindow != null) && (event.getID() == ComponentEvent.COMPONENT_RESIZED)
+                    && this.isPageControl(((ComponentEvent) event).getComponent())) {
+                StartupProbe.record(StartupMilestone.FIRST_PAGE_LAID_OUT);
+                this.probePaint((JComponent) ((ComponentEvent) event).getComponent());
+            }
+        }
+
+        /**
+         * Determines whether a component is the laid out control of the first application window page.
+         * 
+         * @param component
+         *            the component.
+         * @return <code>true</code> if it is and <code>false</code> in other case.
+         */
+        private Boolean isPageControl(Component component) {
+
+            final ApplicationPage page = this.applicationWindow.getPage();
+
+            return (page instanceof AbstractApplicationPage) && ((AbstractApplicationPage) page).isControlCreated()
+                    && (page.getControl() == component) && (component.getWidth() > 0)
+                    && (component.getHeight() > 0);
+        }
+
+        /**
+         * Wraps the current repaint manager, whatever the application installed, with a probing one and repaints the
+         * page control through it, so the first paint gets recorded once painted by the wrapped manager.
+         * 
+         * @param pageControl
+         *            the laid out page control.
+         */
+        private void probePaint(JComponent pageControl) {
+
+            final RepaintManager current = RepaintManager.currentManager(pageControl);
+            if (!(current instanceof PaintProbe)) {
+                RepaintManager.setCurrentManager(new PaintProbe(current));
+            }
+
+            pageControl.repaint();
+        }
+    }
+
+    /**
+     * Repaint manager recording the first paint completed after the page has been laid out.
+     * <p>
+     * Delegates everything to the repaint manager installed by the application. The delegate paints dirty regions from
+     * an event it schedules by itself, so the first paint is recorded by an event scheduled right after delegating the
+     * first dirty region. Once recorded the delegate is installed back.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class PaintProbe extends RepaintManager {
+
+        /**
+         * The delegate repaint manager.
+         */
+        private final RepaintManager delegate;
+
+        /**
+         * Whether the first paint has already been scheduled to be recorded.
+         */
+        private Boolean scheduled = Boolean.FALSE;
+
+        /**
+         * Creates the repaint manager given its delegate.
+         * 
+         * @param delegate
+         *            the delegate.
+         */
+        public PaintProbe(RepaintManager delegate) {
+
+            super();
+
+            Assert.notNull(delegate, "delegate");
+
+            this.delegate = delegate;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+
+            this.delegate.addDirtyRegion(c, x, y, w, h);
+            this.scheduleRecording();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addDirtyRegion(Window window, int x, int y, int w, int h) {
+
+            this.delegate.addDirtyRegion(window, x, y, w, h);
+            this.scheduleRecording();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("deprecation")
+        public void addDirtyRegion(Applet applet, int x, int y, int w, int h) {
+
+            this.delegate.addDirtyRegion(applet, x, y, w, h);
+            this.scheduleRecording();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void addInvalidComponent(JComponent invalidComponent) {
+
+            this.delegate.addInvalidComponent(invalidComponent);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void removeInvalidComponent(JComponent component) {
+
+            this.delegate.removeInvalidComponent(component);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void validateInvalidComponents() {
+
+            this.delegate.validateInvalidComponents();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Rectangle getDirtyRegion(JComponent aComponent) {
+
+            return this.delegate.getDirtyRegion(aComponent);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCompletelyDirty(JComponent aComponent) {
+
+            return this.delegate.isCompletelyDirty(aComponent);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void markCompletelyClean(JComponent aComponent) {
+
+            this.delegate.markCompletelyClean(aComponent);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void markCompletelyDirty(JComponent aComponent) {
+
+            this.delegate.markCompletelyDirty(aComponent);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void paintDirtyRegions() {
+
+            this.delegate.paintDirtyRegions();
+            this.recordFirstPaint();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Image getOffscreenBuffer(Component c, int proposedWidth, int proposedHeight) {
+
+            return this.delegate.getOffscreenBuffer(c, proposedWidth, proposedHeight);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Image getVolatileOffscreenBuffer(Component c, int proposedWidth, int proposedHeight) {
+
+            return this.delegate.getVolatileOffscreenBuffer(c, proposedWidth, proposedHeight);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Dimension getDoubleBufferMaximumSize() {
+
+            return this.delegate.getDoubleBufferMaximumSize();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setDoubleBufferMaximumSize(Dimension d) {
+
+            this.delegate.setDoubleBufferMaximumSize(d);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isDoubleBufferingEnabled() {
+
+            return this.delegate.isDoubleBufferingEnabled();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setDoubleBufferingEnabled(boolean aFlag) {
+
+            this.delegate.setDoubleBufferingEnabled(aFlag);
+        }
+
+        /**
+         * Schedules the first paint to be recorded after the delegate paints the dirty regions it has been given so
+         * far, once the page has been laid out.
+         * <p>
+         * Must be called from the event dispatch thread.
+         */
+        private void scheduleRecording() {
+
+            if (this.scheduled || !StartupProbe.isRecorded(StartupMilestone.FIRST_PAGE_LAID_OUT)) {
+                return;
+            }
+
+            this.scheduled = Boolean.TRUE;
+            EventQueue.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    PaintProbe.this.recordFirstPaint();
+                }
+            });
+        }
+
+        /**
+         * Records the first paint, if the page has been laid out, and installs the delegate back.
+         */
+        private void recordFirstPaint() {
+
+            if (!StartupProbe.isRecorded(StartupMilestone.FIRST_PAGE_LAID_OUT)) {
+                return;
+            }
+
+            if (RepaintManager.currentManager(null) == this) {
+                RepaintManager.setCurrentManager(this.delegate);
+            }
+            StartupProbe.record(StartupMilestone.FIRST_PAINT);
+        }
+    }
+}
@@ -18,16 +18,12 @@
 
 package org.bluebell.richclient.form.binding.jideoss;
 
-import java.awt.Container;
-
 import javax.swing.JComponent;
 import javax.swing.RepaintManager;
 
 import org.bluebell.richclient.util.ObjectUtils;
 
 import com.jidesoft.swing.DefaultOverlayable;
-import com.jidesoft.swing.Overlayable;
-import com.jidesoft.swing.OverlayableUtils;
 
 /**
  * Repaint manager to be employed when using <code>JideBindingFactory</code> in order to make overlay support work.
@@ -53,6 +49,9 @@ import com.jidesoft.swing.OverlayableUtils;
  * According to <a href="http://forums.sun.com/thread.jspa?threadID=725127">this thread</a> the "unique" way to listen
  * for repaint changes is overriding <code>RepaintManager</code>. This is not a recommended practice but works anyway...
  * <p>
+ * Overlayable repaints are coalesced: every {@link DefaultOverlayable} with dirty children is repainted once per frame
+ * (just before {@link #paintDirtyRegions()}) over the union of its children dirty regions.
+ * <p>
  * <b>Note</b> this class implements singleton.
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
@@ -68,6 +67,11 @@ public class JideRepaintManager extends RepaintManager {
      */
     private static JideRepaintManager instance;
 
+    /**
+     * Collects overlayables to be repainted.
+     */
+    private final OverlayableRepaintCoalescer overlayableRepaintCoalescer = new OverlayableRepaintCoalescer();
+
     /**
      * Creates the repaint manager.
      */
@@ -85,21 +89,70 @@ public class JideRepaintManager extends RepaintManager {
         super.addDirtyRegion(c, x, y, w, h);
 
         // Aditional behaviour
-        this.repaintOverlayable(c);
+        this.repaintOverlayable(c, x, y, w, h);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Repaints collected overlayables before, so they are painted within the same frame.
+     */
+    @Override
+    public void paintDirtyRegions() {
+
+        this.overlayableRepaintCoalescer.flush();
+
+        super.paintDirtyRegions();
     }
 
     /**
-     * Repaints the parent container of the target component if that is a <code>DefaultOverlayable</code> instance.
+     * Schedules a repaint of the parent container of the target component if that is a <code>DefaultOverlayable</code>
+     * instance.
      * 
      * @param c
      *            the child component.
+     * @param x
+     *            the x coordinate of the dirty region.
+     * @param y
+     *            the y coordinate of the dirty region.
+     * @param w
+     *            the width of the dirty region.
+     * @param h
+     *            the height of the dirty region.
      */
-    protected void repaintOverlayable(JComponent c) {
+    protected void repaintOverlayable(JComponent c, int x, int y, int w, int h) {
 
-        final Container parent = c.getParent();
-        if ((!(c instanceof Overlayable)) && (parent != null) && (parent instanceof DefaultOverlayable)) {
-            OverlayableUtils.repaintOverlayable(c);
-        }
+        this.overlayableRepaintCoalescer.collect(c, x, y, w, h);
+    }
+
+    /**
+     * Gets the number of overlayable repaints requested due to dirty regions of overlayable children.
+     * 
+     * @return the number of requested repaints.
+     */
+    public final long getRequestedOverlayableRepaints() {
+
+        return this.overlayableRepaintCoalescer.getRequestedRepaints();
+    }
+
+    /**
+     * Gets the number of overlayable repaints actually performed.
+     * 
+     * @return the number of performed repaints.
+     */
+    public final long getPerformedOverlayableRepaints() {
+
+        return this.overlayableRepaintCoalescer.getPerformedRepaints();
+    }
+
+    /**
+     * Gets the number of redundant overlayable repaints avoided by coalescing them.
+     * 
+     * @return the number of avoided repaints.
+     */
+    public final long getAvoidedOverlayableRepaints() {
+
+        return this.getRequestedOverlayableRepaints() - this.getPerformedOverlayableRepaints();
     }
 
     /**
@@ -23,7 +23,6 @@ package org.bluebell.richclient.form.binding.jideoss;
 
 import java.applet.Applet;
 import java.awt.Component;
-import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.Rectangle;
@@ -31,12 +30,11 @@ import java.awt.Window;
 
 import javax.swing.JComponent;
 import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
 
 import org.springframework.richclient.util.Assert;
 
 import com.jidesoft.swing.DefaultOverlayable;
-import com.jidesoft.swing.Overlayable;
-import com.jidesoft.swing.OverlayableUtils;
 
 /**
  * Repaint manager to be employed when using <code>JideBindingFactory</code> in order to make overlay support work.
@@ -59,6 +57,10 @@ import com.jidesoft.swing.OverlayableUtils;
  * According to <a href="http://forums.sun.com/thread.jspa?threadID=725127">this thread</a> the "unique" way to listen
  * for repaint changes is overriding <code>RepaintManager</code>. This is not a recommended practice but works anyway...
  * <p>
+ * Overlayable repaints are coalesced: every {@link DefaultOverlayable} with dirty children is repainted once per batch
+ * over the union of its children dirty regions. Since the delegate paints its dirty regions by itself, collected
+ * overlayables are repainted from an event scheduled when the batch starts.
+ * <p>
  * <b>Note</b> this class implements singleton.
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
@@ -82,6 +84,23 @@ public class JideRepaintManagerWrapper extends RepaintManager {
      */
     private RepaintManager delegate;
 
+    /**
+     * Collects overlayables to be repainted.
+     */
+    private final OverlayableRepaintCoalescer overlayableRepaintCoalescer = new OverlayableRepaintCoalescer();
+
+    /**
+     * Repaints collected overlayables.
+     */
+    private final Runnable overlayableRepaintFlusher = new Runnable() {
+
+        @Override
+        public void run() {
+
+            JideRepaintManagerWrapper.this.overlayableRepaintCoalescer.flush();
+        }
+    };
+
     /**
      * Creates the repaint manager given its delegate.
      * 
@@ -112,7 +131,7 @@ public class JideRepaintManagerWrapper extends RepaintManager {
         this.getDelegate().addDirtyRegion(c, x, y, w, h);
 
         // Aditional behaviour
-        this.repaintOverlayable(c);
+        this.repaintOverlayable(c, x, y, w, h);
     }
 
     /**
@@ -229,6 +248,8 @@ public class JideRepaintManagerWrapper extends RepaintManager {
     @Override
     public void paintDirtyRegions() {
 
+        this.overlayableRepaintCoalescer.flush();
+
         this.getDelegate().paintDirtyRegions();
     }
 
@@ -278,19 +299,57 @@ public class JideRepaintManagerWrapper extends RepaintManager {
     }
 
     /**
-     * Repaints the parent container of the target component if that is a <code>DefaultOverlayable</code> instance.
+     * Schedules a repaint of the parent container of the target component if that is a <code>DefaultOverlayable</code>
+     * instance.
      * 
      * @param c
      *            the child component.
+     * @param x
+     *            the x coordinate of the dirty region.
+     * @param y
+     *            the y coordinate of the dirty region.
+     * @param w
+     *            the width of the dirty region.
+     * @param h
+     *            the height of the dirty region.
      */
-    protected void repaintOverlayable(JComponent c) {
+    protected void repaintOverlayable(JComponent c, int x, int y, int w, int h) {
 
-        final Container parent = c.getParent();
-        if ((!(c instanceof Overlayable)) && (parent != null) && (parent instanceof DefaultOverlayable)) {
-            OverlayableUtils.repaintOverlayable(c);
+        if (this.overlayableRepaintCoalescer.collect(c, x, y, w, h)) {
+            SwingUtilities.invokeLater(this.overlayableRepaintFlusher);
         }
     }
 
+    /**
+     * Gets the number of overlayable repaints requested due to dirty regions of overlayable children.
+     * 
+     * @return the number of requested repaints.
+     */
+    public final long getRequestedOverlayableRepaints() {
+
+        return this.overlayableRepaintCoalescer.getRequestedRepaints();
+    }
+
+    /**
+     * Gets the number of overlayable repaints actually performed.
+     * 
+     * @return the number of performed repaints.
+     */
+    public final long getPerformedOverlayableRepaints() {
+
+        return this.overlayableRepaintCoalescer.getPerformedRepaints();
+    }
+
+    /**
+     * Gets the number of redundant overlayable repaints avoided by coalescing them.
+     * 
+     * @return the number of avoided repaints.
+     */
+    public final long getAvoidedOverlayableRepaints() {
+
+        return this.getRequestedOverlayableRepaints() - this.getPerformedOverlayableRepaints();
+    }
+
     /**
      * Gets the delegate repaint manager.
      * 
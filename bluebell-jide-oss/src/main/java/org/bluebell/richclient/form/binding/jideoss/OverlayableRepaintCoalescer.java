@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Jide OSS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form.binding.jideoss;
+
+import java.awt.Container;
+import java.awt.Rectangle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.JComponent;
+
+import com.jidesoft.swing.DefaultOverlayable;
+import com.jidesoft.swing.Overlayable;
+
+/**
+ * Collects the overlayables to be repainted due to dirty regions of their children, so every overlayable is repainted
+ * once per frame and only over the union of its children dirty regions.
+ * <p>
+ * Also counts the requested and the performed overlayable repaints.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ *
+ * @see JideRepaintManager
+ * @see JideRepaintManagerWrapper
+ */
+final class OverlayableRepaintCoalescer {
+
+    /**
+     * The union of dirty regions (in overlayable coordinates) indexed by the overlayable to be repainted.
+     */
+    private Map<Container, Rectangle> pendingRepaints = new LinkedHashMap<Container, Rectangle>();
+
+    /**
+     * The number of requested overlayable repaints.
+     */
+    private final AtomicLong requestedRepaints = new AtomicLong();
+
+    /**
+     * The number of performed overlayable repaints.
+     */
+    private final AtomicLong performedRepaints = new AtomicLong();
+
+    /**
+     * Creates the coalescer.
+     */
+    OverlayableRepaintCoalescer() {
+
+        super();
+    }
+
+    /**
+     * Collects the overlayable containing the given component if the component is the child of a
+     * <code>DefaultOverlayable</code> instance.
+     *
+     * @param c
+     *            the child component.
+     * @param x
+     *            the x coordinate of the dirty region.
+     * @param y
+     *            the y coordinate of the dirty region.
+     * @param w
+     *            the width of the dirty region.
+     * @param h
+     *            the height of the dirty region.
+     * @return <code>true</code> if this is the first overlayable collected since last flush.
+     */
+    Boolean collect(JComponent c, int x, int y, int w, int h) {
+
+        final Container parent = c.getParent();
+        if ((c instanceof Overlayable) || !(parent instanceof DefaultOverlayable) || (w <= 0) || (h <= 0)) {
+            return Boolean.FALSE;
+        }
+
+        this.requestedRepaints.incrementAndGet();
+
+        final Rectangle dirtyRegion = new Rectangle(c.getX() + x, c.getY() + y, w, h);
+        synchronized (this) {
+            final Boolean first = this.pendingRepaints.isEmpty();
+
+            final Rectangle pendingRepaint = this.pendingRepaints.get(parent);
+            if (pendingRepaint == null) {
+                this.pendingRepaints.put(parent, dirtyRegion);
+            } else {
+                pendingRepaint.add(dirtyRegion);
+            }
+
+            return first;
+        }
+    }
+
+    /**
+     * Repaints the collected overlayables.
+     */
+    void flush() {
+
+        final Map<Container, Rectangle> repaints;
+        synchronized (this) {
+            if (this.pendingRepaints.isEmpty()) {
+                return;
+            }
+            repaints = this.pendingRepaints;
+            this.pendingRepaints = new LinkedHashMap<Container, Rectangle>();
+        }
+
+        for (final Map.Entry<Container, Rectangle> entry : repaints.entrySet()) {
+            entry.getKey().repaint(entry.getValue().x, entry.getValue().y, //
+                    entry.getValue().width, entry.getValue().height);
+        }
+
+        this.performedRepaints.addAndGet(repaints.size());
+    }
+
+    /**
+     * Gets the number of requested overlayable repaints.
+     *
+     * @return the number of requested repaints.
+     */
+    long getRequestedRepaints() {
+
+        return this.requestedRepaints.get();
+    }
+
+    /**
+     * Gets the number of performed overlayable repaints.
+     *
+     * @return the number of performed repaints.
+     */
+    long getPerformedRepaints() {
+
+        return this.performedRepaints.get();
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Jide OSS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form.builder.jideoss;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.table.TableModel;
+
+import org.apache.commons.lang.StringUtils;
+import org.bluebell.richclient.table.support.TableSearchIndex;
+import org.springframework.util.Assert;
+
+import com.jidesoft.swing.TableSearchable;
+
+/**
+ * A <code>TableSearchable</code> searching all columns through a {@link TableSearchIndex}, so that searching does not
+ * convert every cell into a string on every keystroke.
+ * <p>
+ * The index is used whenever the search is row oriented, case insensitive and has no wildcards, otherwise (or while the
+ * index is being built) this class behaves as its parent. Rows are visited in view order, so sorted and filtered tables
+ * are supported. Cells are indexed through {@link #convertElementToString(Object)}, as parent class matches them.
+ * <p>
+ * Searches not resolved near the cursor go on in background: meanwhile the selection is kept, and the found row is
+ * selected later unless another search started in between.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class IndexedTableSearchable extends TableSearchable {
+
+    /**
+     * The characters with special meaning when wildcards are enabled.
+     */
+    private static final String WILDCARDS = "*?";
+
+    /**
+     * The index of the table model.
+     */
+    private TableSearchIndex searchIndex;
+
+    /**
+     * The model index of every view row, <code>null</code> if not computed since the last row sorter change.
+     */
+    private int[] viewToModel;
+
+    /**
+     * Incremented on every search, so results of superseded searches are discarded.
+     */
+    private int searchCount;
+
+    /**
+     * Listens for table model changes to index the new model.
+     */
+    private final PropertyChangeListener modelChangeListener = new PropertyChangeListener() {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+
+            IndexedTableSearchable.this.installSearchIndex();
+        }
+    };
+
+    /**
+     * Listens for row sorter replacements to keep on listening for view changes.
+     */
+    private final PropertyChangeListener rowSorterChangeListener = new PropertyChangeListener() {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+
+            IndexedTableSearchable.this.rowSorterChanged((RowSorter<?>) evt.getOldValue(),
+                    (RowSorter<?>) evt.getNewValue());
+        }
+    };
+
+    /**
+     * Discards the model index of every view row once the view changes.
+     */
+    private final RowSorterListener rowSorterListener = new RowSorterListener() {
+
+        @Override
+        public void sorterChanged(RowSorterEvent e) {
+
+            IndexedTableSearchable.this.viewToModel = null;
+        }
+    };
+
+    /**
+     * Converts cells the same way parent class does, so indexed searches match the same rows.
+     */
+    private final TableSearchIndex.CellTextConverter cellTextConverter = new TableSearchIndex.CellTextConverter() {
+
+        @Override
+        public String toText(Object value, int column) {
+
+            return IndexedTableSearchable.this.convertElementToString(value);
+        }
+    };
+
+    /**
+     * Creates the searchable and starts indexing the table model.
+     *
+     * @param table
+     *            the table.
+     */
+    public IndexedTableSearchable(JTable table) {
+
+        super(table);
+
+        Assert.notNull(table, "table");
+
+        // Search for all columns
+        this.setMainIndex(-1);
+
+        this.installSearchIndex();
+        table.addPropertyChangeListener("model", this.modelChangeListener);
+        table.addPropertyChangeListener("rowSorter", this.rowSorterChangeListener);
+        this.rowSorterChanged(null, table.getRowSorter());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also stops maintaining the index.
+     */
+    @Override
+    public void uninstallListeners() {
+
+        super.uninstallListeners();
+
+        this.getTable().removePropertyChangeListener("model", this.modelChangeListener);
+        this.getTable().removePropertyChangeListener("rowSorter", this.rowSorterChangeListener);
+        this.rowSorterChanged(this.getTable().getRowSorter(), null);
+        this.uninstallSearchIndex();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findFromCursor(String s) {
+
+        final int selectedIndex = Math.max(0, this.getSelectedIndex());
+        final Integer found = this.find(s, selectedIndex, Boolean.TRUE, Boolean.TRUE);
+
+        return (found != null) ? this.orPending(found) : super.findFromCursor(s);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findNext(String s) {
+
+        final int selectedIndex = this.getSelectedIndex();
+        final Integer found = this.find(s, selectedIndex + 1, Boolean.TRUE, this.isRepeats());
+
+        return (found != null) ? this.orSelected(this.orPending(found), s) : super.findNext(s);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findPrevious(String s) {
+
+        final int selectedIndex = this.getSelectedIndex();
+        final Integer found = this.find(s, selectedIndex - 1, Boolean.FALSE, this.isRepeats());
+
+        return (found != null) ? this.orSelected(this.orPending(found), s) : super.findPrevious(s);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findFirst(String s) {
+
+        final Integer found = this.find(s, 0, Boolean.TRUE, Boolean.FALSE);
+
+        return (found != null) ? this.orPending(found) : super.findFirst(s);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findLast(String s) {
+
+        final Integer found = this.find(s, this.getTable().getRowCount() - 1, Boolean.FALSE, Boolean.FALSE);
+
+        return (found != null) ? this.orPending(found) : super.findLast(s);
+    }
+
+    /**
+     * Gets the searched table.
+     *
+     * @return the table.
+     */
+    protected final JTable getTable() {
+
+        return (JTable) this.getComponent();
+    }
+
+    /**
+     * Finds a row through the index.
+     * <p>
+     * If the result is not known yet, the found row is selected once known unless another search starts meanwhile.
+     *
+     * @param s
+     *            the text to be found.
+     * @param from
+     *            the row where search starts (inclusive), wrapped around table ends if needed.
+     * @param forward
+     *            whether to search forward or backward.
+     * @param wrap
+     *            whether to continue from the other end of the table after reaching one of them.
+     * @return the found row, <code>-1</code> if not found, {@link TableSearchIndex#PENDING} if not known yet or
+     *         <code>null</code> if the index cannot be used.
+     */
+    private Integer find(String s, int from, Boolean forward, Boolean wrap) {
+
+        final JTable table = this.getTable();
+        final int rowCount = table.getRowCount();
+        final Boolean indexable = (this.searchIndex != null) //
+                && (this.searchIndex.getTableModel() == table.getModel()) //
+                && (!table.getColumnSelectionAllowed()) //
+                && (this.getMainIndex() == -1) //
+                && (!this.isCaseSensitive()) //
+                && !(this.isWildcardEnabled() && IndexedTableSearchable.hasWildcards(s));
+
+        final int search = ++this.searchCount;
+        if (!indexable) {
+            return null;
+        } else if ((s == null) || (s.length() == 0) || (rowCount == 0)) {
+            return -1;
+        }
+
+        final int start = wrap ? ((from % rowCount) + rowCount) % rowCount : from;
+        if ((start < 0) || (start >= rowCount)) {
+            return -1;
+        }
+
+        return this.searchIndex.find(s, start, forward, wrap, this.getViewToModel(),
+                new TableSearchIndex.FindCallback() {
+
+                    @Override
+                    public void found(int viewRow) {
+
+                        if ((viewRow >= 0) && (search == IndexedTableSearchable.this.searchCount)) {
+                            IndexedTableSearchable.this.setSelectedIndex(viewRow, Boolean.FALSE);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Keeps the selected row while the result of a search is not known yet.
+     *
+     * @param found
+     *            the found row or {@link TableSearchIndex#PENDING}.
+     * @return the found row or the selected one.
+     */
+    private int orPending(int found) {
+
+        return (found == TableSearchIndex.PENDING) ? this.getSelectedIndex() : found;
+    }
+
+    /**
+     * Returns the selected row if nothing else was found and it matches, as parent class does.
+     *
+     * @param found
+     *            the found row.
+     * @param s
+     *            the text to be found.
+     * @return the found row or the selected one.
+     */
+    private int orSelected(int found, String s) {
+
+        final int selectedIndex = this.getSelectedIndex();
+        if ((found >= 0) || (selectedIndex < 0)) {
+            return found;
+        }
+
+        final int[] currentViewToModel = this.getViewToModel();
+        final int row = (currentViewToModel != null) ? currentViewToModel[selectedIndex] : selectedIndex;
+        final Boolean matches = this.searchIndex.matches(s, row);
+
+        return Boolean.TRUE.equals(matches) ? selectedIndex : -1;
+    }
+
+    /**
+     * Gets the model index of every view row, computed once per view change.
+     *
+     * @return the model indexes, <code>null</code> if the table has no row sorter.
+     */
+    private int[] getViewToModel() {
+
+        final RowSorter<?> rowSorter = this.getTable().getRowSorter();
+        if (rowSorter == null) {
+            return null;
+        } else if ((this.viewToModel == null) || (this.viewToModel.length != rowSorter.getViewRowCount())) {
+            this.viewToModel = new int[rowSorter.getViewRowCount()];
+            for (int i = 0; i < this.viewToModel.length; ++i) {
+                this.viewToModel[i] = rowSorter.convertRowIndexToModel(i);
+            }
+        }
+
+        return this.viewToModel;
+    }
+
+    /**
+     * Moves the view changes listener to a new row sorter.
+     *
+     * @param oldRowSorter
+     *            the old row sorter, may be <code>null</code>.
+     * @param newRowSorter
+     *            the new row sorter, may be <code>null</code>.
+     */
+    private void rowSorterChanged(RowSorter<?> oldRowSorter, RowSorter<?> newRowSorter) {
+
+        if (oldRowSorter != null) {
+            oldRowSorter.removeRowSorterListener(this.rowSorterListener);
+        }
+        if (newRowSorter != null) {
+            newRowSorter.addRowSorterListener(this.rowSorterListener);
+        }
+        this.viewToModel = null;
+    }
+
+    /**
+     * Starts indexing the current table model, discarding the index of the previous one.
+     * <p>
+     * Table models that cannot be read from worker threads are not indexed, so searching falls back to the regular
+     * behaviour.
+     */
+    private void installSearchIndex() {
+
+        this.uninstallSearchIndex();
+
+        final TableModel tableModel = this.getTable().getModel();
+        if (TableSearchIndex.isIndexable(tableModel)) {
+            this.searchIndex = new TableSearchIndex(tableModel, this.cellTextConverter);
+        }
+    }
+
+    /**
+     * Stops maintaining the current index.
+     */
+    private void uninstallSearchIndex() {
+
+        if (this.searchIndex != null) {
+            this.searchIndex.dispose();
+            this.searchIndex = null;
+        }
+    }
+
+    /**
+     * Whether a text contains wildcards.
+     *
+     * @param s
+     *            the text.
+     * @return <code>true</code> if it contains wildcards.
+     */
+    private static Boolean hasWildcards(String s) {
+
+        return StringUtils.containsAny(s, IndexedTableSearchable.WILDCARDS);
+    }
+}
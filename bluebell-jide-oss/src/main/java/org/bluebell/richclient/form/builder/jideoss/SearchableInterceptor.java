@@ -30,7 +30,6 @@ import javax.swing.text.JTextComponent;
 import org.springframework.richclient.form.builder.support.AbstractFormComponentInterceptor;
 
 import com.jidesoft.swing.SearchableUtils;
-import com.jidesoft.swing.TableSearchable;
 
 /**
  * Interceptor that installs the <code>Searchable</code> functionality provided by Jide OSS.
@@ -82,7 +81,7 @@ public final class SearchableInterceptor extends AbstractFormComponentIntercepto
     }
 
     /**
-     * Installs a <code>Searchable</code> into the given table.
+     * Installs a <code>Searchable</code> into the given table that searches all columns through an index.
      * 
      * @param table
      *            the target table.
@@ -90,10 +89,8 @@ public final class SearchableInterceptor extends AbstractFormComponentIntercepto
      */
     private JTable installSearchable(JTable table) {
 
-        final TableSearchable tableSearchable = SearchableUtils.installSearchable(table);
-
-        // Search for all columns
-        tableSearchable.setMainIndex(-1);
+        // Search for all columns through an index
+        new IndexedTableSearchable(table);
 
         return table;
     }
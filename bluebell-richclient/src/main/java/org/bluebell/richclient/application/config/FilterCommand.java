@@ -20,13 +20,14 @@ package org.bluebell.richclient.application.config;
 
 import javax.swing.JTable;
 
+import org.bluebell.richclient.table.support.TableFilterHeader;
 import org.springframework.richclient.command.ToggleCommand;
 import org.springframework.util.Assert;
 
 /**
- * Comando que muestra u oculta la cabecera de filtrado de una tabla de tipo {@link VLJTable}.
+ * Comando que muestra u oculta la cabecera de filtrado de una tabla, ver {@link TableFilterHeader}.
  * <p>
- * Si la tabla pasada como parámetro no es del tipo esperado entonces el comando permanece deshabilitado.
+ * Si no hay tabla que filtrar entonces el comando permanece deshabilitado.
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
  */
@@ -62,7 +63,6 @@ public class FilterCommand extends ToggleCommand {
         super(commandId);
 
         this.setTable(table);
-        // this.setEnabled(this.getTable() instanceof VLJTable);
     }
 
     /**
@@ -84,6 +84,7 @@ public class FilterCommand extends ToggleCommand {
     public void setTable(JTable table) {
 
         this.table = table;
+        this.setEnabled(table != null);
     }
 
     /**
@@ -99,9 +100,8 @@ public class FilterCommand extends ToggleCommand {
 
         Assert.isTrue(this.isEnabled());
 
-        // Llegados a este punto el comando está habilitado y por tanto la
-        // tabla es una VLJTable
-        // ((VLJTable) this.table).setFilterHeaderVisible(selected);
+        // Llegados a este punto el comando está habilitado y por tanto hay tabla
+        TableFilterHeader.getInstance(this.getTable()).setActive(selected);
 
         return super.onSelection(selected);
     }
@@ -204,7 +204,7 @@ public final class ApplicationUtils {
                         }
                     }
                 }
-            });
+            }, Boolean.FALSE);
         }
     }
 
@@ -38,7 +38,7 @@ import org.springframework.util.Assert;
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
  */
-public class BbApplicationPageFactory extends DefaultApplicationPageFactory {
+public class BbApplicationPageFactory extends DefaultApplicationPageFactory implements CachingApplicationPageFactory {
 
     /**
      * Whether to reuse pages.
@@ -73,6 +73,20 @@ public class BbApplicationPageFactory extends DefaultApplicationPageFactory {
         return page;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evictPage(ApplicationPage page) {
+
+        Assert.notNull(page, "page");
+
+        final Map<String, ApplicationPage> pages = (Map<String, ApplicationPage>) this.pageCache.get(page.getWindow());
+        if ((pages != null) && (pages.get(page.getId()) == page)) {
+            pages.remove(page.getId());
+        }
+    }
+
     /**
      * Sets whether to reuse pages.
      * 
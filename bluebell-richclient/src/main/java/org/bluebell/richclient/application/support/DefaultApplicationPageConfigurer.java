@@ -25,9 +25,14 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.ListUtils;
@@ -52,6 +57,7 @@ import org.springframework.binding.form.FormModel;
 import org.springframework.richclient.application.ApplicationPage;
 import org.springframework.richclient.application.PageComponent;
 import org.springframework.richclient.application.PageComponentDescriptor;
+import org.springframework.richclient.application.PageComponentListener;
 import org.springframework.richclient.application.View;
 import org.springframework.richclient.application.ViewDescriptorRegistry;
 import org.springframework.richclient.application.config.ApplicationWindowAware;
@@ -88,6 +94,14 @@ import org.springframework.util.Assert;
  * methods.
  * <p>
  * As this class is a POJO it can be used in an isolated way in order to retrieve page components by type.
+ * <p>
+ * Page classification is computed once per page and kept as an immutable model that is incrementally maintained while
+ * page components are opened or closed, until the page gets empty (i.e.: it has been closed). Every page keeps a
+ * modification counter increased on each page component event, so telling whether a model is up to date does not
+ * require comparing page components. Configuring a page with an up to date model skips recognition and applies the
+ * remaining processing modes in a single pass. View types are also
+ * cached per form class and per page component descriptor, so classification queries do not need to process the page
+ * again.
  * 
  * @param <T>
  *            the type of the entities to be managed.
@@ -96,7 +110,7 @@ import org.springframework.util.Assert;
  */
 // @Aspect
 public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAccessor implements
-        ApplicationPageConfigurer<T> {
+        ApplicationPageConfigurer<T>, PageComponentListener {
 
     /**
      * The logger for this class.
@@ -120,6 +134,33 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
     private static final MessageFormat UNKNOWN_FORM_CLASS_FMT = new MessageFormat(
             "Form class \"{0}\" not found. Employing default \"org.springframework.richclient.form.Form\"");
 
+    /**
+     * The view types already resolved indexed by form class.
+     */
+    private final Map<Class<? extends Form>, BbViewType> viewTypesByFormClass = Collections
+            .synchronizedMap(new WeakHashMap<Class<? extends Form>, BbViewType>());
+
+    /**
+     * The page component types already resolved indexed by page component descriptor id.
+     */
+    private final Map<String, String> pageComponentTypes = new ConcurrentHashMap<String, String>();
+
+    /**
+     * The classification models of known pages.
+     * <p>
+     * Models reference page components and these ones their page, so weak keys would never be collected: entries are
+     * explicitly removed as soon as a page gets empty.
+     */
+    private final Map<ApplicationPage, Classification<T>> classifications = Collections
+            .synchronizedMap(new HashMap<ApplicationPage, Classification<T>>());
+
+    /**
+     * The number of page component events received per known page.
+     * <p>
+     * Entries are removed together with classification models.
+     */
+    private final Map<ApplicationPage, Long> modificationCounts = new ConcurrentHashMap<ApplicationPage, Long>();
+
     /**
      * Constructs the configurer.
      */
@@ -190,41 +231,82 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
      * 
      * @see #configureApplicationPage(ApplicationPage)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public Map<String, List<? extends PageComponent>> classifyApplicationPage(ApplicationPage applicationPage) {
 
         Assert.notNull(applicationPage, "applicationPage");
 
-        // Configuration is repeatable, idempotent and fast.
-        final State<T> state = this.doConfigureApplicationPage(applicationPage, ProcessingMode.RECOGNIZE);
+        return this.getClassification(applicationPage).asMap();
+    }
 
-        List<? extends PageComponent> masterViews = new ArrayList<PageComponent>();
-        List<? extends PageComponent> validationViews = new ArrayList<PageComponent>();
-        if (state.masterView != null) {
-            masterViews = Arrays.asList(state.masterView);
-        }
-        if (state.validationView != null) {
-            validationViews = Arrays.asList(state.validationView);
+    /**
+     * {@inheritDoc}
+     * 
+     * @see #getViewType(Class)
+     */
+    @Override
+    public String getPageComponentType(String pageComponentDescriptorId) {
+
+        Assert.notNull(pageComponentDescriptorId, "pageComponentDescriptorId");
+
+        String pageComponentType = this.pageComponentTypes.get(pageComponentDescriptorId);
+        if (pageComponentType == null) {
+            pageComponentType = this.doGetPageComponentType(pageComponentDescriptorId);
+            this.pageComponentTypes.put(pageComponentDescriptorId, pageComponentType);
         }
 
-        final Map<String, List<? extends PageComponent>> res = new HashMap<String, List<? extends PageComponent>>();
-        res.put(BbViewType.MASTER_TYPE.name(), masterViews);
-        res.put(BbViewType.SEARCH_TYPE.name(), ListUtils.unmodifiableList(state.searchViews));
-        res.put(BbViewType.CHILD_TYPE.name(), ListUtils.unmodifiableList(state.childViews));
-        res.put(BbViewType.VALIDATION_TYPE.name(), validationViews);
-        res.put(BbViewType.UNKNOWN_TYPE.name(), ListUtils.unmodifiableList(state.unknownPageComponents));
+        return pageComponentType;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Updates the classification model of the page the given page component belongs to.
+     */
+    @Override
+    public void componentOpened(PageComponent pageComponent) {
+
+        this.updateClassification(pageComponent, Boolean.TRUE);
+    }
 
-        return res;
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Updates the classification model of the page the given page component belongs to, or discards it if the page
+     * gets empty.
+     */
+    @Override
+    public void componentClosed(PageComponent pageComponent) {
+
+        this.updateClassification(pageComponent, Boolean.FALSE);
     }
 
     /**
      * {@inheritDoc}
-     * 
-     * @see #getViewType(Class)
      */
     @Override
-    public String getPageComponentType(String pageComponentDescriptorId) {
+    public void componentFocusGained(PageComponent pageComponent) {
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void componentFocusLost(PageComponent pageComponent) {
+
+    }
+
+    /**
+     * Resolves the type of a page component given its page component descriptor id.
+     * 
+     * @param pageComponentDescriptorId
+     *            the identifier of the page component descriptor.
+     * @return the type (never returns <code>null</code>).
+     * 
+     * @see #getPageComponentType(String)
+     */
+    protected String doGetPageComponentType(String pageComponentDescriptorId) {
 
         Assert.notNull(pageComponentDescriptorId, "pageComponentDescriptorId");
 
@@ -281,6 +363,28 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
 
         Assert.notNull(formClass, FORM_CLASS_KEY);
 
+        BbViewType viewType = this.viewTypesByFormClass.get(formClass);
+        if (viewType == null) {
+            viewType = this.doGetViewType(formClass);
+            this.viewTypesByFormClass.put(formClass, viewType);
+        }
+
+        return viewType;
+    }
+
+    /**
+     * Resolves the view type given the form class of the backing form view.
+     * 
+     * @param formClass
+     *            the form class of the backing form view.
+     * @return the type.
+     * 
+     * @see #getViewType(Class)
+     */
+    protected BbViewType doGetViewType(Class<? extends Form> formClass) {
+
+        Assert.notNull(formClass, FORM_CLASS_KEY);
+
         if (AbstractBbMasterForm.class.isAssignableFrom(formClass)) {
             return BbViewType.MASTER_TYPE;
         } else if (BbValidationForm.class.isAssignableFrom(formClass)) {
@@ -490,7 +594,7 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
         switch (processingMode) {
             case RECOGNIZE:
                 // Add a new child view
-                if (!state.childViews.contains(childView)) {
+                if (state.recognized.add(childView)) {
                     state.childViews.add(childView);
                 }
                 break;
@@ -544,7 +648,7 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
 
         switch (processingMode) {
             case RECOGNIZE:
-                if (!state.searchViews.contains(searchView)) {
+                if (state.recognized.add(searchView)) {
                     state.searchViews.add(searchView);
                 }
                 break;
@@ -658,7 +762,7 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
 
         switch (processingMode) {
             case RECOGNIZE:
-                if (!state.unknownPageComponents.contains(pageComponent)) {
+                if (state.recognized.add(pageComponent)) {
                     state.unknownPageComponents.add(pageComponent);
                 }
                 break;
@@ -717,6 +821,11 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
      * Configures an application page, iterating all over its page components in two consecutives steps.
      * <p>
      * As result of this method every page component should be aware of its respectives "neighbours".
+     * <p>
+     * Recognition is skipped if the classification model of the page is up to date, otherwise the model is rebuilt
+     * from the recognition pass. In the first case the remaining processing modes are applied in a single pass over
+     * the page components, starting with the master view since disassociating it releases every child and search
+     * form.
      * 
      * @param applicationPage
      *            the page to be configured.
@@ -729,17 +838,179 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
 
         Assert.notNull(applicationPage, "applicationPage");
 
+        // Read the counter first, so that a model built while page components change is never up to date
+        final Long modificationCount = this.getModificationCount(applicationPage);
+        final List<ProcessingMode> modes = Arrays.asList(processingModes);
+        final Classification<T> classification = this.classifications.get(applicationPage);
+
+        if (modes.contains(ProcessingMode.RECOGNIZE) && (classification != null)
+                && classification.isUpToDate(modificationCount)) {
+
+            final State<T> state = classification.toState();
+            final List<ProcessingMode> remainingModes = new ArrayList<ProcessingMode>(modes);
+            remainingModes.removeAll(Collections.singleton(ProcessingMode.RECOGNIZE));
+
+            for (final PageComponent pageComponent : classification.getProcessingOrder()) {
+                for (final ProcessingMode processingMode : remainingModes) {
+                    this.processPageComponent(pageComponent, state, processingMode);
+                }
+            }
+
+            return state;
+        }
+
+        final List<PageComponent> pageComponents = applicationPage.getPageComponents();
         final State<T> state = new State<T>();
+        for (final ProcessingMode processingMode : modes) {
 
-        for (ProcessingMode processingMode : processingModes) {
-            for (final PageComponent pageComponent : applicationPage.getPageComponents()) {
+            for (final PageComponent pageComponent : pageComponents) {
                 this.processPageComponent(pageComponent, state, processingMode);
             }
+
+            if (ProcessingMode.RECOGNIZE.equals(processingMode)) {
+                this.putClassification(applicationPage, //
+                        new Classification<T>(pageComponents, state, modificationCount));
+            }
         }
 
         return state;
     }
 
+    /**
+     * Gets the classification model of a page, building it if it does not exist or is out of date.
+     * 
+     * @param applicationPage
+     *            the page.
+     * @return the classification model.
+     */
+    private Classification<T> getClassification(ApplicationPage applicationPage) {
+
+        Assert.notNull(applicationPage, "applicationPage");
+
+        final Classification<T> classification = this.classifications.get(applicationPage);
+        if ((classification != null) && classification.isUpToDate(this.getModificationCount(applicationPage))) {
+            return classification;
+        }
+
+        // Recognition registers the new classification model
+        this.doConfigureApplicationPage(applicationPage, ProcessingMode.RECOGNIZE);
+
+        return this.classifications.get(applicationPage);
+    }
+
+    /**
+     * Registers the classification model of a page, listening for page component events on the first time.
+     * 
+     * @param applicationPage
+     *            the page.
+     * @param classification
+     *            the classification model.
+     */
+    private void putClassification(ApplicationPage applicationPage, Classification<T> classification) {
+
+        Assert.notNull(applicationPage, "applicationPage");
+        Assert.notNull(classification, "classification");
+
+        if (this.classifications.put(applicationPage, classification) == null) {
+            applicationPage.addPageComponentListener(this);
+        }
+    }
+
+    /**
+     * Discards the classification model of a page and stops listening for its page component events.
+     * 
+     * @param applicationPage
+     *            the page.
+     */
+    private void removeClassification(ApplicationPage applicationPage) {
+
+        Assert.notNull(applicationPage, "applicationPage");
+
+        if (this.classifications.remove(applicationPage) != null) {
+            applicationPage.removePageComponentListener(this);
+        }
+        this.modificationCounts.remove(applicationPage);
+    }
+
+    /**
+     * Gets the number of page component events received for a page.
+     * 
+     * @param applicationPage
+     *            the page.
+     * @return the modification count, <code>0</code> if the page is not known.
+     */
+    final Long getModificationCount(ApplicationPage applicationPage) {
+
+        Assert.notNull(applicationPage, "applicationPage");
+
+        final Long modificationCount = this.modificationCounts.get(applicationPage);
+
+        return (modificationCount != null) ? modificationCount : 0L;
+    }
+
+    /**
+     * Indicates whether there is a classification model for a page, even if it is out of date.
+     * 
+     * @param applicationPage
+     *            the page.
+     * @return <code>true</code> if the page is known and <code>false</code> in other case.
+     */
+    final Boolean hasClassification(ApplicationPage applicationPage) {
+
+        return this.classifications.containsKey(applicationPage);
+    }
+
+    /**
+     * Updates the classification model of a page after opening or closing one of its page components.
+     * <p>
+     * Increases the modification count of the page. Child, search and unknown page components are added or removed
+     * in place, as long as the model was up to date. Any other page component (i.e.: the master view) affects the
+     * associations between page components, so the model is discarded and will be rebuilt on demand.
+     * 
+     * @param pageComponent
+     *            the page component.
+     * @param opened
+     *            <code>true</code> if page component has been opened and <code>false</code> in other case.
+     */
+    private void updateClassification(PageComponent pageComponent, Boolean opened) {
+
+        Assert.notNull(pageComponent, "pageComponent");
+        Assert.notNull(opened, "opened");
+
+        final ApplicationPage applicationPage = pageComponent.getContext().getPage();
+        final Classification<T> classification = this.classifications.get(applicationPage);
+        if (classification == null) {
+            return;
+        }
+
+        final Long previousCount = this.getModificationCount(applicationPage);
+        final Long modificationCount = previousCount + 1;
+        this.modificationCounts.put(applicationPage, modificationCount);
+
+        if (!opened && applicationPage.getPageComponents().isEmpty()) {
+            // Closed pages get empty, forget them so they can be collected
+            this.removeClassification(applicationPage);
+            return;
+        }
+
+        final Form form = FormUtils.getBackingForm(pageComponent);
+        final BbViewType viewType = (pageComponent instanceof View) //
+                ? this.getViewType((View) pageComponent) //
+                : BbViewType.UNKNOWN_TYPE;
+
+        final Boolean incremental = !(form instanceof GlobalCommandsAccessor) && (//
+                BbViewType.CHILD_TYPE.equals(viewType) //
+                        || BbViewType.SEARCH_TYPE.equals(viewType) //
+                || BbViewType.UNKNOWN_TYPE.equals(viewType));
+
+        if (incremental && classification.isUpToDate(previousCount)) {
+            this.classifications.put(applicationPage, classification.update(//
+                    applicationPage.getPageComponents(), pageComponent, viewType, opened, modificationCount));
+        } else {
+            this.classifications.put(applicationPage, Classification.<T> outOfDate());
+        }
+    }
+
     /**
      * Validates a page component in order to ensure its associations are in fact contained in the same page.
      * 
@@ -954,6 +1225,11 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
          */
         private BbDispatcherForm<Q> dispatcherForm;
 
+        /**
+         * The page components already recognized, avoids linear searches over the lists above.
+         */
+        private Set<PageComponent> recognized;
+
         /**
          * Constructs the VO.
          */
@@ -962,6 +1238,267 @@ public class DefaultApplicationPageConfigurer<T> extends ApplicationServicesAcce
             this.childViews = new ArrayList<FormBackedView<AbstractBbChildForm<Q>>>();
             this.searchViews = new ArrayList<FormBackedView<AbstractBbSearchForm<Q, ?>>>();
             this.unknownPageComponents = new ArrayList<PageComponent>();
+            this.recognized = new HashSet<PageComponent>();
+        }
+    }
+
+    /**
+     * Immutable classification model of a page.
+     * 
+     * @param <Q>
+     *            the type of the entities to be managed.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class Classification<Q> {
+
+        /**
+         * A model that is never up to date.
+         */
+        private static final Classification<Object> OUT_OF_DATE = new Classification<Object>();
+
+        /**
+         * The page components this model was built from, <code>null</code> if out of date.
+         */
+        private final List<PageComponent> pageComponents;
+
+        /**
+         * The page modification count this model was built at.
+         */
+        private final Long modificationCount;
+
+        /**
+         * The page components in the order they are processed in a single pass: the master view first and then the
+         * others in page order.
+         */
+        private final List<PageComponent> processingOrder;
+
+        /**
+         * The master view.
+         */
+        private final FormBackedView<AbstractBbMasterForm<Q>> masterView;
+
+        /**
+         * Page child views.
+         */
+        private final List<FormBackedView<AbstractBbChildForm<Q>>> childViews;
+
+        /**
+         * The search views.
+         */
+        private final List<FormBackedView<AbstractBbSearchForm<Q, ?>>> searchViews;
+
+        /**
+         * The validation view.
+         */
+        private final FormBackedView<BbValidationForm<Q>> validationView;
+
+        /**
+         * Other page components used on the page different from well knows page components.
+         */
+        private final List<PageComponent> unknownPageComponents;
+
+        /**
+         * The global commands accessor.
+         */
+        private final GlobalCommandsAccessor globalCommandsAccessor;
+
+        /**
+         * The dispatcher form.
+         */
+        private final BbDispatcherForm<Q> dispatcherForm;
+
+        /**
+         * The classification as returned by {@link DefaultApplicationPageConfigurer#classifyApplicationPage}.
+         */
+        private final Map<String, List<? extends PageComponent>> map;
+
+        /**
+         * Constructs an out of date model.
+         */
+        private Classification() {
+
+            this.pageComponents = null;
+            this.modificationCount = null;
+            this.processingOrder = Collections.emptyList();
+            this.masterView = null;
+            this.childViews = Collections.emptyList();
+            this.searchViews = Collections.emptyList();
+            this.validationView = null;
+            this.unknownPageComponents = Collections.emptyList();
+            this.globalCommandsAccessor = null;
+            this.dispatcherForm = null;
+            this.map = Collections.emptyMap();
+        }
+
+        /**
+         * Constructs the model given the page components and the recognition state.
+         * 
+         * @param pageComponents
+         *            the page components.
+         * @param state
+         *            the state after recognizing page components.
+         * @param modificationCount
+         *            the page modification count the page components were read at.
+         */
+        @SuppressWarnings("unchecked")
+        private Classification(List<PageComponent> pageComponents, State<Q> state, Long modificationCount) {
+
+            Assert.notNull(pageComponents, "pageComponents");
+            Assert.notNull(state, "state");
+            Assert.notNull(modificationCount, "modificationCount");
+
+            this.pageComponents = Collections.unmodifiableList(new ArrayList<PageComponent>(pageComponents));
+            this.modificationCount = modificationCount;
+            this.masterView = state.masterView;
+            this.childViews = ListUtils.unmodifiableList(//
+                    new ArrayList<FormBackedView<AbstractBbChildForm<Q>>>(state.childViews));
+            this.searchViews = ListUtils.unmodifiableList(//
+                    new ArrayList<FormBackedView<AbstractBbSearchForm<Q, ?>>>(state.searchViews));
+            this.validationView = state.validationView;
+            this.unknownPageComponents = ListUtils.unmodifiableList(//
+                    new ArrayList<PageComponent>(state.unknownPageComponents));
+            this.globalCommandsAccessor = state.globalCommandsAccessor;
+            this.dispatcherForm = state.dispatcherForm;
+
+            List<? extends PageComponent> masterViews = Collections.emptyList();
+            List<? extends PageComponent> validationViews = Collections.emptyList();
+            if (this.masterView != null) {
+                masterViews = Collections.unmodifiableList(Arrays.asList(this.masterView));
+            }
+            if (this.validationView != null) {
+                validationViews = Collections.unmodifiableList(Arrays.asList(this.validationView));
+            }
+
+            final Map<String, List<? extends PageComponent>> res = new HashMap<String, List<? extends PageComponent>>();
+            res.put(BbViewType.MASTER_TYPE.name(), masterViews);
+            res.put(BbViewType.SEARCH_TYPE.name(), this.searchViews);
+            res.put(BbViewType.CHILD_TYPE.name(), this.childViews);
+            res.put(BbViewType.VALIDATION_TYPE.name(), validationViews);
+            res.put(BbViewType.UNKNOWN_TYPE.name(), this.unknownPageComponents);
+
+            this.map = Collections.unmodifiableMap(res);
+
+            final List<PageComponent> order = new ArrayList<PageComponent>(this.pageComponents.size());
+            if (this.masterView != null) {
+                order.add(this.masterView);
+            }
+            for (final PageComponent pageComponent : this.pageComponents) {
+                if (pageComponent != this.masterView) {
+                    order.add(pageComponent);
+                }
+            }
+            this.processingOrder = Collections.unmodifiableList(order);
+        }
+
+        /**
+         * Gets a model that is never up to date.
+         * 
+         * @param <Q>
+         *            the type of the entities to be managed.
+         * @return the model.
+         */
+        @SuppressWarnings("unchecked")
+        private static <Q> Classification<Q> outOfDate() {
+
+            return (Classification<Q>) (Classification<?>) Classification.OUT_OF_DATE;
+        }
+
+        /**
+         * Returns whether this model was built at the given page modification count.
+         * 
+         * @param currentModificationCount
+         *            the current page modification count.
+         * @return <code>true</code> if up to date and <code>false</code> in other case.
+         */
+        private Boolean isUpToDate(Long currentModificationCount) {
+
+            return (this.modificationCount != null) && this.modificationCount.equals(currentModificationCount);
+        }
+
+        /**
+         * Gets the page components in the order they are processed in a single pass.
+         * 
+         * @return the unmodifiable list, the master view first.
+         */
+        private List<PageComponent> getProcessingOrder() {
+
+            return this.processingOrder;
+        }
+
+        /**
+         * Gets the classification as a map of page component lists indexed by type.
+         * 
+         * @return the unmodifiable map.
+         */
+        private Map<String, List<? extends PageComponent>> asMap() {
+
+            return this.map;
+        }
+
+        /**
+         * Creates a recognition state equivalent to this model.
+         * 
+         * @return the state.
+         */
+        private State<Q> toState() {
+
+            final State<Q> state = new State<Q>();
+            state.masterView = this.masterView;
+            state.childViews.addAll(this.childViews);
+            state.searchViews.addAll(this.searchViews);
+            state.validationView = this.validationView;
+            state.unknownPageComponents.addAll(this.unknownPageComponents);
+            state.globalCommandsAccessor = this.globalCommandsAccessor;
+            state.dispatcherForm = this.dispatcherForm;
+            state.recognized.addAll(this.pageComponents);
+
+            return state;
+        }
+
+        /**
+         * Derives the model after opening or closing a child, search or unknown page component.
+         * 
+         * @param currentPageComponents
+         *            the page components after the event.
+         * @param pageComponent
+         *            the page component opened or closed.
+         * @param viewType
+         *            the page component type.
+         * @param opened
+         *            <code>true</code> if page component has been opened and <code>false</code> in other case.
+         * @param currentModificationCount
+         *            the page modification count after the event.
+         * @return the new model.
+         */
+        @SuppressWarnings("unchecked")
+        private Classification<Q> update(List<PageComponent> currentPageComponents, PageComponent pageComponent,
+                BbViewType viewType, Boolean opened, Long currentModificationCount) {
+
+            if (this.pageComponents == null) {
+                return this;
+            }
+
+            final State<Q> state = this.toState();
+            final List<? extends PageComponent> target;
+            switch (viewType) {
+                case CHILD_TYPE:
+                    target = state.childViews;
+                    break;
+                case SEARCH_TYPE:
+                    target = state.searchViews;
+                    break;
+                default:
+                    target = state.unknownPageComponents;
+            }
+
+            if (!opened) {
+                target.remove(pageComponent);
+            } else if (!state.recognized.contains(pageComponent)) {
+                ((List<PageComponent>) target).add(pageComponent);
+            }
+
+            return new Classification<Q>(currentPageComponents, state, currentModificationCount);
         }
     }
 
@@ -20,6 +20,7 @@ package org.bluebell.richclient.application.support;
 
 import java.lang.reflect.Constructor;
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.Map;
 
 import javax.swing.BorderFactory;
@@ -29,8 +30,12 @@ import javax.swing.border.Border;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
+import org.bluebell.richclient.form.AbstractBbMasterForm;
+import org.bluebell.richclient.form.AbstractBbSearchForm;
 import org.bluebell.richclient.form.FormInstantiationException;
 import org.bluebell.richclient.form.GlobalCommandsAccessor;
+import org.bluebell.richclient.form.LifecycleEventBus;
+import org.bluebell.richclient.form.LifecycleEventListener;
 import org.springframework.beans.BeanInstantiationException;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
@@ -111,6 +116,11 @@ public class FormBackedView<T extends Form> extends AbstractView {
      */
     private GlobalCommandsAccessor globalCommandsAccessor;
 
+    /**
+     * Si al cerrarse la vista ha de reiniciarse para ser reutilizada en lugar de liberarse.
+     */
+    private Boolean recyclable = Boolean.FALSE;
+
     /**
      * Construye la vista.
      */
@@ -187,6 +197,88 @@ public class FormBackedView<T extends Form> extends AbstractView {
         this.registerLocalCommandExecutors(this.getContext());
     }
 
+    /**
+     * Indica si al cerrarse la vista ha de reiniciarse para ser reutilizada en lugar de liberarse.
+     * 
+     * @return <code>true</code> si ha de reiniciarse y <code>false</code> en caso contrario.
+     */
+    public final Boolean isRecyclable() {
+
+        return this.recyclable;
+    }
+
+    /**
+     * Establece si al cerrarse la vista ha de reiniciarse para ser reutilizada en lugar de liberarse.
+     * 
+     * @param recyclable
+     *            el <em>flag</em>.
+     */
+    public final void setRecyclable(Boolean recyclable) {
+
+        Assert.notNull(recyclable, "recyclable");
+
+        this.recyclable = recyclable;
+    }
+
+    /**
+     * Libera la vista tras cerrarse.
+     * <p>
+     * En cualquier caso retira el formulario de los registros globales en que se dio de alta al crear el control
+     * (eventos de aplicación, bus de eventos de ciclo de vida y, para los formularios maestros, la fuente de cambios de
+     * otros usuarios). Si la vista es reutilizable además se limita a reiniciar el formulario: los formularios
+     * maestros dejan de mostrar entidades y los de búsqueda recuperan sus parámetros iniciales; al reutilizarse
+     * {@link #recycle()} vuelve a darlo de alta. En caso contrario libera sus entidades, de modo que vista, formulario
+     * y modelos queden a disposición del recolector.
+     * 
+     * @see #setRecyclable(Boolean)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void dispose() {
+
+        final T form = this.getBackingForm();
+
+        if (form != null) {
+            this.unsubscribe(form);
+        }
+
+        if (this.isRecyclable()) {
+            if (form instanceof AbstractBbMasterForm<?>) {
+                final AbstractBbMasterForm<Object> masterForm = (AbstractBbMasterForm<Object>) form;
+                masterForm.showEntities(Collections.emptyList(), Boolean.FALSE, Boolean.TRUE);
+                masterForm.suspendEntityChangeFeed();
+            } else if (form instanceof AbstractBbSearchForm<?, ?>) {
+                ((AbstractBbSearchForm<?, ?>) form).reset();
+            }
+        } else if (form != null) {
+            if (form instanceof AbstractBbMasterForm<?>) {
+                ((AbstractBbMasterForm<?>) form).dispose();
+            }
+            this.setBackingForm(null);
+        }
+
+        super.dispose();
+    }
+
+    /**
+     * Reactiva una vista reutilizable tras haberse cerrado, volviendo a dar de alta su formulario en los registros
+     * globales de los que se retiró al cerrarse.
+     * 
+     * @see #dispose()
+     */
+    public final void recycle() {
+
+        final T form = this.getBackingForm();
+
+        this.setRecyclable(Boolean.FALSE);
+        if (form != null) {
+            this.subscribe(form);
+        }
+        if (form instanceof AbstractBbMasterForm<?>) {
+            ((AbstractBbMasterForm<?>) form).resumeEntityChangeFeed();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -243,20 +335,13 @@ public class FormBackedView<T extends Form> extends AbstractView {
      * 
      * @return el control del formulario.
      */
-    @SuppressWarnings("unchecked")
     @Override
     protected JComponent createControl() {
 
         // Obtener el formulario y establecer su formulario y accesor.
         final T form = this.createForm();
         this.setBackingForm(form);
-
-        // Se registran listeners para los formularios que implementan el interface ApplicationListener
-        if (form instanceof ApplicationListener<?>) {
-            final ApplicationListener<ApplicationEvent> applicationListener = //
-            (ApplicationListener<ApplicationEvent>) form;
-            this.applicationEventMulticaster.addApplicationListener(applicationListener);
-        }
+        this.subscribe(form);
 
         // Envolver el control en un JScrollPane
         final JComponent control = this.getBackingForm().getControl();
@@ -313,6 +398,45 @@ public class FormBackedView<T extends Form> extends AbstractView {
         return null;
     }
 
+    /**
+     * Da de alta un formulario en los registros globales: eventos de aplicación para los formularios que implementan
+     * <code>ApplicationListener</code> y bus de eventos de ciclo de vida para los que implementan
+     * {@link LifecycleEventListener}.
+     * 
+     * @param form
+     *            el formulario.
+     */
+    @SuppressWarnings("unchecked")
+    private void subscribe(T form) {
+
+        if (form instanceof ApplicationListener<?>) {
+            final ApplicationListener<ApplicationEvent> applicationListener = //
+            (ApplicationListener<ApplicationEvent>) form;
+            this.applicationEventMulticaster.addApplicationListener(applicationListener);
+        }
+        if (form instanceof LifecycleEventListener) {
+            LifecycleEventBus.getInstance().addListener((LifecycleEventListener) form);
+        }
+    }
+
+    /**
+     * Retira un formulario de los registros globales en que se dio de alta.
+     * 
+     * @param form
+     *            el formulario.
+     * 
+     * @see #subscribe(Form)
+     */
+    private void unsubscribe(T form) {
+
+        if (form instanceof ApplicationListener<?>) {
+            this.applicationEventMulticaster.removeApplicationListener((ApplicationListener<?>) form);
+        }
+        if (form instanceof LifecycleEventListener) {
+            LifecycleEventBus.getInstance().removeListener((LifecycleEventListener) form);
+        }
+    }
+
     /**
      * Establece el formulario.
      * 
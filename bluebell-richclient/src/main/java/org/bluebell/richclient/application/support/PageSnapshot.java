@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.application.support;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bluebell.richclient.form.AbstractBbMasterForm;
+import org.bluebell.richclient.form.AbstractBbSearchForm;
+import org.bluebell.richclient.form.AbstractBbTableMasterForm;
+import org.bluebell.richclient.form.BbDispatcherForm;
+import org.bluebell.richclient.form.FormUtils;
+import org.springframework.richclient.application.ApplicationPage;
+import org.springframework.richclient.application.PageComponent;
+import org.springframework.richclient.form.Form;
+import org.springframework.util.Assert;
+
+import ca.odell.glazedlists.EventList;
+
+/**
+ * Compact state of a page kept while the page is hibernated, enough to rebuild an equivalent page later.
+ * <p>
+ * Holds the page descriptor id, the active page component, the entities shown by every table master form together
+ * with the ids of the selected ones and both the current and the last search params of every search form. The page
+ * is rebuilt from the snapshot alone: shown entities are restored as they were, no matter whether they come from a
+ * search, attached results or a programmatic call, and no search is run again. Page layout is not part of the
+ * snapshot since pages able to customize it save the user layout when closed.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+final class PageSnapshot {
+
+    /**
+     * The page descriptor id.
+     */
+    private final String pageDescriptorId;
+
+    /**
+     * The id of the active page component, may be <code>null</code>.
+     */
+    private String activeComponentId;
+
+    /**
+     * The entities shown by every table master form indexed by page component id.
+     */
+    private final Map<String, List<Object>> shownEntities = new HashMap<String, List<Object>>();
+
+    /**
+     * The ids of the entities selected by every table master form indexed by page component id.
+     */
+    private final Map<String, Set<Object>> selectionIds = new HashMap<String, Set<Object>>();
+
+    /**
+     * The search params of every search form indexed by page component id.
+     */
+    private final Map<String, Object> searchParams = new HashMap<String, Object>();
+
+    /**
+     * The params of the last search of every search form indexed by page component id.
+     */
+    private final Map<String, Object> lastSearchParams = new HashMap<String, Object>();
+
+    /**
+     * Creates the snapshot.
+     *
+     * @param pageDescriptorId
+     *            the page descriptor id.
+     */
+    private PageSnapshot(String pageDescriptorId) {
+
+        super();
+
+        Assert.notNull(pageDescriptorId, "pageDescriptorId");
+
+        this.pageDescriptorId = pageDescriptorId;
+    }
+
+    /**
+     * Gets the page descriptor id.
+     *
+     * @return the page descriptor id.
+     */
+    public String getPageDescriptorId() {
+
+        return this.pageDescriptorId;
+    }
+
+    /**
+     * Determines whether a page has user edits not yet saved, being committed or buffered for a later save.
+     *
+     * @param page
+     *            the page.
+     * @return <code>true</code> if dirty and <code>false</code> in other case.
+     */
+    public static Boolean isDirty(ApplicationPage page) {
+
+        Assert.notNull(page, "page");
+
+        for (final PageComponent pageComponent : page.getPageComponents()) {
+            final Form form = FormUtils.getBackingForm(pageComponent);
+            if ((form != null) && form.isDirty()) {
+                return Boolean.TRUE;
+            } else if (form instanceof AbstractBbMasterForm<?>) {
+                final BbDispatcherForm<?> dispatcherForm = ((AbstractBbMasterForm<?>) form).getDispatcherForm();
+                if (dispatcherForm.isDirty() || dispatcherForm.isSaving() || dispatcherForm.hasBufferedEdits()) {
+                    return Boolean.TRUE;
+                }
+            }
+        }
+
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Takes a snapshot of a page.
+     *
+     * @param page
+     *            the page.
+     * @return the snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public static PageSnapshot capture(ApplicationPage page) {
+
+        Assert.notNull(page, "page");
+
+        final PageSnapshot snapshot = new PageSnapshot(page.getId());
+        final PageComponent activeComponent = page.getActiveComponent();
+        snapshot.activeComponentId = (activeComponent != null) ? activeComponent.getId() : null;
+
+        for (final PageComponent pageComponent : page.getPageComponents()) {
+            final Form form = FormUtils.getBackingForm(pageComponent);
+            if (form instanceof AbstractBbTableMasterForm<?>) {
+                final AbstractBbTableMasterForm<Object> masterForm = (AbstractBbTableMasterForm<Object>) form;
+                final EventList<Object> eventList = masterForm.getMasterEventList();
+                eventList.getReadWriteLock().readLock().lock();
+                try {
+                    snapshot.shownEntities.put(pageComponent.getId(), new ArrayList<Object>(eventList));
+                } finally {
+                    eventList.getReadWriteLock().readLock().unlock();
+                }
+
+                final Set<Object> ids = new HashSet<Object>();
+                for (final Object entity : masterForm.getSelection()) {
+                    ids.add(masterForm.getEntityId(entity));
+                }
+                snapshot.selectionIds.put(pageComponent.getId(), ids);
+            } else if (form instanceof AbstractBbSearchForm<?, ?>) {
+                final Object lastParams = ((AbstractBbSearchForm<?, ?>) form).getLastSearchParams();
+                snapshot.searchParams.put(pageComponent.getId(), form.getFormObject());
+                if (lastParams != null) {
+                    snapshot.lastSearchParams.put(pageComponent.getId(), lastParams);
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Restores the state of a page created again after hibernation.
+     *
+     * @param page
+     *            the new page, its control must be already created.
+     */
+    @SuppressWarnings("unchecked")
+    public void restore(ApplicationPage page) {
+
+        Assert.notNull(page, "page");
+        Assert.isTrue(this.pageDescriptorId.equals(page.getId()), "this.pageDescriptorId.equals(page.getId())");
+
+        PageComponent activeComponent = null;
+        for (final PageComponent pageComponent : page.getPageComponents()) {
+            final String pageComponentId = pageComponent.getId();
+            final Form form = FormUtils.getBackingForm(pageComponent);
+            if ((form instanceof AbstractBbTableMasterForm<?>) && this.shownEntities.containsKey(pageComponentId)) {
+                final AbstractBbTableMasterForm<Object> masterForm = (AbstractBbTableMasterForm<Object>) form;
+                masterForm.showEntities(this.shownEntities.get(pageComponentId), Boolean.FALSE, Boolean.TRUE);
+                PageSnapshot.select(masterForm, this.selectionIds.get(pageComponentId));
+            } else if ((form instanceof AbstractBbSearchForm<?, ?>) && this.searchParams.containsKey(pageComponentId)) {
+                final AbstractBbSearchForm<Object, Object> searchForm = (AbstractBbSearchForm<Object, Object>) form;
+                final Object lastParams = this.lastSearchParams.get(pageComponentId);
+                searchForm.setFormObject(this.searchParams.get(pageComponentId));
+                if (lastParams != null) {
+                    searchForm.restoreLastSearch(lastParams);
+                }
+            }
+            if (pageComponentId.equals(this.activeComponentId)) {
+                activeComponent = pageComponent;
+            }
+        }
+
+        if (activeComponent != null) {
+            page.setActiveComponent(activeComponent);
+        }
+    }
+
+    /**
+     * Selects the entities shown by a master form with the given ids.
+     *
+     * @param masterForm
+     *            the master form.
+     * @param ids
+     *            the ids of the entities to be selected.
+     */
+    private static void select(AbstractBbTableMasterForm<Object> masterForm, Set<Object> ids) {
+
+        if ((ids == null) || ids.isEmpty()) {
+            return;
+        }
+
+        final EventList<Object> eventList = masterForm.getMasterEventList();
+        final List<Object> selection = new ArrayList<Object>();
+
+        eventList.getReadWriteLock().readLock().lock();
+        try {
+            for (final Object entity : eventList) {
+                if (ids.contains(masterForm.getEntityId(entity))) {
+                    selection.add(entity);
+                }
+            }
+        } finally {
+            eventList.getReadWriteLock().readLock().unlock();
+        }
+
+        if (!selection.isEmpty()) {
+            masterForm.changeSelection(selection);
+        }
+    }
+}
@@ -18,14 +18,20 @@
 
 package org.bluebell.richclient.application.support;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.swing.Icon;
 import javax.swing.JComponent;
+import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
 import javax.swing.JToolBar;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -36,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.richclient.application.Application;
 import org.springframework.richclient.application.ApplicationPage;
+import org.springframework.richclient.application.ApplicationPageFactory;
 import org.springframework.richclient.application.ApplicationWindow;
 import org.springframework.richclient.application.ApplicationWindowFactory;
 import org.springframework.richclient.application.PageDescriptor;
@@ -57,6 +64,11 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(TabbedApplicationWindowFactory.class);
 
+    /**
+     * The idle time in milliseconds after which inactive pages hibernate, <code>null</code> to never hibernate.
+     */
+    private Integer hibernationDelay;
+
     /**
      * {@inheritDoc}
      */
@@ -67,14 +79,42 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
         }
 
         // Create the application window and activate it
-        final ApplicationWindow window = new TabbedApplicationWindow();
+        final TabbedApplicationWindow window = new TabbedApplicationWindow();
+        window.setHibernationDelay(this.getHibernationDelay());
         Application.instance().getWindowManager().setActiveWindow(window);
 
         return window;
     }
 
+    /**
+     * Gets the idle time after which inactive pages of the created windows hibernate.
+     * 
+     * @return the hibernation delay in milliseconds, <code>null</code> if pages never hibernate.
+     */
+    public Integer getHibernationDelay() {
+
+        return this.hibernationDelay;
+    }
+
+    /**
+     * Sets the idle time after which inactive pages of the created windows hibernate.
+     * 
+     * @param hibernationDelay
+     *            the hibernation delay in milliseconds, <code>null</code> if pages never hibernate.
+     * 
+     * @see TabbedApplicationWindow#setHibernationDelay(Integer)
+     */
+    public void setHibernationDelay(Integer hibernationDelay) {
+
+        this.hibernationDelay = hibernationDelay;
+    }
+
     /**
      * Application window that holds pages into tabs.
+     * <p>
+     * Pages that remain inactive longer than the hibernation delay hibernate: a compact snapshot of their state is
+     * taken, the page is closed, disposing its components, and its tab holds an empty placeholder. Selecting the tab
+     * again creates an equivalent page from the snapshot. Pages with unsaved user edits never hibernate.
      * 
      * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
      */
@@ -90,6 +130,11 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
          */
         public static final String APP_PAGE_PROPERTY_NAME = "applicationPage";
 
+        /**
+         * The name of the tab control client property with the snapshot of a hibernated page.
+         */
+        public static final String PAGE_SNAPSHOT_PROPERTY_NAME = "pageSnapshot";
+
         /**
          * Error code for exceptions raised while trying to add a duplicated page.
          */
@@ -115,6 +160,26 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
          */
         private JTabbedPane tabbedPane;
 
+        /**
+         * The idle time in milliseconds after which inactive pages hibernate, <code>null</code> to never hibernate.
+         */
+        private Integer hibernationDelay;
+
+        /**
+         * The timer that looks for pages to hibernate.
+         */
+        private Timer hibernationTimer;
+
+        /**
+         * The time every page was deactivated at.
+         */
+        private final Map<ApplicationPage, Long> deactivationTimes = new WeakHashMap<ApplicationPage, Long>();
+
+        /**
+         * The last active page.
+         */
+        private ApplicationPage lastActivePage;
+
         /**
          * Gets the page at a given position.
          * 
@@ -154,6 +219,8 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
 
         /**
          * Gets the pages belonging to this window.
+         * <p>
+         * Hibernated pages are not included.
          * 
          * @return the pages.
          */
@@ -162,12 +229,109 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
             final List<ApplicationPage> pages = new ArrayList<ApplicationPage>(this.getTabbedPane().getTabCount());
 
             for (int i = 0; i < this.getTabbedPane().getTabCount(); ++i) {
-                pages.add(this.getPageAt(i));
+                final ApplicationPage page = this.getPageAt(i);
+                if (page != null) {
+                    pages.add(page);
+                }
             }
 
             return pages;
         }
 
+        /**
+         * Gets the idle time after which inactive pages hibernate.
+         * 
+         * @return the hibernation delay in milliseconds, <code>null</code> if pages never hibernate.
+         */
+        public final Integer getHibernationDelay() {
+
+            return this.hibernationDelay;
+        }
+
+        /**
+         * Sets the idle time after which inactive pages hibernate.
+         * 
+         * @param hibernationDelay
+         *            the hibernation delay in milliseconds, <code>null</code> if pages never hibernate.
+         */
+        public final void setHibernationDelay(Integer hibernationDelay) {
+
+            Assert.isTrue((hibernationDelay == null) || (hibernationDelay > 0), "hibernationDelay > 0");
+
+            this.hibernationDelay = hibernationDelay;
+
+            if (this.hibernationTimer != null) {
+                this.hibernationTimer.stop();
+                this.hibernationTimer = null;
+            }
+            if (this.hibernationDelay != null) {
+                // Check at a fraction of the delay so pages do not stay idle much longer than the delay
+                final int period = Math.max(1, this.hibernationDelay / 4);
+                this.hibernationTimer = new Timer(period, new ActionListener() {
+
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+
+                        TabbedApplicationWindow.this.hibernateIdlePages();
+                    }
+                });
+                this.hibernationTimer.start();
+            }
+        }
+
+        /**
+         * Determines whether the page at a given position is hibernated.
+         * 
+         * @param index
+         *            the tab index.
+         * @return <code>true</code> if hibernated and <code>false</code> in other case.
+         */
+        public final Boolean isHibernatedAt(int index) {
+
+            return this.getSnapshotAt(index) != null;
+        }
+
+        /**
+         * Hibernates a page unless it is the active one or has unsaved user edits.
+         * <p>
+         * Must be called from the event dispatch thread.
+         * 
+         * @param page
+         *            the page.
+         * @return <code>true</code> if the page has been hibernated and <code>false</code> in other case.
+         */
+        public Boolean hibernatePage(ApplicationPage page) {
+
+            Assert.notNull(page, "page");
+
+            final int index = this.getIndexOfPage(page);
+            final ApplicationPageFactory pageFactory = (ApplicationPageFactory) this.getServices().getService(//
+                    ApplicationPageFactory.class);
+
+            // Pages cached by a factory unable to evict them could not be created again
+            if ((index < 0) || (page == this.getPage()) || this.isEmptyPage(page)
+                    || !(pageFactory instanceof CachingApplicationPageFactory) || PageSnapshot.isDirty(page)) {
+                return Boolean.FALSE;
+            }
+
+            final PageSnapshot snapshot = PageSnapshot.capture(page);
+            if (!page.close()) {
+                return Boolean.FALSE;
+            }
+            ((CachingApplicationPageFactory) pageFactory).evictPage(page);
+            this.deactivationTimes.remove(page);
+
+            final JComponent placeholder = new JPanel();
+            placeholder.putClientProperty(TabbedApplicationWindow.PAGE_SNAPSHOT_PROPERTY_NAME, snapshot);
+            this.getTabbedPane().setComponentAt(index, placeholder);
+
+            if (TabbedApplicationWindow.LOGGER.isDebugEnabled()) {
+                TabbedApplicationWindow.LOGGER.debug("Page \"" + page.getId() + "\" hibernated");
+            }
+
+            return Boolean.TRUE;
+        }
+
         /**
          * Inserts a page as a new tab.
          * <p>
@@ -246,6 +410,22 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
 
         }
 
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Stops looking for pages to hibernate once closed.
+         */
+        @Override
+        public boolean close() {
+
+            final boolean closed = super.close();
+            if (closed && (this.hibernationTimer != null)) {
+                this.hibernationTimer.stop();
+            }
+
+            return closed;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -300,7 +480,11 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
             final int selectedTab = this.getTabbedPane().getSelectedIndex();
 
             int indexOfPage = this.getIndexOfPage(page);
-            if (indexOfPage == -1) { // Add the page
+            final int indexOfHibernatedPage = (indexOfPage == -1) ? this.getIndexOfHibernatedPage(page.getId()) : -1;
+            if (indexOfHibernatedPage >= 0) { // Wake up the page
+                this.wakeUpPageAt(indexOfHibernatedPage, page);
+                indexOfPage = indexOfHibernatedPage;
+            } else if (indexOfPage == -1) { // Add the page
                 this.addPage(page);
                 indexOfPage = this.getIndexOfPage(page);
             } else if (selectedTab == indexOfPage) { // Avoid recursive calls
@@ -312,6 +496,86 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
             this.getTabbedPane().validate();
         }
 
+        /**
+         * Hibernates the pages that have been inactive longer than the hibernation delay.
+         */
+        private void hibernateIdlePages() {
+
+            final Integer delay = this.getHibernationDelay();
+            if (delay == null) {
+                return;
+            }
+
+            final long now = System.currentTimeMillis();
+            for (final ApplicationPage page : this.getPages()) {
+                final Long deactivationTime = this.deactivationTimes.get(page);
+                if ((deactivationTime != null) && (now - deactivationTime >= delay)) {
+                    this.hibernatePage(page);
+                }
+            }
+        }
+
+        /**
+         * Replaces the hibernated page at a given position with a new page and restores its state.
+         * 
+         * @param index
+         *            the tab index.
+         * @param page
+         *            the new page, created with the descriptor of the hibernated one.
+         * @return the new page.
+         */
+        private ApplicationPage wakeUpPageAt(int index, ApplicationPage page) {
+
+            final PageSnapshot snapshot = this.getSnapshotAt(index);
+            Assert.notNull(snapshot, "snapshot");
+            Assert.notNull(page, "page");
+
+            final JComponent control = page.getControl();
+            control.putClientProperty(TabbedApplicationWindow.APP_PAGE_PROPERTY_NAME, page);
+            this.getTabbedPane().setComponentAt(index, control);
+
+            snapshot.restore(page);
+
+            if (TabbedApplicationWindow.LOGGER.isDebugEnabled()) {
+                TabbedApplicationWindow.LOGGER.debug("Page \"" + page.getId() + "\" woken up");
+            }
+
+            return page;
+        }
+
+        /**
+         * Gets the tab index of a hibernated page.
+         * 
+         * @param pageDescriptorId
+         *            the page descriptor id.
+         * @return the tab index, <code>-1</code> if not found.
+         */
+        private int getIndexOfHibernatedPage(String pageDescriptorId) {
+
+            for (int i = 0; i < this.getTabbedPane().getTabCount(); ++i) {
+                final PageSnapshot snapshot = this.getSnapshotAt(i);
+                if ((snapshot != null) && snapshot.getPageDescriptorId().equals(pageDescriptorId)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Gets the snapshot of the hibernated page at a given position.
+         * 
+         * @param index
+         *            the tab index.
+         * @return the snapshot, <code>null</code> if the page is not hibernated.
+         */
+        private PageSnapshot getSnapshotAt(int index) {
+
+            final JComponent tabComponent = ((JComponent) this.getTabbedPane().getComponentAt(index));
+
+            return (PageSnapshot) tabComponent.getClientProperty(TabbedApplicationWindow.PAGE_SNAPSHOT_PROPERTY_NAME);
+        }
+
         /**
          * Return wheter the target page is an empty page.
          * 
@@ -413,6 +677,11 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
                 final int tabCount = pane.getTabCount();
                 final int selectedIndex = pane.getSelectedIndex();
 
+                // Remember when the former active page became inactive
+                if (window.lastActivePage != null) {
+                    window.deactivationTimes.put(window.lastActivePage, System.currentTimeMillis());
+                }
+
                 // Show the more suitable page
                 if (selectedIndex < 0) { // Closing the unique tab
 
@@ -420,11 +689,18 @@ public class TabbedApplicationWindowFactory implements ApplicationWindowFactory
                     // R: Once an application page is shown later is not possible to set a null active page, so the best
                     // suitable way is to employ an empty page descriptor
                     window.showPage(TabbedApplicationWindow.this.emptyPageDescriptor);
+                    window.lastActivePage = null;
                 } else if (selectedIndex < tabCount) {
-                    final ApplicationPage page = window.getPageAt(selectedIndex);
+                    ApplicationPage page = window.getPageAt(selectedIndex);
+                    if (window.isHibernatedAt(selectedIndex)) {
+                        final String pageDescriptorId = window.getSnapshotAt(selectedIndex).getPageDescriptorId();
+                        page = window.wakeUpPageAt(selectedIndex, window.createPage(window, pageDescriptorId));
+                    }
                     if (page != null) {
+                        window.deactivationTimes.remove(page);
                         window.showPage(page);
                     }
+                    window.lastActivePage = page;
                 }
             }
         }
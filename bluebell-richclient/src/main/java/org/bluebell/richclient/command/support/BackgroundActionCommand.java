@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.command.support;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.bluebell.richclient.application.RcpMain;
+import org.bluebell.richclient.swing.util.SwingUtils;
+import org.springframework.binding.form.FormModel;
+import org.springframework.richclient.command.ActionCommand;
+
+/**
+ * Comando de larga duración cuyo trabajo se ejecuta en segundo plano, al estilo de <code>SwingWorker</code>.
+ * <p>
+ * La ejecución se divide en tres fases:
+ * <ol>
+ * <li>{@link #prepare()}: en el <em>event dispatch thread</em>, recaba los datos de la interfaz gráfica y decide si
+ * continuar.
+ * <li>{@link #doInBackground()}: en segundo plano mediante {@link BackgroundCommandExecutor}, realiza el trabajo
+ * costoso sin acceder a la interfaz gráfica.
+ * <li>{@link #done(Object)}: de nuevo en el <em>event dispatch thread</em>, refleja el resultado en la interfaz
+ * gráfica.
+ * </ol>
+ * <p>
+ * Mientras dura la ejecución el comando permanece deshabilitado, y también el modelo del formulario al que pertenece
+ * (si lo tiene) de modo que los comandos protegidos por un <code>FormGuard</code> quedan igualmente deshabilitados.
+ * Los comandos de un mismo modelo comparten un contador de ejecuciones en curso: el primero en comenzar lo deshabilita
+ * y el último en terminar lo vuelve a habilitar, siempre que estuviera habilitado antes.
+ * Las excepciones se notifican al gestor de excepciones registrado.
+ *
+ * @param <V>
+ *            el tipo del resultado del trabajo en segundo plano.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public abstract class BackgroundActionCommand<V> extends ActionCommand {
+
+    /**
+     * Las ejecuciones en curso de cada modelo de formulario, solo se accede desde el <em>event dispatch thread</em>.
+     */
+    private static final Map<FormModel, RunningCommands> RUNNING_COMMANDS = //
+            new WeakHashMap<FormModel, RunningCommands>();
+
+    /**
+     * La tarea en ejecución, <code>null</code> si no hay ninguna.
+     */
+    private FutureTask<V> runningTask;
+
+    /**
+     * El modelo del formulario al que pertenece el comando, puede ser <code>null</code>.
+     */
+    private FormModel formModel;
+
+    /**
+     * El modelo del formulario deshabilitado por la ejecución en curso, <code>null</code> si no hay ninguno.
+     */
+    private FormModel disabledFormModel;
+
+    /**
+     * Construye el comando.
+     *
+     * @param commandId
+     *            el identificador del comando.
+     */
+    public BackgroundActionCommand(String commandId) {
+
+        super(commandId);
+    }
+
+    /**
+     * Cancela la ejecución en curso, interrumpiendo el hilo que ejecuta el trabajo en segundo plano.
+     * <p>
+     * Tras cancelar no se invoca {@link #done(Object)}.
+     *
+     * @return <code>true</code> si había una ejecución en curso y se ha cancelado.
+     */
+    public final Boolean cancel() {
+
+        final FutureTask<V> task = this.runningTask;
+
+        return (task != null) && task.cancel(Boolean.TRUE);
+    }
+
+    /**
+     * Obtiene el modelo del formulario al que pertenece el comando.
+     *
+     * @return el modelo del formulario, puede ser <code>null</code>.
+     */
+    public final FormModel getFormModel() {
+
+        return this.formModel;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * El comando está deshabilitado mientras se ejecuta.
+     */
+    @Override
+    public boolean isEnabled() {
+
+        return super.isEnabled() && !this.isRunning();
+    }
+
+    /**
+     * Indica si el comando se está ejecutando.
+     *
+     * @return <code>true</code> si se está ejecutando.
+     */
+    public final Boolean isRunning() {
+
+        return this.runningTask != null;
+    }
+
+    /**
+     * Establece el modelo del formulario al que pertenece el comando, que se deshabilita durante la ejecución y cuyas
+     * ejecuciones concurrentes se limitan según {@link BackgroundCommandExecutor#getMaxConcurrency()}.
+     *
+     * @param formModel
+     *            el modelo del formulario, puede ser <code>null</code>.
+     */
+    public final void setFormModel(FormModel formModel) {
+
+        this.formModel = formModel;
+    }
+
+    /**
+     * Realiza el trabajo costoso en segundo plano.
+     * <p>
+     * No ha de acceder a la interfaz gráfica. Ante cancelaciones el hilo se interrumpe.
+     *
+     * @return el resultado.
+     * @throws Exception
+     *             si se produce algún error.
+     */
+    protected abstract V doInBackground() throws Exception;
+
+    /**
+     * Refleja el resultado del trabajo en segundo plano en la interfaz gráfica, desde el <em>event dispatch
+     * thread</em>.
+     * <p>
+     * Por defecto no hace nada.
+     *
+     * @param result
+     *            el resultado.
+     */
+    protected void done(V result) {
+
+        // Nothing to do
+    }
+
+    /**
+     * Prepara la ejecución desde el <em>event dispatch thread</em>, antes de comenzar el trabajo en segundo plano.
+     * <p>
+     * Por defecto continúa siempre.
+     *
+     * @return <code>true</code> para continuar con la ejecución.
+     */
+    protected Boolean prepare() {
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Indica si se ha cancelado la ejecución en curso, útil para que {@link #doInBackground()} termine cuanto antes.
+     *
+     * @return <code>true</code> si se ha cancelado.
+     */
+    protected final Boolean isCancelled() {
+
+        final FutureTask<V> task = this.runningTask;
+
+        return ((task != null) && task.isCancelled()) || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Prepara la ejecución y lanza el trabajo en segundo plano.
+     */
+    @Override
+    protected final void doExecuteCommand() {
+
+        if (this.isRunning() || !this.prepare()) {
+            return;
+        }
+
+        final FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+
+            @Override
+            public V call() throws Exception {
+
+                return BackgroundActionCommand.this.doInBackground();
+            }
+        }) {
+
+            @Override
+            protected void done() {
+
+                // Termina también cuando la tarea se cancela antes de comenzar
+                SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        BackgroundActionCommand.this.finish();
+                    }
+                }, Boolean.FALSE);
+            }
+        };
+
+        this.started(task);
+
+        final Object owner = (this.getFormModel() != null) ? this.getFormModel() : this;
+        BackgroundCommandExecutor.getInstance().execute(owner, task);
+    }
+
+    /**
+     * Marca el comando como en ejecución, deshabilitando el comando y el modelo del formulario.
+     *
+     * @param task
+     *            la tarea en ejecución.
+     */
+    private void started(FutureTask<V> task) {
+
+        this.runningTask = task;
+        this.updatedEnabledState();
+
+        final FormModel theFormModel = this.getFormModel();
+        if (theFormModel == null) {
+            return;
+        }
+
+        RunningCommands runningCommands = BackgroundActionCommand.RUNNING_COMMANDS.get(theFormModel);
+        if (runningCommands == null) {
+            runningCommands = new RunningCommands(theFormModel.isEnabled());
+            BackgroundActionCommand.RUNNING_COMMANDS.put(theFormModel, runningCommands);
+            theFormModel.setEnabled(Boolean.FALSE);
+        }
+        ++runningCommands.count;
+        this.disabledFormModel = theFormModel;
+    }
+
+    /**
+     * Termina la ejecución desde el <em>event dispatch thread</em>: restaura el estado del comando y del modelo del
+     * formulario y refleja el resultado o notifica el error.
+     */
+    private void finish() {
+
+        final FutureTask<V> task = this.runningTask;
+
+        this.runningTask = null;
+        this.release();
+        this.updatedEnabledState();
+
+        if ((task == null) || task.isCancelled()) {
+            return;
+        }
+
+        try {
+            this.done(task.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            RcpMain.handleException(e.getCause());
+        } catch (RuntimeException e) {
+            RcpMain.handleException(e);
+        }
+    }
+
+    /**
+     * Descuenta la ejecución en curso del modelo del formulario y, si era la última, lo vuelve a habilitar en caso de
+     * que estuviera habilitado antes de la primera.
+     */
+    private void release() {
+
+        final FormModel theFormModel = this.disabledFormModel;
+        if (theFormModel == null) {
+            return;
+        }
+
+        this.disabledFormModel = null;
+        final RunningCommands runningCommands = BackgroundActionCommand.RUNNING_COMMANDS.get(theFormModel);
+        if ((runningCommands != null) && (--runningCommands.count == 0)) {
+            BackgroundActionCommand.RUNNING_COMMANDS.remove(theFormModel);
+            if (runningCommands.wasEnabled) {
+                theFormModel.setEnabled(Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Las ejecuciones en curso de los comandos de un modelo de formulario.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class RunningCommands {
+
+        /**
+         * Si el modelo del formulario estaba habilitado antes de comenzar la primera ejecución.
+         */
+        private final Boolean wasEnabled;
+
+        /**
+         * El número de ejecuciones en curso.
+         */
+        private int count;
+
+        /**
+         * Construye el contador.
+         *
+         * @param wasEnabled
+         *            si el modelo del formulario estaba habilitado.
+         */
+        private RunningCommands(Boolean wasEnabled) {
+
+            this.wasEnabled = wasEnabled;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.command.support;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * Ejecutor de las tareas de los comandos de larga duración ({@link BackgroundActionCommand}).
+ * <p>
+ * Las tareas se ejecutan sobre un <em>pool</em> de hilos compartido, limitando el número de tareas simultáneas por
+ * propietario (normalmente el modelo de un formulario). Las tareas que exceden dicho límite se encolan y se ejecutan
+ * en orden de llegada conforme terminan las anteriores.
+ * <p>
+ * En modo síncrono las tareas se ejecutan en el hilo que las solicita, lo que resulta útil para las pruebas.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class BackgroundCommandExecutor {
+
+    /**
+     * El número máximo por defecto de tareas simultáneas por propietario.
+     */
+    public static final Integer DEFAULT_MAX_CONCURRENCY = 1;
+
+    /**
+     * La instancia de esta clase.
+     */
+    private static final BackgroundCommandExecutor INSTANCE = new BackgroundCommandExecutor();
+
+    /**
+     * El <em>pool</em> de hilos compartido.
+     */
+    private final ExecutorService executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            final Thread thread = new Thread(runnable, "Background command");
+            thread.setDaemon(Boolean.TRUE);
+
+            return thread;
+        }
+    });
+
+    /**
+     * Las colas de tareas indexadas por propietario.
+     */
+    private final Map<Object, OwnerQueue> ownerQueues = new WeakHashMap<Object, OwnerQueue>();
+
+    /**
+     * El número máximo de tareas simultáneas por propietario.
+     */
+    private Integer maxConcurrency = BackgroundCommandExecutor.DEFAULT_MAX_CONCURRENCY;
+
+    /**
+     * Si las tareas se ejecutan en el hilo que las solicita.
+     */
+    private volatile Boolean synchronous = Boolean.FALSE;
+
+    /**
+     * Constructor privado ya que está clase implementa un <em>singleton</em>.
+     */
+    private BackgroundCommandExecutor() {
+
+        super();
+    }
+
+    /**
+     * Obtiene la instancia de esta clase.
+     *
+     * @return la instancia.
+     */
+    public static BackgroundCommandExecutor getInstance() {
+
+        return BackgroundCommandExecutor.INSTANCE;
+    }
+
+    /**
+     * Obtiene el número máximo de tareas simultáneas por propietario.
+     *
+     * @return el número máximo de tareas simultáneas.
+     */
+    public synchronized Integer getMaxConcurrency() {
+
+        return this.maxConcurrency;
+    }
+
+    /**
+     * Establece el número máximo de tareas simultáneas por propietario.
+     *
+     * @param maxConcurrency
+     *            el número máximo de tareas simultáneas.
+     */
+    public synchronized void setMaxConcurrency(Integer maxConcurrency) {
+
+        Assert.notNull(maxConcurrency, "maxConcurrency");
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency > 0");
+
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Indica si las tareas se ejecutan en el hilo que las solicita.
+     *
+     * @return <code>true</code> si es síncrono.
+     */
+    public Boolean isSynchronous() {
+
+        return this.synchronous;
+    }
+
+    /**
+     * Establece si las tareas se ejecutan en el hilo que las solicita.
+     *
+     * @param synchronous
+     *            <code>true</code> para ejecutarlas de forma síncrona.
+     */
+    public void setSynchronous(Boolean synchronous) {
+
+        Assert.notNull(synchronous, "synchronous");
+
+        this.synchronous = synchronous;
+    }
+
+    /**
+     * Ejecuta una tarea en segundo plano, o la encola si su propietario ha alcanzado el número máximo de tareas
+     * simultáneas.
+     *
+     * @param owner
+     *            el propietario de la tarea.
+     * @param task
+     *            la tarea.
+     */
+    public void execute(Object owner, Runnable task) {
+
+        Assert.notNull(owner, "owner");
+        Assert.notNull(task, "task");
+
+        if (this.isSynchronous()) {
+            task.run();
+            return;
+        }
+
+        final Runnable next;
+        synchronized (this) {
+            OwnerQueue ownerQueue = this.ownerQueues.get(owner);
+            if (ownerQueue == null) {
+                ownerQueue = new OwnerQueue();
+                this.ownerQueues.put(owner, ownerQueue);
+            }
+
+            ownerQueue.pending.add(task);
+            next = this.poll(ownerQueue);
+        }
+
+        if (next != null) {
+            this.executorService.execute(next);
+        }
+    }
+
+    /**
+     * Obtiene la siguiente tarea a ejecutar de un propietario si no ha alcanzado el número máximo de tareas
+     * simultáneas.
+     * <p>
+     * Ha de invocarse con el monitor de esta instancia.
+     *
+     * @param ownerQueue
+     *            la cola del propietario.
+     * @return la tarea, envuelta para continuar con la siguiente al terminar, o <code>null</code> si no hay.
+     */
+    private Runnable poll(final OwnerQueue ownerQueue) {
+
+        if ((ownerQueue.running >= this.maxConcurrency) || ownerQueue.pending.isEmpty()) {
+            return null;
+        }
+
+        final Runnable task = ownerQueue.pending.poll();
+        ++ownerQueue.running;
+
+        return new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    task.run();
+                } finally {
+                    final Runnable next;
+                    synchronized (BackgroundCommandExecutor.this) {
+                        --ownerQueue.running;
+                        next = BackgroundCommandExecutor.this.poll(ownerQueue);
+                    }
+
+                    if (next != null) {
+                        BackgroundCommandExecutor.this.executorService.execute(next);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Las tareas de un propietario.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class OwnerQueue {
+
+        /**
+         * Las tareas pendientes en orden de llegada.
+         */
+        private final Queue<Runnable> pending = new LinkedList<Runnable>();
+
+        /**
+         * El número de tareas en ejecución.
+         */
+        private int running;
+    }
+}
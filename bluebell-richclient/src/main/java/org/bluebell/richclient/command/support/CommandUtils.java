@@ -69,7 +69,9 @@ public final class CommandUtils extends ApplicationServicesAccessor {
     /**
      * Configura el comando dado previo establecimiento de un identificador del controlador de la seguridad.
      * <p>
-     * Además le añade opcionalmente el interceptor {@link BusyIndicatorActionCommandInterceptor}.
+     * Además le añade opcionalmente el interceptor {@link BusyIndicatorActionCommandInterceptor}, salvo que se
+     * trate de un comando de larga duración ({@link BackgroundActionCommand}) que se ejecuta en segundo plano y se
+     * deshabilita junto con el modelo del formulario mientras dure la ejecución.
      * 
      * @param command
      *            el comando.
@@ -82,6 +84,7 @@ public final class CommandUtils extends ApplicationServicesAccessor {
      * @see #constructSecurityControllerId(String)
      * @see org.springframework.richclient.command.config.CommandConfigurer
      * @see BusyIndicatorActionCommandInterceptor
+     * @see BackgroundActionCommand
      */
     public static ActionCommand configureCommand(ActionCommand command, ValidatingFormModel formModel,
             Boolean busyIndicated) {
@@ -97,8 +100,14 @@ public final class CommandUtils extends ApplicationServicesAccessor {
         final CommandConfigurer commandConfigurer = (CommandConfigurer) //
         ApplicationServicesLocator.services().getService(CommandConfigurer.class);
 
-        // Añade al comando un interceptor indicador de ocupación
-        if (busyIndicated) {
+        // Los comandos en segundo plano no llevan indicador de ocupación ya que se retiraría al instante
+        if (command instanceof BackgroundActionCommand<?>) {
+            final BackgroundActionCommand<?> backgroundCommand = (BackgroundActionCommand<?>) command;
+            if (backgroundCommand.getFormModel() == null) {
+                backgroundCommand.setFormModel(formModel);
+            }
+        } else if (busyIndicated) {
+            // Añade al comando un interceptor indicador de ocupación
             command.addCommandInterceptor(BusyIndicatorActionCommandInterceptor.getInstance());
         }
 
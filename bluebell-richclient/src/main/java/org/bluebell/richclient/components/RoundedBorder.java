@@ -26,11 +26,16 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Insets;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.Transparency;
 import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.border.AbstractBorder;
 import javax.swing.border.Border;
@@ -39,6 +44,9 @@ import javax.swing.border.Border;
  * A rounded border implementation copied from <code>com.publicobject.misc.swing</code>.
  * <p/>
  * This is a replacement for {@link com.jidesoft.swing.PartialLineBorder} because this class does not look ok.
+ * <p/>
+ * Since antialiased rounded shapes are expensive to paint, the border is rendered once per background color into a
+ * small image that is blitted as a nine-slice: corners are copied and the central row and column are stretched.
  * 
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
@@ -50,6 +58,11 @@ public class RoundedBorder extends AbstractBorder {
      */
     private static final long serialVersionUID = 728818763812538126L;
 
+    /**
+     * The maximum number of background colors with a cached image.
+     */
+    private static final int MAX_CACHED_IMAGES = 4;
+
     /**
      * The insets.
      */
@@ -75,6 +88,11 @@ public class RoundedBorder extends AbstractBorder {
      */
     private float strokeWidth;
 
+    /**
+     * The pre-rendered images indexed by background color, only accessed from the Event Dispatcher Thread.
+     */
+    private transient Map<Color, BufferedImage> images;
+
     /**
      * Simple rounded border with no outline.
      * 
@@ -114,16 +132,75 @@ public class RoundedBorder extends AbstractBorder {
      */
     public void paintBorder(Component c, Graphics g, int x, int y, int width, int height) {
 
+        final int slice = this.getSliceSize();
+        final int size = (2 * slice) + 1;
+
+        // Too small to be sliced
+        if ((width < size) || (height < size)) {
+            this.doPaintBorder(c.getBackground(), g, x, y, width, height);
+            return;
+        }
+
+        final BufferedImage image = this.getImage(c, size);
+        final int x2 = x + width;
+        final int y2 = y + height;
+
+        final Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+
+        // Corners
+        g2.drawImage(image, x, y, x + slice, y + slice, 0, 0, slice, slice, null);
+        g2.drawImage(image, x2 - slice, y, x2, y + slice, slice + 1, 0, size, slice, null);
+        g2.drawImage(image, x, y2 - slice, x + slice, y2, 0, slice + 1, slice, size, null);
+        g2.drawImage(image, x2 - slice, y2 - slice, x2, y2, slice + 1, slice + 1, size, size, null);
+
+        // Edges
+        g2.drawImage(image, x + slice, y, x2 - slice, y + slice, slice, 0, slice + 1, slice, null);
+        g2.drawImage(image, x + slice, y2 - slice, x2 - slice, y2, slice, slice + 1, slice + 1, size, null);
+        g2.drawImage(image, x, y + slice, x + slice, y2 - slice, 0, slice, slice, slice + 1, null);
+        g2.drawImage(image, x2 - slice, y + slice, x2, y2 - slice, slice + 1, slice, size, slice + 1, null);
+
+        // Center
+        g2.drawImage(image, x + slice, y + slice, x2 - slice, y2 - slice, slice, slice, slice + 1, slice + 1, null);
+
+        g2.dispose();
+    }
+
+    /**
+     * Discards the pre-rendered images, so they are rendered again the next time the border is painted.
+     */
+    public void invalidate() {
+
+        this.images = null;
+    }
+
+    /**
+     * Paints the border shapes.
+     * 
+     * @param background
+     *            the background color.
+     * @param g
+     *            the graphics.
+     * @param x
+     *            the x coordinate.
+     * @param y
+     *            the y coordinate.
+     * @param width
+     *            the width.
+     * @param height
+     *            the height.
+     */
+    protected void doPaintBorder(Color background, Graphics g, int x, int y, int width, int height) {
+
         final Graphics2D g2 = (Graphics2D) g.create();
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // In real code optimize by preserving the rect between calls
         if (stroke != null) {
             final int i = (int) strokeWidth / 2;
             final RoundRectangle2D.Float rect = //
             new RoundRectangle2D.Float(i, i, width - strokeWidth, height - strokeWidth, arc, arc);
             g2.translate(x, y);
-            g2.setColor(c.getBackground());
+            g2.setColor(background);
             g2.fill(rect);
 
             g2.setColor(strokeColor);
@@ -132,9 +209,68 @@ public class RoundedBorder extends AbstractBorder {
         } else {
             final RoundRectangle2D.Float rect = new RoundRectangle2D.Float(0, 0, width, height, arc, arc);
             g2.translate(x, y);
-            g2.setColor(c.getBackground());
+            g2.setColor(background);
             g2.fill(rect);
         }
+
+        g2.dispose();
+    }
+
+    /**
+     * Gets the size of the corner slices, big enough to contain the arcs and the stroke.
+     * 
+     * @return the slice size.
+     */
+    private int getSliceSize() {
+
+        return (this.arc / 2) + (int) Math.ceil(this.strokeWidth) + 1;
+    }
+
+    /**
+     * Gets the pre-rendered image for the background of the given component, rendering it if not cached yet.
+     * 
+     * @param c
+     *            the component.
+     * @param size
+     *            the image size.
+     * @return the image.
+     */
+    private BufferedImage getImage(Component c, int size) {
+
+        if (this.images == null) {
+            this.images = new LinkedHashMap<Color, BufferedImage>() {
+
+                /**
+                 * This is a <code>Serializable</code> class.
+                 */
+                private static final long serialVersionUID = -3371286585296932530L;
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Color, BufferedImage> eldest) {
+
+                    return this.size() > RoundedBorder.MAX_CACHED_IMAGES;
+                }
+            };
+        }
+
+        final Color background = c.getBackground();
+        BufferedImage image = this.images.get(background);
+        if (image == null) {
+            final GraphicsConfiguration gc = c.getGraphicsConfiguration();
+            image = (gc != null) ? gc.createCompatibleImage(size, size, Transparency.TRANSLUCENT) //
+                    : new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+
+            final Graphics g = image.getGraphics();
+            this.doPaintBorder(background, g, 0, 0, size, size);
+            g.dispose();
+
+            this.images.put(background, image);
+        }
+
+        return image;
     }
 
     /*
@@ -21,22 +21,26 @@ package org.bluebell.richclient.form;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.bluebell.richclient.command.support.CommandUtils;
 import org.bluebell.richclient.form.util.BbFormModelHelper;
+import org.bluebell.richclient.table.support.ColumnAccessor;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.binding.form.HierarchicalFormModel;
 import org.springframework.binding.value.ValueModel;
 import org.springframework.binding.value.support.ObservableList;
-import org.springframework.context.ApplicationEvent;
 import org.springframework.richclient.application.Application;
 import org.springframework.richclient.application.ApplicationWindow;
 import org.springframework.richclient.application.config.ApplicationWindowAware;
 import org.springframework.richclient.application.event.LifecycleApplicationEvent;
 import org.springframework.richclient.command.ActionCommand;
 import org.springframework.richclient.command.CommandGroup;
+import org.springframework.richclient.command.CommandGroupFactoryBean;
 import org.springframework.richclient.command.support.GlobalCommandIds;
 import org.springframework.richclient.form.AbstractMasterForm;
 import org.springframework.richclient.form.Form;
@@ -44,6 +48,8 @@ import org.springframework.richclient.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import ca.odell.glazedlists.EventList;
+
 /**
  * Extends <code>AbstractMasterForm</code> including template methods and simplifying others.
  * 
@@ -56,6 +62,13 @@ import org.springframework.util.StringUtils;
 public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMasterForm implements
         ApplicationWindowAware, GlobalCommandsAccessor {
 
+    /**
+     * The default name of the property holding entity ids.
+     * 
+     * @see #getEntityId(Object)
+     */
+    public static final String DEFAULT_ID_PROPERTY_NAME = "id";
+
     /**
      * The parent form model sufix id.
      */
@@ -125,6 +138,27 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
      */
     private ActionCommand selectAllCommand;
 
+    /**
+     * The name of the property holding entity ids.
+     */
+    private String idPropertyName = AbstractBbMasterForm.DEFAULT_ID_PROPERTY_NAME;
+
+    /**
+     * The accessors of the id property indexed by entity class, <code>null</code> values stand for unsupported
+     * property paths.
+     */
+    private volatile Map<Class<?>, ColumnAccessor> idAccessors = Collections.emptyMap();
+
+    /**
+     * The feed of changes made by other users, may be <code>null</code>.
+     */
+    private EntityChangeFeed<T> entityChangeFeed;
+
+    /**
+     * Merges the changes coming from the entity change feed.
+     */
+    private EntityChangeMerger<T> entityChangeMerger;
+
     /**
      * Creates the master form given its identifier and the detail type.
      * <p>
@@ -467,6 +501,127 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
         this.applicationWindow = applicationWindow;
     }
 
+    /**
+     * Gets the feed of changes made by other users.
+     * 
+     * @return the entity change feed, may be <code>null</code>.
+     */
+    public final EntityChangeFeed<T> getEntityChangeFeed() {
+
+        return this.entityChangeFeed;
+    }
+
+    /**
+     * Subscribes this form to a feed of changes made by other users, so shown entities are updated, added or removed
+     * without searching again.
+     * <p>
+     * Changes are applied in batches from the event dispatch thread. Changes over entities with unsaved user edits are
+     * not applied but retained as conflicts, see {@link #onEntityChangeConflicts(List)}.
+     * 
+     * @param entityChangeFeed
+     *            the entity change feed, <code>null</code> to unsubscribe.
+     */
+    public final void setEntityChangeFeed(EntityChangeFeed<T> entityChangeFeed) {
+
+        this.suspendEntityChangeFeed();
+        this.entityChangeFeed = entityChangeFeed;
+        this.resumeEntityChangeFeed();
+    }
+
+    /**
+     * Stops receiving changes from the entity change feed while keeping it, i.e.: while the view of this form is
+     * pooled.
+     * 
+     * @see #resumeEntityChangeFeed()
+     */
+    public final void suspendEntityChangeFeed() {
+
+        if (this.entityChangeMerger != null) {
+            this.entityChangeFeed.unsubscribe(this.entityChangeMerger);
+            this.entityChangeMerger.dispose();
+            this.entityChangeMerger = null;
+        }
+    }
+
+    /**
+     * Subscribes again to the entity change feed after being suspended.
+     * 
+     * @see #suspendEntityChangeFeed()
+     */
+    public final void resumeEntityChangeFeed() {
+
+        if ((this.entityChangeFeed != null) && (this.entityChangeMerger == null)) {
+            this.entityChangeMerger = new EntityChangeMerger<T>(this);
+            this.entityChangeFeed.subscribe(this.entityChangeMerger);
+        }
+    }
+
+    /**
+     * Gets the ids of the entities whose changes conflict with unsaved user edits.
+     * 
+     * @return the ids of the entities.
+     */
+    public final List<Object> getEntityChangeConflicts() {
+
+        return (this.entityChangeMerger != null) ? this.entityChangeMerger.getConflicts() //
+                : Collections.<Object> emptyList();
+    }
+
+    /**
+     * Applies the changes that conflict with unsaved user edits, discarding those edits.
+     */
+    public final void resolveEntityChangeConflicts() {
+
+        if (this.entityChangeMerger != null) {
+            this.entityChangeMerger.resolveConflicts();
+        }
+    }
+
+    /**
+     * Releases the resources held by this form once its view gets closed for good.
+     * <p>
+     * Unsubscribes from the entity change feed, discards buffered edits and empties the master event list, so shown
+     * entities can be reclaimed.
+     */
+    @SuppressWarnings("unchecked")
+    public void dispose() {
+
+        this.setEntityChangeFeed(null);
+        this.getDispatcherForm().revertAll();
+
+        final EventList<T> eventList = this.getMasterEventList();
+        eventList.getReadWriteLock().writeLock().lock();
+        try {
+            eventList.clear();
+        } finally {
+            eventList.getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the name of the property holding entity ids.
+     * 
+     * @return the id property name.
+     */
+    public final String getIdPropertyName() {
+
+        return this.idPropertyName;
+    }
+
+    /**
+     * Sets the name of the property holding entity ids.
+     * 
+     * @param idPropertyName
+     *            the id property name.
+     */
+    public final void setIdPropertyName(String idPropertyName) {
+
+        Assert.notNull(idPropertyName, "idPropertyName");
+
+        this.idPropertyName = idPropertyName;
+        this.idAccessors = Collections.emptyMap();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -516,6 +671,45 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
      */
     protected abstract T doUpdate(T object);
 
+    /**
+     * Lets user implement a batch update on its own.
+     * <p>
+     * This is the <b>U</b> of CRUD for several entities at once, employed when the detail form saves the edits
+     * buffered in batch editing mode. Default implementation invokes {@link #doUpdate(Object)} for every entity, so
+     * implementors should override it to save all the entities in a single round trip.
+     * </p>
+     * 
+     * @param objects
+     *            the objects to be updated.
+     * @return the updated objects in the same order, with <code>null</code> elements for those that could not be
+     *         updated.
+     * 
+     * @see BbDispatcherForm#commitAll()
+     */
+    protected List<T> doUpdateAll(List<T> objects) {
+
+        final List<T> updatedObjects = new ArrayList<T>(objects.size());
+        for (final T object : objects) {
+            updatedObjects.add(this.doUpdate(object));
+        }
+
+        return updatedObjects;
+    }
+
+    /**
+     * Replaces the given entities currently being shown with their new versions, notifying changes at once.
+     * <p>
+     * Entities not currently being shown are ignored.
+     * 
+     * @param oldEntities
+     *            the entities to be replaced.
+     * @param newEntities
+     *            the new entities, in the same order.
+     * 
+     * @see BbDispatcherForm#commitAll()
+     */
+    protected abstract void replaceEntities(List<T> oldEntities, List<T> newEntities);
+
     /**
      * Lets user implement deletion on its own.
      * <p>
@@ -551,6 +745,8 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
     /**
      * Publica un evento de aplicación indicando que se ha creado, modificado, refrescado o eliminado un objeto.
      * <p>
+     * Los receptores registrados en el contexto de aplicación lo reciben inmediatamente, mientras que los registrados
+     * en el {@link LifecycleEventBus} lo reciben más tarde de forma asíncrona.
      * 
      * @param eventType
      *            el tipo del evento.
@@ -559,8 +755,78 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
      */
     protected final void publishApplicationEvent(EventType eventType, T source) {
 
-        final ApplicationEvent applicationEvent = new LifecycleApplicationEvent(eventType.toString(), source);
+        final LifecycleApplicationEvent applicationEvent = new LifecycleApplicationEvent(eventType.toString(), source);
         this.getApplicationContext().publishEvent(applicationEvent);
+        LifecycleEventBus.getInstance().publish(applicationEvent);
+    }
+
+    /**
+     * Gets the id of an entity, employed to match entity changes with the entities being shown.
+     * <p>
+     * Default implementation reads the property named {@link #getIdPropertyName()} through a {@link ColumnAccessor},
+     * resolved once per entity class, and falls back to a bean wrapper for unsupported property paths.
+     * 
+     * @param entity
+     *            the entity.
+     * @return the id.
+     * 
+     * @see #setEntityChangeFeed(EntityChangeFeed)
+     */
+    public Object getEntityId(T entity) {
+
+        Assert.notNull(entity, "entity");
+
+        final ColumnAccessor accessor = this.getIdAccessor(entity.getClass());
+        if (accessor != null) {
+            return accessor.getValue(entity);
+        }
+
+        return new BeanWrapperImpl(entity).getPropertyValue(this.getIdPropertyName());
+    }
+
+    /**
+     * Gets the accessor of the id property for an entity class, resolving it the first time.
+     * 
+     * @param entityClass
+     *            the entity class.
+     * @return the accessor or <code>null</code> if the id property path is not supported by {@link ColumnAccessor}.
+     */
+    private ColumnAccessor getIdAccessor(Class<?> entityClass) {
+
+        final Map<Class<?>, ColumnAccessor> currentIdAccessors = this.idAccessors;
+        if (currentIdAccessors.containsKey(entityClass)) {
+            return currentIdAccessors.get(entityClass);
+        }
+
+        final ColumnAccessor accessor = ColumnAccessor.getInstance(entityClass, this.getIdPropertyName());
+
+        // Copy on write, racing writers just resolve the same accessor twice
+        final Map<Class<?>, ColumnAccessor> newIdAccessors = new HashMap<Class<?>, ColumnAccessor>(currentIdAccessors);
+        newIdAccessors.put(entityClass, accessor);
+        this.idAccessors = newIdAccessors;
+
+        return accessor;
+    }
+
+    /**
+     * Notifies that changes made by other users over some entities have not been applied since they conflict with
+     * unsaved user edits.
+     * <p>
+     * Default implementation shows a message in the status bar. Saving will overwrite the other changes, whereas
+     * {@link #resolveEntityChangeConflicts()} applies them discarding user edits.
+     * 
+     * @param ids
+     *            the ids of the entities.
+     */
+    protected void onEntityChangeConflicts(List<Object> ids) {
+
+        final ApplicationWindow window = this.getApplicationWindow();
+        if ((window != null) && (window.getStatusBar() != null)) {
+            final String idList = StringUtils.collectionToCommaDelimitedString(ids);
+            final String message = this.getMessage(new String[] { this.getId() + ".entityChangeConflict.message",
+                    "masterForm.entityChangeConflict.message" }, new Object[] { idList });
+            window.getStatusBar().setErrorMessage(message);
+        }
     }
 
     /**
@@ -594,9 +860,8 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
     protected CommandGroup createButtonsCommandGroup() {
 
         final CommandGroup group = CommandGroup.createCommandGroup(new Object[] {
-                // this.getFilterCommand(), //
-                // CommandGroupFactoryBean.SEPARATOR_MEMBER_CODE, //
-                // CommandGroupFactoryBean.SEPARATOR_MEMBER_CODE, //
+                this.getFilterCommand(), //
+                CommandGroupFactoryBean.SEPARATOR_MEMBER_CODE, //
                 GlobalCommandIds.PROPERTIES, //
                 GlobalCommandIds.SAVE, //
                 GlobalCommandsAccessor.CANCEL, //
@@ -633,11 +898,13 @@ public abstract class AbstractBbMasterForm<T extends Object> extends AbstractMas
      * @param command
      *            el comando.
      * @param longRunningCommand
-     *            indica si es un comando de larga duración.
+     *            indica si es un comando de larga duración. Los comandos de tipo
+     *            {@link org.bluebell.richclient.command.support.BackgroundActionCommand} se ejecutan además en segundo
+     *            plano.
      * 
      * @return el comando pasado como parámetro una vez configurado.
      * 
-     * @see CommandUtils#configureCommand(ActionCommand, org.springframework.binding.form.ValidatingFormModel)
+     * @see CommandUtils#configureCommand(ActionCommand, org.springframework.binding.form.ValidatingFormModel, Boolean)
      */
     protected final ActionCommand configureCommand(ActionCommand command, Boolean longRunningCommand) {
 
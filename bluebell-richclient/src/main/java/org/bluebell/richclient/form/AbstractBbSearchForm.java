@@ -30,6 +30,7 @@ import org.apache.commons.collections.ListUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
+import org.bluebell.richclient.command.support.BackgroundActionCommand;
 import org.bluebell.richclient.command.support.CommandUtils;
 import org.bluebell.richclient.form.util.BbFormModelHelper;
 import org.springframework.beans.BeanUtils;
@@ -200,6 +201,16 @@ public abstract class AbstractBbSearchForm<T extends Object, U extends Object> e
         return this.attachResultsCommand;
     }
 
+    /**
+     * Obtiene los últimos parámetros de búsqueda.
+     * 
+     * @return los últimos parámetros de búsqueda, <code>null</code> si aún no se ha buscado.
+     */
+    public final U getLastSearchParams() {
+
+        return this.lastSearchParams;
+    }
+
     /**
      * Obtiene el formulario maestro en el que volcar los resultados de la búsqueda.
      * 
@@ -280,6 +291,27 @@ public abstract class AbstractBbSearchForm<T extends Object, U extends Object> e
         this.getRefreshLastSearchCommand().setEnabled(Boolean.TRUE);
     }
 
+    /**
+     * Establece los parámetros de una búsqueda ya realizada como los de la última búsqueda, sin repetirla, de modo que
+     * el comando de refresco pueda repetirla más adelante.
+     * <p>
+     * Los parámetros del formulario no se modifican.
+     * 
+     * @param searchParams
+     *            los parámetros de la búsqueda.
+     */
+    public final void restoreLastSearch(U searchParams) {
+
+        Assert.notNull(searchParams, "searchParams");
+
+        this.setLastSearchParams(searchParams);
+
+        final ActionCommand command = this.getRefreshLastSearchCommand();
+        if (command != null) {
+            command.setEnabled(Boolean.TRUE);
+        }
+    }
+
     /**
      * Resetea el contenido de este formulario y limpia los resultados de la búsqueda.
      * <p>
@@ -305,6 +337,8 @@ public abstract class AbstractBbSearchForm<T extends Object, U extends Object> e
 
     /**
      * Obtiene los resultados de la búsqueda.
+     * <p>
+     * Se invoca en segundo plano, por lo que no ha de acceder a la interfaz gráfica.
      * 
      * @param searchParams
      *            un objeto con los parámetros de la búsqueda obtenido al <em>commitear</em> el formulario.
@@ -555,16 +589,31 @@ public abstract class AbstractBbSearchForm<T extends Object, U extends Object> e
             return null;
         }
 
-        final ActionCommand refreshLastSearchCmd = new ActionCommand(commandId) {
+        final ActionCommand refreshLastSearchCmd = new BackgroundActionCommand<List<T>>(commandId) {
+
+            /**
+             * Los parámetros de la búsqueda en curso.
+             */
+            private U searchParams;
 
             @Override
-            protected void doExecuteCommand() {
+            protected Boolean prepare() {
 
                 // Los últimos parámetros de búsqueda.
-                final U searchParams = AbstractBbSearchForm.this.getLastSearchParams();
+                this.searchParams = AbstractBbSearchForm.this.getLastSearchParams();
+
+                return Boolean.TRUE;
+            }
+
+            @Override
+            protected List<T> doInBackground() {
 
                 // Obtener los resultados de la búsqueda.
-                final List<T> searchResults = AbstractBbSearchForm.this.doSearch(searchParams);
+                return AbstractBbSearchForm.this.doSearch(this.searchParams);
+            }
+
+            @Override
+            protected void done(List<T> searchResults) {
 
                 // Notificar el número de resultados devuelto
                 AbstractBbSearchForm.this.showNumberOfResults(searchResults.size());
@@ -638,30 +687,46 @@ public abstract class AbstractBbSearchForm<T extends Object, U extends Object> e
         if (!StringUtils.hasText(commandId)) {
             return null;
         }
-        final ActionCommand searchCmd = new ActionCommand(commandId) {
+        final ActionCommand searchCmd = new BackgroundActionCommand<List<T>>(commandId) {
+
+            /**
+             * Los parámetros de la búsqueda en curso.
+             */
+            private U searchParams;
+
             @Override
             @SuppressWarnings("unchecked")
-            protected void doExecuteCommand() {
-
-                final AbstractBbMasterForm<T> theMasterForm = AbstractBbSearchForm.this.getMasterForm();
+            protected Boolean prepare() {
 
                 // Commitear el formulario
                 AbstractBbSearchForm.this.commit();
 
                 // (JAF), 20110111, from now on no search will be performed without having requested user confirmation
-                if (theMasterForm.shouldProceed()) {
+                if (!AbstractBbSearchForm.this.getMasterForm().shouldProceed()) {
+                    return Boolean.FALSE;
+                }
 
-                    // Obtain and remmember search parameters
-                    final U formObject = (U) AbstractBbSearchForm.this.getFormObject();
-                    AbstractBbSearchForm.this.setLastSearchParams(formObject);
+                // Obtain and remmember search parameters
+                this.searchParams = (U) AbstractBbSearchForm.this.getFormObject();
+                AbstractBbSearchForm.this.setLastSearchParams(this.searchParams);
 
-                    // Obtain search results and notify the number of results
-                    final List<T> results = AbstractBbSearchForm.this.doSearch(formObject);
-                    AbstractBbSearchForm.this.showNumberOfResults(results.size());
+                return Boolean.TRUE;
+            }
 
-                    // Show entities on master form
-                    theMasterForm.showEntities(results, AbstractBbSearchForm.this.isAttachResults(), Boolean.TRUE);
-                }
+            @Override
+            protected List<T> doInBackground() {
+
+                // Obtain search results
+                return AbstractBbSearchForm.this.doSearch(this.searchParams);
+            }
+
+            @Override
+            protected void done(List<T> results) {
+
+                // Notify the number of results and show entities on master form
+                AbstractBbSearchForm.this.showNumberOfResults(results.size());
+                AbstractBbSearchForm.this.getMasterForm().showEntities(//
+                        results, AbstractBbSearchForm.this.isAttachResults(), Boolean.TRUE);
             }
         };
 
@@ -677,16 +742,6 @@ public abstract class AbstractBbSearchForm<T extends Object, U extends Object> e
         return CommandUtils.configureCommand(searchCmd, this.getFormModel(), Boolean.TRUE);
     }
 
-    /**
-     * Obtiene los últimos parámetros de búsqueda.
-     * 
-     * @return los últimos parámetros de búsqueda.
-     */
-    private U getLastSearchParams() {
-
-        return this.lastSearchParams;
-    }
-
     /**
      * Obtiene el panel con el título y si no existe lo crea.
      * 
@@ -45,7 +45,9 @@ import org.bluebell.richclient.application.config.FilterCommand;
 import org.bluebell.richclient.form.binding.swing.TableBinding;
 import org.bluebell.richclient.form.builder.support.DirtyTrackingUtils;
 import org.bluebell.richclient.form.util.BbFormModelHelper;
+import org.bluebell.richclient.table.support.BbTableRowSorter;
 import org.bluebell.richclient.table.support.TableUtils;
+import org.bluebell.richclient.util.SnapshotEventList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.binding.form.ConfigurableFormModel;
@@ -104,6 +106,12 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
     private static final MessageFormat AFTER_SELECTION_FMT = //
     new MessageFormat("After selecting model indexes \"{0}\" on {1}");
 
+    /**
+     * Debug message for <code>#estimateHeapUsage</code>.
+     */
+    private static final MessageFormat HEAP_USAGE_FMT = //
+    new MessageFormat("Estimated heap usage of {0} is {1} bytes ({2} rows, {3} cached entities)");
+
     /**
      * Determines when a selection change is currently being processed in order to avoid redundant user confirmation
      * requests.
@@ -135,6 +143,33 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
      */
     private Boolean showingEntities = Boolean.FALSE;
 
+    /**
+     * The maximum number of bytes to be held by cached full entity graphs in memory budget mode, <code>null</code> if
+     * disabled.
+     */
+    private Long memoryBudget;
+
+    /**
+     * Whether the selection being processed includes entities whose full graph could not be obtained in memory budget
+     * mode, so the detail form must not edit them.
+     */
+    private Boolean incompleteSelection = Boolean.FALSE;
+
+    /**
+     * The cache of full entity graphs used in memory budget mode, lazily created.
+     */
+    private EntityProjectionCache<T> projectionCache;
+
+    /**
+     * Whether the master table reflects a {@link SnapshotEventList} replicating the master event list.
+     */
+    private Boolean snapshotTableModel = Boolean.FALSE;
+
+    /**
+     * Whether large master tables are sorted in background.
+     */
+    private Boolean backgroundSorting = Boolean.FALSE;
+
     /**
      * Creates the master form given its identifier and the detail type.
      * <p>
@@ -215,7 +250,8 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
      * @param force
      *            whether to force showing entities without requesting user confirmation.
      * 
-     * @return <code>true</code> if success and <code>false</code> in other case (i.e.:user declined selection change).
+     * @return <code>true</code> if success and <code>false</code> in other case (i.e.:user declined selection change
+     *         or a background save is in progress).
      * 
      * @see #shouldProceed()
      */
@@ -226,8 +262,13 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
         Assert.notNull(attach, "attach");
         Assert.notNull(force, "force");
 
-        // Reset selection remembering indexes (requests user confirmation)
-        final Boolean proceed = force || this.shouldProceed();
+        // A background save merges the managed entity into the current selection, even programmatic changes must wait
+        if (this.getDispatcherForm().isSaving()) {
+            return Boolean.FALSE;
+        }
+
+        // Reset selection remembering indexes (requests user confirmation). Attached entities keep buffered edits shown
+        final Boolean proceed = force || this.shouldProceed(attach);
 
         // if (attach | proceed) { // (JAF), 20110103, selection is lost even when attaching
         if (proceed) {
@@ -246,7 +287,7 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
 
                 // Update master event list keeping order and removing duplicates.
                 @SuppressWarnings("unchecked")
-                final List<T> allEntities = SetUniqueList.decorate(entities);
+                final List<T> allEntities = SetUniqueList.decorate(this.project(entities));
 
                 // PRE-CONDITION: user has confirmed change (if needed)
                 final Boolean done = TableUtils.showEntities(this.getMasterTableModel(), allEntities, attach);
@@ -268,7 +309,8 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
     /**
      * Selects the given entities.
      * <p>
-     * If new selection is either <code>null</code> or empty then clears selection.
+     * If new selection is either <code>null</code> or empty then clears selection. Selection does not change while a
+     * background save is in progress.
      * 
      * @param newSelection
      *            the entities to select.
@@ -320,6 +362,207 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
         return TableUtils.getSelection(this.getMasterTable(), this.getMasterTableModel());
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see TableUtils#replaceEntities(GlazedTableModel, List, List)
+     */
+    @Override
+    protected final void replaceEntities(List<T> oldEntities, List<T> newEntities) {
+
+        TableUtils.replaceEntities(this.getMasterTableModel(), oldEntities, this.project(newEntities));
+    }
+
+    /**
+     * Gets the maximum number of bytes held by cached full entity graphs in memory budget mode.
+     * 
+     * @return the memory budget, <code>null</code> if memory budget mode is disabled.
+     * 
+     * @see #setMemoryBudget(Long)
+     */
+    public final Long getMemoryBudget() {
+
+        return this.memoryBudget;
+    }
+
+    /**
+     * Enables or disables memory budget mode.
+     * <p>
+     * In memory budget mode every row of the master table holds a projection of the entity: a new instance with just
+     * the properties required by {@link #getColumnPropertyNames()} and the id property. Full entity graphs are kept in
+     * a softly referenced cache, so the garbage collector may reclaim them, holding as many graphs as fit in the given
+     * budget according to the mean serialized size of the first cached ones. Projections themselves are not bounded.
+     * <p>
+     * On selection the cached graph is handed to {@link #doRefresh(List)}. Evicted graphs are fetched through
+     * {@link #doFetch(Object)} instead, and projections are never refreshed nor edited: if an entity cannot be fetched
+     * the detail form gets no selected entity. Selected rows keep their full graphs until they exceed the number of
+     * graphs the cache holds, then those no longer selected are projected again at once.
+     * <p>
+     * Entities should implement <code>equals</code> based on their id and provide a default constructor.
+     * 
+     * @param memoryBudget
+     *            the maximum number of bytes to be held by cached full entity graphs, <code>null</code> to disable
+     *            this mode.
+     */
+    public final void setMemoryBudget(Long memoryBudget) {
+
+        Assert.isTrue((memoryBudget == null) || (memoryBudget > 0), "(memoryBudget == null) || (memoryBudget > 0)");
+
+        this.memoryBudget = memoryBudget;
+        this.projectionCache = null;
+    }
+
+    /**
+     * Whether the master table reflects a {@link SnapshotEventList} replicating the master event list.
+     * 
+     * @return the snapshot table model flag.
+     * 
+     * @see #setSnapshotTableModel(Boolean)
+     */
+    public final Boolean getSnapshotTableModel() {
+
+        return this.snapshotTableModel;
+    }
+
+    /**
+     * Sets whether the master table reflects a {@link SnapshotEventList} replicating the master event list, so the
+     * master event list can be changed from background threads without waiting for the EDT and the table is notified
+     * once per frame.
+     * <p>
+     * Must be set before the control of this form is created.
+     * 
+     * @param snapshotTableModel
+     *            the snapshot table model flag to set.
+     */
+    public final void setSnapshotTableModel(Boolean snapshotTableModel) {
+
+        Assert.notNull(snapshotTableModel, "snapshotTableModel");
+
+        this.snapshotTableModel = snapshotTableModel;
+    }
+
+    /**
+     * Whether large master tables are sorted in background.
+     * 
+     * @return the background sorting flag.
+     * 
+     * @see #setBackgroundSorting(Boolean)
+     */
+    public final Boolean getBackgroundSorting() {
+
+        return this.backgroundSorting;
+    }
+
+    /**
+     * Sets whether the master table is sorted by a {@link BbTableRowSorter}, so large tables are sorted in background
+     * and the view keeps its previous order meanwhile.
+     * <p>
+     * Must be set before the control of this form is created.
+     * 
+     * @param backgroundSorting
+     *            the background sorting flag to set.
+     */
+    public final void setBackgroundSorting(Boolean backgroundSorting) {
+
+        Assert.notNull(backgroundSorting, "backgroundSorting");
+
+        this.backgroundSorting = backgroundSorting;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also disposes the master table model, so it stops listening to the master event list (or its snapshot mirror).
+     */
+    @Override
+    public void dispose() {
+
+        super.dispose();
+
+        final GlazedTableModel tableModel = this.getMasterTableModel();
+        if (tableModel != null) {
+            tableModel.dispose();
+        }
+    }
+
+    /**
+     * Estimates the heap used by the entities of this form: the rows of the master table and, in memory budget mode,
+     * the cached full entity graphs.
+     * <p>
+     * The estimation extrapolates the serialized size of a sample of entities, it is not accurate but allows comparing
+     * forms and modes.
+     * 
+     * @return the estimated number of bytes or <code>-1</code> if entities are not serializable.
+     */
+    @SuppressWarnings("unchecked")
+    public final long estimateHeapUsage() {
+
+        final EventList<T> eventList = this.getMasterEventList();
+        final List<T> rows;
+        eventList.getReadWriteLock().readLock().lock();
+        try {
+            rows = new ArrayList<T>(eventList);
+        } finally {
+            eventList.getReadWriteLock().readLock().unlock();
+        }
+
+        final EntityProjectionCache<T> cache = this.getProjectionCache();
+        final long heapUsage = (cache != null) ? cache.estimateHeapUsage(rows) //
+                : EntityProjectionCache.estimateSerializedSize(rows);
+
+        if (AbstractBbTableMasterForm.LOGGER.isDebugEnabled()) {
+            AbstractBbTableMasterForm.LOGGER.debug(AbstractBbTableMasterForm.HEAP_USAGE_FMT.format(new Object[] {
+                    this.getId(), heapUsage, rows.size(), (cache != null) ? cache.getCachedCount() : 0 }));
+        }
+
+        return heapUsage;
+    }
+
+    /**
+     * Gets the cache of full entity graphs, creating it if memory budget mode is enabled.
+     * 
+     * @return the cache or <code>null</code> if memory budget mode is disabled.
+     */
+    private EntityProjectionCache<T> getProjectionCache() {
+
+        if ((this.projectionCache == null) && (this.memoryBudget != null)) {
+            this.projectionCache = new EntityProjectionCache<T>(this, this.getColumnPropertyNames(), this.memoryBudget);
+        }
+
+        return this.projectionCache;
+    }
+
+    /**
+     * Replaces entities by their projections if memory budget mode is enabled.
+     * 
+     * @param entities
+     *            the entities.
+     * @return the projections or the given entities if memory budget mode is disabled.
+     */
+    private List<T> project(List<T> entities) {
+
+        final EntityProjectionCache<T> cache = this.getProjectionCache();
+
+        return (cache != null) ? cache.projectAll(entities) : entities;
+    }
+
+    /**
+     * Fetches the full graph of an entity given its id, used in memory budget mode when its cached graph has been
+     * evicted.
+     * <p>
+     * Default implementation returns <code>null</code>, so entities whose graph has been evicted cannot be edited.
+     * 
+     * @param id
+     *            the entity id.
+     * @return the full entity or <code>null</code> if it cannot be fetched.
+     * 
+     * @see #setMemoryBudget(Long)
+     */
+    protected T doFetch(Object id) {
+
+        return null;
+    }
+
     /**
      * Gets the property names to show in columns of the master table.
      * 
@@ -398,6 +641,9 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
 
         if (emptySelection) {
             indexToSelect = -1;
+        } else if (singleSelection && this.incompleteSelection) {
+            // Projections are never edited
+            indexToSelect = -1;
         } else if (singleSelection) {
             indexToSelect = newModelIndexes.get(0);
         } else { // Multiple selection. (JAF), 20110102
@@ -411,16 +657,33 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
          */
         final ValueChangeDetector valueChangeDetector = //
         (ValueChangeDetector) this.getService(ValueChangeDetector.class);
+        final EntityProjectionCache<T> cache = this.getProjectionCache();
+        final EventList<T> eventList = this.getMasterEventList();
 
-        for (int i = 0; i < newModelIndexes.size(); ++i) {
+        eventList.getReadWriteLock().writeLock().lock();
+        try {
+            for (int i = 0; i < newModelIndexes.size(); ++i) {
 
-            final Integer modelIndex = newModelIndexes.get(i);
-            final T oldValue = (T) this.getMasterEventList().get(modelIndex);
-            final T newValue = newSelection.get(i);
+                final Integer modelIndex = newModelIndexes.get(i);
+                final T oldValue = eventList.get(modelIndex);
+                final T newValue = newSelection.get(i);
+
+                // Projections are equal to full entities, so identity tells whether the row changes
+                final Boolean changed = (cache != null) ? (oldValue != newValue) //
+                        : valueChangeDetector.hasValueChanged(oldValue, newValue);
+                if (changed) {
+                    eventList.set(modelIndex, newValue);
+                }
+            }
 
-            if (valueChangeDetector.hasValueChanged(oldValue, newValue)) {
-                this.getMasterEventList().set(modelIndex, newValue);
+            // In memory budget mode unselected rows hold projections again once they exceed the cache capacity
+            final List<T> expanded = (cache != null) ? this.getExpandedSelection(cache, newSelection) : null;
+            if ((cache != null) && cache.expand(expanded)) {
+                this.reproject(cache, newModelIndexes);
+                cache.expand(expanded);
             }
+        } finally {
+            eventList.getReadWriteLock().writeLock().unlock();
         }
 
         /*
@@ -435,6 +698,9 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
         }
 
         DirtyTrackingUtils.clearDirty(this.getDetailFormModel());
+
+        // In batch editing mode edits buffered for the new selected entity are shown again
+        this.getDispatcherForm().restoreBufferedEdits();
     }
 
     /**
@@ -486,7 +752,16 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
          * final List<T> newSelection = this.doRefresh(selection);
          */
         final Boolean committing = this.getDispatcherForm().isCommitting();
-        final List<T> newSelection = (committing) ? selection : this.doRefresh(selection);
+        final EntityProjectionCache<T> cache = this.getProjectionCache();
+        final List<T> newSelection;
+        this.incompleteSelection = Boolean.FALSE;
+        if (committing) {
+            newSelection = selection;
+        } else if (cache != null) {
+            newSelection = this.refreshProjections(cache, selection);
+        } else {
+            newSelection = this.doRefresh(selection);
+        }
 
         // Notify child forms about selection
         for (final AbstractBbChildForm<T> childForm : this.getChildForms()) {
@@ -496,6 +771,94 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
         return newSelection;
     }
 
+    /**
+     * Replaces selected projections by full entities and refreshes them in memory budget mode.
+     * <p>
+     * Full entities are taken from cache or fetched if evicted, projections are never refreshed: those that cannot be
+     * fetched are kept and the selection is flagged as incomplete.
+     * 
+     * @param cache
+     *            the cache of full entity graphs.
+     * @param selection
+     *            the selected entities.
+     * @return the entities to be selected.
+     * 
+     * @see #doFetch(Object)
+     */
+    private List<T> refreshProjections(EntityProjectionCache<T> cache, List<T> selection) {
+
+        final List<T> newSelection = new ArrayList<T>(selection);
+        final List<T> fullEntities = new ArrayList<T>(selection.size());
+        final List<Integer> positions = new ArrayList<Integer>(selection.size());
+        for (int i = 0; i < selection.size(); ++i) {
+            final T entity = selection.get(i);
+            T fullEntity = cache.resolve(entity);
+            if (fullEntity == null) {
+                fullEntity = this.doFetch(this.getEntityId(entity));
+            }
+
+            if (fullEntity != null) {
+                fullEntities.add(fullEntity);
+                positions.add(i);
+            } else {
+                this.incompleteSelection = Boolean.TRUE;
+            }
+        }
+
+        if (!fullEntities.isEmpty()) {
+            final List<T> refreshed = this.doRefresh(fullEntities);
+            cache.putAll(refreshed);
+            for (int i = 0; i < positions.size(); ++i) {
+                newSelection.set(positions.get(i), refreshed.get(i));
+            }
+        }
+
+        return newSelection;
+    }
+
+    /**
+     * Gets the selected entities whose rows are to hold full graphs in memory budget mode.
+     * 
+     * @param cache
+     *            the cache of full entity graphs.
+     * @param selection
+     *            the selected entities.
+     * @return the selected entities but those kept as projections.
+     */
+    private List<T> getExpandedSelection(EntityProjectionCache<T> cache, List<T> selection) {
+
+        final List<T> expanded = new ArrayList<T>(selection.size());
+        for (final T entity : selection) {
+            if (cache.resolve(entity) == entity) {
+                expanded.add(entity);
+            }
+        }
+
+        return expanded;
+    }
+
+    /**
+     * Projects again, in a single pass over the master event list, every row holding a full graph but the selected
+     * ones. Must be invoked holding the write lock of the master event list.
+     * 
+     * @param cache
+     *            the cache of full entity graphs.
+     * @param selectedModelIndexes
+     *            master event list relative indexes of the selection.
+     */
+    private void reproject(EntityProjectionCache<T> cache, List<Integer> selectedModelIndexes) {
+
+        final EventList<T> eventList = this.getMasterEventList();
+        for (int i = 0; i < eventList.size(); ++i) {
+            final T entity = eventList.get(i);
+            if (!selectedModelIndexes.contains(i) && cache.isExpanded(entity)) {
+                eventList.set(i, cache.project(entity));
+            }
+        }
+
+        cache.clearExpanded();
+    }
+
     /**
      * Handles selection change events just after selection gets effective.
      * <p>
@@ -544,6 +907,10 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
         // Configure master table
         this.getMasterTable().setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         this.getMasterTable().addMouseListener(new PopupMenuMouseListener(this.getPopupMenu()));
+        // Sort large master tables in background if requested
+        if (this.getBackgroundSorting()) {
+            this.getMasterTable().setRowSorter(new BbTableRowSorter(tableModel));
+        }
         // this.getMasterTable().setPreferredScrollableViewportSize(this.getMasterTable().getPreferredSize());
 
         // Setup selection listener so that it controls the detail form
@@ -639,7 +1006,8 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
         final ConfigurableFormModel parentFormModel = (ConfigurableFormModel) this.getFormModel().getParent();
         parentFormModel.setFormObject(new ParentFormBackingBean(eventList));
 
-        return BbFormModelHelper.createTableModel(eventList, this.getColumnPropertyNames(), this.getId());
+        return BbFormModelHelper.createTableModel(//
+                eventList, this.getColumnPropertyNames(), this.getId(), this.getSnapshotTableModel());
     }
 
     /**
@@ -919,23 +1287,53 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
 
     /**
      * Returns whether should proceed with an user action that can breaks a current edition.
+     * <p>
+     * Edits buffered in batch editing mode count as a current edition, so the user is requested to discard them.
      * 
      * @return <code>true</code> to proceed and <code>false</code> in other case.
+     * 
+     * @see #shouldProceed(Boolean)
      */
     Boolean shouldProceed() {
 
+        return this.shouldProceed(Boolean.FALSE);
+    }
+
+    /**
+     * Returns whether should proceed with an user action that can breaks a current edition.
+     * <p>
+     * Edits are buffered instead of requesting user confirmation only if the action is a selection change over the
+     * entities currently being shown, otherwise buffered edits would refer to entities no longer shown.
+     * 
+     * @param selectionChange
+     *            whether the action just changes the selection keeping the entities being shown.
+     * @return <code>true</code> to proceed and <code>false</code> in other case.
+     */
+    private Boolean shouldProceed(Boolean selectionChange) {
+
+        final BbDispatcherForm<T> dispatcherForm = this.getDispatcherForm();
         final Boolean shouldProceed;
 
         if (this.changingSelection) {
             // (JAF), 20110102, avoids unnecessary and redundant user confirmation requests (@see #changeSelection)
             shouldProceed = Boolean.TRUE;
+        } else if (dispatcherForm.isSaving()) {
+            // Selection cannot change until the background save merges the managed entity into the selected row
+            shouldProceed = Boolean.FALSE;
         } else if (this.showingEntities) {
             // (JAF), 20110102, avoids unnecessary and redundant user confirmation requests (@see #showEntities)
             shouldProceed = Boolean.TRUE;
-        } else if (!this.getDetailForm().isDirty()) {
+        } else if (!dispatcherForm.isDirty() && !dispatcherForm.hasBufferedEdits()) {
+            shouldProceed = Boolean.TRUE;
+        } else if (selectionChange && dispatcherForm.bufferEdits()) {
+            // Batch editing mode buffers edits instead of requesting user confirmation
             shouldProceed = Boolean.TRUE;
         } else {
             shouldProceed = this.requestUserConfirmation();
+            if (shouldProceed && !selectionChange) {
+                // User confirmed discarding edits, buffered ones included
+                dispatcherForm.discardBufferedEdits();
+            }
         }
 
         return shouldProceed;
@@ -981,7 +1379,7 @@ public abstract class AbstractBbTableMasterForm<T extends Object> extends Abstra
          */
         this.uninstallSelectionHandler();
 
-        final Boolean shouldProceed = this.shouldProceed();
+        final Boolean shouldProceed = this.shouldProceed(Boolean.TRUE);
         if (shouldProceed) {
             final List<T> managedSelection = this.beforeSelectionChange(newModelIndexes, newSelection);
             this.doSelectionChange(oldModelIndexes, oldViewIndexes, newModelIndexes, newViewIndexes, managedSelection);
@@ -18,21 +18,32 @@
 
 package org.bluebell.richclient.form;
 
+import java.awt.Cursor;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.swing.JComponent;
 
 import org.apache.commons.collections.ListUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
+import org.bluebell.richclient.application.RcpMain;
+import org.bluebell.richclient.command.support.BackgroundCommandExecutor;
 import org.bluebell.richclient.form.util.BbDefaultFormModel;
+import org.bluebell.richclient.swing.util.SwingUtils;
 import org.bluebell.richclient.util.ObjectUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.binding.form.FormModel;
+import org.springframework.binding.form.HierarchicalFormModel;
 import org.springframework.binding.form.ValidatingFormModel;
 import org.springframework.binding.value.ValueModel;
 import org.springframework.binding.value.support.ListListModel;
@@ -123,6 +134,43 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
      */
     private Boolean committing = Boolean.FALSE;
 
+    /**
+     * <em>Flag</em> indicando si la operación de salvado contra el formulario maestro se realiza en segundo plano.
+     * 
+     * @see #setAsyncCommit(Boolean)
+     */
+    private Boolean asyncCommit = Boolean.FALSE;
+
+    /**
+     * Las modificaciones del salvado en curso, capturadas en {@link #preCommit(FormModel)} sólo si el salvado se
+     * realiza en segundo plano.
+     */
+    private CommitSnapshot commitSnapshot;
+
+    /**
+     * <em>Flag</em> indicando si hay un salvado en segundo plano en curso.
+     */
+    private Boolean saving = Boolean.FALSE;
+
+    /**
+     * Si el formulario estaba habilitado antes de comenzar el salvado en segundo plano.
+     */
+    private Boolean enabledBeforeSaving = Boolean.FALSE;
+
+    /**
+     * <em>Flag</em> indicando si las modificaciones se mantienen por entidad al cambiar la selección.
+     * 
+     * @see #setBatchEditing(Boolean)
+     */
+    private Boolean batchEditing = Boolean.FALSE;
+
+    /**
+     * Las modificaciones mantenidas en el modo de edición por lotes indexadas por entidad, en orden de edición.
+     * <p>
+     * No incluye las de la entidad en edición, que residen en el propio formulario.
+     */
+    private final Map<Object, CommitSnapshot> bufferedEdits = new LinkedHashMap<Object, CommitSnapshot>();
+
     /**
      * Crea el formulario detalle a partir del formulario maestro, el identificador y un <em>value model</em>.
      * 
@@ -278,6 +326,14 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
     @Override
     public void commit() {
 
+        // Ignore commits while a background save is in progress
+        if (this.isSaving()) {
+            return;
+        } else if (this.getBatchEditing() && !this.isEditingNewFormObject()) {
+            this.commitAll();
+            return;
+        }
+
         try {
             this.setCommitting(Boolean.TRUE);
             super.commit();
@@ -286,6 +342,25 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
         } finally {
             // (JAF), 2011010t, ensures committing flag is always reset
             this.setCommitting(Boolean.FALSE);
+            this.commitSnapshot = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si el salvado se realiza en segundo plano captura las modificaciones pendientes antes de que se vuelquen sobre el
+     * objeto del formulario, de modo que puedan restaurarse en caso de error.
+     * 
+     * @see #setAsyncCommit(Boolean)
+     */
+    @Override
+    public void preCommit(FormModel formModel) {
+
+        super.preCommit(formModel);
+
+        if (this.getAsyncCommit()) {
+            this.commitSnapshot = new CommitSnapshot(formModel, this.isEditingNewFormObject());
         }
     }
 
@@ -302,6 +377,13 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
     @Override
     public void postCommit(FormModel formModel) {
 
+        final CommitSnapshot snapshot = this.commitSnapshot;
+        this.commitSnapshot = null;
+        if (snapshot != null) {
+            this.doPostCommitInBackground(formModel, snapshot);
+            return;
+        }
+
         this.doPostCommit(formModel);
 
         // (JAF), 20110105, call #setEditingNewFormObject since AbstractForm uses direct field access instead of setter
@@ -318,6 +400,146 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
         return this.committing;
     }
 
+    /**
+     * Indica si la operación de salvado contra el formulario maestro se realiza en segundo plano.
+     * 
+     * @return <code>true</code> en caso afirmativo.
+     */
+    public Boolean getAsyncCommit() {
+
+        return this.asyncCommit;
+    }
+
+    /**
+     * Establece si la operación de salvado contra el formulario maestro se realiza en segundo plano.
+     * <p>
+     * En tal caso las modificaciones se vuelcan sobre el objeto del formulario inmediatamente, pero la inserción o
+     * actualización se ejecuta en segundo plano mientras el formulario permanece deshabilitado. Si tiene éxito la
+     * entidad resultante se integra en el formulario maestro igual que en el salvado síncrono; en caso contrario se
+     * restauran tanto la entidad como las modificaciones pendientes de salvar.
+     * 
+     * @param asyncCommit
+     *            <code>true</code> para salvar en segundo plano.
+     */
+    public void setAsyncCommit(Boolean asyncCommit) {
+
+        Assert.notNull(asyncCommit, "asyncCommit");
+
+        this.asyncCommit = asyncCommit;
+    }
+
+    /**
+     * Indica si hay un salvado en segundo plano en curso.
+     * 
+     * @return <code>true</code> en caso afirmativo.
+     */
+    public Boolean isSaving() {
+
+        return this.saving;
+    }
+
+    /**
+     * Indica si las modificaciones se mantienen por entidad al cambiar la selección.
+     * 
+     * @return <code>true</code> en caso afirmativo.
+     */
+    public Boolean getBatchEditing() {
+
+        return this.batchEditing;
+    }
+
+    /**
+     * Establece si las modificaciones se mantienen por entidad al cambiar la selección (modo de edición por lotes).
+     * <p>
+     * En tal caso cambiar la selección con modificaciones pendientes no solicita confirmación al usuario, sino que las
+     * mantiene hasta que se vuelve a seleccionar la entidad o se salvan. El salvado ({@link #commit()}) de una entidad
+     * ya existente salva entonces todas las modificaciones pendientes mediante una única invocación a
+     * {@link AbstractBbMasterForm#doUpdateAll(List)}.
+     * <p>
+     * Las modificaciones sobre propiedades que no pueden establecerse directamente sobre la entidad no pueden
+     * mantenerse, en cuyo caso se solicita confirmación como de costumbre.
+     * 
+     * @param batchEditing
+     *            <code>true</code> para mantener las modificaciones por entidad.
+     */
+    public void setBatchEditing(Boolean batchEditing) {
+
+        Assert.notNull(batchEditing, "batchEditing");
+
+        this.batchEditing = batchEditing;
+        if (!batchEditing) {
+            this.discardBufferedEdits();
+        }
+    }
+
+    /**
+     * Indica si hay modificaciones pendientes de salvar sobre entidades distintas de la que está en edición.
+     * <p>
+     * Estas modificaciones forman parte del estado <em>dirty</em> del modelo de este formulario, de modo que el
+     * comando de salvado sigue habilitado aunque la entidad en edición no tenga cambios.
+     * 
+     * @return <code>true</code> en caso afirmativo.
+     */
+    public Boolean hasBufferedEdits() {
+
+        return !this.bufferedEdits.isEmpty();
+    }
+
+    /**
+     * Salva todas las modificaciones pendientes, incluidas las de la entidad en edición, mediante una única invocación
+     * a {@link AbstractBbMasterForm#doUpdateAll(List)}.
+     * <p>
+     * Las entidades salvadas con éxito se reemplazan a la vez en el formulario maestro; las restantes se restauran y
+     * sus modificaciones siguen pendientes.
+     * 
+     * @see #setBatchEditing(Boolean)
+     */
+    public void commitAll() {
+
+        if (this.isSaving()) {
+            return;
+        }
+
+        // [1] Buffer current edits too, so the form becomes clean and every edit is handled the same way
+        if (this.isDirty() && !this.isEditingNewFormObject() && this.bufferEdits()) {
+            this.setFormObject(this.getFormObject());
+        }
+        if (this.bufferedEdits.isEmpty()) {
+            return;
+        }
+
+        // [2] Apply buffered edits over the entities
+        final List<BufferedUpdate> updates = new ArrayList<BufferedUpdate>(this.bufferedEdits.size());
+        final List<T> entities = new ArrayList<T>(this.bufferedEdits.size());
+        for (final CommitSnapshot snapshot : this.bufferedEdits.values()) {
+            final BufferedUpdate update = new BufferedUpdate(snapshot);
+            updates.add(update);
+            entities.add(update.getEntity());
+        }
+
+        // [3] Save them all at once
+        if (this.getAsyncCommit()) {
+            this.doCommitAllInBackground(updates, entities);
+        } else {
+            List<T> managedEntities = null;
+            try {
+                managedEntities = this.getMasterForm().doUpdateAll(entities);
+            } catch (RuntimeException e) {
+                RcpMain.handleException(e);
+            }
+            this.finishCommitAll(updates, managedEntities);
+        }
+    }
+
+    /**
+     * Descarta todas las modificaciones pendientes, incluidas las de la entidad en edición.
+     */
+    public void revertAll() {
+
+        this.discardBufferedEdits();
+        this.revert();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -601,19 +823,298 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
         // If success then update view and publish an event
         final boolean success = (managedEntity != null);
         if (success) {
-            // [1] Change form object in order to reflect (on call to super) the managed entity instead of committed ono
-            this.setFormObject(managedEntity);
+            this.mergeManagedEntity(formModel, inserting, managedEntity);
+        }
+    }
+
+    /**
+     * Realiza la operación de salvado contra el formulario maestro en segundo plano, con el formulario deshabilitado.
+     * 
+     * @param formModel
+     *            el modelo sobre el que tuvo lugar la operación <em>commit</em>.
+     * @param snapshot
+     *            las modificaciones salvadas.
+     * 
+     * @see #doPostCommit(FormModel)
+     */
+    private void doPostCommitInBackground(final FormModel formModel, final CommitSnapshot snapshot) {
+
+        @SuppressWarnings("unchecked")
+        final T committedEntity = (T) formModel.getFormObject();
+
+        final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+
+            @Override
+            public T call() {
+
+                final AbstractBbMasterForm<T> theMasterForm = BbDispatcherForm.this.getMasterForm();
+
+                return snapshot.isInserting() ? theMasterForm.doInsert(committedEntity) //
+                        : theMasterForm.doUpdate(committedEntity);
+            }
+        }) {
+
+            @Override
+            protected void done() {
+
+                final FutureTask<T> self = this;
+                SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        BbDispatcherForm.this.finishPostCommitInBackground(formModel, snapshot, self);
+                    }
+                }, Boolean.FALSE);
+            }
+        };
+
+        this.setSaving(Boolean.TRUE);
+        BackgroundCommandExecutor.getInstance().execute(formModel, task);
+    }
+
+    /**
+     * Termina el salvado en segundo plano desde el <em>event dispatch thread</em>: integra la entidad resultante en
+     * caso de éxito y restaura las modificaciones en otro caso.
+     * 
+     * @param formModel
+     *            el modelo sobre el que tuvo lugar la operación <em>commit</em>.
+     * @param snapshot
+     *            las modificaciones salvadas.
+     * @param task
+     *            la tarea ya terminada.
+     */
+    private void finishPostCommitInBackground(FormModel formModel, CommitSnapshot snapshot, FutureTask<T> task) {
+
+        T managedEntity = null;
+        try {
+            managedEntity = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            RcpMain.handleException(e.getCause());
+        }
 
-            // [2] Call super
-            super.postCommit(formModel);
+        this.setSaving(Boolean.FALSE);
 
-            // [3] Select managed entity
-            this.getMasterForm().changeSelection(Arrays.asList(managedEntity));
+        if (managedEntity == null) {
+            snapshot.restore();
+            return;
+        }
 
-            // Publicar el evento
-            // [4] Publish application event notifying an insert / update has been successfully done
-            this.getMasterForm().publishApplicationEvent(//
-                    inserting ? EventType.CREATED : EventType.MODIFIED, managedEntity);
+        // Selection changes are rejected while saving, so the committed entity is still the one being edited
+        try {
+            this.setCommitting(Boolean.TRUE);
+            this.mergeManagedEntity(formModel, snapshot.isInserting(), managedEntity);
+            this.setEditingNewFormObject(Boolean.FALSE);
+        } finally {
+            this.setCommitting(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Integra en el formulario maestro la entidad resultante de una inserción o actualización y publica el evento
+     * correspondiente.
+     * 
+     * @param formModel
+     *            el modelo sobre el que tuvo lugar la operación <em>commit</em>.
+     * @param inserting
+     *            si se trata de una inserción.
+     * @param managedEntity
+     *            la entidad resultante.
+     */
+    private void mergeManagedEntity(FormModel formModel, Boolean inserting, T managedEntity) {
+
+        // [1] Change form object in order to reflect (on call to super) the managed entity instead of committed ono
+        this.setFormObject(managedEntity);
+
+        // [2] Call super
+        super.postCommit(formModel);
+
+        // [3] Select managed entity
+        this.getMasterForm().changeSelection(Arrays.asList(managedEntity));
+
+        // Publicar el evento
+        // [4] Publish application event notifying an insert / update has been successfully done
+        this.getMasterForm().publishApplicationEvent(//
+                inserting ? EventType.CREATED : EventType.MODIFIED, managedEntity);
+    }
+
+    /**
+     * Mantiene las modificaciones de la entidad en edición en el modo de edición por lotes.
+     * 
+     * @return <code>true</code> si no hay modificaciones o se han mantenido y <code>false</code> si no es posible
+     *         mantenerlas.
+     * 
+     * @see #setBatchEditing(Boolean)
+     */
+    Boolean bufferEdits() {
+
+        final Object formObject = this.getFormObject();
+        if (!this.getBatchEditing() || (formObject == null)) {
+            return Boolean.FALSE;
+        } else if (!this.isDirty()) {
+            return Boolean.TRUE;
+        } else if (this.isEditingNewFormObject() || this.getFormModel().getHasErrors()) {
+            return Boolean.FALSE;
+        }
+
+        final CommitSnapshot snapshot = new CommitSnapshot(this.getFormModel(), Boolean.FALSE);
+        if (!snapshot.isBufferable()) {
+            return Boolean.FALSE;
+        }
+
+        // Remove before putting so that edit order is kept
+        this.bufferedEdits.remove(formObject);
+        this.bufferedEdits.put(formObject, snapshot);
+        this.getDispatcherFormModel().doInternalDirtyUpdated();
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Vuelve a establecer en el formulario las modificaciones mantenidas para la entidad en edición, si las hay.
+     * 
+     * @see #bufferEdits()
+     */
+    void restoreBufferedEdits() {
+
+        final Object formObject = this.getFormObject();
+        final CommitSnapshot snapshot = (formObject != null) ? this.bufferedEdits.remove(formObject) : null;
+        if (snapshot != null) {
+            snapshot.restoreBufferedValues();
+            this.getDispatcherFormModel().doInternalDirtyUpdated();
+        }
+    }
+
+    /**
+     * Indica si hay modificaciones mantenidas en el modo de edición por lotes para una entidad.
+     * 
+     * @param entity
+     *            la entidad.
+     * @return <code>true</code> en caso afirmativo.
+     */
+    Boolean hasBufferedEdits(Object entity) {
+
+        return this.bufferedEdits.containsKey(entity);
+    }
+
+    /**
+     * Descarta las modificaciones mantenidas en el modo de edición por lotes para una entidad.
+     * 
+     * @param entity
+     *            la entidad.
+     */
+    void discardBufferedEdits(Object entity) {
+
+        if (this.bufferedEdits.remove(entity) != null) {
+            this.getDispatcherFormModel().doInternalDirtyUpdated();
+        }
+    }
+
+    /**
+     * Descarta las modificaciones mantenidas en el modo de edición por lotes para todas las entidades, pero no las de
+     * la entidad en edición.
+     */
+    void discardBufferedEdits() {
+
+        if (!this.bufferedEdits.isEmpty()) {
+            this.bufferedEdits.clear();
+            this.getDispatcherFormModel().doInternalDirtyUpdated();
+        }
+    }
+
+    /**
+     * Salva en segundo plano las modificaciones pendientes, con el formulario deshabilitado.
+     * 
+     * @param updates
+     *            las modificaciones ya aplicadas.
+     * @param entities
+     *            las entidades a salvar.
+     */
+    private void doCommitAllInBackground(final List<BufferedUpdate> updates, final List<T> entities) {
+
+        final FutureTask<List<T>> task = new FutureTask<List<T>>(new Callable<List<T>>() {
+
+            @Override
+            public List<T> call() {
+
+                return BbDispatcherForm.this.getMasterForm().doUpdateAll(entities);
+            }
+        }) {
+
+            @Override
+            protected void done() {
+
+                final FutureTask<List<T>> self = this;
+                SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        List<T> managedEntities = null;
+                        try {
+                            managedEntities = self.get();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (ExecutionException e) {
+                            RcpMain.handleException(e.getCause());
+                        }
+
+                        BbDispatcherForm.this.setSaving(Boolean.FALSE);
+                        BbDispatcherForm.this.finishCommitAll(updates, managedEntities);
+                    }
+                }, Boolean.FALSE);
+            }
+        };
+
+        this.setSaving(Boolean.TRUE);
+        BackgroundCommandExecutor.getInstance().execute(this.getFormModel(), task);
+    }
+
+    /**
+     * Termina el salvado de las modificaciones pendientes: reemplaza a la vez las entidades salvadas con éxito en el
+     * formulario maestro y restaura las restantes, cuyas modificaciones siguen pendientes.
+     * 
+     * @param updates
+     *            las modificaciones aplicadas.
+     * @param managedEntities
+     *            las entidades resultantes en el mismo orden, <code>null</code> si el salvado falló por completo.
+     */
+    private void finishCommitAll(List<BufferedUpdate> updates, List<T> managedEntities) {
+
+        final List<T> oldEntities = new ArrayList<T>(updates.size());
+        final List<T> newEntities = new ArrayList<T>(updates.size());
+        for (int i = 0; i < updates.size(); ++i) {
+            final BufferedUpdate update = updates.get(i);
+            final T managedEntity = ((managedEntities != null) && (i < managedEntities.size())) //
+                    ? managedEntities.get(i) : null;
+
+            if (managedEntity == null) {
+                update.revert();
+            } else {
+                this.bufferedEdits.remove(update.getSnapshot().getFormObject());
+                oldEntities.add(update.getEntity());
+                newEntities.add(managedEntity);
+            }
+        }
+        this.getDispatcherFormModel().doInternalDirtyUpdated();
+
+        // [1] Replace saved entities with a single list change
+        this.getMasterForm().replaceEntities(oldEntities, newEntities);
+
+        // [2] Reflect the managed version of the entity being edited
+        final int index = oldEntities.indexOf(this.getFormObject());
+        if (index >= 0) {
+            this.setFormObject(newEntities.get(index));
+        }
+
+        // [3] Show again edits that could not be saved
+        this.restoreBufferedEdits();
+
+        // [4] Publish application events
+        for (final T newEntity : newEntities) {
+            this.getMasterForm().publishApplicationEvent(EventType.MODIFIED, newEntity);
         }
     }
 
@@ -628,6 +1129,29 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
         this.committing = committing;
     }
 
+    /**
+     * Establece si hay un salvado en segundo plano en curso, deshabilitando el formulario mientras tanto.
+     * 
+     * @param saving
+     *            <code>true</code> en caso afirmativo.
+     */
+    private void setSaving(Boolean saving) {
+
+        if (saving) {
+            this.enabledBeforeSaving = this.getFormModel().isEnabled();
+        }
+
+        this.saving = saving;
+        this.setEnabled(saving ? Boolean.FALSE : this.enabledBeforeSaving);
+
+        final Cursor cursor = Cursor.getPredefinedCursor(saving ? Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR);
+        for (final AbstractForm childForm : this.getChildForms()) {
+            if (childForm.isControlCreated()) {
+                childForm.getControl().setCursor(cursor);
+            }
+        }
+    }
+
     /**
      * Set the editable form objects list on a given child form.
      * <p>
@@ -790,7 +1314,8 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
         public boolean isDirty() {
 
             // (JAF), 20080914, BbDispatcherForm.this.isDirty() executes ValidatingFormModel#isDirty() for every child
-            return BbDispatcherForm.this.isDirty();
+            // Edits buffered in batch editing mode keep the model dirty, so commit command remains enabled
+            return BbDispatcherForm.this.isDirty() || BbDispatcherForm.this.hasBufferedEdits();
         }
 
         /**
@@ -903,6 +1428,14 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
 
             super.setFormObject(formObject);
         }
+
+        /**
+         * Executes {@link org.springframework.binding.form.support.AbstractFormModel#dirtyUpdated()} .
+         */
+        protected final void doInternalDirtyUpdated() {
+
+            this.dirtyUpdated();
+        }
     }
 
     /**
@@ -942,4 +1475,352 @@ public final class BbDispatcherForm<T> extends AbstractDetailForm {
             }
         }
     }
+
+    /**
+     * Las modificaciones pendientes de salvar de un formulario y sus hijos, necesarias para restaurarlas exactamente si
+     * el salvado en segundo plano falla o para mantenerlas por entidad en el modo de edición por lotes.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private class CommitSnapshot {
+
+        /**
+         * Si se trata de una inserción.
+         */
+        private final Boolean inserting;
+
+        /**
+         * El objeto del formulario.
+         */
+        private final Object formObject;
+
+        /**
+         * Las propiedades modificadas.
+         */
+        private final List<DirtyField> dirtyFields = new ArrayList<DirtyField>();
+
+        /**
+         * Captura las modificaciones pendientes de un modelo y sus hijos.
+         * 
+         * @param formModel
+         *            el modelo.
+         * @param inserting
+         *            si se trata de una inserción.
+         */
+        public CommitSnapshot(FormModel formModel, Boolean inserting) {
+
+            this.inserting = inserting;
+            this.formObject = formModel.getFormObject();
+            this.capture(formModel);
+        }
+
+        /**
+         * Indica si se trata de una inserción.
+         * 
+         * @return <code>true</code> en caso afirmativo.
+         */
+        public Boolean isInserting() {
+
+            return this.inserting;
+        }
+
+        /**
+         * Obtiene el objeto del formulario.
+         * 
+         * @return el objeto del formulario.
+         */
+        public Object getFormObject() {
+
+            return this.formObject;
+        }
+
+        /**
+         * Indica si todas las modificaciones pueden aplicarse directamente sobre una entidad, condición necesaria para
+         * mantenerlas en el modo de edición por lotes.
+         * 
+         * @return <code>true</code> en caso afirmativo.
+         */
+        public Boolean isBufferable() {
+
+            for (final DirtyField dirtyField : this.dirtyFields) {
+                if (!dirtyField.isAccessible() || (dirtyField.getFormObject() != this.formObject)) {
+                    return Boolean.FALSE;
+                }
+            }
+
+            return Boolean.TRUE;
+        }
+
+        /**
+         * Restaura los valores originales de la entidad y vuelve a establecer en el formulario las modificaciones
+         * pendientes de salvar.
+         */
+        public void restore() {
+
+            // [1] Restore the entity as it was before committing
+            for (final DirtyField dirtyField : this.dirtyFields) {
+                dirtyField.restoreOriginalValue();
+            }
+
+            // [2] Reload form models from the restored entity
+            BbDispatcherForm.this.setFormObject(this.formObject);
+            BbDispatcherForm.this.setEditingNewFormObject(this.inserting);
+
+            // [3] Buffer the edits again so the form becomes dirty
+            this.restoreBufferedValues();
+        }
+
+        /**
+         * Vuelve a establecer en el formulario las modificaciones pendientes de salvar.
+         */
+        public void restoreBufferedValues() {
+
+            for (final DirtyField dirtyField : this.dirtyFields) {
+                dirtyField.restoreBufferedValue();
+            }
+        }
+
+        /**
+         * Aplica las modificaciones pendientes de salvar sobre una entidad.
+         * 
+         * @param entity
+         *            la entidad.
+         * @return los valores previos de las propiedades modificadas.
+         * 
+         * @see #isBufferable()
+         */
+        public List<Object> applyBufferedValues(Object entity) {
+
+            final BeanWrapper beanWrapper = new BeanWrapperImpl(entity);
+            final List<Object> formerValues = new ArrayList<Object>(this.dirtyFields.size());
+            for (final DirtyField dirtyField : this.dirtyFields) {
+                formerValues.add(beanWrapper.getPropertyValue(dirtyField.getField()));
+                beanWrapper.setPropertyValue(dirtyField.getField(), dirtyField.getBufferedValue());
+            }
+
+            return formerValues;
+        }
+
+        /**
+         * Deshace la aplicación de las modificaciones pendientes de salvar sobre una entidad.
+         * 
+         * @param entity
+         *            la entidad.
+         * @param formerValues
+         *            los valores previos de las propiedades modificadas.
+         * 
+         * @see #applyBufferedValues(Object)
+         */
+        public void revertBufferedValues(Object entity, List<Object> formerValues) {
+
+            final BeanWrapper beanWrapper = new BeanWrapperImpl(entity);
+            for (int i = 0; i < this.dirtyFields.size(); ++i) {
+                beanWrapper.setPropertyValue(this.dirtyFields.get(i).getField(), formerValues.get(i));
+            }
+        }
+
+        /**
+         * Captura las propiedades modificadas de un modelo y sus hijos.
+         * 
+         * @param formModel
+         *            el modelo.
+         */
+        private void capture(FormModel formModel) {
+
+            final BeanWrapper beanWrapper = new BeanWrapperImpl(formModel.getFormObject());
+            for (final Object fieldName : formModel.getFieldNames()) {
+                final String field = (String) fieldName;
+                if (formModel.getFieldMetadata(field).isDirty()) {
+                    this.dirtyFields.add(new DirtyField(formModel, field, beanWrapper));
+                }
+            }
+
+            if (formModel instanceof HierarchicalFormModel) {
+                for (final FormModel child : ((HierarchicalFormModel) formModel).getChildren()) {
+                    this.capture(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Las modificaciones pendientes de salvar sobre una entidad en el modo de edición por lotes, una vez aplicadas.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private class BufferedUpdate {
+
+        /**
+         * Las modificaciones.
+         */
+        private final CommitSnapshot snapshot;
+
+        /**
+         * La entidad sobre la que se aplican.
+         */
+        private final T entity;
+
+        /**
+         * Los valores previos de las propiedades modificadas.
+         */
+        private final List<Object> formerValues;
+
+        /**
+         * Aplica las modificaciones sobre la versión de la entidad mostrada por el formulario maestro.
+         * 
+         * @param snapshot
+         *            las modificaciones.
+         */
+        @SuppressWarnings("unchecked")
+        public BufferedUpdate(CommitSnapshot snapshot) {
+
+            // Selection refreshes entities, so the shown version may be a different instance
+            final List<T> masterEventList = BbDispatcherForm.this.getMasterForm().getMasterEventList();
+            final int index = masterEventList.indexOf(snapshot.getFormObject());
+
+            this.snapshot = snapshot;
+            this.entity = (index >= 0) ? masterEventList.get(index) : (T) snapshot.getFormObject();
+            this.formerValues = snapshot.applyBufferedValues(this.entity);
+        }
+
+        /**
+         * Obtiene las modificaciones.
+         * 
+         * @return las modificaciones.
+         */
+        public CommitSnapshot getSnapshot() {
+
+            return this.snapshot;
+        }
+
+        /**
+         * Obtiene la entidad sobre la que se aplican las modificaciones.
+         * 
+         * @return la entidad.
+         */
+        public T getEntity() {
+
+            return this.entity;
+        }
+
+        /**
+         * Deshace la aplicación de las modificaciones sobre la entidad.
+         */
+        public void revert() {
+
+            this.snapshot.revertBufferedValues(this.entity, this.formerValues);
+        }
+    }
+
+    /**
+     * Una propiedad modificada de un modelo, con su valor original y el pendiente de salvar.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class DirtyField {
+
+        /**
+         * El modelo.
+         */
+        private final FormModel formModel;
+
+        /**
+         * El nombre de la propiedad.
+         */
+        private final String field;
+
+        /**
+         * El <em>bean wrapper</em> sobre el objeto del modelo, <code>null</code> si la propiedad no es accesible.
+         */
+        private final BeanWrapper beanWrapper;
+
+        /**
+         * El valor original de la propiedad en el objeto del modelo.
+         */
+        private final Object originalValue;
+
+        /**
+         * El valor pendiente de salvar.
+         */
+        private final Object bufferedValue;
+
+        /**
+         * Captura una propiedad modificada.
+         * 
+         * @param formModel
+         *            el modelo.
+         * @param field
+         *            el nombre de la propiedad.
+         * @param beanWrapper
+         *            el <em>bean wrapper</em> sobre el objeto del modelo.
+         */
+        public DirtyField(FormModel formModel, String field, BeanWrapper beanWrapper) {
+
+            final Boolean accessible = beanWrapper.isReadableProperty(field) && beanWrapper.isWritableProperty(field);
+
+            this.formModel = formModel;
+            this.field = field;
+            this.beanWrapper = accessible ? beanWrapper : null;
+            this.originalValue = accessible ? beanWrapper.getPropertyValue(field) : null;
+            this.bufferedValue = formModel.getValueModel(field).getValue();
+        }
+
+        /**
+         * Obtiene el nombre de la propiedad.
+         * 
+         * @return el nombre de la propiedad.
+         */
+        public String getField() {
+
+            return this.field;
+        }
+
+        /**
+         * Obtiene el valor pendiente de salvar.
+         * 
+         * @return el valor pendiente de salvar.
+         */
+        public Object getBufferedValue() {
+
+            return this.bufferedValue;
+        }
+
+        /**
+         * Obtiene el objeto del modelo en el momento de la captura.
+         * 
+         * @return el objeto del modelo.
+         */
+        public Object getFormObject() {
+
+            return (this.beanWrapper != null) ? this.beanWrapper.getWrappedInstance() : null;
+        }
+
+        /**
+         * Indica si la propiedad es accesible sobre el objeto del modelo.
+         * 
+         * @return <code>true</code> en caso afirmativo.
+         */
+        public Boolean isAccessible() {
+
+            return this.beanWrapper != null;
+        }
+
+        /**
+         * Restaura el valor original en el objeto del modelo.
+         */
+        public void restoreOriginalValue() {
+
+            if (this.beanWrapper != null) {
+                this.beanWrapper.setPropertyValue(this.field, this.originalValue);
+            }
+        }
+
+        /**
+         * Restaura el valor pendiente de salvar en el modelo.
+         */
+        public void restoreBufferedValue() {
+
+            this.formModel.getValueModel(this.field).setValue(this.bufferedValue);
+        }
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+import org.springframework.util.Assert;
+
+/**
+ * Un cambio sobre una entidad notificado por un {@link EntityChangeFeed}: su creación o modificación
+ * (<em>upsert</em>) o su borrado, identificándola por su clave.
+ * <p>
+ * Las instancias de esta clase son inmutables.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class EntityChange<T> {
+
+    /**
+     * El tipo del cambio.
+     */
+    private final Type type;
+
+    /**
+     * La clave de la entidad.
+     */
+    private final Object id;
+
+    /**
+     * La nueva versión de la entidad, <code>null</code> en los borrados.
+     */
+    private final T entity;
+
+    /**
+     * Construye el cambio.
+     *
+     * @param type
+     *            el tipo del cambio.
+     * @param id
+     *            la clave de la entidad.
+     * @param entity
+     *            la nueva versión de la entidad.
+     */
+    private EntityChange(Type type, Object id, T entity) {
+
+        super();
+
+        Assert.notNull(type, "type");
+        Assert.notNull(id, "id");
+
+        this.type = type;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    /**
+     * Crea un cambio de creación o modificación.
+     *
+     * @param <Q>
+     *            el tipo de las entidades.
+     * @param id
+     *            la clave de la entidad.
+     * @param entity
+     *            la nueva versión de la entidad.
+     * @return el cambio.
+     */
+    public static <Q> EntityChange<Q> upsert(Object id, Q entity) {
+
+        Assert.notNull(entity, "entity");
+
+        return new EntityChange<Q>(Type.UPSERT, id, entity);
+    }
+
+    /**
+     * Crea un cambio de borrado.
+     *
+     * @param <Q>
+     *            el tipo de las entidades.
+     * @param id
+     *            la clave de la entidad.
+     * @return el cambio.
+     */
+    public static <Q> EntityChange<Q> delete(Object id) {
+
+        return new EntityChange<Q>(Type.DELETE, id, null);
+    }
+
+    /**
+     * Obtiene el tipo del cambio.
+     *
+     * @return el tipo.
+     */
+    public Type getType() {
+
+        return this.type;
+    }
+
+    /**
+     * Obtiene la clave de la entidad.
+     *
+     * @return la clave.
+     */
+    public Object getId() {
+
+        return this.id;
+    }
+
+    /**
+     * Obtiene la nueva versión de la entidad.
+     *
+     * @return la entidad o <code>null</code> si es un borrado.
+     */
+    public T getEntity() {
+
+        return this.entity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+
+        return new ToStringBuilder(this, ToStringStyle.SIMPLE_STYLE).append("type", this.type).append("id", this.id)
+                .toString();
+    }
+
+    /**
+     * Los tipos de cambio.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    public enum Type {
+        /**
+         * Creación o modificación.
+         */
+        UPSERT,
+        /**
+         * Borrado.
+         */
+        DELETE
+    }
+}
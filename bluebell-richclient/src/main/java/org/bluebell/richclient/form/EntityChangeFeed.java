@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+/**
+ * Fuente de cambios sobre entidades realizados por otros usuarios, típicamente respaldada por un canal de mensajería
+ * del servidor.
+ * <p>
+ * Los formularios maestros suscritos ({@link AbstractBbMasterForm#setEntityChangeFeed(EntityChangeFeed)}) aplican los
+ * cambios a las entidades mostradas sin repetir la búsqueda.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ *
+ * @see org.bluebell.richclient.form.support.InMemoryEntityChangeFeed
+ */
+public interface EntityChangeFeed<T> {
+
+    /**
+     * Suscribe un receptor a los cambios.
+     *
+     * @param listener
+     *            el receptor.
+     */
+    void subscribe(EntityChangeListener<T> listener);
+
+    /**
+     * Cancela la suscripción de un receptor.
+     *
+     * @param listener
+     *            el receptor.
+     */
+    void unsubscribe(EntityChangeListener<T> listener);
+}
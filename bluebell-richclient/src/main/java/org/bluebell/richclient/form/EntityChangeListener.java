@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.util.List;
+
+/**
+ * Receptor de los cambios sobre entidades notificados por un {@link EntityChangeFeed}.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public interface EntityChangeListener<T> {
+
+    /**
+     * Recibe un lote de cambios en el orden en que se produjeron.
+     * <p>
+     * Puede invocarse desde cualquier hilo, por lo que no debe bloquearlo.
+     *
+     * @param changes
+     *            los cambios.
+     */
+    void onEntityChanges(List<EntityChange<T>> changes);
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bluebell.richclient.swing.util.SwingUtils;
+import org.bluebell.richclient.util.GlazedListsUtils;
+import org.springframework.util.Assert;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+
+/**
+ * Aplica los cambios notificados por un {@link EntityChangeFeed} a las entidades mostradas por un formulario maestro.
+ * <p>
+ * Los cambios recibidos desde cualquier hilo se acumulan y se aplican por lotes en el <em>event dispatch thread</em>,
+ * combinando los cambios sobre una misma entidad. Las posiciones de las entidades se obtienen de un índice por clave,
+ * de modo que aplicar un lote cuesta en proporción al número de cambios y no al de entidades mostradas. Cada lote
+ * (modificaciones, altas y borrados por posición) se notifica como un único evento sobre la lista. Los borrados y los
+ * cambios sobre la lista ajenos a esta clase actualizan el índice sin consultar las claves de las entidades no
+ * afectadas, renumerando tan sólo las posiciones siguientes a la primera modificada. Únicamente las reordenaciones
+ * obligan a reconstruirlo.
+ * <p>
+ * Los cambios sobre la entidad en edición con modificaciones pendientes, o sobre entidades con modificaciones
+ * mantenidas en el modo de edición por lotes, no se aplican: se retienen como conflictos y se notifican al formulario
+ * maestro para no sobrescribir las modificaciones del usuario.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+final class EntityChangeMerger<T> implements EntityChangeListener<T>, ListEventListener<T> {
+
+    /**
+     * El formulario maestro.
+     */
+    private final AbstractBbMasterForm<T> masterForm;
+
+    /**
+     * Los cambios pendientes de aplicar.
+     */
+    private final Queue<EntityChange<T>> pending = new ConcurrentLinkedQueue<EntityChange<T>>();
+
+    /**
+     * Si la aplicación de los cambios pendientes ya está planificada.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(Boolean.FALSE);
+
+    /**
+     * Los cambios en conflicto con las modificaciones del usuario indexados por clave.
+     */
+    private final Map<Object, EntityChange<T>> conflicts = new LinkedHashMap<Object, EntityChange<T>>();
+
+    /**
+     * La tarea que aplica los cambios pendientes.
+     */
+    private final Runnable merger = new Runnable() {
+
+        @Override
+        public void run() {
+
+            // Reset flag before draining, so changes received from now on schedule a new merge
+            EntityChangeMerger.this.scheduled.set(Boolean.FALSE);
+            EntityChangeMerger.this.merge();
+        }
+    };
+
+    /**
+     * Las posiciones de las entidades mostradas indexadas por clave, <code>null</code> si ha de reconstruirse.
+     */
+    private Map<Object, Integer> idIndex;
+
+    /**
+     * Las claves de las entidades mostradas por posición, mantenidas junto con el índice.
+     */
+    private List<Object> indexedIds;
+
+    /**
+     * La lista indexada.
+     */
+    private EventList<T> indexedList;
+
+    /**
+     * Si se están aplicando cambios sobre la lista.
+     */
+    private Boolean merging = Boolean.FALSE;
+
+    /**
+     * Construye el objeto.
+     *
+     * @param masterForm
+     *            el formulario maestro.
+     */
+    public EntityChangeMerger(AbstractBbMasterForm<T> masterForm) {
+
+        super();
+
+        Assert.notNull(masterForm, "masterForm");
+
+        this.masterForm = masterForm;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Acumula los cambios y planifica su aplicación en el <em>event dispatch thread</em>.
+     */
+    @Override
+    public void onEntityChanges(List<EntityChange<T>> changes) {
+
+        Assert.notNull(changes, "changes");
+
+        this.pending.addAll(changes);
+        if (this.scheduled.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+            SwingUtils.runInEventDispatcherThread(this.merger, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Actualiza el índice ante cambios sobre la lista ajenos a esta clase, invalidándolo si la lista se reordena.
+     */
+    @Override
+    public void listChanged(ListEvent<T> listChanges) {
+
+        if (this.merging || (this.idIndex == null)) {
+            return;
+        } else if (listChanges.isReordering()) {
+            this.idIndex = null;
+            this.indexedIds = null;
+            return;
+        }
+
+        final EventList<T> eventList = listChanges.getSourceList();
+        int firstShifted = this.indexedIds.size();
+        while (listChanges.next()) {
+            final int position = listChanges.getIndex();
+            switch (listChanges.getType()) {
+                case ListEvent.INSERT:
+                    this.indexedIds.add(position, this.masterForm.getEntityId(eventList.get(position)));
+                    firstShifted = Math.min(firstShifted, position);
+                    break;
+                case ListEvent.DELETE:
+                    this.idIndex.remove(this.indexedIds.remove(position));
+                    firstShifted = Math.min(firstShifted, position);
+                    break;
+                default:
+                    final Object id = this.masterForm.getEntityId(eventList.get(position));
+                    this.idIndex.remove(this.indexedIds.set(position, id));
+                    this.idIndex.put(id, position);
+                    break;
+            }
+        }
+
+        this.renumber(firstShifted);
+    }
+
+    /**
+     * Obtiene las entidades cuyos cambios están en conflicto con las modificaciones del usuario.
+     *
+     * @return las claves de las entidades.
+     */
+    public List<Object> getConflicts() {
+
+        return Collections.unmodifiableList(new ArrayList<Object>(this.conflicts.keySet()));
+    }
+
+    /**
+     * Aplica los cambios en conflicto descartando las modificaciones del usuario sobre esas entidades.
+     * <p>
+     * Ha de invocarse desde el <em>event dispatch thread</em>.
+     */
+    public void resolveConflicts() {
+
+        final List<EntityChange<T>> changes = new ArrayList<EntityChange<T>>(this.conflicts.values());
+        this.conflicts.clear();
+
+        if (!changes.isEmpty()) {
+            this.masterForm.getDispatcherForm().revert();
+            this.apply(changes, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Deja de observar la lista indexada.
+     */
+    public void dispose() {
+
+        this.invalidateIndex();
+        this.pending.clear();
+        this.conflicts.clear();
+    }
+
+    /**
+     * Aplica los cambios pendientes, combinando los que afectan a una misma entidad.
+     */
+    private void merge() {
+
+        final Map<Object, EntityChange<T>> changes = new LinkedHashMap<Object, EntityChange<T>>();
+        for (EntityChange<T> change = this.pending.poll(); change != null; change = this.pending.poll()) {
+            // Remove before putting so that the latest change takes the latest position
+            changes.remove(change.getId());
+            changes.put(change.getId(), change);
+        }
+
+        if (!changes.isEmpty()) {
+            this.apply(changes.values(), Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Aplica un lote de cambios, cada uno sobre una entidad distinta.
+     *
+     * @param changes
+     *            los cambios.
+     * @param force
+     *            si se han de aplicar también los cambios en conflicto.
+     */
+    @SuppressWarnings("unchecked")
+    private void apply(Collection<EntityChange<T>> changes, Boolean force) {
+
+        final EventList<T> eventList = this.masterForm.getMasterEventList();
+        final BbDispatcherForm<T> dispatcherForm = this.masterForm.getDispatcherForm();
+        final T formObject = (T) dispatcherForm.getFormObject();
+        final Object formObjectId = ((formObject != null) && !dispatcherForm.isEditingNewFormObject()) //
+                ? this.masterForm.getEntityId(formObject) : null;
+        final Boolean dirty = dispatcherForm.isDirty() || dispatcherForm.isSaving();
+
+        final List<Object> newConflicts = new ArrayList<Object>();
+        T newFormObject = null;
+
+        eventList.getReadWriteLock().writeLock().lock();
+        this.merging = Boolean.TRUE;
+        // The whole batch is notified as a single list event
+        GlazedListsUtils.beginAtomicChange(eventList);
+        try {
+            final Map<Object, Integer> index = this.getIdIndex(eventList);
+            final List<T> insertions = new ArrayList<T>();
+            final List<Integer> deletions = new ArrayList<Integer>();
+
+            for (final EntityChange<T> change : changes) {
+                final Object id = change.getId();
+                final Integer position = index.get(id);
+                final T shown = (position != null) ? eventList.get(position) : null;
+                final Boolean buffered = (shown != null) && dispatcherForm.hasBufferedEdits(shown);
+                if (buffered && force) {
+                    dispatcherForm.discardBufferedEdits(shown);
+                }
+
+                if (((id.equals(formObjectId) && dirty) || buffered) && !force) {
+                    // [1] Keep user edits and surface the conflict instead
+                    this.conflicts.put(id, change);
+                    newConflicts.add(id);
+                } else if (change.getType() == EntityChange.Type.DELETE) {
+                    // [2] Deletions are delayed since they shift positions
+                    if (position != null) {
+                        deletions.add(position);
+                    }
+                } else if (position != null) {
+                    // [3] Update in place, positions do not change
+                    eventList.set(position, change.getEntity());
+                    newFormObject = id.equals(formObjectId) ? change.getEntity() : newFormObject;
+                } else {
+                    // [4] New entities are appended
+                    index.put(id, eventList.size() + insertions.size());
+                    this.indexedIds.add(id);
+                    insertions.add(change.getEntity());
+                }
+            }
+
+            if (!insertions.isEmpty()) {
+                eventList.addAll(eventList.size(), insertions);
+            }
+            if (!deletions.isEmpty()) {
+                // By indexed position from the last one, so that no position shifts and no entity is looked for
+                Collections.sort(deletions);
+                for (int i = deletions.size() - 1; i >= 0; --i) {
+                    eventList.remove(deletions.get(i).intValue());
+                }
+                this.removeFromIndex(deletions);
+            }
+        } finally {
+            GlazedListsUtils.commitAtomicChange(eventList);
+            this.merging = Boolean.FALSE;
+            eventList.getReadWriteLock().writeLock().unlock();
+        }
+
+        // Reflect the new version of the entity being edited, it has no user edits
+        if (newFormObject != null) {
+            dispatcherForm.setFormObject(newFormObject);
+        }
+        if (!newConflicts.isEmpty()) {
+            this.masterForm.onEntityChangeConflicts(newConflicts);
+        }
+    }
+
+    /**
+     * Obtiene el índice por clave de las entidades mostradas, reconstruyéndolo si es preciso.
+     *
+     * @param eventList
+     *            la lista de entidades mostradas.
+     * @return el índice.
+     */
+    private Map<Object, Integer> getIdIndex(EventList<T> eventList) {
+
+        if (eventList != this.indexedList) {
+            this.invalidateIndex();
+            this.indexedList = eventList;
+            this.indexedList.addListEventListener(this);
+        }
+
+        if (this.idIndex == null) {
+            this.idIndex = new HashMap<Object, Integer>(eventList.size() * 2);
+            this.indexedIds = new ArrayList<Object>(eventList.size());
+            for (int i = 0; i < eventList.size(); ++i) {
+                final Object id = this.masterForm.getEntityId(eventList.get(i));
+                this.idIndex.put(id, i);
+                this.indexedIds.add(id);
+            }
+        }
+
+        return this.idIndex;
+    }
+
+    /**
+     * Elimina del índice las entidades borradas, renumerando las posiciones siguientes a la primera de ellas en una
+     * sola pasada.
+     *
+     * @param positions
+     *            las posiciones de las entidades borradas.
+     */
+    private void removeFromIndex(List<Integer> positions) {
+
+        Collections.sort(positions);
+
+        final int first = positions.get(0);
+        final int size = this.indexedIds.size();
+        final List<Object> remaining = new ArrayList<Object>(size - first);
+        int next = 0;
+        for (int i = first; i < size; ++i) {
+            if ((next < positions.size()) && (positions.get(next).intValue() == i)) {
+                this.idIndex.remove(this.indexedIds.get(i));
+                ++next;
+            } else {
+                remaining.add(this.indexedIds.get(i));
+            }
+        }
+
+        this.indexedIds.subList(first, size).clear();
+        this.indexedIds.addAll(remaining);
+        this.renumber(first);
+    }
+
+    /**
+     * Actualiza en el índice las posiciones de las entidades a partir de una dada.
+     *
+     * @param first
+     *            la primera posición a actualizar.
+     */
+    private void renumber(int first) {
+
+        for (int i = first; i < this.indexedIds.size(); ++i) {
+            this.idIndex.put(this.indexedIds.get(i), i);
+        }
+    }
+
+    /**
+     * Descarta el índice y deja de observar la lista indexada.
+     */
+    private void invalidateIndex() {
+
+        if (this.indexedList != null) {
+            this.indexedList.removeListEventListener(this);
+            this.indexedList = null;
+        }
+        this.idIndex = null;
+        this.indexedIds = null;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.PropertyAccessorUtils;
+import org.springframework.util.Assert;
+
+/**
+ * Mantiene acotada la memoria ocupada por las entidades de un formulario maestro.
+ * <p>
+ * Las entidades mostradas se sustituyen por proyecciones: nuevas instancias con únicamente las propiedades
+ * necesarias para las columnas de la tabla y la clave. Los grafos completos se mantienen en una caché con referencias
+ * blandas (<code>SoftReference</code>), indexada por clave y en orden de uso, de modo que el recolector puede
+ * liberarlos ante la falta de memoria.
+ * <p>
+ * La caché se acota en bytes: el número de grafos que admite resulta de dividir el presupuesto entre el tamaño
+ * serializado medio de los primeros grafos recibidos. Las filas que muestran grafos completos (las seleccionadas) se
+ * registran por clave y, cuando exceden ese número, el formulario vuelve a proyectarlas de una sola vez.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+final class EntityProjectionCache<T> {
+
+    /**
+     * El <em>logger</em>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityProjectionCache.class);
+
+    /**
+     * El número máximo de entidades examinadas para estimar la memoria ocupada.
+     */
+    private static final int SAMPLE_SIZE = 32;
+
+    /**
+     * La capacidad inicial de la caché, que crece a medida que se añaden grafos hasta alcanzar su número máximo.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * El factor de carga de la caché.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * El mensaje de aviso cuando las entidades no son serializables y no es posible estimar su tamaño.
+     */
+    private static final String NOT_SERIALIZABLE_MESSAGE = //
+    "Entities are not serializable, memory budget falls back to a single cached entity";
+
+    /**
+     * El formulario maestro.
+     */
+    private final AbstractBbMasterForm<T> masterForm;
+
+    /**
+     * Las propiedades que se copian en las proyecciones.
+     */
+    private final Set<String> projectedPropertyNames = new LinkedHashSet<String>();
+
+    /**
+     * Los grafos completos indexados por clave en orden de uso.
+     */
+    private final Map<Object, SoftReference<T>> cache;
+
+    /**
+     * Las claves de las entidades cuyas filas muestran grafos completos.
+     */
+    private final Set<Object> expandedIds = new HashSet<Object>();
+
+    /**
+     * La memoria máxima en bytes a ocupar por los grafos completos en caché.
+     */
+    private final long budget;
+
+    /**
+     * El número máximo de grafos completos en caché, estimado a partir del presupuesto.
+     */
+    private int capacity = Integer.MAX_VALUE;
+
+    /**
+     * La suma de los tamaños serializados de los grafos examinados, negativa si no son serializables.
+     */
+    private long sampledSize;
+
+    /**
+     * El número de grafos examinados.
+     */
+    private int sampledCount;
+
+    /**
+     * Construye la caché.
+     *
+     * @param masterForm
+     *            el formulario maestro.
+     * @param columnPropertyNames
+     *            las propiedades de las columnas de la tabla.
+     * @param budget
+     *            la memoria máxima en bytes a ocupar por los grafos completos en caché.
+     */
+    @SuppressWarnings("serial")
+    public EntityProjectionCache(AbstractBbMasterForm<T> masterForm, String[] columnPropertyNames, Long budget) {
+
+        super();
+
+        Assert.notNull(masterForm, "masterForm");
+        Assert.notNull(columnPropertyNames, "columnPropertyNames");
+        Assert.notNull(budget, "budget");
+        Assert.isTrue(budget > 0, "budget > 0");
+
+        this.masterForm = masterForm;
+        this.budget = budget;
+
+        // Nested paths need their first level property, the one holding the nested object
+        this.projectedPropertyNames.add(masterForm.getIdPropertyName());
+        for (final String columnPropertyName : columnPropertyNames) {
+            final int index = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(columnPropertyName);
+            this.projectedPropertyNames.add((index < 0) ? columnPropertyName : columnPropertyName.substring(0, index));
+        }
+
+        this.cache = new LinkedHashMap<Object, SoftReference<T>>(EntityProjectionCache.INITIAL_CAPACITY,
+                EntityProjectionCache.LOAD_FACTOR, Boolean.TRUE) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, SoftReference<T>> eldest) {
+
+                return this.size() > EntityProjectionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Sustituye entidades por sus proyecciones, manteniendo en caché los grafos completos.
+     *
+     * @param entities
+     *            las entidades.
+     * @return las proyecciones en el mismo orden.
+     */
+    public List<T> projectAll(List<T> entities) {
+
+        Assert.notNull(entities, "entities");
+
+        final List<T> projections = new ArrayList<T>(entities.size());
+        for (final T entity : entities) {
+            projections.add(this.project(entity));
+        }
+
+        return projections;
+    }
+
+    /**
+     * Sustituye una entidad por su proyección, manteniendo en caché el grafo completo.
+     *
+     * @param entity
+     *            la entidad.
+     * @return la proyección.
+     */
+    @SuppressWarnings("unchecked")
+    public T project(T entity) {
+
+        Assert.notNull(entity, "entity");
+
+        this.put(entity);
+        this.expandedIds.remove(this.masterForm.getEntityId(entity));
+
+        final BeanWrapper source = new BeanWrapperImpl(entity);
+        final BeanWrapper target = new BeanWrapperImpl(BeanUtils.instantiateClass(entity.getClass()));
+        for (final String propertyName : this.projectedPropertyNames) {
+            if (source.isReadableProperty(propertyName) && target.isWritableProperty(propertyName)) {
+                target.setPropertyValue(propertyName, source.getPropertyValue(propertyName));
+            }
+        }
+
+        return (T) target.getWrappedInstance();
+    }
+
+    /**
+     * Obtiene el grafo completo de una entidad mostrada.
+     *
+     * @param entity
+     *            la entidad mostrada, una proyección o un grafo completo.
+     * @return la propia entidad si su fila muestra el grafo completo, el grafo en caché en otro caso o
+     *         <code>null</code> si ha sido liberado.
+     */
+    public T resolve(T entity) {
+
+        Assert.notNull(entity, "entity");
+
+        final Object id = this.masterForm.getEntityId(entity);
+        if (this.expandedIds.contains(id)) {
+            return entity;
+        }
+
+        final SoftReference<T> reference = this.cache.get(id);
+
+        return (reference != null) ? reference.get() : null;
+    }
+
+    /**
+     * Registra las entidades cuyas filas pasan a mostrar grafos completos, manteniéndolas en caché como las más
+     * recientemente usadas.
+     *
+     * @param entities
+     *            los grafos completos.
+     * @return <code>true</code> si las filas con grafos completos exceden la capacidad de la caché y han de
+     *         proyectarse de nuevo.
+     */
+    public Boolean expand(Collection<T> entities) {
+
+        Assert.notNull(entities, "entities");
+
+        for (final T entity : entities) {
+            this.put(entity);
+            this.expandedIds.add(this.masterForm.getEntityId(entity));
+        }
+
+        return this.expandedIds.size() > this.capacity;
+    }
+
+    /**
+     * Indica si la fila de una entidad muestra su grafo completo.
+     *
+     * @param entity
+     *            la entidad mostrada.
+     * @return <code>true</code> si muestra el grafo completo.
+     */
+    public Boolean isExpanded(T entity) {
+
+        Assert.notNull(entity, "entity");
+
+        return this.expandedIds.contains(this.masterForm.getEntityId(entity));
+    }
+
+    /**
+     * Olvida las filas registradas con grafos completos, una vez proyectadas de nuevo o desaparecidas.
+     */
+    public void clearExpanded() {
+
+        this.expandedIds.clear();
+    }
+
+    /**
+     * Obtiene el número máximo de grafos completos en caché, estimado a partir del presupuesto.
+     *
+     * @return la capacidad, <code>Integer.MAX_VALUE</code> si aún no se ha estimado.
+     */
+    public int getCapacity() {
+
+        return this.capacity;
+    }
+
+    /**
+     * Mantiene en caché grafos completos.
+     *
+     * @param entities
+     *            los grafos completos.
+     */
+    public void putAll(List<T> entities) {
+
+        Assert.notNull(entities, "entities");
+
+        for (final T entity : entities) {
+            if (entity != null) {
+                this.put(entity);
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número de grafos completos en caché no liberados por el recolector.
+     *
+     * @return el número de grafos.
+     */
+    public int getCachedCount() {
+
+        int count = 0;
+        for (final SoftReference<T> reference : this.cache.values()) {
+            count += (reference.get() != null) ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    /**
+     * Estima la memoria ocupada por unas filas y los grafos en caché a partir del tamaño serializado de una muestra.
+     * <p>
+     * El tamaño serializado sólo aproxima el ocupado en memoria, pero permite comparar formularios y modos.
+     *
+     * @param rows
+     *            las filas mostradas.
+     * @return la estimación en bytes o <code>-1</code> si las entidades no son serializables.
+     */
+    public long estimateHeapUsage(List<T> rows) {
+
+        final List<T> cached = new ArrayList<T>();
+        for (final SoftReference<T> reference : new ArrayList<SoftReference<T>>(this.cache.values())) {
+            final T entity = reference.get();
+            if (entity != null) {
+                cached.add(entity);
+            }
+        }
+
+        final long rowsUsage = EntityProjectionCache.estimateSerializedSize(rows);
+        final long cachedUsage = EntityProjectionCache.estimateSerializedSize(cached);
+
+        return ((rowsUsage < 0) || (cachedUsage < 0)) ? -1 : rowsUsage + cachedUsage;
+    }
+
+    /**
+     * Mantiene en caché un grafo completo.
+     *
+     * @param entity
+     *            el grafo completo.
+     */
+    private void put(T entity) {
+
+        if ((this.sampledCount < EntityProjectionCache.SAMPLE_SIZE) && (this.sampledSize >= 0)) {
+            this.sample(entity);
+        }
+
+        this.cache.put(this.masterForm.getEntityId(entity), new SoftReference<T>(entity));
+    }
+
+    /**
+     * Examina el tamaño serializado de un grafo completo y actualiza la capacidad de la caché.
+     *
+     * @param entity
+     *            el grafo completo.
+     */
+    private void sample(T entity) {
+
+        if (entity instanceof Serializable) {
+            this.sampledSize += SerializationUtils.serialize((Serializable) entity).length;
+            ++this.sampledCount;
+            final long meanSize = Math.max(1, this.sampledSize / this.sampledCount);
+            this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, this.budget / meanSize));
+        } else {
+            EntityProjectionCache.LOGGER.warn(EntityProjectionCache.NOT_SERIALIZABLE_MESSAGE);
+            this.sampledSize = -1;
+            this.capacity = 1;
+        }
+    }
+
+    /**
+     * Estima el tamaño serializado de una lista de objetos a partir de una muestra uniforme.
+     *
+     * @param objects
+     *            los objetos.
+     * @return la estimación en bytes o <code>-1</code> si algún objeto de la muestra no es serializable.
+     */
+    static long estimateSerializedSize(List<?> objects) {
+
+        if (objects.isEmpty()) {
+            return 0;
+        }
+
+        final int step = Math.max(1, objects.size() / EntityProjectionCache.SAMPLE_SIZE);
+        long sampledSize = 0;
+        int sampledCount = 0;
+        for (int i = 0; i < objects.size(); i += step) {
+            final Object object = objects.get(i);
+            if (!(object instanceof Serializable)) {
+                return -1;
+            }
+            sampledSize += SerializationUtils.serialize((Serializable) object).length;
+            ++sampledCount;
+        }
+
+        return sampledSize * objects.size() / sampledCount;
+    }
+}
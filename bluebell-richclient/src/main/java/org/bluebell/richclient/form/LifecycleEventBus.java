@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.bluebell.richclient.application.RcpMain;
+import org.bluebell.richclient.swing.util.SwingUtils;
+import org.springframework.richclient.application.event.LifecycleApplicationEvent;
+import org.springframework.util.Assert;
+
+/**
+ * Bus de eventos de ciclo de vida de entidades que los distribuye de forma asíncrona y por lotes a los
+ * {@link LifecycleEventListener} registrados.
+ * <p>
+ * Cada receptor dispone de su propia cola ordenada, de modo que publicar un evento nunca espera por los receptores y
+ * un receptor lento no retrasa al resto. Los eventos publicados durante la ventana de combinación sobre una misma
+ * entidad se combinan en uno solo:
+ * <ul>
+ * <li>Una creación seguida de modificaciones o refrescos se notifica como creación de la última versión.
+ * <li>Una creación seguida de un borrado no se notifica.
+ * <li>En cualquier otro caso prevalece el último evento.
+ * </ul>
+ * Las entidades se identifican por referencia, de modo que su <code>equals</code> y <code>hashCode</code> no
+ * intervienen y pueden cambiar mientras sus eventos están pendientes.
+ * <p>
+ * Los receptores se referencian débilmente y por defecto reciben los eventos en el <em>event dispatch thread</em>.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class LifecycleEventBus {
+
+    /**
+     * La ventana de combinación por defecto en milisegundos.
+     */
+    public static final Long DEFAULT_COALESCING_DELAY = 100L;
+
+    /**
+     * Los hilos del bus son demonios con nombre reconocible.
+     */
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            final Thread thread = new Thread(runnable, "Lifecycle event bus");
+            thread.setDaemon(Boolean.TRUE);
+
+            return thread;
+        }
+    };
+
+    /**
+     * La instancia de esta clase.
+     */
+    private static final LifecycleEventBus INSTANCE = new LifecycleEventBus();
+
+    /**
+     * El planificador de las entregas al terminar la ventana de combinación.
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(//
+            LifecycleEventBus.THREAD_FACTORY);
+
+    /**
+     * El <em>pool</em> de hilos para las entregas fuera del <em>event dispatch thread</em>.
+     */
+    private final ExecutorService executorService = Executors.newCachedThreadPool(LifecycleEventBus.THREAD_FACTORY);
+
+    /**
+     * Las colas de los receptores registrados.
+     */
+    private final List<ListenerQueue> listenerQueues = new CopyOnWriteArrayList<ListenerQueue>();
+
+    /**
+     * La ventana de combinación en milisegundos.
+     */
+    private volatile Long coalescingDelay = LifecycleEventBus.DEFAULT_COALESCING_DELAY;
+
+    /**
+     * Constructor privado ya que está clase implementa un <em>singleton</em>.
+     */
+    private LifecycleEventBus() {
+
+        super();
+    }
+
+    /**
+     * Obtiene la instancia de esta clase.
+     *
+     * @return la instancia.
+     */
+    public static LifecycleEventBus getInstance() {
+
+        return LifecycleEventBus.INSTANCE;
+    }
+
+    /**
+     * Obtiene la ventana de combinación.
+     *
+     * @return la ventana de combinación en milisegundos.
+     */
+    public Long getCoalescingDelay() {
+
+        return this.coalescingDelay;
+    }
+
+    /**
+     * Establece la ventana de combinación.
+     *
+     * @param coalescingDelay
+     *            la ventana de combinación en milisegundos.
+     */
+    public void setCoalescingDelay(Long coalescingDelay) {
+
+        Assert.notNull(coalescingDelay, "coalescingDelay");
+        Assert.isTrue(coalescingDelay >= 0, "coalescingDelay >= 0");
+
+        this.coalescingDelay = coalescingDelay;
+    }
+
+    /**
+     * Registra un receptor que recibe los eventos en el <em>event dispatch thread</em>.
+     *
+     * @param listener
+     *            el receptor.
+     */
+    public void addListener(LifecycleEventListener listener) {
+
+        this.addListener(listener, Boolean.TRUE);
+    }
+
+    /**
+     * Registra un receptor.
+     *
+     * @param listener
+     *            el receptor.
+     * @param inEventDispatchThread
+     *            si recibe los eventos en el <em>event dispatch thread</em> o en un hilo en segundo plano.
+     */
+    public void addListener(LifecycleEventListener listener, Boolean inEventDispatchThread) {
+
+        Assert.notNull(listener, "listener");
+        Assert.notNull(inEventDispatchThread, "inEventDispatchThread");
+
+        if (this.getListenerQueue(listener) == null) {
+            this.listenerQueues.add(new ListenerQueue(listener, inEventDispatchThread));
+        }
+    }
+
+    /**
+     * Elimina un receptor, descartando sus eventos pendientes.
+     *
+     * @param listener
+     *            el receptor.
+     */
+    public void removeListener(LifecycleEventListener listener) {
+
+        Assert.notNull(listener, "listener");
+
+        final ListenerQueue listenerQueue = this.getListenerQueue(listener);
+        if (listenerQueue != null) {
+            this.listenerQueues.remove(listenerQueue);
+        }
+    }
+
+    /**
+     * Publica un evento encolándolo para cada receptor registrado, sin esperar por ellos.
+     *
+     * @param event
+     *            el evento.
+     */
+    public void publish(LifecycleApplicationEvent event) {
+
+        Assert.notNull(event, "event");
+
+        for (final ListenerQueue listenerQueue : this.listenerQueues) {
+            if (listenerQueue.getListener() == null) {
+                this.listenerQueues.remove(listenerQueue);
+            } else {
+                listenerQueue.add(event);
+            }
+        }
+    }
+
+    /**
+     * Obtiene la cola de un receptor.
+     *
+     * @param listener
+     *            el receptor.
+     * @return la cola o <code>null</code> si el receptor no está registrado.
+     */
+    private ListenerQueue getListenerQueue(LifecycleEventListener listener) {
+
+        for (final ListenerQueue listenerQueue : this.listenerQueues) {
+            if (listenerQueue.getListener() == listener) {
+                return listenerQueue;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Combina un evento con el pendiente sobre la misma entidad.
+     *
+     * @param pending
+     *            el evento pendiente, puede ser <code>null</code>.
+     * @param event
+     *            el nuevo evento.
+     * @return el evento combinado o <code>null</code> si no hay nada que notificar.
+     */
+    private static LifecycleApplicationEvent coalesce(LifecycleApplicationEvent pending,
+            LifecycleApplicationEvent event) {
+
+        if ((pending == null) || !EventType.CREATED.toString().equals(pending.getEventType())) {
+            return event;
+        } else if (EventType.DELETED.toString().equals(event.getEventType())) {
+            return null;
+        }
+
+        return new LifecycleApplicationEvent(EventType.CREATED.toString(), event.getObject());
+    }
+
+    /**
+     * La cola de eventos pendientes de un receptor.
+     * <p>
+     * Las entregas a un mismo receptor nunca se solapan: mientras hay una en curso los nuevos eventos se acumulan para
+     * la siguiente.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private class ListenerQueue implements Runnable {
+
+        /**
+         * El receptor.
+         */
+        private final WeakReference<LifecycleEventListener> listener;
+
+        /**
+         * Si recibe los eventos en el <em>event dispatch thread</em>.
+         */
+        private final Boolean inEventDispatchThread;
+
+        /**
+         * Los eventos pendientes indexados por la referencia a la entidad, en orden de publicación.
+         */
+        private final Map<EntityKey, LifecycleApplicationEvent> pending = //
+        new LinkedHashMap<EntityKey, LifecycleApplicationEvent>();
+
+        /**
+         * Si hay una entrega planificada o en curso.
+         */
+        private Boolean scheduled = Boolean.FALSE;
+
+        /**
+         * Construye la cola.
+         *
+         * @param listener
+         *            el receptor.
+         * @param inEventDispatchThread
+         *            si recibe los eventos en el <em>event dispatch thread</em>.
+         */
+        public ListenerQueue(LifecycleEventListener listener, Boolean inEventDispatchThread) {
+
+            this.listener = new WeakReference<LifecycleEventListener>(listener);
+            this.inEventDispatchThread = inEventDispatchThread;
+        }
+
+        /**
+         * Obtiene el receptor.
+         *
+         * @return el receptor o <code>null</code> si ha sido recolectado.
+         */
+        public LifecycleEventListener getListener() {
+
+            return this.listener.get();
+        }
+
+        /**
+         * Encola un evento combinándolo con el pendiente sobre la misma entidad y planifica la entrega si procede.
+         *
+         * @param event
+         *            el evento.
+         */
+        public synchronized void add(LifecycleApplicationEvent event) {
+
+            // Remove before putting so that the coalesced event takes the position of the latest one
+            final EntityKey entity = new EntityKey(event.getObject());
+            final LifecycleApplicationEvent coalesced = LifecycleEventBus.coalesce(this.pending.remove(entity), event);
+            if (coalesced != null) {
+                this.pending.put(entity, coalesced);
+            }
+
+            this.schedule();
+        }
+
+        /**
+         * Entrega los eventos pendientes.
+         */
+        @Override
+        public void run() {
+
+            if (this.inEventDispatchThread) {
+                SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        ListenerQueue.this.deliver();
+                    }
+                }, Boolean.FALSE);
+            } else {
+                LifecycleEventBus.this.executorService.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        ListenerQueue.this.deliver();
+                    }
+                });
+            }
+        }
+
+        /**
+         * Planifica la entrega de los eventos pendientes si no hay otra planificada o en curso.
+         * <p>
+         * Ha de invocarse con el monitor de esta instancia.
+         */
+        private void schedule() {
+
+            if (!this.scheduled && !this.pending.isEmpty()) {
+                this.scheduled = Boolean.TRUE;
+                LifecycleEventBus.this.scheduler.schedule(//
+                        this, LifecycleEventBus.this.getCoalescingDelay(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Entrega los eventos pendientes al receptor y planifica la siguiente entrega si entretanto llegaron más.
+         */
+        private void deliver() {
+
+            final List<LifecycleApplicationEvent> events;
+            synchronized (this) {
+                events = new ArrayList<LifecycleApplicationEvent>(this.pending.values());
+                this.pending.clear();
+            }
+
+            try {
+                final LifecycleEventListener theListener = this.getListener();
+                if ((theListener != null) && !events.isEmpty()) {
+                    theListener.onLifecycleEvents(events);
+                }
+            } catch (RuntimeException e) {
+                RcpMain.handleException(e);
+            } finally {
+                synchronized (this) {
+                    this.scheduled = Boolean.FALSE;
+                    this.schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Clave que identifica una entidad por referencia.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class EntityKey {
+
+        /**
+         * La entidad.
+         */
+        private final Object entity;
+
+        /**
+         * Construye la clave.
+         *
+         * @param entity
+         *            la entidad.
+         */
+        public EntityKey(Object entity) {
+
+            this.entity = entity;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object object) {
+
+            return (object instanceof EntityKey) && (((EntityKey) object).entity == this.entity);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+
+            return System.identityHashCode(this.entity);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.util.List;
+
+import org.springframework.richclient.application.event.LifecycleApplicationEvent;
+
+/**
+ * Receptor de los eventos de ciclo de vida de entidades distribuidos de forma asíncrona por el
+ * {@link LifecycleEventBus}.
+ * <p>
+ * Los formularios de las vistas basadas en formularios que implementen este interfaz se registran automáticamente.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ *
+ * @see org.bluebell.richclient.form.support.LifecycleEventChangeFeed
+ */
+public interface LifecycleEventListener {
+
+    /**
+     * Recibe un lote de eventos en el orden en que se publicaron, con los eventos sobre una misma entidad ya
+     * combinados.
+     *
+     * @param events
+     *            los eventos.
+     */
+    void onLifecycleEvents(List<LifecycleApplicationEvent> events);
+}
@@ -24,8 +24,16 @@ package org.bluebell.richclient.form.binding.swing;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import javax.swing.JComponent;
+import javax.swing.ListModel;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
@@ -37,6 +45,10 @@ import org.springframework.richclient.form.binding.swing.ShuttleListBinding;
 /**
  * Extiende {@link ShuttleListBinding} con el objetivo de evitar que un simple cambio en la selección genere múltiples
  * notificaciones, una por elemento de la selección.
+ * <p>
+ * Para soportar listas con miles de candidatos la posición de cada elemento se obtiene a partir de un índice
+ * (<em>hash</em>) en lugar de recorrer la lista, los movimientos se aplican sobre la selección como un único cambio
+ * y el <em>value model</em> se actualiza una única vez por acción del usuario.
  * 
  * selectedItemsHolder listSelectedValueMediator valueChangeHandler
  * 
@@ -44,6 +56,25 @@ import org.springframework.richclient.form.binding.swing.ShuttleListBinding;
  */
 public class SilentShuttleListBinding extends ShuttleListBinding {
 
+    /**
+     * El comparador empleado para determinar la igualdad de los elementos, ya que la clase padre no proporciona método
+     * <em>getter</em>.
+     */
+    @SuppressWarnings("rawtypes")
+    private Comparator comparator;
+
+    /**
+     * El índice con la posición de cada elemento en el modelo de {@link #shuttleList}, <code>null</code> si ha de
+     * reconstruirse.
+     */
+    private Map<Object, Integer> itemIndexes;
+
+    /**
+     * Un <em>listener</em> registrado sobre el modelo de {@link #shuttleList} que invalida {@link #itemIndexes} ante
+     * cambios en el modelo.
+     */
+    private final ListDataListener itemIndexesInvalidator = new ItemIndexesInvalidator();
+
     /**
      * Un <em>listener</em> registrado sobre {@link #shuttleList} que actualiza el <em>value model</em>
      * {@link #selectedItemsHolder} ante cambios en el componente.
@@ -85,6 +116,23 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         list.setBinding(this);
     }
 
+    /**
+     * Recuerda el comparador, ya que la clase padre no proporciona método <em>getter</em>.
+     * 
+     * @param comparator
+     *            el comparador.
+     * 
+     * @see ShuttleListBinding#setComparator(Comparator)
+     */
+    @Override
+    public void setComparator(@SuppressWarnings("rawtypes") Comparator comparator) {
+
+        super.setComparator(comparator);
+
+        this.comparator = comparator;
+        this.itemIndexes = null;
+    }
+
     /**
      * Recuerda el <em>value model</em> que almacena los elementos seleccionados, ya que la clase padre no proporciona
      * método <em>getter</em>.
@@ -107,13 +155,47 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * La implementación original nunca considera iguales dos colecciones no nulas, lo que provoca que cada acción del
+     * usuario reemplace el valor del <em>value model</em> aunque la selección no haya cambiado.
      */
     @Override
-    protected boolean collectionsEqual(@SuppressWarnings("rawtypes") Collection a1,
-            @SuppressWarnings("rawtypes") Collection a2) {
+    @SuppressWarnings("rawtypes")
+    protected boolean collectionsEqual(Collection a1, Collection a2) {
+
+        if ((a1 == null) || (a2 == null)) {
+            return a1 == a2;
+        } else if (a1.size() != a2.size()) {
+            return Boolean.FALSE;
+        }
 
-        // TODO, 20080916, evaluar la necesidad de utilizar apache commons
-        return super.collectionsEqual(a1, a2);
+        final Iterator itA1 = a1.iterator();
+        final Iterator itA2 = a2.iterator();
+        while (itA1.hasNext()) {
+            if (!this.equalByComparator(itA1.next(), itA2.next())) {
+                return Boolean.FALSE;
+            }
+        }
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Obtiene la posición del elemento a partir de un índice en lugar de recorrer la lista, salvo que se haya
+     * establecido un comparador.
+     */
+    @Override
+    protected int indexOf(Object o) {
+
+        if ((this.comparator != null) || (this.getShuttleList() == null)) {
+            return super.indexOf(o);
+        }
+
+        final Integer index = this.getItemIndexes().get(o);
+
+        return (index != null) ? index : -1;
     }
 
     /**
@@ -129,6 +211,9 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         this.setSelectedItemsHolder(null);
 
         this.setShuttleList((ShuttleList) super.doBindControl());
+        this.getShuttleList().getModel().removeListDataListener(this.itemIndexesInvalidator);
+        this.getShuttleList().getModel().addListDataListener(this.itemIndexesInvalidator);
+        this.itemIndexes = null;
         if (this.selectedItemsHolder != null) {
             this.setSelectedValue(null);
             this.getShuttleList().addListSelectionListener(//
@@ -153,9 +238,17 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         } else {
             final ListSelectionListener listener = this.getListSelectedValueMediator();
 
+            final ListSelectionModel selectionModel = this.getShuttleList().getSelectionModel();
+
+            // Establecer la selección como un único cambio
             this.getShuttleList().removeListSelectionListener(listener);
-            this.getShuttleList().setSelectedIndices(indices);
-            this.getShuttleList().addListSelectionListener(listener);
+            selectionModel.setValueIsAdjusting(Boolean.TRUE);
+            try {
+                this.getShuttleList().setSelectedIndices(indices);
+            } finally {
+                selectionModel.setValueIsAdjusting(Boolean.FALSE);
+                this.getShuttleList().addListSelectionListener(listener);
+            }
 
             // The selection may now be different than what is reflected in collection property if this is
             // SINGLE_INTERVAL_SELECTION, so modify if needed...
@@ -163,6 +256,47 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         }
     }
 
+    /**
+     * Determina si dos elementos son iguales empleando el comparador si existe.
+     * 
+     * @param o1
+     *            un elemento.
+     * @param o2
+     *            otro elemento.
+     * @return <code>true</code> si son iguales.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean equalByComparator(Object o1, Object o2) {
+
+        if (this.comparator != null) {
+            return this.comparator.compare(o1, o2) == 0;
+        }
+
+        return (o1 == null) ? (o2 == null) : o1.equals(o2);
+    }
+
+    /**
+     * Obtiene el índice con la posición de cada elemento en el modelo de {@link #shuttleList} y si no existe lo crea.
+     * <p>
+     * Ante elementos repetidos se recuerda la primera posición, al igual que hace la búsqueda secuencial.
+     * 
+     * @return el índice.
+     */
+    private Map<Object, Integer> getItemIndexes() {
+
+        if (this.itemIndexes == null) {
+            final ListModel model = this.getShuttleList().getModel();
+            final int size = model.getSize();
+
+            this.itemIndexes = new HashMap<Object, Integer>(Math.max(16, (int) (size / 0.75f) + 1));
+            for (int i = size - 1; i >= 0; --i) {
+                this.itemIndexes.put(model.getElementAt(i), i);
+            }
+        }
+
+        return this.itemIndexes;
+    }
+
     /**
      * Obtiene el <em>listener</em> registrado sobre {@link #shuttleList} y si no existe lo crea.
      * 
@@ -302,36 +436,77 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
 
         /**
          * {@inheritDoc}
+         * <p>
+         * Delega en el <em>binding</em> que dispone de un índice de elementos.
          */
         @Override
-        protected void moveAllLeftToRight() {
+        protected int indexOf(Object o) {
+
+            final SilentShuttleListBinding theBinding = this.getBinding();
+
+            if ((theBinding != null) && (theBinding.getShuttleList() == this)) {
+                return theBinding.indexOf(o);
+            }
+
+            return super.indexOf(o);
+        }
+
+        /**
+         * Realiza un movimiento entre listas como un único cambio en la selección y actualiza el <em>value model</em>
+         * una sola vez.
+         * 
+         * @param move
+         *            el movimiento.
+         */
+        private void move(Runnable move) {
 
             final SilentShuttleListBinding theBinding = this.getBinding();
+            final ListSelectionModel selectionModel = this.getSelectionModel();
 
             // Realizar el cambio de forma silenciosa
             this.removeListSelectionListener(theBinding.getListSelectedValueMediator());
-            super.moveAllLeftToRight();
-            this.addListSelectionListener(theBinding.getListSelectedValueMediator());
+            selectionModel.setValueIsAdjusting(Boolean.TRUE);
+            try {
+                move.run();
+            } finally {
+                selectionModel.setValueIsAdjusting(Boolean.FALSE);
+                this.addListSelectionListener(theBinding.getListSelectedValueMediator());
+            }
 
             // Actualizar el value model con los elementos seleccionados
             theBinding.updateSelectionHolderFromList(theBinding.getValueChangeHandler());
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void moveAllLeftToRight() {
+
+            this.move(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    SilentShuttleList.super.moveAllLeftToRight();
+                }
+            });
+        }
+
         /**
          * {@inheritDoc}
          */
         @Override
         protected void moveAllRightToLeft() {
 
-            final SilentShuttleListBinding theBinding = this.getBinding();
+            this.move(new Runnable() {
 
-            // Realizar el cambio de forma silenciosa
-            this.removeListSelectionListener(theBinding.getListSelectedValueMediator());
-            super.moveAllRightToLeft();
-            this.addListSelectionListener(theBinding.getListSelectedValueMediator());
+                @Override
+                public void run() {
 
-            // Actualizar el value model con los elementos seleccionados
-            theBinding.updateSelectionHolderFromList(theBinding.getValueChangeHandler());
+                    SilentShuttleList.super.moveAllRightToLeft();
+                }
+            });
         }
 
         /**
@@ -340,15 +515,14 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         @Override
         protected void moveLeftToRight() {
 
-            final SilentShuttleListBinding theBinding = this.getBinding();
+            this.move(new Runnable() {
 
-            // Realizar el cambio de forma silenciosa
-            this.removeListSelectionListener(theBinding.getListSelectedValueMediator());
-            super.moveLeftToRight();
-            this.addListSelectionListener(theBinding.getListSelectedValueMediator());
+                @Override
+                public void run() {
 
-            // Actualizar el value model con los elementos seleccionados
-            theBinding.updateSelectionHolderFromList(theBinding.getValueChangeHandler());
+                    SilentShuttleList.super.moveLeftToRight();
+                }
+            });
         }
 
         /**
@@ -357,15 +531,14 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         @Override
         protected void moveRightToLeft() {
 
-            final SilentShuttleListBinding theBinding = this.getBinding();
+            this.move(new Runnable() {
 
-            // Realizar el cambio de forma silenciosa
-            this.removeListSelectionListener(theBinding.getListSelectedValueMediator());
-            super.moveRightToLeft();
-            this.addListSelectionListener(theBinding.getListSelectedValueMediator());
+                @Override
+                public void run() {
 
-            // Actualizar el value model con los elementos seleccionados
-            theBinding.updateSelectionHolderFromList(theBinding.getValueChangeHandler());
+                    SilentShuttleList.super.moveRightToLeft();
+                }
+            });
         }
     }
 
@@ -392,6 +565,39 @@ public class SilentShuttleListBinding extends ShuttleListBinding {
         }
     }
 
+    /**
+     * <em>Listener</em> registrado sobre el modelo de {@link SilentShuttleListBinding#shuttleList} que invalida el
+     * índice de elementos ante cambios en el modelo.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private class ItemIndexesInvalidator implements ListDataListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void contentsChanged(ListDataEvent e) {
+
+            SilentShuttleListBinding.this.itemIndexes = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void intervalAdded(ListDataEvent e) {
+
+            SilentShuttleListBinding.this.itemIndexes = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void intervalRemoved(ListDataEvent e) {
+
+            SilentShuttleListBinding.this.itemIndexes = null;
+        }
+    }
+
     /**
      * 
      * <em>Listener</em> registrado sobre {@link SilentShuttleListBinding#selectedItemsHolder} que actualiza el
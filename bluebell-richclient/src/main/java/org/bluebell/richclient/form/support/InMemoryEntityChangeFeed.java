@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form.support;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bluebell.richclient.application.RcpMain;
+import org.bluebell.richclient.form.EntityChange;
+import org.bluebell.richclient.form.EntityChangeFeed;
+import org.bluebell.richclient.form.EntityChangeListener;
+import org.springframework.util.Assert;
+
+/**
+ * Implementación local en memoria de {@link EntityChangeFeed}, útil para pruebas y como sustituta de una fuente remota.
+ * <p>
+ * Los cambios publicados se entregan inmediatamente a los receptores suscritos en el hilo que los publica.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class InMemoryEntityChangeFeed<T> implements EntityChangeFeed<T> {
+
+    /**
+     * Los receptores suscritos.
+     */
+    private final List<EntityChangeListener<T>> listeners = new CopyOnWriteArrayList<EntityChangeListener<T>>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subscribe(EntityChangeListener<T> listener) {
+
+        Assert.notNull(listener, "listener");
+
+        if (!this.listeners.contains(listener)) {
+            this.listeners.add(listener);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unsubscribe(EntityChangeListener<T> listener) {
+
+        Assert.notNull(listener, "listener");
+
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Publica la creación o modificación de una entidad.
+     *
+     * @param id
+     *            la clave de la entidad.
+     * @param entity
+     *            la nueva versión de la entidad.
+     */
+    public void publishUpsert(Object id, T entity) {
+
+        this.publish(Collections.singletonList(EntityChange.upsert(id, entity)));
+    }
+
+    /**
+     * Publica el borrado de una entidad.
+     *
+     * @param id
+     *            la clave de la entidad.
+     */
+    public void publishDelete(Object id) {
+
+        this.publish(Collections.singletonList(EntityChange.<T> delete(id)));
+    }
+
+    /**
+     * Publica un lote de cambios.
+     *
+     * @param changes
+     *            los cambios.
+     */
+    public void publish(List<EntityChange<T>> changes) {
+
+        Assert.notNull(changes, "changes");
+
+        final List<EntityChange<T>> unmodifiableChanges = Collections.unmodifiableList(changes);
+        for (final EntityChangeListener<T> listener : this.listeners) {
+            try {
+                listener.onEntityChanges(unmodifiableChanges);
+            } catch (RuntimeException e) {
+                RcpMain.handleException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bluebell.richclient.form.AbstractBbMasterForm;
+import org.bluebell.richclient.form.EntityChange;
+import org.bluebell.richclient.form.EventType;
+import org.bluebell.richclient.form.LifecycleEventBus;
+import org.bluebell.richclient.form.LifecycleEventListener;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.richclient.application.event.LifecycleApplicationEvent;
+import org.springframework.util.Assert;
+
+/**
+ * Fuente de cambios sobre entidades alimentada por el {@link LifecycleEventBus}, de modo que los formularios maestros
+ * suscritos reflejan las entidades creadas, modificadas, refrescadas o eliminadas desde cualquier otro formulario de
+ * la aplicación.
+ * <p>
+ * Se registra en el bus al construirse y recibe los eventos fuera del <em>event dispatch thread</em>, ya que los
+ * formularios maestros aplican los cambios por lotes en él. El bus la referencia débilmente, de modo que deja de
+ * recibir eventos cuando ningún formulario la utiliza.
+ *
+ * @param <T>
+ *            el tipo de las entidades.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class LifecycleEventChangeFeed<T> extends InMemoryEntityChangeFeed<T> implements LifecycleEventListener {
+
+    /**
+     * El tipo de las entidades.
+     */
+    private final Class<T> entityClass;
+
+    /**
+     * El nombre de la propiedad clave de las entidades.
+     */
+    private final String idPropertyName;
+
+    /**
+     * Construye la fuente identificando las entidades por la propiedad clave por defecto.
+     *
+     * @param entityClass
+     *            el tipo de las entidades.
+     *
+     * @see AbstractBbMasterForm#DEFAULT_ID_PROPERTY_NAME
+     */
+    public LifecycleEventChangeFeed(Class<T> entityClass) {
+
+        this(entityClass, AbstractBbMasterForm.DEFAULT_ID_PROPERTY_NAME);
+    }
+
+    /**
+     * Construye la fuente.
+     *
+     * @param entityClass
+     *            el tipo de las entidades.
+     * @param idPropertyName
+     *            el nombre de la propiedad clave de las entidades, el mismo que el de los formularios suscritos.
+     */
+    public LifecycleEventChangeFeed(Class<T> entityClass, String idPropertyName) {
+
+        super();
+
+        Assert.notNull(entityClass, "entityClass");
+        Assert.notNull(idPropertyName, "idPropertyName");
+
+        this.entityClass = entityClass;
+        this.idPropertyName = idPropertyName;
+
+        LifecycleEventBus.getInstance().addListener(this, Boolean.FALSE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Publica como un único lote los eventos sobre entidades del tipo de esta fuente: los borrados como tales y el
+     * resto como creaciones o modificaciones.
+     */
+    @Override
+    public void onLifecycleEvents(List<LifecycleApplicationEvent> events) {
+
+        final List<EntityChange<T>> changes = new ArrayList<EntityChange<T>>(events.size());
+        for (final LifecycleApplicationEvent event : events) {
+            final Object object = event.getObject();
+            if (!this.entityClass.isInstance(object)) {
+                continue;
+            }
+
+            final T entity = this.entityClass.cast(object);
+            final Object id = new BeanWrapperImpl(entity).getPropertyValue(this.idPropertyName);
+            if (id == null) {
+                continue;
+            } else if (EventType.DELETED.toString().equals(event.getEventType())) {
+                changes.add(EntityChange.<T> delete(id));
+            } else {
+                changes.add(EntityChange.upsert(id, entity));
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            this.publish(changes);
+        }
+    }
+}
@@ -30,7 +30,8 @@ import javax.swing.table.TableModel;
 
 import org.bluebell.binding.value.support.DirtyTrackingDCBCVM;
 import org.bluebell.richclient.exceptionhandling.BbApplicationException;
-import org.bluebell.richclient.util.AtomicObservableEventList;
+import org.bluebell.richclient.table.support.BbGlazedTableModel;
+import org.bluebell.richclient.util.SnapshotEventList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.binding.MutablePropertyAccessStrategy;
@@ -52,13 +53,11 @@ import org.springframework.binding.value.support.BufferedCollectionValueModel;
 import org.springframework.binding.value.support.DirtyTrackingValueModel;
 import org.springframework.binding.value.support.ValueHolder;
 import org.springframework.richclient.form.FormModelHelper;
-import org.springframework.richclient.table.support.GlazedTableModel;
 import org.springframework.rules.RulesSource;
 import org.springframework.util.Assert;
 import org.springframework.util.ReflectionUtils;
 
 import ca.odell.glazedlists.EventList;
-import ca.odell.glazedlists.TransformedList;
 
 /**
  * Extiende {@link FormModelHelper} con nuevas métodos de utilidad.
@@ -261,26 +260,36 @@ public class BbFormModelHelper extends FormModelHelper {
      *            el identificador del modelo.
      * @return el modelo de la tabla.
      */
-    @SuppressWarnings("unchecked")
     public static TableModel createTableModel(EventList<?> eventList, String[] columnPropertyNames, String id) {
 
-        return new GlazedTableModel(eventList, columnPropertyNames, id) {
+        return BbFormModelHelper.createTableModel(eventList, columnPropertyNames, id, Boolean.FALSE);
+    }
 
-            /**
-             * This is a <code>Serializable</code
-             */
-            private static final long serialVersionUID = -5065011806899360449L;
+    /**
+     * Crea un <code>TableModel</code> internacionalizado, opcionalmente sobre una {@link SnapshotEventList}.
+     * <p>
+     * En tal caso la tabla refleja una réplica de la lista de entidades que se actualiza sin bloqueos desde el hilo que
+     * modifica la lista y que notifica los cambios una sola vez por <em>frame</em> desde el EDT.
+     * 
+     * @param eventList
+     *            la lista de entidades a reflejar en la tabla.
+     * @param columnPropertyNames
+     *            los nombres de las propiedades a mostrar.
+     * @param id
+     *            el identificador del modelo.
+     * @param snapshot
+     *            si la tabla ha de reflejar una réplica de la lista de tipo {@link SnapshotEventList}.
+     * @return el modelo de la tabla.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static TableModel createTableModel(EventList<?> eventList, String[] columnPropertyNames, String id,
+            Boolean snapshot) {
 
-            /**
-             * {@inheritDoc}
-             */
-            @SuppressWarnings("rawtypes")
-            @Override
-            protected TransformedList createSwingThreadProxyList(EventList source) {
+        Assert.notNull(snapshot, "snapshot");
 
-                return new AtomicObservableEventList(super.createSwingThreadProxyList(source));
-            }
-        };
+        final EventList<?> rows = snapshot ? SnapshotEventList.mirror((EventList) eventList) : eventList;
+
+        return new BbGlazedTableModel(rows, columnPropertyNames, id);
     }
 
     /**
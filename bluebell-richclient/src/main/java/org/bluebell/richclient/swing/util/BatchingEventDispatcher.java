@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.swing.util;
+
+import java.awt.EventQueue;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.Timer;
+
+import org.bluebell.richclient.application.RcpMain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Dispatches tasks into the Event Dispatcher Thread in batches.
+ * <p>
+ * Tasks are queued and drained in a single event, at most once per frame, so producers running outside the EDT pay
+ * neither an event per task nor a round trip per task. Tasks are always run in the same order they were queued.
+ * <p>
+ * The synchronous variant ({@link #invokeAndWait(Runnable)}) drains the queue right away instead of waiting for the
+ * next frame and measures how long callers wait. As with <code>EventQueue.invokeAndWait</code>, callers must not
+ * hold any lock the EDT may need (such as the write lock of a GlazedLists event list), otherwise they deadlock.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class BatchingEventDispatcher {
+
+    /**
+     * The default number of frames per second.
+     */
+    public static final int DEFAULT_FRAME_RATE = 60;
+
+    /**
+     * The number of milliseconds in a second.
+     */
+    private static final int MILLIS_PER_SECOND = 1000;
+
+    /**
+     * Synchronous invocations waiting longer than this number of milliseconds are logged.
+     */
+    private static final long SLOW_WAIT_MILLIS = 100;
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingEventDispatcher.class);
+
+    /**
+     * The instance of this class.
+     */
+    private static final BatchingEventDispatcher INSTANCE = new BatchingEventDispatcher();
+
+    /**
+     * The queued tasks.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /**
+     * Whether a drain is already scheduled.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(Boolean.FALSE);
+
+    /**
+     * Whether the next drain should not wait for the next frame.
+     */
+    private final AtomicBoolean urgent = new AtomicBoolean(Boolean.FALSE);
+
+    /**
+     * The number of queued tasks.
+     */
+    private final AtomicLong taskCount = new AtomicLong();
+
+    /**
+     * The number of drains.
+     */
+    private final AtomicLong drainCount = new AtomicLong();
+
+    /**
+     * The number of synchronous invocations from outside the EDT.
+     */
+    private final AtomicLong synchronousCount = new AtomicLong();
+
+    /**
+     * The time spent by callers waiting for synchronous invocations, in nanoseconds.
+     */
+    private final AtomicLong synchronousWaitNanos = new AtomicLong();
+
+    /**
+     * The task draining the queue from the EDT.
+     */
+    private final Runnable drainer = new Runnable() {
+
+        @Override
+        public void run() {
+
+            BatchingEventDispatcher.this.drainOrDelay();
+        }
+    };
+
+    /**
+     * The minimum time between drains, in nanoseconds.
+     */
+    private volatile long frameNanos = TimeUnit.MILLISECONDS.toNanos(//
+            BatchingEventDispatcher.MILLIS_PER_SECOND / BatchingEventDispatcher.DEFAULT_FRAME_RATE);
+
+    /**
+     * The timer delaying drains until the next frame, only accessed from the EDT.
+     */
+    private Timer timer;
+
+    /**
+     * The time of the last drain, only accessed from the EDT.
+     */
+    private long lastDrainNanos = System.nanoTime();
+
+    /**
+     * Private constructor since this class implements the singleton pattern.
+     */
+    private BatchingEventDispatcher() {
+
+        super();
+    }
+
+    /**
+     * Gets the instance of this class.
+     *
+     * @return the instance.
+     */
+    public static BatchingEventDispatcher getInstance() {
+
+        return BatchingEventDispatcher.INSTANCE;
+    }
+
+    /**
+     * Sets the maximum number of drains per second.
+     *
+     * @param frameRate
+     *            the number of frames per second.
+     */
+    public void setFrameRate(int frameRate) {
+
+        Assert.isTrue(frameRate > 0, "frameRate > 0");
+
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / frameRate;
+    }
+
+    /**
+     * Queues a task to be run in the EDT, running it immediately if already in the EDT.
+     *
+     * @param task
+     *            the task.
+     */
+    public void invokeLater(Runnable task) {
+
+        Assert.notNull(task, "task");
+
+        if (EventQueue.isDispatchThread()) {
+            task.run();
+        } else {
+            this.enqueue(task, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Runs a task in the EDT and waits until it is completed, running it immediately if already in the EDT.
+     * <p>
+     * The caller must not hold any lock the EDT may need.
+     *
+     * @param task
+     *            the task.
+     */
+    public void invokeAndWait(Runnable task) {
+
+        Assert.notNull(task, "task");
+
+        if (EventQueue.isDispatchThread()) {
+            task.run();
+            return;
+        }
+
+        final FutureTask<Object> futureTask = new FutureTask<Object>(task, null);
+        final long start = System.nanoTime();
+        this.enqueue(futureTask, Boolean.TRUE);
+        try {
+            futureTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RcpMain.handleException(e);
+        } catch (ExecutionException e) {
+            RcpMain.handleException(e.getCause());
+        } finally {
+            final long waitNanos = System.nanoTime() - start;
+            this.synchronousCount.incrementAndGet();
+            this.synchronousWaitNanos.addAndGet(waitNanos);
+
+            final long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+            if ((waitMillis > BatchingEventDispatcher.SLOW_WAIT_MILLIS)
+                    && BatchingEventDispatcher.LOGGER.isDebugEnabled()) {
+                BatchingEventDispatcher.LOGGER.debug("Waited " + waitMillis + "ms for the EDT to run " + task);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tasks queued so far.
+     *
+     * @return the number of tasks.
+     */
+    public long getTaskCount() {
+
+        return this.taskCount.get();
+    }
+
+    /**
+     * Gets the number of drains so far, each one takes a single EDT event.
+     *
+     * @return the number of drains.
+     */
+    public long getDrainCount() {
+
+        return this.drainCount.get();
+    }
+
+    /**
+     * Gets the number of synchronous invocations made from outside the EDT so far.
+     *
+     * @return the number of synchronous invocations.
+     */
+    public long getSynchronousCount() {
+
+        return this.synchronousCount.get();
+    }
+
+    /**
+     * Gets the time spent by callers waiting for synchronous invocations so far.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getSynchronousWaitMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(this.synchronousWaitNanos.get());
+    }
+
+    /**
+     * Queues a task and schedules a drain if needed.
+     *
+     * @param task
+     *            the task.
+     * @param immediate
+     *            whether to drain without waiting for the next frame.
+     */
+    private void enqueue(Runnable task, Boolean immediate) {
+
+        this.tasks.add(task);
+        this.taskCount.incrementAndGet();
+
+        if (immediate) {
+            // A drain may be already scheduled for the next frame, schedule another one right now
+            this.urgent.set(Boolean.TRUE);
+            this.scheduled.set(Boolean.TRUE);
+            EventQueue.invokeLater(this.drainer);
+        } else if (this.scheduled.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+            EventQueue.invokeLater(this.drainer);
+        }
+    }
+
+    /**
+     * Drains the queue if a frame has elapsed since the last drain, otherwise delays the drain until the next frame.
+     * <p>
+     * Must be invoked from the EDT.
+     */
+    private void drainOrDelay() {
+
+        final long remainingNanos = this.frameNanos - (System.nanoTime() - this.lastDrainNanos);
+        if ((remainingNanos <= 0) || this.urgent.get()) {
+            this.drain();
+            return;
+        }
+
+        if (this.timer == null) {
+            this.timer = new Timer(0, new ActionListener() {
+
+                @Override
+                public void actionPerformed(ActionEvent e) {
+
+                    BatchingEventDispatcher.this.drain();
+                }
+            });
+            this.timer.setRepeats(Boolean.FALSE);
+        }
+
+        this.timer.setInitialDelay((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+        this.timer.restart();
+    }
+
+    /**
+     * Runs the tasks queued so far, tasks queued meanwhile are run on the next drain.
+     * <p>
+     * If a task throws an error the drain is aborted, and the tasks still queued are drained right away in a new
+     * event, so synchronous callers waiting for them are never left blocked.
+     * <p>
+     * Must be invoked from the EDT.
+     */
+    private void drain() {
+
+        // Reset flags before polling, so tasks queued from now on schedule a new drain
+        this.lastDrainNanos = System.nanoTime();
+        this.urgent.set(Boolean.FALSE);
+        this.scheduled.set(Boolean.FALSE);
+        this.drainCount.incrementAndGet();
+
+        Boolean completed = Boolean.FALSE;
+        try {
+            for (int remaining = this.tasks.size(); remaining > 0; --remaining) {
+                final Runnable task = this.tasks.poll();
+                if (task == null) {
+                    break;
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    RcpMain.handleException(e);
+                }
+            }
+            completed = Boolean.TRUE;
+        } finally {
+            if (!completed && !this.tasks.isEmpty()) {
+                this.urgent.set(Boolean.TRUE);
+                this.scheduled.set(Boolean.TRUE);
+                EventQueue.invokeLater(this.drainer);
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.swing.util;
+
+import java.awt.EventQueue;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.Timer;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.springframework.richclient.progress.ProgressMonitor;
+import org.springframework.util.Assert;
+
+/**
+ * Progress monitor decorator that never blocks the reporting thread.
+ * <p>
+ * Invocations just publish an immutable progress state into a lock-free holder and return immediately. A Swing timer
+ * renders the latest published state into the target progress monitor from the Event Dispatcher Thread at a fixed
+ * frame rate, so intermediate updates are collapsed into a single one per frame.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class FrameRateProgressMonitor implements ProgressMonitor {
+
+    /**
+     * The default number of frames per second.
+     */
+    public static final int DEFAULT_FRAME_RATE = 25;
+
+    /**
+     * The number of milliseconds in a second.
+     */
+    private static final int MILLIS_PER_SECOND = 1000;
+
+    /**
+     * The decorated progress monitor, only accessed from the Event Dispatcher Thread.
+     */
+    private final ProgressMonitor targetProgressMonitor;
+
+    /**
+     * The last published progress state.
+     */
+    private final AtomicReference<ProgressState> publishedState = new AtomicReference<ProgressState>(
+            ProgressState.INITIAL);
+
+    /**
+     * Whether progress has been canceled.
+     */
+    private final AtomicBoolean canceled = new AtomicBoolean(Boolean.FALSE);
+
+    /**
+     * The timer rendering published states into the target progress monitor.
+     */
+    private final Timer timer;
+
+    /**
+     * The last rendered progress state, only accessed from the Event Dispatcher Thread.
+     */
+    private ProgressState renderedState = ProgressState.INITIAL;
+
+    /**
+     * Creates the progress monitor given the target progress monitor and rendering at the default frame rate.
+     *
+     * @param targetProgressMonitor
+     *            the target progress monitor.
+     *
+     * @see #DEFAULT_FRAME_RATE
+     */
+    public FrameRateProgressMonitor(ProgressMonitor targetProgressMonitor) {
+
+        this(targetProgressMonitor, FrameRateProgressMonitor.DEFAULT_FRAME_RATE);
+    }
+
+    /**
+     * Creates the progress monitor given the target progress monitor and the frame rate.
+     *
+     * @param targetProgressMonitor
+     *            the target progress monitor.
+     * @param frameRate
+     *            the number of frames per second.
+     */
+    public FrameRateProgressMonitor(ProgressMonitor targetProgressMonitor, int frameRate) {
+
+        super();
+
+        Assert.notNull(targetProgressMonitor, "targetProgressMonitor");
+        Assert.isTrue(frameRate > 0, "frameRate > 0");
+
+        this.targetProgressMonitor = targetProgressMonitor;
+        this.timer = new Timer(FrameRateProgressMonitor.MILLIS_PER_SECOND / frameRate, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+
+                FrameRateProgressMonitor.this.render();
+            }
+        });
+        this.timer.setCoalesce(Boolean.TRUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void taskStarted(String name, int totalWork) {
+
+        ProgressState current;
+        do {
+            current = this.publishedState.get();
+        } while (!this.publishedState.compareAndSet(current, current.taskStarted(name, totalWork)));
+
+        this.startRendering();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subTaskStarted(String name) {
+
+        ProgressState current;
+        do {
+            current = this.publishedState.get();
+        } while (!this.publishedState.compareAndSet(current, current.subTaskStarted(name)));
+
+        this.startRendering();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void worked(int work) {
+
+        ProgressState current;
+        do {
+            current = this.publishedState.get();
+        } while (!this.publishedState.compareAndSet(current, current.worked(work)));
+
+        this.startRendering();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void done() {
+
+        ProgressState current;
+        do {
+            current = this.publishedState.get();
+        } while (!this.publishedState.compareAndSet(current, current.done()));
+
+        this.startRendering();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCanceled() {
+
+        return this.canceled.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCanceled(boolean b) {
+
+        this.canceled.set(b);
+
+        this.startRendering();
+    }
+
+    /**
+     * Gets the target progress monitor.
+     *
+     * @return the target progress monitor.
+     */
+    public final ProgressMonitor getTargetProgressMonitor() {
+
+        return this.targetProgressMonitor;
+    }
+
+    /**
+     * Renders the last published state into the target progress monitor.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     */
+    protected void render() {
+
+        Assert.state(EventQueue.isDispatchThread(), "EventQueue.isDispatchThread()");
+
+        final ProgressMonitor target = this.getTargetProgressMonitor();
+        final ProgressState rendered = this.renderedState;
+        final ProgressState published = this.publishedState.get();
+
+        final Boolean newTask = published.taskSequence != rendered.taskSequence;
+
+        if (newTask) {
+            target.taskStarted(published.taskName, published.totalWork);
+        }
+        if ((published.subTaskSequence != rendered.subTaskSequence) && (published.subTaskName != null)) {
+            target.subTaskStarted(published.subTaskName);
+        }
+        final int work = newTask ? published.workDone : published.workDone - rendered.workDone;
+        if (work > 0) {
+            target.worked(work);
+        }
+        if (target.isCanceled() != this.isCanceled()) {
+            target.setCanceled(this.isCanceled());
+        }
+        if (published.done && (newTask || !rendered.done)) {
+            target.done();
+        }
+
+        this.renderedState = published;
+
+        // Stop rendering once everything is done, a new publication will restart the timer
+        if (published.done) {
+            this.timer.stop();
+
+            // Avoid losing a publication that happened while stopping
+            if (this.publishedState.get() != published) {
+                this.timer.start();
+            }
+        }
+    }
+
+    /**
+     * Ensures the rendering timer is running.
+     */
+    private void startRendering() {
+
+        if (!this.timer.isRunning()) {
+            this.timer.start();
+        }
+    }
+
+    /**
+     * Immutable snapshot of the progress reported so far.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class ProgressState {
+
+        /**
+         * The state before any task starts.
+         */
+        private static final ProgressState INITIAL = new ProgressState(0, null, 0, 0, null, 0, Boolean.FALSE);
+
+        /**
+         * Incremented every time a task starts.
+         */
+        private final int taskSequence;
+
+        /**
+         * The task name.
+         */
+        private final String taskName;
+
+        /**
+         * The total work of the task.
+         */
+        private final int totalWork;
+
+        /**
+         * Incremented every time a sub task starts.
+         */
+        private final int subTaskSequence;
+
+        /**
+         * The sub task name.
+         */
+        private final String subTaskName;
+
+        /**
+         * The accumulated work done for the current task.
+         */
+        private final int workDone;
+
+        /**
+         * Whether the current task is done.
+         */
+        private final boolean done;
+
+        /**
+         * Creates the state.
+         *
+         * @param taskSequence
+         *            the task sequence.
+         * @param taskName
+         *            the task name.
+         * @param totalWork
+         *            the total work.
+         * @param subTaskSequence
+         *            the sub task sequence.
+         * @param subTaskName
+         *            the sub task name.
+         * @param workDone
+         *            the work done.
+         * @param done
+         *            whether the task is done.
+         */
+        private ProgressState(int taskSequence, String taskName, int totalWork, int subTaskSequence,
+                String subTaskName, int workDone, boolean done) {
+
+            this.taskSequence = taskSequence;
+            this.taskName = taskName;
+            this.totalWork = totalWork;
+            this.subTaskSequence = subTaskSequence;
+            this.subTaskName = subTaskName;
+            this.workDone = workDone;
+            this.done = done;
+        }
+
+        /**
+         * Derives the state after a task starts.
+         *
+         * @param name
+         *            the task name.
+         * @param total
+         *            the total work.
+         * @return the new state.
+         */
+        private ProgressState taskStarted(String name, int total) {
+
+            return new ProgressState(this.taskSequence + 1, name, total, this.subTaskSequence, null, 0, Boolean.FALSE);
+        }
+
+        /**
+         * Derives the state after a sub task starts.
+         *
+         * @param name
+         *            the sub task name.
+         * @return the new state.
+         */
+        private ProgressState subTaskStarted(String name) {
+
+            if (ObjectUtils.equals(name, this.subTaskName)) {
+                return this;
+            }
+
+            return new ProgressState(this.taskSequence, this.taskName, this.totalWork, this.subTaskSequence + 1, name,
+                    this.workDone, this.done);
+        }
+
+        /**
+         * Derives the state after some work is done.
+         *
+         * @param work
+         *            the work done.
+         * @return the new state.
+         */
+        private ProgressState worked(int work) {
+
+            return new ProgressState(this.taskSequence, this.taskName, this.totalWork, this.subTaskSequence,
+                    this.subTaskName, this.workDone + work, this.done);
+        }
+
+        /**
+         * Derives the state after the task is done.
+         *
+         * @return the new state.
+         */
+        private ProgressState done() {
+
+            return new ProgressState(this.taskSequence, this.taskName, this.totalWork, this.subTaskSequence,
+                    this.subTaskName, this.workDone, Boolean.TRUE);
+        }
+    }
+}
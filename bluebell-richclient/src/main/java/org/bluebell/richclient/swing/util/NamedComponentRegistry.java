@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.swing.util;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Window;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.CellRendererPane;
+import javax.swing.SwingUtilities;
+
+import org.springframework.util.Assert;
+
+/**
+ * Indexes by name the components of a window, so they can be found without walking the component tree.
+ * <p>
+ * There is a registry per window, windows never become part of another hierarchy. The registry listens to container
+ * events and to name changes of every component in the window in order to keep itself up to date, and references
+ * components weakly. Renderers held by a {@link CellRendererPane} are not indexed since they are added and removed
+ * while painting. Owned windows are not indexed either, they have their own registries.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ *
+ * @see SwingUtils#getDescendantNamed(String, Component)
+ */
+public final class NamedComponentRegistry {
+
+    /**
+     * The registries indexed by window.
+     */
+    private static final Map<Window, NamedComponentRegistry> REGISTRIES = //
+    new WeakHashMap<Window, NamedComponentRegistry>();
+
+    /**
+     * The name of the component property that triggers reindexing.
+     */
+    private static final String NAME_PROPERTY = "name";
+
+    /**
+     * The indexed components by name, in registration order.
+     */
+    private final Map<String, List<WeakReference<Component>>> components = //
+    new HashMap<String, List<WeakReference<Component>>>();
+
+    /**
+     * The listener that keeps this registry up to date.
+     */
+    private final Handler handler = new Handler();
+
+    /**
+     * Creates the registry and indexes the given window.
+     *
+     * @param window
+     *            the window.
+     */
+    private NamedComponentRegistry(Window window) {
+
+        this.register(window);
+    }
+
+    /**
+     * Gets the registry of a window, creating it if needed.
+     *
+     * @param window
+     *            the window.
+     * @return the registry.
+     */
+    public static NamedComponentRegistry getInstance(Window window) {
+
+        Assert.notNull(window, "window");
+
+        synchronized (NamedComponentRegistry.REGISTRIES) {
+            NamedComponentRegistry registry = NamedComponentRegistry.REGISTRIES.get(window);
+            if (registry == null) {
+                registry = new NamedComponentRegistry(window);
+                NamedComponentRegistry.REGISTRIES.put(window, registry);
+            }
+
+            return registry;
+        }
+    }
+
+    /**
+     * Gets a component with a given name that is the given parent or one of its descendants.
+     * <p>
+     * If several components match, the first one in pre-order is returned, the same as a recursive search does.
+     *
+     * @param name
+     *            the name.
+     * @param parent
+     *            the root component in hierarchy.
+     * @return the found component (may be null).
+     */
+    public Component getDescendantNamed(String name, Component parent) {
+
+        Assert.notNull(name, "name");
+        Assert.notNull(parent, "parent");
+
+        final List<Component> found = new ArrayList<Component>(1);
+        synchronized (this) {
+            final List<WeakReference<Component>> candidates = this.components.get(name);
+            if (candidates == null) {
+                return null;
+            }
+
+            for (final Iterator<WeakReference<Component>> itr = candidates.iterator(); itr.hasNext();) {
+                final Component candidate = itr.next().get();
+                if (candidate == null) {
+                    itr.remove();
+                } else if ((candidate == parent) || SwingUtilities.isDescendingFrom(candidate, parent)) {
+                    found.add(candidate);
+                }
+            }
+
+            if (candidates.isEmpty()) {
+                this.components.remove(name);
+            }
+        }
+
+        // Walking the hierarchy takes the AWT tree lock, never do it while holding this registry lock
+        if (found.size() > 1) {
+            return NamedComponentRegistry.first(found, parent);
+        }
+
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Gets the first component in pre-order traversal among the given ones.
+     *
+     * @param found
+     *            the components, all of them descendants of <code>parent</code>.
+     * @param parent
+     *            the root component in hierarchy.
+     * @return the first component.
+     */
+    private static Component first(List<Component> found, Component parent) {
+
+        if (found.contains(parent)) {
+            return parent;
+        } else if (parent instanceof Container) {
+            for (final Component child : ((Container) parent).getComponents()) {
+                final boolean contains = found.contains(child);
+                if (contains || ((child instanceof Container) && NamedComponentRegistry.isAncestor(child, found))) {
+                    return contains ? child : NamedComponentRegistry.first(found, child);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Whether a container is an ancestor of any of the given components.
+     *
+     * @param container
+     *            the container.
+     * @param components
+     *            the components.
+     * @return <code>true</code> if ancestor.
+     */
+    private static boolean isAncestor(Component container, List<Component> components) {
+
+        for (final Component component : components) {
+            if (SwingUtilities.isDescendingFrom(component, container)) {
+                return Boolean.TRUE;
+            }
+        }
+
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Indexes a component and its descendants and starts listening to their changes.
+     *
+     * @param component
+     *            the component.
+     */
+    private void register(Component component) {
+
+        final List<Component> registered = new ArrayList<Component>();
+        this.listen(component, Boolean.TRUE, registered);
+
+        synchronized (this) {
+            for (final Component each : registered) {
+                this.index(each.getName(), each);
+            }
+        }
+    }
+
+    /**
+     * Removes a component and its descendants from the index and stops listening to their changes.
+     *
+     * @param component
+     *            the component.
+     */
+    private void unregister(Component component) {
+
+        final List<Component> unregistered = new ArrayList<Component>();
+        this.listen(component, Boolean.FALSE, unregistered);
+
+        synchronized (this) {
+            for (final Component each : unregistered) {
+                this.unindex(each.getName(), each);
+            }
+        }
+    }
+
+    /**
+     * Starts or stops listening to the changes of a component and its descendants.
+     *
+     * @param component
+     *            the component.
+     * @param listen
+     *            whether to start listening.
+     * @param visited
+     *            the list where visited components are added.
+     */
+    private void listen(Component component, Boolean listen, List<Component> visited) {
+
+        if (component instanceof CellRendererPane) {
+            return;
+        }
+
+        visited.add(component);
+
+        // Avoid duplicated listeners if already registered
+        component.removePropertyChangeListener(NamedComponentRegistry.NAME_PROPERTY, this.handler);
+        if (listen) {
+            component.addPropertyChangeListener(NamedComponentRegistry.NAME_PROPERTY, this.handler);
+        }
+
+        if (component instanceof Container) {
+            final Container container = (Container) component;
+            container.removeContainerListener(this.handler);
+            if (listen) {
+                container.addContainerListener(this.handler);
+            }
+            for (final Component child : container.getComponents()) {
+                this.listen(child, listen, visited);
+            }
+        }
+    }
+
+    /**
+     * Indexes a component by name.
+     *
+     * @param name
+     *            the name, may be <code>null</code>.
+     * @param component
+     *            the component.
+     */
+    private void index(String name, Component component) {
+
+        if (name == null) {
+            return;
+        }
+
+        List<WeakReference<Component>> references = this.components.get(name);
+        if (references == null) {
+            references = new ArrayList<WeakReference<Component>>(1);
+            this.components.put(name, references);
+        }
+
+        for (final WeakReference<Component> reference : references) {
+            if (reference.get() == component) {
+                return;
+            }
+        }
+        references.add(new WeakReference<Component>(component));
+    }
+
+    /**
+     * Removes a component from the index.
+     *
+     * @param name
+     *            the name the component was indexed by, may be <code>null</code>.
+     * @param component
+     *            the component.
+     */
+    private void unindex(String name, Component component) {
+
+        final List<WeakReference<Component>> references = (name != null) ? this.components.get(name) : null;
+        if (references == null) {
+            return;
+        }
+
+        for (final Iterator<WeakReference<Component>> itr = references.iterator(); itr.hasNext();) {
+            final Component referent = itr.next().get();
+            if ((referent == null) || (referent == component)) {
+                itr.remove();
+            }
+        }
+
+        if (references.isEmpty()) {
+            this.components.remove(name);
+        }
+    }
+
+    /**
+     * Keeps the registry up to date as components are added, removed or renamed.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private class Handler implements ContainerListener, PropertyChangeListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void componentAdded(ContainerEvent e) {
+
+            NamedComponentRegistry.this.register(e.getChild());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void componentRemoved(ContainerEvent e) {
+
+            NamedComponentRegistry.this.unregister(e.getChild());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+
+            final Component component = (Component) evt.getSource();
+            synchronized (NamedComponentRegistry.this) {
+                NamedComponentRegistry.this.unindex((String) evt.getOldValue(), component);
+                NamedComponentRegistry.this.index((String) evt.getNewValue(), component);
+            }
+        }
+    }
+}
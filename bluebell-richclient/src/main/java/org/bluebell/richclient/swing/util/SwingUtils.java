@@ -25,16 +25,16 @@ import java.awt.Component;
 import java.awt.Container;
 import java.awt.EventQueue;
 import java.awt.Image;
+import java.awt.Window;
 import java.beans.PropertyChangeListener;
-import java.lang.reflect.InvocationTargetException;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
 import javax.swing.plaf.UIResource;
 
-import org.bluebell.richclient.application.RcpMain;
 import org.springframework.richclient.command.ActionCommand;
 import org.springframework.util.Assert;
 
@@ -104,6 +104,9 @@ public final class SwingUtils {
 
     /**
      * Ensures the given runnable is executed into the event dispatcher thread.
+     * <p>
+     * Runnables are dispatched through the {@link BatchingEventDispatcher}, so asynchronous ones are coalesced into a
+     * single event per frame.
      * 
      * @param runnable
      *            the runnable.
@@ -118,20 +121,17 @@ public final class SwingUtils {
         if (EventQueue.isDispatchThread()) {
             runnable.run();
         } else if (wait) {
-            try {
-                EventQueue.invokeAndWait(runnable);
-            } catch (InterruptedException e) {
-                RcpMain.handleException(e);
-            } catch (InvocationTargetException e) {
-                RcpMain.handleException(e);
-            }
+            BatchingEventDispatcher.getInstance().invokeAndWait(runnable);
         } else {
-            EventQueue.invokeLater(runnable);
+            BatchingEventDispatcher.getInstance().invokeLater(runnable);
         }
     }
 
     /**
-     * Does a pre-order search of a component with a given name.
+     * Gets the first component in pre-order with a given name.
+     * <p>
+     * Components within a window are looked up through the {@link NamedComponentRegistry} of the window, so only the
+     * first lookup walks its component tree. Components not (yet) within a window are searched recursively.
      * 
      * @param name
      *            the name.
@@ -144,12 +144,31 @@ public final class SwingUtils {
         Assert.notNull(name, "name");
         Assert.notNull(parent, "parent");
 
+        final Window window = (parent instanceof Window) ? (Window) parent : SwingUtilities.getWindowAncestor(parent);
+        if (window != null) {
+            return NamedComponentRegistry.getInstance(window).getDescendantNamed(name, parent);
+        }
+
+        return SwingUtils.searchDescendantNamed(name, parent);
+    }
+
+    /**
+     * Does a pre-order search of a component with a given name.
+     * 
+     * @param name
+     *            the name.
+     * @param parent
+     *            the root component in hierarchy.
+     * @return the found component (may be null).
+     */
+    private static Component searchDescendantNamed(String name, Component parent) {
+
         if (name.equals(parent.getName())) { // Base case
             return parent;
         } else if (parent instanceof Container) { // Recursive case
             for (final Component component : ((Container) parent).getComponents()) {
 
-                final Component foundComponent = SwingUtils.getDescendantNamed(name, component);
+                final Component foundComponent = SwingUtils.searchDescendantNamed(name, component);
 
                 if (foundComponent != null) {
                     return foundComponent;
@@ -0,0 +1,684 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
+
+import org.bluebell.richclient.util.AtomicObservableEventList;
+import org.bluebell.richclient.util.SnapshotEventList;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.richclient.table.support.GlazedTableModel;
+import org.springframework.util.Assert;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.TransformedList;
+
+/**
+ * A <code>GlazedTableModel</code> that reads column values through {@link ColumnAccessor}s and caches them per row
+ * while rendering.
+ * <p>
+ * <code>GlazedTableModel</code> reads every cell through a single shared <code>BeanWrapper</code>, which is slow and
+ * not thread safe, whereas table support classes (searching, filtering and sorting) read cells from worker threads.
+ * This model resolves an accessor per row class and column once and then reads cells without shared state.
+ * <p>
+ * Additionally values read from the event dispatch thread are cached for the most recently read model rows (a few
+ * screens, see {@link #ROW_CACHE_SIZE}), so repainting or scrolling over recently seen rows does not invoke getters
+ * again while memory stays bounded no matter how many rows the table has. The cache is maintained from the table
+ * model events this model fires, so any change in the underlying event list invalidates the affected rows.
+ * <p>
+ * Finally, row updates notified within the same frame (see {@link #setCoalescingDelay(Integer)}) are coalesced into a
+ * single event, so rapidly updated entities are repainted once per frame instead of once per change. Structural
+ * changes (insertions, deletions...) are notified immediately since views must be consistent with the row count.
+ * Since they are received once the list has already changed, pending updates are first shifted (or clipped) through
+ * them and then notified, so they never refer to stale row indexes.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class BbGlazedTableModel extends GlazedTableModel {
+
+    /**
+     * This is a <code>Serializable</code> class.
+     */
+    private static final long serialVersionUID = 4416923582913387015L;
+
+    /**
+     * The default delay in milliseconds before notifying coalesced row updates, about a frame.
+     */
+    public static final Integer DEFAULT_COALESCING_DELAY = 16;
+
+    /**
+     * Marks a cell whose value has not been cached yet.
+     */
+    private static final Object NOT_CACHED = new Object();
+
+    /**
+     * The maximum number of rows whose values are cached, a few screens of rows.
+     */
+    private static final int ROW_CACHE_SIZE = 256;
+
+    /**
+     * The column accessors indexed by row class, <code>null</code> elements stand for unsupported property paths.
+     * <p>
+     * Copy on write, so it can be read from any thread.
+     */
+    private transient volatile Map<Class<?>, ColumnAccessor[]> accessors = Collections.emptyMap();
+
+    /**
+     * The cached column values of the most recently read model rows, only accessed from the event dispatch thread.
+     */
+    private final transient RowCache rowCache = new RowCache(BbGlazedTableModel.ROW_CACHE_SIZE);
+
+    /**
+     * The snapshot list this model reads rows from, <code>null</code> if none.
+     * <p>
+     * Set while the super constructor creates the proxy list, so it must not be initialized.
+     */
+    private transient SnapshotEventList<?> snapshotList;
+
+    /**
+     * The list this model reads rows from, in the event dispatch thread.
+     * <p>
+     * Set while the super constructor creates the proxy list, so it must not be initialized.
+     */
+    private transient EventList<?> proxyList;
+
+    /**
+     * Whether to cache column values read from the event dispatch thread.
+     */
+    private Boolean rowCacheEnabled = Boolean.TRUE;
+
+    /**
+     * The delay in milliseconds before notifying coalesced row updates, <code>0</code> disables coalescing.
+     */
+    private Integer coalescingDelay = BbGlazedTableModel.DEFAULT_COALESCING_DELAY;
+
+    /**
+     * The timer notifying coalesced row updates, only accessed from the event dispatch thread.
+     */
+    private transient Timer coalescingTimer;
+
+    /**
+     * The first row updated since the last notification, <code>-1</code> if none.
+     */
+    private transient int pendingFirstRow = -1;
+
+    /**
+     * The last row updated since the last notification.
+     */
+    private transient int pendingLastRow = -1;
+
+    /**
+     * The column updated since the last notification, <code>TableModelEvent.ALL_COLUMNS</code> if several.
+     */
+    private transient int pendingColumn = TableModelEvent.ALL_COLUMNS;
+
+    /**
+     * The number of table model events received.
+     */
+    private transient long receivedEventCount;
+
+    /**
+     * The number of table model events notified to listeners.
+     */
+    private transient long emittedEventCount;
+
+    /**
+     * Creates the table model.
+     *
+     * @param rows
+     *            the rows.
+     * @param columnPropertyNames
+     *            the property names of the columns.
+     * @param modelId
+     *            the model id used for i18n.
+     */
+    @SuppressWarnings("rawtypes")
+    public BbGlazedTableModel(EventList rows, String[] columnPropertyNames, String modelId) {
+
+        super(rows, columnPropertyNames, modelId);
+    }
+
+    /**
+     * Whether column values read from the event dispatch thread are cached.
+     *
+     * @return the row cache enabled flag.
+     */
+    public final Boolean getRowCacheEnabled() {
+
+        return this.rowCacheEnabled;
+    }
+
+    /**
+     * Sets whether column values read from the event dispatch thread are cached.
+     *
+     * @param rowCacheEnabled
+     *            the row cache enabled flag to set.
+     */
+    public final void setRowCacheEnabled(Boolean rowCacheEnabled) {
+
+        Assert.notNull(rowCacheEnabled, "rowCacheEnabled");
+
+        this.rowCacheEnabled = rowCacheEnabled;
+        this.rowCache.clear();
+    }
+
+    /**
+     * Gets the delay before notifying coalesced row updates.
+     *
+     * @return the delay in milliseconds, <code>0</code> if coalescing is disabled.
+     */
+    public final Integer getCoalescingDelay() {
+
+        return this.coalescingDelay;
+    }
+
+    /**
+     * Sets the delay before notifying coalesced row updates, between 16 and 50 milliseconds are recommended.
+     *
+     * @param coalescingDelay
+     *            the delay in milliseconds, <code>0</code> disables coalescing.
+     */
+    public final void setCoalescingDelay(Integer coalescingDelay) {
+
+        Assert.notNull(coalescingDelay, "coalescingDelay");
+        Assert.isTrue(coalescingDelay >= 0, "coalescingDelay >= 0");
+
+        this.coalescingDelay = coalescingDelay;
+        if (this.coalescingTimer != null) {
+            this.coalescingTimer.setInitialDelay(coalescingDelay);
+        }
+    }
+
+    /**
+     * Gets the number of table model events received so far, before coalescing.
+     *
+     * @return the number of events received.
+     */
+    public final long getReceivedEventCount() {
+
+        return this.receivedEventCount;
+    }
+
+    /**
+     * Gets the number of table model events notified to listeners so far, after coalescing.
+     *
+     * @return the number of events emitted.
+     */
+    public final long getEmittedEventCount() {
+
+        return this.emittedEventCount;
+    }
+
+    /**
+     * Notifies pending row updates right now.
+     * <p>
+     * Must be invoked from the event dispatch thread.
+     */
+    public final void flushPendingUpdates() {
+
+        if (this.pendingFirstRow < 0) {
+            return;
+        }
+
+        // Clip to the current row count, just in case the list changed without notifying
+        final int lastRow = Math.min(this.pendingLastRow, this.getRowCount() - 1);
+        final TableModelEvent event = (this.pendingFirstRow <= lastRow) ? new TableModelEvent(//
+                this, this.pendingFirstRow, lastRow, this.pendingColumn, TableModelEvent.UPDATE) : null;
+
+        this.discardPendingUpdates();
+
+        if (event != null) {
+            this.emitTableChanged(event);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns the cached value when called from the event dispatch thread.
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+
+        if (!this.getRowCacheEnabled() || !SwingUtilities.isEventDispatchThread()) {
+            return super.getValueAt(rowIndex, columnIndex);
+        }
+
+        Object[] values = this.rowCache.get(rowIndex);
+        if (values == null) {
+            values = new Object[this.getColumnCount()];
+            Arrays.fill(values, BbGlazedTableModel.NOT_CACHED);
+            this.rowCache.put(rowIndex, values);
+        }
+
+        if ((columnIndex >= values.length) || (columnIndex < 0)) {
+            return super.getValueAt(rowIndex, columnIndex);
+        } else if (values[columnIndex] == BbGlazedTableModel.NOT_CACHED) {
+            values[columnIndex] = super.getValueAt(rowIndex, columnIndex);
+        }
+
+        return values[columnIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Invalidates the cached values of the affected rows before notifying listeners. Row updates are coalesced until
+     * the end of the frame, whereas other events are notified right after pending updates.
+     */
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+
+        ++this.receivedEventCount;
+        this.invalidateRowCache(e);
+
+        if (this.isCoalescable(e)) {
+            this.coalesce(e);
+        } else {
+            this.adjustPendingUpdates(e);
+            this.flushPendingUpdates();
+            this.emitTableChanged(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the value through the column accessor of the row class, falling back to a new bean wrapper for unsupported
+     * property paths.
+     */
+    @Override
+    protected Object getColumnValue(Object row, int column) {
+
+        if (row == null) {
+            return null;
+        }
+
+        final ColumnAccessor accessor = this.getColumnAccessors(row.getClass())[column];
+        if (accessor != null) {
+            return accessor.getValue(row);
+        }
+
+        return new BeanWrapperImpl(row).getPropertyValue(this.getColumnPropertyNames()[column]);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Proxies the source list with an {@link AtomicObservableEventList}. A {@link SnapshotEventList} is not proxied
+     * into the event dispatch thread, since it already notifies from there and can be read without locking.
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected TransformedList createSwingThreadProxyList(EventList source) {
+
+        final TransformedList proxy;
+        if (source instanceof SnapshotEventList) {
+            this.snapshotList = (SnapshotEventList) source;
+            proxy = new AtomicObservableEventList(source);
+        } else {
+            proxy = new AtomicObservableEventList(super.createSwingThreadProxyList(source));
+        }
+        this.proxyList = proxy;
+
+        return proxy;
+    }
+
+    /**
+     * Copies the rows of this model under the read lock of the list they are read from.
+     * <p>
+     * Table support classes read the cells of the copied rows from worker threads through
+     * {@link #getColumnValue(Object, int)}, so they never read the list while it changes. This method must be called
+     * from the event dispatch thread, so the copy is consistent with the row count views see.
+     *
+     * @return the rows.
+     */
+    Object[] getRows() {
+
+        this.proxyList.getReadWriteLock().readLock().lock();
+        try {
+            return this.proxyList.toArray();
+        } finally {
+            this.proxyList.getReadWriteLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also disposes the snapshot list rows are read from, if any, so it stops replicating its source list.
+     */
+    @Override
+    public void dispose() {
+
+        super.dispose();
+
+        if (this.snapshotList != null) {
+            this.snapshotList.dispose();
+            this.snapshotList = null;
+        }
+    }
+
+    /**
+     * Gets the column accessors for a row class, resolving them the first time.
+     *
+     * @param rowClass
+     *            the row class.
+     * @return the column accessors, <code>null</code> elements stand for unsupported property paths.
+     */
+    private ColumnAccessor[] getColumnAccessors(Class<?> rowClass) {
+
+        final ColumnAccessor[] columnAccessors = this.accessors.get(rowClass);
+        if (columnAccessors != null) {
+            return columnAccessors;
+        }
+
+        final String[] columnPropertyNames = this.getColumnPropertyNames();
+        final ColumnAccessor[] resolved = new ColumnAccessor[columnPropertyNames.length];
+        for (int i = 0; i < columnPropertyNames.length; ++i) {
+            resolved[i] = ColumnAccessor.getInstance(rowClass, columnPropertyNames[i]);
+        }
+
+        // Copy on write, racing writers just resolve the same accessors twice
+        final Map<Class<?>, ColumnAccessor[]> newAccessors = new HashMap<Class<?>, ColumnAccessor[]>(this.accessors);
+        newAccessors.put(rowClass, resolved);
+        this.accessors = newAccessors;
+
+        return resolved;
+    }
+
+    /**
+     * Whether a table model event is a row update that can be delayed until the end of the frame.
+     *
+     * @param e
+     *            the table model event.
+     * @return <code>true</code> if coalescable.
+     */
+    private Boolean isCoalescable(TableModelEvent e) {
+
+        return (this.getCoalescingDelay() > 0) && (e.getType() == TableModelEvent.UPDATE)
+                && (e.getFirstRow() >= 0) && (e.getLastRow() != Integer.MAX_VALUE)
+                && SwingUtilities.isEventDispatchThread();
+    }
+
+    /**
+     * Merges a row update with the pending ones and schedules their notification if not already scheduled.
+     *
+     * @param e
+     *            the row update event.
+     */
+    private void coalesce(TableModelEvent e) {
+
+        if (this.pendingFirstRow < 0) {
+            this.pendingFirstRow = e.getFirstRow();
+            this.pendingLastRow = e.getLastRow();
+            this.pendingColumn = e.getColumn();
+        } else {
+            this.pendingFirstRow = Math.min(this.pendingFirstRow, e.getFirstRow());
+            this.pendingLastRow = Math.max(this.pendingLastRow, e.getLastRow());
+            this.pendingColumn = (this.pendingColumn == e.getColumn()) ? e.getColumn() : TableModelEvent.ALL_COLUMNS;
+        }
+
+        if (this.coalescingTimer == null) {
+            this.coalescingTimer = new Timer(this.getCoalescingDelay(), new ActionListener() {
+
+                @Override
+                public void actionPerformed(ActionEvent event) {
+
+                    BbGlazedTableModel.this.flushPendingUpdates();
+                }
+            });
+            this.coalescingTimer.setRepeats(Boolean.FALSE);
+        }
+        if (!this.coalescingTimer.isRunning()) {
+            this.coalescingTimer.start();
+        }
+    }
+
+    /**
+     * Adjusts pending row updates to a table model event that has already changed the list.
+     * <p>
+     * Insertions and deletions shift (or clip) the pending range, whereas events not bound to a row range refresh every
+     * row, so pending updates are no longer needed.
+     *
+     * @param e
+     *            the table model event.
+     */
+    private void adjustPendingUpdates(TableModelEvent e) {
+
+        if (this.pendingFirstRow < 0) {
+            return;
+        }
+
+        final int firstRow = e.getFirstRow();
+        final int lastRow = e.getLastRow();
+        final Boolean rowRange = (firstRow >= 0) && (lastRow >= firstRow) && (lastRow != Integer.MAX_VALUE);
+        final int count = lastRow - firstRow + 1;
+
+        if (rowRange && (e.getType() == TableModelEvent.INSERT)) {
+            this.pendingFirstRow += (this.pendingFirstRow >= firstRow) ? count : 0;
+            this.pendingLastRow += (this.pendingLastRow >= firstRow) ? count : 0;
+        } else if (rowRange && (e.getType() == TableModelEvent.DELETE)) {
+            this.pendingFirstRow = BbGlazedTableModel.shiftDeleted(this.pendingFirstRow, firstRow, lastRow, firstRow);
+            this.pendingLastRow = BbGlazedTableModel.shiftDeleted(this.pendingLastRow, firstRow, lastRow, firstRow - 1);
+            if (this.pendingFirstRow > this.pendingLastRow) {
+                this.discardPendingUpdates();
+            }
+        } else if (!rowRange) {
+            // Full changes (i.e.: fireTableDataChanged) refresh every row
+            this.discardPendingUpdates();
+        }
+    }
+
+    /**
+     * Shifts a row index through a deletion.
+     *
+     * @param row
+     *            the row index before deleting.
+     * @param firstRow
+     *            the first deleted row.
+     * @param lastRow
+     *            the last deleted row.
+     * @param deletedRow
+     *            the index to return if the row itself was deleted.
+     * @return the row index after deleting.
+     */
+    private static int shiftDeleted(int row, int firstRow, int lastRow, int deletedRow) {
+
+        if (row > lastRow) {
+            return row - (lastRow - firstRow + 1);
+        } else if (row >= firstRow) {
+            return deletedRow;
+        }
+
+        return row;
+    }
+
+    /**
+     * Discards pending row updates without notifying them.
+     */
+    private void discardPendingUpdates() {
+
+        this.pendingFirstRow = -1;
+        this.pendingLastRow = -1;
+        this.pendingColumn = TableModelEvent.ALL_COLUMNS;
+        if (this.coalescingTimer != null) {
+            this.coalescingTimer.stop();
+        }
+    }
+
+    /**
+     * Notifies a table model event to listeners.
+     *
+     * @param e
+     *            the table model event.
+     */
+    private void emitTableChanged(TableModelEvent e) {
+
+        ++this.emittedEventCount;
+
+        super.fireTableChanged(e);
+    }
+
+    /**
+     * Invalidates the cached values of the rows affected by a table model event.
+     *
+     * @param e
+     *            the table model event.
+     */
+    private void invalidateRowCache(TableModelEvent e) {
+
+        if (this.rowCache.isEmpty()) {
+            return;
+        }
+
+        final int firstRow = e.getFirstRow();
+        final int lastRow = e.getLastRow();
+        if ((firstRow == TableModelEvent.HEADER_ROW) || (lastRow == Integer.MAX_VALUE) || (firstRow < 0)) {
+            this.rowCache.clear();
+            return;
+        }
+
+        switch (e.getType()) {
+            case TableModelEvent.INSERT:
+                this.rowCache.shift(firstRow, lastRow - firstRow + 1);
+                break;
+            case TableModelEvent.DELETE:
+                this.rowCache.shift(lastRow + 1, firstRow - lastRow - 1);
+                break;
+            default:
+                this.rowCache.removeRange(firstRow, lastRow);
+                break;
+        }
+    }
+
+    /**
+     * The cached column values indexed by model row, evicting the least recently read rows.
+     * <p>
+     * Since it is bounded, shifting row indexes on structural changes costs at most {@link #ROW_CACHE_SIZE} entries
+     * regardless of the row count.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class RowCache extends LinkedHashMap<Integer, Object[]> {
+
+        /**
+         * This is a <code>Serializable</code> class.
+         */
+        private static final long serialVersionUID = -2291764093415316925L;
+
+        /**
+         * The maximum number of cached rows.
+         */
+        private final int maxSize;
+
+        /**
+         * Creates the cache.
+         *
+         * @param maxSize
+         *            the maximum number of cached rows.
+         */
+        RowCache(int maxSize) {
+
+            super(maxSize, 1, Boolean.TRUE);
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Discards the cached values of a range of rows.
+         *
+         * @param firstRow
+         *            the first row, inclusive.
+         * @param lastRow
+         *            the last row, inclusive.
+         */
+        public void removeRange(int firstRow, int lastRow) {
+
+            if ((lastRow - firstRow) < this.size()) {
+                for (int row = firstRow; row <= lastRow; ++row) {
+                    this.remove(row);
+                }
+            } else {
+                this.retainOutside(firstRow, lastRow);
+            }
+        }
+
+        /**
+         * Shifts the rows from a given one, after rows are inserted before it or deleted right before it.
+         *
+         * @param fromRow
+         *            the first row to be shifted.
+         * @param delta
+         *            the number of inserted rows, or minus the number of deleted rows (which are discarded).
+         */
+        public void shift(int fromRow, int delta) {
+
+            if (delta < 0) {
+                this.retainOutside(fromRow + delta, fromRow - 1);
+            }
+
+            // Reinsert entries in iteration (least recently read first) order, so recency is kept
+            final Integer[] rows = this.keySet().toArray(new Integer[this.size()]);
+            final Object[][] values = this.values().toArray(new Object[this.size()][]);
+            this.clear();
+            for (int i = 0; i < rows.length; ++i) {
+                final int row = rows[i];
+                this.put((row >= fromRow) ? (row + delta) : row, values[i]);
+            }
+        }
+
+        /**
+         * Discards the cached values of the rows within a range.
+         *
+         * @param firstRow
+         *            the first row, inclusive.
+         * @param lastRow
+         *            the last row, inclusive.
+         */
+        private void retainOutside(int firstRow, int lastRow) {
+
+            for (final Iterator<Integer> itr = this.keySet().iterator(); itr.hasNext();) {
+                final int row = itr.next();
+                if ((row >= firstRow) && (row <= lastRow)) {
+                    itr.remove();
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+
+            return this.size() > this.maxSize;
+        }
+    }
+}
@@ -0,0 +1,738 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.swing.RowFilter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A <code>TableRowSorter</code> that sorts large models in background.
+ * <p>
+ * When sort keys change on an unfiltered model with at least {@link #getBackgroundThreshold() background threshold}
+ * rows, the values of the sorted columns are read in the Event Dispatcher Thread and then sorted by the table workers:
+ * strings compared by a <code>Collator</code> are converted into collation keys and rows are ordered with a parallel
+ * merge sort. The finished order is published back to the EDT, where it just replaces the current one and is notified
+ * as a single change. Meanwhile the view keeps its previous order.
+ * <p>
+ * The order is computed again in background after model changes. Meanwhile the current order is kept, shifted through
+ * inserted and deleted rows, and new rows are shown last. Changes made while sorting are coalesced into a single new
+ * sort. Since the table restores its selection after every sort, selection follows the sorted rows.
+ * <p>
+ * Smaller or filtered models are sorted by <code>TableRowSorter</code> itself.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class BbTableRowSorter extends TableRowSorter<TableModel> {
+
+    /**
+     * The default minimum number of rows to sort in background.
+     */
+    public static final int DEFAULT_BACKGROUND_THRESHOLD = 10000;
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BbTableRowSorter.class);
+
+    /**
+     * Compares collation keys.
+     */
+    private static final Comparator<Object> NATURAL_COMPARATOR = new Comparator<Object>() {
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Override
+        public int compare(Object o1, Object o2) {
+
+            return ((Comparable) o1).compareTo(o2);
+        }
+    };
+
+    /**
+     * The minimum number of rows to sort in background.
+     */
+    private int backgroundThreshold = BbTableRowSorter.DEFAULT_BACKGROUND_THRESHOLD;
+
+    /**
+     * The sort keys sorted in background, <code>null</code> if sorting is left to <code>TableRowSorter</code>.
+     */
+    private List<? extends SortKey> backgroundSortKeys;
+
+    /**
+     * The published order, <code>null</code> if rows are shown in the order decided by <code>TableRowSorter</code>.
+     */
+    private int[] viewToModel;
+
+    /**
+     * The inverse of {@link #viewToModel}.
+     */
+    private int[] modelToView;
+
+    /**
+     * Whether a sort is running in background.
+     */
+    private Boolean sorting = Boolean.FALSE;
+
+    /**
+     * Whether <code>TableRowSorter</code> is being invoked while sorting in background, so it must see no sort keys.
+     */
+    private Boolean delegating = Boolean.FALSE;
+
+    /**
+     * The order shown before leaving background sorting, to be notified instead of the one known by
+     * <code>TableRowSorter</code>.
+     */
+    private int[] replacedViewToModel;
+
+    /**
+     * Incremented every time a sort is requested, so outdated sorts are discarded.
+     */
+    private int generation;
+
+    /**
+     * Creates the row sorter.
+     *
+     * @param model
+     *            the table model.
+     */
+    public BbTableRowSorter(TableModel model) {
+
+        super(model);
+    }
+
+    /**
+     * Gets the minimum number of rows to sort in background.
+     *
+     * @return the background threshold.
+     */
+    public final int getBackgroundThreshold() {
+
+        return this.backgroundThreshold;
+    }
+
+    /**
+     * Sets the minimum number of rows to sort in background.
+     *
+     * @param backgroundThreshold
+     *            the background threshold.
+     */
+    public final void setBackgroundThreshold(int backgroundThreshold) {
+
+        this.backgroundThreshold = backgroundThreshold;
+    }
+
+    /**
+     * Gets whether rows are being sorted in background, sorts left to <code>TableRowSorter</code> meanwhile are not
+     * taken into account.
+     * <p>
+     * Must be called from the event dispatcher thread.
+     *
+     * @return <code>true</code> if sorting is in progress and <code>false</code> otherwise.
+     */
+    public final Boolean isSorting() {
+
+        return this.sorting && (this.backgroundSortKeys != null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+
+        return ((this.backgroundSortKeys != null) && !this.delegating) ? this.backgroundSortKeys : super.getSortKeys();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sorts in background if the model is large enough and not filtered.
+     */
+    @Override
+    public void setSortKeys(List<? extends SortKey> sortKeys) {
+
+        if (!this.isBackgroundSortable(sortKeys)) {
+            this.leaveBackgroundSorting(sortKeys);
+            return;
+        }
+
+        final List<SortKey> newSortKeys = new ArrayList<SortKey>(sortKeys);
+        for (final SortKey sortKey : newSortKeys) {
+            if ((sortKey == null) || (sortKey.getColumn() < 0)
+                    || (sortKey.getColumn() >= this.getModelWrapper().getColumnCount())) {
+                throw new IllegalArgumentException("Invalid SortKey");
+            }
+        }
+        if (newSortKeys.equals(this.backgroundSortKeys)) {
+            return;
+        }
+
+        if ((this.backgroundSortKeys == null) && !super.getSortKeys().isEmpty()) {
+            // Keep the order sorted by TableRowSorter until the new one is published
+            final int rowCount = super.getViewRowCount();
+            final int[] currentOrder = new int[rowCount];
+            for (int row = 0; row < rowCount; ++row) {
+                currentOrder[row] = super.convertRowIndexToModel(row);
+            }
+            this.setOrder(currentOrder);
+
+            this.delegating = Boolean.TRUE;
+            try {
+                super.setSortKeys(null);
+            } finally {
+                this.delegating = Boolean.FALSE;
+            }
+        }
+
+        this.backgroundSortKeys = Collections.unmodifiableList(newSortKeys);
+        this.fireSortOrderChanged();
+        this.requestSort();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Filtered models are sorted by <code>TableRowSorter</code>.
+     */
+    @Override
+    public void setRowFilter(RowFilter<? super TableModel, ? super Integer> filter) {
+
+        if ((filter != null) && (this.backgroundSortKeys != null)) {
+            this.leaveBackgroundSorting(this.backgroundSortKeys);
+        }
+
+        super.setRowFilter(filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setComparator(int column, Comparator<?> comparator) {
+
+        this.delegating = Boolean.TRUE;
+        try {
+            super.setComparator(column, comparator);
+        } finally {
+            this.delegating = Boolean.FALSE;
+        }
+
+        if (this.backgroundSortKeys != null) {
+            this.requestSort();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int convertRowIndexToModel(int index) {
+
+        if (this.viewToModel == null) {
+            return super.convertRowIndexToModel(index);
+        } else if ((index < 0) || (index >= this.viewToModel.length)) {
+            throw new IndexOutOfBoundsException("Invalid index");
+        }
+
+        return this.viewToModel[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int convertRowIndexToView(int index) {
+
+        if (this.modelToView == null) {
+            return super.convertRowIndexToView(index);
+        } else if ((index < 0) || (index >= this.modelToView.length)) {
+            throw new IndexOutOfBoundsException("Invalid index");
+        }
+
+        return this.modelToView[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getViewRowCount() {
+
+        return (this.viewToModel == null) ? super.getViewRowCount() : this.viewToModel.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+
+        this.delegate(firstRow, endRow, Boolean.TRUE);
+        this.adjustOrder(firstRow, endRow - firstRow + 1, 0);
+        this.rerank(Boolean.TRUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+
+        this.delegate(firstRow, endRow, Boolean.FALSE);
+        this.adjustOrder(firstRow, 0, endRow - firstRow + 1);
+        this.rerank(Boolean.TRUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+
+        this.delegating = (this.backgroundSortKeys != null);
+        try {
+            super.rowsUpdated(firstRow, endRow);
+        } finally {
+            this.delegating = Boolean.FALSE;
+        }
+        this.rerank(this.getSortsOnUpdates());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+
+        this.delegating = (this.backgroundSortKeys != null);
+        try {
+            super.rowsUpdated(firstRow, endRow, column);
+        } finally {
+            this.delegating = Boolean.FALSE;
+        }
+        this.rerank(this.getSortsOnUpdates());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void allRowsChanged() {
+
+        this.delegating = (this.backgroundSortKeys != null);
+        try {
+            super.allRowsChanged();
+        } finally {
+            this.delegating = Boolean.FALSE;
+        }
+        this.adjustOrder(0, 0, 0);
+        this.rerank(Boolean.TRUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also invoked by <code>TableRowSorter</code> when the model is replaced.
+     */
+    @Override
+    public void modelStructureChanged() {
+
+        // Columns may have changed, so do sort keys
+        if (this.backgroundSortKeys != null) {
+            this.leaveBackgroundSorting(null);
+        }
+
+        super.modelStructureChanged();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Notifies the order shown before leaving background sorting instead of the one known by
+     * <code>TableRowSorter</code>.
+     */
+    @Override
+    protected void fireRowSorterChanged(int[] lastRowIndexToModel) {
+
+        final int[] replaced = this.replacedViewToModel;
+        this.replacedViewToModel = null;
+
+        super.fireRowSorterChanged((replaced != null) ? replaced : lastRowIndexToModel);
+    }
+
+    /**
+     * Whether the given sort keys should be sorted in background.
+     *
+     * @param sortKeys
+     *            the sort keys.
+     * @return <code>true</code> if model is large enough, is not filtered and some column is sorted.
+     */
+    private Boolean isBackgroundSortable(List<? extends SortKey> sortKeys) {
+
+        if ((sortKeys == null) || (this.getRowFilter() != null)
+                || (this.getModelWrapper().getRowCount() < this.getBackgroundThreshold())) {
+            return Boolean.FALSE;
+        }
+
+        for (final SortKey sortKey : sortKeys) {
+            if ((sortKey != null) && (sortKey.getSortOrder() != SortOrder.UNSORTED)) {
+                return Boolean.TRUE;
+            }
+        }
+
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Leaves sorting to <code>TableRowSorter</code>, discarding any running sort.
+     *
+     * @param sortKeys
+     *            the sort keys for <code>TableRowSorter</code>.
+     */
+    private void leaveBackgroundSorting(List<? extends SortKey> sortKeys) {
+
+        final Boolean backgroundSorted = this.backgroundSortKeys != null;
+        final int[] shownOrder = this.viewToModel;
+        this.backgroundSortKeys = null;
+        this.setOrder(null);
+        ++this.generation;
+
+        // TableRowSorter does not notify anything if it keeps model order
+        this.replacedViewToModel = shownOrder;
+        super.setSortKeys(sortKeys);
+        if (backgroundSorted) {
+            this.fireSortOrderChanged();
+        }
+        if (this.replacedViewToModel != null) {
+            this.fireRowSorterChanged(null);
+        }
+    }
+
+    /**
+     * Notifies <code>TableRowSorter</code> about inserted or deleted rows.
+     *
+     * @param firstRow
+     *            the first inserted or deleted row.
+     * @param endRow
+     *            the last inserted or deleted row.
+     * @param inserted
+     *            <code>true</code> if rows have been inserted and <code>false</code> if deleted.
+     */
+    private void delegate(int firstRow, int endRow, Boolean inserted) {
+
+        this.delegating = (this.backgroundSortKeys != null);
+        try {
+            if (inserted) {
+                super.rowsInserted(firstRow, endRow);
+            } else {
+                super.rowsDeleted(firstRow, endRow);
+            }
+        } finally {
+            this.delegating = Boolean.FALSE;
+        }
+    }
+
+    /**
+     * Replaces the published order.
+     *
+     * @param newViewToModel
+     *            the new order, <code>null</code> to leave it to <code>TableRowSorter</code>.
+     */
+    private void setOrder(int[] newViewToModel) {
+
+        this.viewToModel = newViewToModel;
+        this.modelToView = (newViewToModel != null) ? BbTableRowSorter.invert(newViewToModel) : null;
+    }
+
+    /**
+     * Maps the published order through a model change, so the view keeps its order until it is sorted again. Inserted
+     * rows, and any other row not in the previous order, are shown last in model order.
+     *
+     * @param firstRow
+     *            the first inserted or deleted row.
+     * @param insertedRows
+     *            the number of inserted rows.
+     * @param deletedRows
+     *            the number of deleted rows.
+     */
+    private void adjustOrder(int firstRow, int insertedRows, int deletedRows) {
+
+        final int[] oldViewToModel = this.viewToModel;
+        if (oldViewToModel == null) {
+            return;
+        }
+
+        final int rowCount = this.getModelWrapper().getRowCount();
+        final boolean[] shown = new boolean[rowCount];
+        final int[] newViewToModel = new int[rowCount];
+        int viewRow = 0;
+        for (final int oldRow : oldViewToModel) {
+            final int row;
+            if (oldRow < firstRow) {
+                row = oldRow;
+            } else if (oldRow < firstRow + deletedRows) {
+                continue;
+            } else {
+                row = oldRow - deletedRows + insertedRows;
+            }
+
+            if ((row < rowCount) && !shown[row]) {
+                shown[row] = true;
+                newViewToModel[viewRow++] = row;
+            }
+        }
+        for (int row = 0; row < rowCount; ++row) {
+            if (!shown[row]) {
+                newViewToModel[viewRow++] = row;
+            }
+        }
+
+        this.setOrder(newViewToModel);
+    }
+
+    /**
+     * Requests a new sort after a model change if needed.
+     *
+     * @param orderChanged
+     *            whether the change may affect the order of sorted rows.
+     */
+    private void rerank(Boolean orderChanged) {
+
+        if (orderChanged && (this.backgroundSortKeys != null)) {
+            this.requestSort();
+        }
+    }
+
+    /**
+     * Requests sorting in background for the current sort keys.
+     * <p>
+     * If a sort is already running its results are discarded when it finishes, and a single new sort starts then.
+     */
+    private void requestSort() {
+
+        ++this.generation;
+
+        if (!this.sorting) {
+            this.startSorting();
+        }
+    }
+
+    /**
+     * Reads the values of sorted columns and sorts rows in background.
+     */
+    private void startSorting() {
+
+        final List<SortKey> keys = new ArrayList<SortKey>();
+        for (final SortKey sortKey : this.backgroundSortKeys) {
+            if (sortKey.getSortOrder() != SortOrder.UNSORTED) {
+                keys.add(sortKey);
+            }
+        }
+
+        final ModelWrapper<TableModel, Integer> modelWrapper = this.getModelWrapper();
+        final int rowCount = modelWrapper.getRowCount();
+        final int keyCount = keys.size();
+        final boolean[] descending = new boolean[keyCount];
+        final Comparator<?>[] comparators = new Comparator<?>[keyCount];
+        final Object[][] values = new Object[keyCount][rowCount];
+        for (int k = 0; k < keyCount; ++k) {
+            final int column = keys.get(k).getColumn();
+            final boolean toString = this.useToString(column);
+            descending[k] = keys.get(k).getSortOrder() == SortOrder.DESCENDING;
+            comparators[k] = this.getComparator(column);
+            for (int row = 0; row < rowCount; ++row) {
+                values[k][row] = toString ? modelWrapper.getStringValueAt(row, column) //
+                        : modelWrapper.getValueAt(row, column);
+            }
+        }
+
+        final int expectedGeneration = this.generation;
+        this.sorting = Boolean.TRUE;
+
+        TableWorkers.EXECUTOR_SERVICE.submit(new Runnable() {
+
+            @Override
+            public void run() {
+
+                int[] newViewToModel = null;
+                try {
+                    newViewToModel = BbTableRowSorter.sort(values, descending, comparators);
+                } catch (RuntimeException e) {
+                    BbTableRowSorter.LOGGER.error("Failed to sort table rows", e);
+                }
+
+                final int[] toBePublished = newViewToModel;
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        BbTableRowSorter.this.publish(toBePublished, expectedGeneration);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows rows in the given order if no other sort has been requested since it started, otherwise sorts again.
+     *
+     * @param newViewToModel
+     *            the order, <code>null</code> if sorting failed.
+     * @param expectedGeneration
+     *            the generation at the moment sorting started.
+     */
+    private void publish(int[] newViewToModel, int expectedGeneration) {
+
+        this.sorting = Boolean.FALSE;
+        if (this.backgroundSortKeys == null) {
+            // Left to TableRowSorter while running
+            return;
+        } else if (expectedGeneration != this.generation) {
+            // Superseded while running
+            this.startSorting();
+            return;
+        } else if (newViewToModel == null) {
+            // Fall back to a regular sort
+            this.leaveBackgroundSorting(this.backgroundSortKeys);
+            return;
+        }
+
+        final int[] lastViewToModel = this.viewToModel;
+        this.setOrder(newViewToModel);
+        this.fireRowSorterChanged(lastViewToModel);
+    }
+
+    /**
+     * Sorts model rows given the values of their sorted columns.
+     *
+     * @param values
+     *            the values of every sorted column indexed by model row.
+     * @param descending
+     *            whether every column is sorted in descending order.
+     * @param comparators
+     *            the comparator of every column.
+     * @return the model rows in view order.
+     */
+    @SuppressWarnings("unchecked")
+    private static int[] sort(final Object[][] values, final boolean[] descending, Comparator<?>[] comparators) {
+
+        final int keyCount = values.length;
+        final int rowCount = (keyCount > 0) ? values[0].length : 0;
+
+        // Collation keys are compared without the (synchronized) collator
+        final Comparator<Object>[] keyComparators = new Comparator[keyCount];
+        for (int k = 0; k < keyCount; ++k) {
+            keyComparators[k] = (comparators[k] instanceof Collator) ? BbTableRowSorter.NATURAL_COMPARATOR
+                    : (Comparator<Object>) comparators[k];
+        }
+
+        // Convert strings into collation keys once
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int first = 0; first < rowCount; first += TableWorkers.CHUNK_SIZE) {
+            final int from = first;
+            final int to = Math.min(rowCount, first + TableWorkers.CHUNK_SIZE);
+            for (int k = 0; k < keyCount; ++k) {
+                if (!(comparators[k] instanceof Collator)) {
+                    continue;
+                }
+                final Object[] columnValues = values[k];
+                final Collator collator = (Collator) ((Collator) comparators[k]).clone();
+                tasks.add(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        for (int row = from; row < to; ++row) {
+                            if (columnValues[row] != null) {
+                                columnValues[row] = collator.getCollationKey(columnValues[row].toString());
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        TableWorkers.invokeAll(tasks);
+
+        // Sort rows, nulls first, model order breaks ties
+        final Integer[] rows = new Integer[rowCount];
+        for (int row = 0; row < rowCount; ++row) {
+            rows[row] = row;
+        }
+        TableWorkers.sort(rows, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer row1, Integer row2) {
+
+                for (int k = 0; k < keyCount; ++k) {
+                    final Object value1 = values[k][row1];
+                    final Object value2 = values[k][row2];
+                    int result;
+                    if (value1 == null) {
+                        result = (value2 == null) ? 0 : -1;
+                    } else if (value2 == null) {
+                        result = 1;
+                    } else {
+                        result = keyComparators[k].compare(value1, value2);
+                    }
+                    if (result != 0) {
+                        return descending[k] ? -result : result;
+                    }
+                }
+
+                return row1 - row2;
+            }
+        });
+
+        final int[] viewToModel = new int[rowCount];
+        for (int i = 0; i < rowCount; ++i) {
+            viewToModel[i] = rows[i];
+        }
+
+        return viewToModel;
+    }
+
+    /**
+     * Inverts a permutation.
+     *
+     * @param permutation
+     *            the permutation.
+     * @return the inverse permutation.
+     */
+    private static int[] invert(int[] permutation) {
+
+        final int[] inverse = new int[permutation.length];
+        for (int i = 0; i < permutation.length; ++i) {
+            inverse[permutation[i]] = i;
+        }
+
+        return inverse;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Reads a (possibly nested) bean property through a chain of getters resolved for a bean class and property path.
+ * <p>
+ * Unlike a <code>BeanWrapper</code>, accessors are stateless and thus thread safe, and they skip property path parsing
+ * and type conversion on every access. Getters are invoked reflectively, which the JVM turns into generated bytecode
+ * accessors after a few invocations.
+ * <p>
+ * Only simple and nested property paths (<code>a.b.c</code>) are supported; {@link #getInstance(Class, String)}
+ * returns <code>null</code> for any other path.
+ * <p>
+ * Resolved accessors are not cached here, since a static map keyed by class would pin every bean class (and its class
+ * loader) forever. Callers should keep the accessors they use, as {@link BbGlazedTableModel} does per table model.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class ColumnAccessor {
+
+    /**
+     * The separator of nested property paths.
+     */
+    private static final char NESTED_PROPERTY_SEPARATOR = '.';
+
+    /**
+     * The getters to be invoked in sequence.
+     */
+    private final Method[] getters;
+
+    /**
+     * Creates the accessor.
+     *
+     * @param getters
+     *            the getters to be invoked in sequence.
+     */
+    private ColumnAccessor(Method[] getters) {
+
+        this.getters = getters;
+    }
+
+    /**
+     * Resolves the accessor for a property path of a bean class.
+     *
+     * @param beanClass
+     *            the bean class.
+     * @param propertyPath
+     *            the property path.
+     * @return the accessor or <code>null</code> if the property path is not supported or not readable.
+     */
+    public static ColumnAccessor getInstance(Class<?> beanClass, String propertyPath) {
+
+        Assert.notNull(beanClass, "beanClass");
+        Assert.notNull(propertyPath, "propertyPath");
+
+        final String[] propertyNames = StringUtils.split(propertyPath, ColumnAccessor.NESTED_PROPERTY_SEPARATOR);
+        if ((propertyNames.length == 0) || StringUtils.containsAny(propertyPath, "[]")) {
+            return null;
+        }
+
+        final Method[] getters = new Method[propertyNames.length];
+        Class<?> type = beanClass;
+        for (int i = 0; i < propertyNames.length; ++i) {
+            final PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(type, propertyNames[i]);
+            if ((propertyDescriptor == null) || (propertyDescriptor.getReadMethod() == null)) {
+                return null;
+            }
+
+            getters[i] = propertyDescriptor.getReadMethod();
+            ReflectionUtils.makeAccessible(getters[i]);
+            type = getters[i].getReturnType();
+        }
+
+        return new ColumnAccessor(getters);
+    }
+
+    /**
+     * Reads the property of a bean.
+     *
+     * @param bean
+     *            the bean, an instance of the class this accessor was resolved for.
+     * @return the property value, <code>null</code> if the bean or any intermediate value is <code>null</code>.
+     */
+    public Object getValue(Object bean) {
+
+        Object value = bean;
+        for (int i = 0; (i < this.getters.length) && (value != null); ++i) {
+            try {
+                value = this.getters[i].invoke(value);
+            } catch (IllegalAccessException e) {
+                ReflectionUtils.handleReflectionException(e);
+            } catch (InvocationTargetException e) {
+                ReflectionUtils.rethrowRuntimeException(e.getTargetException());
+            }
+        }
+
+        return value;
+    }
+}
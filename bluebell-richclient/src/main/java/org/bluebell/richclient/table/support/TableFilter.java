@@ -0,0 +1,524 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.DefaultRowSorter;
+import javax.swing.JTable;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+
+import org.apache.commons.lang.StringUtils;
+import org.bluebell.richclient.table.support.TableWorkers.RowSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Filters the rows of a table by column: a row is shown if the value of every filtered column contains the filter text
+ * of that column, ignoring case and diacritical marks.
+ * <p>
+ * Filtering is performed at view level through the table row sorter, so model indexes (that master forms use as indexes
+ * of their master event lists) are not affected. If the table has no <code>DefaultRowSorter</code> a non sortable one
+ * is installed while filtering.
+ * <p>
+ * Changes on filter texts and table models are debounced, then rows are matched in parallel by the table workers over
+ * a snapshot of the rows (see {@link TableWorkers#snapshot(TableModel)}) and the resulting row filter is set from the
+ * Event Dispatcher Thread in a single step. Results computed while the table model or the filter texts changed are
+ * discarded.
+ * <p>
+ * Rows are never matched from the Event Dispatcher Thread: until the next results are published the last ones are kept,
+ * shifted through inserted and deleted rows, and new rows are shown.
+ * <p>
+ * All public methods must be called from the Event Dispatcher Thread.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TableFilter implements TableModelListener {
+
+    /**
+     * The default delay in milliseconds since last change before filtering.
+     */
+    public static final int DEFAULT_DELAY = 300;
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableFilter.class);
+
+    /**
+     * The filtered table.
+     */
+    private final JTable table;
+
+    /**
+     * The normalized filter texts indexed by model column.
+     */
+    private final Map<Integer, String> filterTexts = new TreeMap<Integer, String>();
+
+    /**
+     * The timer debouncing changes.
+     */
+    private final Timer timer;
+
+    /**
+     * Listens for table model replacements.
+     */
+    private final PropertyChangeListener modelChangeListener = new PropertyChangeListener() {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+
+            TableFilter.this.modelChanged((TableModel) evt.getOldValue(), (TableModel) evt.getNewValue());
+        }
+    };
+
+    /**
+     * The row sorter installed by this filter, if any.
+     */
+    private RowSorter<? extends TableModel> installedRowSorter;
+
+    /**
+     * Incremented on every table model or filter texts change.
+     */
+    private int generation;
+
+    /**
+     * The last published matches indexed by model row, <code>null</code> if not filtering.
+     */
+    private boolean[] matches;
+
+    /**
+     * The row filter reading the last published matches.
+     */
+    private final RowFilter<TableModel, Integer> rowFilter = new RowFilter<TableModel, Integer>() {
+
+        @Override
+        public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+
+            final boolean[] currentMatches = TableFilter.this.matches;
+            final int row = entry.getIdentifier();
+
+            return (currentMatches == null) || (row >= currentMatches.length) || currentMatches[row];
+        }
+    };
+
+    /**
+     * Creates the filter.
+     *
+     * @param table
+     *            the table to be filtered.
+     */
+    public TableFilter(JTable table) {
+
+        super();
+
+        Assert.notNull(table, "table");
+
+        this.table = table;
+        this.timer = new Timer(TableFilter.DEFAULT_DELAY, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+
+                TableFilter.this.filter();
+            }
+        });
+        this.timer.setRepeats(Boolean.FALSE);
+
+        this.table.getModel().addTableModelListener(this);
+        this.table.addPropertyChangeListener("model", this.modelChangeListener);
+    }
+
+    /**
+     * Gets the filtered table.
+     *
+     * @return the table.
+     */
+    public final JTable getTable() {
+
+        return this.table;
+    }
+
+    /**
+     * Sets the delay since last change before filtering.
+     *
+     * @param delay
+     *            the delay in milliseconds.
+     */
+    public void setDelay(int delay) {
+
+        this.timer.setInitialDelay(delay);
+    }
+
+    /**
+     * Sets the filter text of a column, an empty text removes the filter of that column.
+     *
+     * @param modelColumn
+     *            the model index of the column.
+     * @param text
+     *            the filter text, may be <code>null</code>.
+     */
+    public void setFilterText(int modelColumn, String text) {
+
+        if (StringUtils.isEmpty(text)) {
+            this.filterTexts.remove(modelColumn);
+        } else {
+            this.filterTexts.put(modelColumn, TableWorkers.normalize(text));
+        }
+
+        ++this.generation;
+        this.timer.restart();
+    }
+
+    /**
+     * Whether any column is filtered.
+     *
+     * @return <code>true</code> if filtered.
+     */
+    public Boolean isActive() {
+
+        return !this.filterTexts.isEmpty();
+    }
+
+    /**
+     * Removes every column filter immediately, showing all rows.
+     */
+    public void clear() {
+
+        this.filterTexts.clear();
+
+        ++this.generation;
+        this.timer.stop();
+        this.matches = null;
+        this.setRowFilter(null);
+    }
+
+    /**
+     * Clears this filter and stops listening for table changes.
+     */
+    public void dispose() {
+
+        this.clear();
+
+        this.table.getModel().removeTableModelListener(this);
+        this.table.removePropertyChangeListener("model", this.modelChangeListener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Filters again after model changes. In the meantime the last published matches are shifted through inserted and
+     * deleted rows, and new rows are shown.
+     */
+    @Override
+    public void tableChanged(TableModelEvent e) {
+
+        ++this.generation;
+        if (this.matches != null) {
+            this.matches = TableFilter.adjustMatches(this.matches, e, this.table.getModel().getRowCount());
+        }
+        if (this.isActive()) {
+            this.timer.restart();
+        }
+    }
+
+    /**
+     * Starts matching every row in background.
+     */
+    private void filter() {
+
+        if (!this.isActive()) {
+            this.matches = null;
+            this.setRowFilter(null);
+            return;
+        }
+
+        final int expectedGeneration = this.generation;
+        final Matcher matcher = new Matcher(TableWorkers.snapshot(this.table.getModel()), this.filterTexts);
+        final int rowCount = matcher.rows.getRowCount();
+        final boolean[] matches = new boolean[rowCount];
+
+        final int chunks = Math.max(1, (rowCount + TableWorkers.CHUNK_SIZE - 1) / TableWorkers.CHUNK_SIZE);
+        final AtomicInteger pendingChunks = new AtomicInteger(chunks);
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        for (int chunk = 0; chunk < chunks; ++chunk) {
+            final int first = chunk * TableWorkers.CHUNK_SIZE;
+            final int last = Math.min(rowCount, first + TableWorkers.CHUNK_SIZE);
+            TableWorkers.EXECUTOR_SERVICE.submit(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        for (int row = first; row < last; ++row) {
+                            matches[row] = matcher.matches(row);
+                        }
+                    } catch (RuntimeException e) {
+                        // A getter failed, the last published matches are kept
+                        TableFilter.LOGGER.warn("Failed to filter table rows", e);
+                        failed.set(Boolean.TRUE);
+                    }
+
+                    // The last chunk publishes the results
+                    if (pendingChunks.decrementAndGet() == 0) {
+                        SwingUtilities.invokeLater(new Runnable() {
+
+                            @Override
+                            public void run() {
+
+                                TableFilter.this.publish(failed.get() ? null : matches, expectedGeneration);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sets the row filter for the given matches if nothing changed while computing them, otherwise filters again.
+     * <p>
+     * If matching failed the last published matches are kept.
+     *
+     * @param newMatches
+     *            whether every model row matches, <code>null</code> if matching failed.
+     * @param expectedGeneration
+     *            the generation at the moment matching started.
+     */
+    private void publish(boolean[] newMatches, int expectedGeneration) {
+
+        if (this.generation != expectedGeneration) {
+            if (!this.timer.isRunning()) {
+                this.filter();
+            }
+            return;
+        } else if (newMatches == null) {
+            return;
+        }
+
+        // Setting the row filter sorts again even if it is the same one
+        this.matches = newMatches;
+        this.setRowFilter(this.rowFilter);
+    }
+
+    /**
+     * Sets the row filter of the table row sorter, installing a row sorter if needed and uninstalling it when there is
+     * nothing to filter.
+     *
+     * @param rowFilter
+     *            the row filter, may be <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private void setRowFilter(RowFilter<TableModel, Integer> rowFilter) {
+
+        RowSorter<? extends TableModel> rowSorter = this.table.getRowSorter();
+
+        if ((rowFilter == null) && (rowSorter != null) && (rowSorter == this.installedRowSorter)) {
+            this.table.setRowSorter(null);
+            this.installedRowSorter = null;
+            return;
+        } else if ((rowFilter != null) && !(rowSorter instanceof DefaultRowSorter)) {
+            rowSorter = new FilteringRowSorter(this.table.getModel());
+            this.installedRowSorter = rowSorter;
+            this.table.setRowSorter(rowSorter);
+        }
+
+        if (rowSorter instanceof DefaultRowSorter) {
+            ((DefaultRowSorter<TableModel, Integer>) rowSorter).setRowFilter(rowFilter);
+        }
+    }
+
+    /**
+     * Moves listeners and the installed row sorter (if any) to a new table model.
+     *
+     * @param oldModel
+     *            the old model.
+     * @param newModel
+     *            the new model.
+     */
+    private void modelChanged(TableModel oldModel, TableModel newModel) {
+
+        if (oldModel != null) {
+            oldModel.removeTableModelListener(this);
+        }
+        if (newModel != null) {
+            newModel.addTableModelListener(this);
+        }
+
+        if ((this.installedRowSorter != null) && (this.table.getRowSorter() == this.installedRowSorter)) {
+            this.table.setRowSorter(null);
+        }
+        this.installedRowSorter = null;
+
+        // Column indexes may have changed too
+        this.filterTexts.clear();
+        this.matches = null;
+        ++this.generation;
+        this.timer.stop();
+    }
+
+    /**
+     * Maps the matches of the model rows before a table model change to the rows after it. Inserted rows and rows that
+     * did not exist are considered matching.
+     *
+     * @param matches
+     *            the matches before the change.
+     * @param e
+     *            the table model event.
+     * @param rowCount
+     *            the row count after the change.
+     * @return the matches after the change.
+     */
+    private static boolean[] adjustMatches(boolean[] matches, TableModelEvent e, int rowCount) {
+
+        final int firstRow = e.getFirstRow();
+        final int lastRow = e.getLastRow();
+        final Boolean rowRange = (firstRow >= 0) && (lastRow >= firstRow) && (lastRow != Integer.MAX_VALUE);
+        final Boolean insert = rowRange && (e.getType() == TableModelEvent.INSERT);
+        final Boolean delete = rowRange && (e.getType() == TableModelEvent.DELETE);
+        final int count = lastRow - firstRow + 1;
+
+        final boolean[] adjusted = new boolean[rowCount];
+        for (int row = 0; row < rowCount; ++row) {
+            final int oldRow;
+            if (insert && (row >= firstRow)) {
+                oldRow = (row <= lastRow) ? -1 : row - count;
+            } else if (delete && (row >= firstRow)) {
+                oldRow = row + count;
+            } else {
+                oldRow = row;
+            }
+
+            adjusted[row] = (oldRow < 0) || (oldRow >= matches.length) || matches[oldRow];
+        }
+
+        return adjusted;
+    }
+
+    /**
+     * Matches the rows of a snapshot against filter texts.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class Matcher {
+
+        /**
+         * The snapshot of the table rows.
+         */
+        private final RowSnapshot rows;
+
+        /**
+         * The filtered model columns.
+         */
+        private final int[] columns;
+
+        /**
+         * The normalized filter text of every filtered column.
+         */
+        private final String[] texts;
+
+        /**
+         * Creates the matcher from a copy of the current filter texts.
+         *
+         * @param rows
+         *            the snapshot of the table rows.
+         * @param filterTexts
+         *            the normalized filter texts indexed by model column.
+         */
+        private Matcher(RowSnapshot rows, Map<Integer, String> filterTexts) {
+
+            this.rows = rows;
+            this.columns = new int[filterTexts.size()];
+            this.texts = new String[filterTexts.size()];
+
+            int i = 0;
+            for (final Map.Entry<Integer, String> entry : filterTexts.entrySet()) {
+                this.columns[i] = entry.getKey();
+                this.texts[i++] = entry.getValue();
+            }
+        }
+
+        /**
+         * Whether a row matches every filtered column.
+         *
+         * @param row
+         *            the model index of the row.
+         * @return <code>true</code> if matches.
+         */
+        private boolean matches(int row) {
+
+            for (int i = 0; i < this.columns.length; ++i) {
+                final Object value = (this.columns[i] < this.rows.getColumnCount()) //
+                        ? this.rows.getValueAt(row, this.columns[i]) : null;
+
+                if ((value == null) || (TableWorkers.normalize(value.toString()).indexOf(this.texts[i]) < 0)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * A row sorter that filters but does not sort, installed on tables with no <code>DefaultRowSorter</code>.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class FilteringRowSorter extends TableRowSorter<TableModel> {
+
+        /**
+         * Creates the row sorter.
+         *
+         * @param tableModel
+         *            the table model.
+         */
+        private FilteringRowSorter(TableModel tableModel) {
+
+            super(tableModel);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * This row sorter does not sort.
+         */
+        @Override
+        public boolean isSortable(int column) {
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
+import javax.swing.table.TableColumnModel;
+
+import org.springframework.util.Assert;
+
+/**
+ * A row of text fields, one per table column, shown below the table header to filter table rows through a
+ * {@link TableFilter}.
+ * <p>
+ * The filter row is laid out following table column widths and order and scrolls horizontally with the table header.
+ * Use {@link #getInstance(JTable)} to get the filter header of a table, creating it if needed.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TableFilterHeader extends JPanel {
+
+    /**
+     * This is a <code>Serializable</code> class.
+     */
+    private static final long serialVersionUID = -1754358906113880312L;
+
+    /**
+     * The client property of the table where its filter header is stored.
+     */
+    private static final String CLIENT_PROPERTY = TableFilterHeader.class.getName();
+
+    /**
+     * The filtered table.
+     */
+    private final transient JTable table;
+
+    /**
+     * The table filter.
+     */
+    private final transient TableFilter tableFilter;
+
+    /**
+     * The panel containing table header and this filter row, used as the column header view of the enclosing scroll
+     * pane.
+     */
+    private final JPanel columnHeaderView = new JPanel(new BorderLayout());
+
+    /**
+     * The text fields in view column order.
+     */
+    private final List<JTextField> textFields = new ArrayList<JTextField>();
+
+    /**
+     * Whether this filter header is shown.
+     */
+    private Boolean active = Boolean.FALSE;
+
+    /**
+     * Creates the filter header.
+     *
+     * @param table
+     *            the table to be filtered.
+     */
+    protected TableFilterHeader(JTable table) {
+
+        super(null);
+
+        Assert.notNull(table, "table");
+
+        this.table = table;
+        this.tableFilter = new TableFilter(table);
+
+        this.table.getColumnModel().addColumnModelListener(new ColumnModelHandler());
+        this.table.addHierarchyListener(new HierarchyListener() {
+
+            @Override
+            public void hierarchyChanged(HierarchyEvent e) {
+
+                // Scroll pane column header is reset when table becomes displayable again
+                final long flags = HierarchyEvent.PARENT_CHANGED | HierarchyEvent.DISPLAYABILITY_CHANGED;
+                if (((e.getChangeFlags() & flags) != 0) && TableFilterHeader.this.active) {
+                    SwingUtilities.invokeLater(new Runnable() {
+
+                        @Override
+                        public void run() {
+
+                            TableFilterHeader.this.attach();
+                        }
+                    });
+                }
+            }
+        });
+
+        this.table.addPropertyChangeListener("model", new PropertyChangeListener() {
+
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+
+                // Table filter discards column filters when model changes
+                for (final JTextField textField : TableFilterHeader.this.textFields) {
+                    textField.setText(null);
+                }
+            }
+        });
+
+        this.createTextFields();
+    }
+
+    /**
+     * Gets the filter header of a table, creating it if needed.
+     *
+     * @param table
+     *            the table.
+     * @return the filter header.
+     */
+    public static TableFilterHeader getInstance(JTable table) {
+
+        Assert.notNull(table, "table");
+
+        TableFilterHeader filterHeader = (TableFilterHeader) table.getClientProperty(TableFilterHeader.CLIENT_PROPERTY);
+        if (filterHeader == null) {
+            filterHeader = new TableFilterHeader(table);
+            table.putClientProperty(TableFilterHeader.CLIENT_PROPERTY, filterHeader);
+        }
+
+        return filterHeader;
+    }
+
+    /**
+     * Gets the table filter.
+     *
+     * @return the table filter.
+     */
+    public final TableFilter getTableFilter() {
+
+        return this.tableFilter;
+    }
+
+    /**
+     * Whether this filter header is shown.
+     *
+     * @return <code>true</code> if shown.
+     */
+    public final Boolean isActive() {
+
+        return this.active;
+    }
+
+    /**
+     * Shows or hides this filter header. Hiding it removes every filter.
+     *
+     * @param active
+     *            whether to show this filter header.
+     */
+    public void setActive(Boolean active) {
+
+        Assert.notNull(active, "active");
+
+        if (this.active.equals(active)) {
+            return;
+        }
+
+        this.active = active;
+        if (active) {
+            this.attach();
+            if (!this.textFields.isEmpty()) {
+                this.textFields.get(0).requestFocusInWindow();
+            }
+        } else {
+            this.detach();
+            for (final JTextField textField : this.textFields) {
+                textField.setText(null);
+            }
+            this.tableFilter.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dimension getPreferredSize() {
+
+        final int height = this.textFields.isEmpty() ? 0 : this.textFields.get(0).getPreferredSize().height;
+
+        return new Dimension(this.table.getColumnModel().getTotalColumnWidth(), height);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Lays out text fields following table column widths.
+     */
+    @Override
+    public void doLayout() {
+
+        final TableColumnModel columnModel = this.table.getColumnModel();
+        final int height = this.getHeight();
+
+        int x = 0;
+        for (int i = 0; (i < this.textFields.size()) && (i < columnModel.getColumnCount()); ++i) {
+            final int width = columnModel.getColumn(i).getWidth();
+            this.textFields.get(i).setBounds(x, 0, width, height);
+            x += width;
+        }
+    }
+
+    /**
+     * Installs table header and this filter row as the column header view of the enclosing scroll pane.
+     */
+    private void attach() {
+
+        final JScrollPane scrollPane = this.getScrollPane();
+        if ((scrollPane == null) || (scrollPane.getColumnHeader() == null)) {
+            return;
+        } else if (scrollPane.getColumnHeader().getView() == this.columnHeaderView) {
+            return;
+        }
+
+        this.columnHeaderView.removeAll();
+        this.columnHeaderView.add(this.table.getTableHeader(), BorderLayout.CENTER);
+        this.columnHeaderView.add(this, BorderLayout.SOUTH);
+        scrollPane.setColumnHeaderView(this.columnHeaderView);
+    }
+
+    /**
+     * Restores table header as the column header view of the enclosing scroll pane.
+     */
+    private void detach() {
+
+        final JScrollPane scrollPane = this.getScrollPane();
+        this.columnHeaderView.removeAll();
+        if (scrollPane != null) {
+            scrollPane.setColumnHeaderView(this.table.getTableHeader());
+        }
+    }
+
+    /**
+     * Gets the scroll pane whose view is the table.
+     *
+     * @return the scroll pane, <code>null</code> if none.
+     */
+    private JScrollPane getScrollPane() {
+
+        final Component ancestor = SwingUtilities.getAncestorOfClass(JScrollPane.class, this.table);
+        final JScrollPane scrollPane = (ancestor instanceof JScrollPane) ? (JScrollPane) ancestor : null;
+
+        return ((scrollPane != null) && (scrollPane.getViewport().getView() == this.table)) ? scrollPane : null;
+    }
+
+    /**
+     * Creates a text field per column, keeping the filter texts of columns still present.
+     */
+    private void createTextFields() {
+
+        final TableColumnModel columnModel = this.table.getColumnModel();
+        final List<String> oldTexts = new ArrayList<String>();
+        final List<Integer> oldModelIndexes = new ArrayList<Integer>();
+        for (final JTextField textField : this.textFields) {
+            oldTexts.add(textField.getText());
+            oldModelIndexes.add((Integer) textField.getClientProperty(TableFilterHeader.CLIENT_PROPERTY));
+        }
+
+        this.removeAll();
+        this.textFields.clear();
+        for (int i = 0; i < columnModel.getColumnCount(); ++i) {
+            final int modelIndex = columnModel.getColumn(i).getModelIndex();
+            final JTextField textField = new JTextField();
+            textField.putClientProperty(TableFilterHeader.CLIENT_PROPERTY, modelIndex);
+
+            final int oldIndex = oldModelIndexes.indexOf(modelIndex);
+            if (oldIndex >= 0) {
+                textField.setText(oldTexts.get(oldIndex));
+            }
+
+            textField.getDocument().addDocumentListener(new DocumentListener() {
+
+                @Override
+                public void changedUpdate(DocumentEvent e) {
+
+                    TableFilterHeader.this.tableFilter.setFilterText(modelIndex, textField.getText());
+                }
+
+                @Override
+                public void insertUpdate(DocumentEvent e) {
+
+                    this.changedUpdate(e);
+                }
+
+                @Override
+                public void removeUpdate(DocumentEvent e) {
+
+                    this.changedUpdate(e);
+                }
+            });
+
+            this.textFields.add(textField);
+            this.add(textField);
+        }
+
+        this.revalidate();
+        this.repaint();
+    }
+
+    /**
+     * Keeps text fields in sync with table columns.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private class ColumnModelHandler implements TableColumnModelListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void columnAdded(TableColumnModelEvent e) {
+
+            TableFilterHeader.this.createTextFields();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void columnRemoved(TableColumnModelEvent e) {
+
+            TableFilterHeader.this.createTextFields();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void columnMoved(TableColumnModelEvent e) {
+
+            if (e.getFromIndex() != e.getToIndex()) {
+                TableFilterHeader.this.createTextFields();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void columnMarginChanged(ChangeEvent e) {
+
+            TableFilterHeader.this.revalidate();
+            TableFilterHeader.this.repaint();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void columnSelectionChanged(ListSelectionEvent e) {
+
+            // Nothing to do
+        }
+    }
+}
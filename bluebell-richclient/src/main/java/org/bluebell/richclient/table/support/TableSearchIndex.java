@@ -0,0 +1,857 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+import org.apache.commons.lang.StringUtils;
+import org.bluebell.richclient.table.support.TableWorkers.RowSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.richclient.table.support.GlazedTableModel;
+import org.springframework.util.Assert;
+
+/**
+ * A text index over the rows of a table model that makes finding rows containing a text fast on large tables.
+ * <p>
+ * Every row is indexed as the lowercased text of its columns, without diacritical marks, plus a bigram signature
+ * (a 64 bits bloom filter of the character pairs of the row) that allows discarding most non matching rows without
+ * looking at their text. Cell values are converted into text by a {@link CellTextConverter}, so rows are matched
+ * against the same text users search for.
+ * <p>
+ * The index is built by a worker thread from a snapshot of the rows taken in the Event Dispatcher Thread, and then
+ * maintained incrementally from table model events (that <code>GlazedTableModel</code> derives from list events). Big
+ * changes trigger a new build. Since table model events are delivered in the Event Dispatcher Thread, every change is
+ * applied (and every build is published) from there, so the index never reflects a partial modification.
+ * <p>
+ * Queries work over an immutable snapshot of the index. The calling thread scans just the first chunk of rows, where
+ * matches usually are, and the rest of the rows are scanned in parallel by the worker pool, whose result is delivered
+ * later through a {@link FindCallback}. So the Event Dispatcher Thread never waits for workers.
+ * <p>
+ * Only table models whose rows can be cheaply copied should be indexed (see {@link #isIndexable(TableModel)}).
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TableSearchIndex implements TableModelListener {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableSearchIndex.class);
+
+    /**
+     * The character separating columns in the indexed text of a row.
+     */
+    private static final char COLUMN_SEPARATOR = '\u0000';
+
+    /**
+     * The number of bits of a bigram signature minus one.
+     */
+    private static final int SIGNATURE_MASK = Long.SIZE - 1;
+
+    /**
+     * A prime number to hash bigrams.
+     */
+    private static final int HASH_PRIME = 31;
+
+    /**
+     * Returned by {@link #find(String, int, Boolean, Boolean, int[], FindCallback)} when the result will be delivered
+     * later.
+     */
+    public static final int PENDING = -2;
+
+    /**
+     * The converter of cell values employed by default, their <code>toString</code> representation.
+     */
+    public static final CellTextConverter DEFAULT_CELL_TEXT_CONVERTER = new CellTextConverter() {
+
+        @Override
+        public String toText(Object value, int column) {
+
+            return (value != null) ? value.toString() : null;
+        }
+    };
+
+    /**
+     * The indexed table model.
+     */
+    private final TableModel tableModel;
+
+    /**
+     * The converter of cell values into text.
+     */
+    private final CellTextConverter cellTextConverter;
+
+    /**
+     * The current snapshot, <code>null</code> while building.
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Incremented on every table model change, only accessed from the Event Dispatcher Thread.
+     */
+    private int generation;
+
+    /**
+     * Whether a build is in progress, only accessed from the Event Dispatcher Thread.
+     */
+    private boolean building;
+
+    /**
+     * Whether this index has been disposed, only accessed from the Event Dispatcher Thread.
+     */
+    private boolean disposed;
+
+    /**
+     * Creates the index converting cell values through their <code>toString</code> representation and starts building
+     * it.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     *
+     * @param tableModel
+     *            the table model to be indexed.
+     */
+    public TableSearchIndex(TableModel tableModel) {
+
+        this(tableModel, TableSearchIndex.DEFAULT_CELL_TEXT_CONVERTER);
+    }
+
+    /**
+     * Creates the index and starts building it.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     *
+     * @param tableModel
+     *            the table model to be indexed.
+     * @param cellTextConverter
+     *            the converter of cell values into the text users search for.
+     */
+    public TableSearchIndex(TableModel tableModel, CellTextConverter cellTextConverter) {
+
+        super();
+
+        Assert.notNull(tableModel, "tableModel");
+        Assert.notNull(cellTextConverter, "cellTextConverter");
+
+        this.tableModel = tableModel;
+        this.cellTextConverter = cellTextConverter;
+        this.tableModel.addTableModelListener(this);
+        this.build();
+    }
+
+    /**
+     * Whether a table model can be indexed, that is, whether its rows can be cheaply copied so workers read their
+     * cells.
+     * <p>
+     * A {@link BbGlazedTableModel} copies just its rows and lets workers read them through stateless
+     * {@link ColumnAccessor}s, whereas a plain <code>GlazedTableModel</code> would have to read every cell from the
+     * Event Dispatcher Thread through a single shared <code>BeanWrapper</code>.
+     *
+     * @param tableModel
+     *            the table model.
+     * @return <code>true</code> if indexable.
+     */
+    public static Boolean isIndexable(TableModel tableModel) {
+
+        Assert.notNull(tableModel, "tableModel");
+
+        return !(tableModel instanceof GlazedTableModel) || (tableModel instanceof BbGlazedTableModel);
+    }
+
+    /**
+     * Stops maintaining the index.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     */
+    public void dispose() {
+
+        this.disposed = Boolean.TRUE;
+        this.snapshot = null;
+        this.tableModel.removeTableModelListener(this);
+    }
+
+    /**
+     * Gets the indexed table model.
+     *
+     * @return the table model.
+     */
+    public final TableModel getTableModel() {
+
+        return this.tableModel;
+    }
+
+    /**
+     * Whether the index is ready to be queried.
+     *
+     * @return <code>true</code> if ready.
+     */
+    public Boolean isReady() {
+
+        return this.snapshot != null;
+    }
+
+    /**
+     * Finds the first row containing the given text in any column, visiting rows in view order.
+     * <p>
+     * The calling thread just scans the first chunk of rows. If no match is found there, the rest of the rows are
+     * scanned in background and {@link #PENDING} is returned, then the result is delivered to the given callback from
+     * the Event Dispatcher Thread unless the table model changed meanwhile.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     *
+     * @param text
+     *            the text to be found, it's normalized the same way rows are.
+     * @param from
+     *            the view index of the row where search starts (inclusive).
+     * @param forward
+     *            whether to search forward or backward.
+     * @param wrap
+     *            whether to continue from the other end of the table after reaching one of them.
+     * @param viewToModel
+     *            the model index of every view row, <code>null</code> if both are the same.
+     * @param callback
+     *            the callback receiving the result if it is not returned.
+     * @return the view index of the found row, <code>-1</code> if not found, {@link #PENDING} if the result will be
+     *         delivered to the callback and <code>null</code> if the index is not ready.
+     */
+    public Integer find(String text, int from, Boolean forward, Boolean wrap, int[] viewToModel,
+            final FindCallback callback) {
+
+        Assert.notNull(text, "text");
+        Assert.notNull(forward, "forward");
+        Assert.notNull(wrap, "wrap");
+        Assert.notNull(callback, "callback");
+
+        final Snapshot theSnapshot = this.snapshot;
+        if (theSnapshot == null) {
+            return null;
+        }
+
+        final int count = (viewToModel != null) ? viewToModel.length : theSnapshot.texts.length;
+        if ((count == 0) || (from < 0) || (from >= count)) {
+            return -1;
+        }
+
+        final String query = StringUtils.remove(TableWorkers.normalize(text), TableSearchIndex.COLUMN_SEPARATOR);
+        final Search search = new Search(theSnapshot, viewToModel, query, from, forward, //
+                wrap ? count : (forward ? count - from : from + 1));
+
+        final int found = search.scanFirstChunk();
+        if ((found >= 0) || search.isFirstChunkLast()) {
+            return found;
+        }
+
+        TableWorkers.EXECUTOR_SERVICE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                int result = -1;
+                try {
+                    result = search.scanRemainingChunks();
+                } catch (RuntimeException e) {
+                    TableSearchIndex.LOGGER.warn("Table search failed", e);
+                }
+
+                final int toBeDelivered = result;
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        // Rows found over a replaced snapshot may not be the same anymore
+                        if (!TableSearchIndex.this.disposed && (TableSearchIndex.this.snapshot == theSnapshot)) {
+                            callback.found(toBeDelivered);
+                        }
+                    }
+                });
+            }
+        });
+
+        return TableSearchIndex.PENDING;
+    }
+
+    /**
+     * Whether a row contains the given text in any column.
+     *
+     * @param text
+     *            the text to be found, it's normalized the same way rows are.
+     * @param row
+     *            the model index of the row.
+     * @return <code>true</code> if the row contains the text and <code>null</code> if the index is not ready.
+     */
+    public Boolean matches(String text, int row) {
+
+        Assert.notNull(text, "text");
+
+        final Snapshot theSnapshot = this.snapshot;
+        if (theSnapshot == null) {
+            return null;
+        } else if ((row < 0) || (row >= theSnapshot.texts.length)) {
+            return Boolean.FALSE;
+        }
+
+        final String query = StringUtils.remove(TableWorkers.normalize(text), TableSearchIndex.COLUMN_SEPARATOR);
+
+        return theSnapshot.texts[row].indexOf(query) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Applies small changes incrementally and rebuilds the index otherwise.
+     */
+    @Override
+    public void tableChanged(TableModelEvent e) {
+
+        ++this.generation;
+
+        if (this.disposed || this.building) {
+            // The ongoing build will be discarded and restarted
+            return;
+        }
+
+        final Snapshot current = this.snapshot;
+        final int first = e.getFirstRow();
+        final int last = e.getLastRow();
+        final Boolean incremental = (current != null) && (e.getColumn() == TableModelEvent.ALL_COLUMNS) //
+                && (first >= 0) && (last >= first) && (last != Integer.MAX_VALUE) //
+                && ((last - first) < TableWorkers.CHUNK_SIZE);
+
+        Snapshot next = null;
+        if (incremental) {
+            switch (e.getType()) {
+                case TableModelEvent.INSERT:
+                    next = (first <= current.texts.length) ? current.insert(first, this.indexRows(first, last)) : null;
+                    break;
+                case TableModelEvent.DELETE:
+                    next = (last < current.texts.length) ? current.remove(first, last) : null;
+                    break;
+                case TableModelEvent.UPDATE:
+                    next = (last < current.texts.length) ? current.replace(first, this.indexRows(first, last)) : null;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if ((next != null) && (next.texts.length == this.tableModel.getRowCount())) {
+            this.snapshot = next;
+        } else {
+            this.build();
+        }
+    }
+
+    /**
+     * Starts building the index in background.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     */
+    private void build() {
+
+        this.snapshot = null;
+        this.building = Boolean.TRUE;
+
+        final int expectedGeneration = this.generation;
+        final RowSnapshot rows = TableWorkers.snapshot(this.tableModel);
+        TableWorkers.EXECUTOR_SERVICE.submit(new Runnable() {
+
+            @Override
+            public void run() {
+
+                Snapshot built = null;
+                try {
+                    final String[] texts = TableSearchIndex.this.indexRows(rows);
+                    built = new Snapshot(texts, Snapshot.sign(texts));
+                } catch (RuntimeException e) {
+                    // A getter or the converter failed, searching falls back to the regular behaviour until next change
+                    TableSearchIndex.LOGGER.warn("Failed to build table search index", e);
+                }
+
+                final Snapshot toBePublished = built;
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        TableSearchIndex.this.publish(toBePublished, expectedGeneration);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Publishes a built index if the table model has not changed while building it, otherwise builds it again.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     *
+     * @param built
+     *            the built index, <code>null</code> if building failed.
+     * @param expectedGeneration
+     *            the generation at the moment the build started.
+     */
+    private void publish(Snapshot built, int expectedGeneration) {
+
+        this.building = Boolean.FALSE;
+
+        if (this.disposed) {
+            return;
+        } else if (this.generation != expectedGeneration) {
+            this.build();
+        } else if (built != null) {
+            this.snapshot = built;
+        }
+    }
+
+    /**
+     * Computes the indexed text of a range of rows, reading them from the table model.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     *
+     * @param first
+     *            the first row (inclusive).
+     * @param last
+     *            the last row (inclusive).
+     * @return the indexed texts.
+     */
+    private String[] indexRows(int first, int last) {
+
+        final int columnCount = this.tableModel.getColumnCount();
+        final String[] texts = new String[last - first + 1];
+        final StringBuilder sb = new StringBuilder();
+
+        for (int row = first; row <= last; ++row) {
+            sb.setLength(0);
+            for (int column = 0; column < columnCount; ++column) {
+                this.appendCell(sb, this.tableModel.getValueAt(row, column), column);
+            }
+            texts[row - first] = TableWorkers.normalize(sb.toString());
+        }
+
+        return texts;
+    }
+
+    /**
+     * Computes the indexed text of every row of a snapshot.
+     *
+     * @param rows
+     *            the snapshot.
+     * @return the indexed texts.
+     */
+    private String[] indexRows(RowSnapshot rows) {
+
+        final int columnCount = rows.getColumnCount();
+        final String[] texts = new String[rows.getRowCount()];
+        final StringBuilder sb = new StringBuilder();
+
+        for (int row = 0; row < texts.length; ++row) {
+            sb.setLength(0);
+            for (int column = 0; column < columnCount; ++column) {
+                this.appendCell(sb, rows.getValueAt(row, column), column);
+            }
+            texts[row] = TableWorkers.normalize(sb.toString());
+        }
+
+        return texts;
+    }
+
+    /**
+     * Appends the text of a cell to the indexed text of a row.
+     *
+     * @param sb
+     *            the indexed text of the row.
+     * @param value
+     *            the cell value.
+     * @param column
+     *            the model index of the column.
+     */
+    private void appendCell(StringBuilder sb, Object value, int column) {
+
+        final String text = (value != null) ? this.cellTextConverter.toText(value, column) : null;
+        if (text != null) {
+            sb.append(text);
+        }
+        sb.append(TableSearchIndex.COLUMN_SEPARATOR);
+    }
+
+    /**
+     * An immutable snapshot of the index.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class Snapshot {
+
+        /**
+         * The indexed text of every row.
+         */
+        private final String[] texts;
+
+        /**
+         * The bigram signature of every row.
+         */
+        private final long[] signatures;
+
+        /**
+         * Creates the snapshot.
+         *
+         * @param texts
+         *            the indexed texts.
+         * @param signatures
+         *            the bigram signatures.
+         */
+        private Snapshot(String[] texts, long[] signatures) {
+
+            this.texts = texts;
+            this.signatures = signatures;
+        }
+
+        /**
+         * Derives a snapshot with some rows inserted.
+         *
+         * @param first
+         *            the index of the first inserted row.
+         * @param inserted
+         *            the indexed text of the inserted rows.
+         * @return the new snapshot.
+         */
+        private Snapshot insert(int first, String[] inserted) {
+
+            final int count = this.texts.length + inserted.length;
+            final String[] newTexts = new String[count];
+            final long[] newSignatures = new long[count];
+
+            System.arraycopy(this.texts, 0, newTexts, 0, first);
+            System.arraycopy(this.signatures, 0, newSignatures, 0, first);
+            System.arraycopy(inserted, 0, newTexts, first, inserted.length);
+            System.arraycopy(Snapshot.sign(inserted), 0, newSignatures, first, inserted.length);
+            System.arraycopy(this.texts, first, newTexts, first + inserted.length, this.texts.length - first);
+            System.arraycopy(this.signatures, first, newSignatures, first + inserted.length, this.texts.length - first);
+
+            return new Snapshot(newTexts, newSignatures);
+        }
+
+        /**
+         * Derives a snapshot with some rows removed.
+         *
+         * @param first
+         *            the first removed row (inclusive).
+         * @param last
+         *            the last removed row (inclusive).
+         * @return the new snapshot.
+         */
+        private Snapshot remove(int first, int last) {
+
+            final int removed = last - first + 1;
+            final int count = this.texts.length - removed;
+            final String[] newTexts = new String[count];
+            final long[] newSignatures = new long[count];
+
+            System.arraycopy(this.texts, 0, newTexts, 0, first);
+            System.arraycopy(this.signatures, 0, newSignatures, 0, first);
+            System.arraycopy(this.texts, last + 1, newTexts, first, count - first);
+            System.arraycopy(this.signatures, last + 1, newSignatures, first, count - first);
+
+            return new Snapshot(newTexts, newSignatures);
+        }
+
+        /**
+         * Derives a snapshot with some rows replaced.
+         *
+         * @param first
+         *            the first replaced row.
+         * @param replaced
+         *            the indexed text of the replaced rows.
+         * @return the new snapshot.
+         */
+        private Snapshot replace(int first, String[] replaced) {
+
+            final String[] newTexts = this.texts.clone();
+            final long[] newSignatures = this.signatures.clone();
+
+            System.arraycopy(replaced, 0, newTexts, first, replaced.length);
+            System.arraycopy(Snapshot.sign(replaced), 0, newSignatures, first, replaced.length);
+
+            return new Snapshot(newTexts, newSignatures);
+        }
+
+        /**
+         * Computes the bigram signatures of the given texts.
+         *
+         * @param texts
+         *            the texts.
+         * @return the signatures.
+         */
+        private static long[] sign(String[] texts) {
+
+            final long[] signatures = new long[texts.length];
+            for (int i = 0; i < texts.length; ++i) {
+                signatures[i] = Snapshot.sign(texts[i]);
+            }
+
+            return signatures;
+        }
+
+        /**
+         * Computes the bigram signature of a text: a bit is set for every pair of consecutive characters within the
+         * same column.
+         *
+         * @param text
+         *            the text.
+         * @return the signature.
+         */
+        private static long sign(String text) {
+
+            long signature = 0L;
+            for (int i = 1; i < text.length(); ++i) {
+                final char previous = text.charAt(i - 1);
+                final char current = text.charAt(i);
+                if ((previous != TableSearchIndex.COLUMN_SEPARATOR) && (current != TableSearchIndex.COLUMN_SEPARATOR)) {
+                    signature |= 1L << (((previous * TableSearchIndex.HASH_PRIME) + current) //
+                            & TableSearchIndex.SIGNATURE_MASK);
+                }
+            }
+
+            return signature;
+        }
+    }
+
+    /**
+     * A search over a range of rows of a snapshot: the first chunk is scanned by the calling thread and the remaining
+     * ones in parallel.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class Search {
+
+        /**
+         * The snapshot.
+         */
+        private final Snapshot snapshot;
+
+        /**
+         * The model index of every view row, <code>null</code> if both are the same.
+         */
+        private final int[] viewToModel;
+
+        /**
+         * The normalized query.
+         */
+        private final String query;
+
+        /**
+         * The signature of the query.
+         */
+        private final long signature;
+
+        /**
+         * The first view row.
+         */
+        private final int from;
+
+        /**
+         * Whether to search forward or backward.
+         */
+        private final boolean forward;
+
+        /**
+         * The number of rows to be visited.
+         */
+        private final int length;
+
+        /**
+         * Creates the search.
+         *
+         * @param snapshot
+         *            the snapshot.
+         * @param viewToModel
+         *            the model index of every view row, <code>null</code> if both are the same.
+         * @param query
+         *            the normalized query.
+         * @param from
+         *            the first view row.
+         * @param forward
+         *            whether to search forward or backward.
+         * @param length
+         *            the number of rows to be visited, wrapping around table ends if needed.
+         */
+        private Search(Snapshot snapshot, int[] viewToModel, String query, int from, boolean forward, int length) {
+
+            this.snapshot = snapshot;
+            this.viewToModel = viewToModel;
+            this.query = query;
+            this.signature = Snapshot.sign(query);
+            this.from = from;
+            this.forward = forward;
+            this.length = length;
+        }
+
+        /**
+         * Finds the first matching row within the first chunk, where matches usually are since it is close to the
+         * cursor.
+         *
+         * @return the matching view row or <code>-1</code> if not found.
+         */
+        private int scanFirstChunk() {
+
+            return this.scan(0, this.getFirstChunkLength());
+        }
+
+        /**
+         * Whether the first chunk covers every row to be visited.
+         *
+         * @return <code>true</code> if there are no more chunks.
+         */
+        private boolean isFirstChunkLast() {
+
+            return this.getFirstChunkLength() == this.length;
+        }
+
+        /**
+         * Finds the first matching row after the first chunk, scanning chunks in parallel.
+         * <p>
+         * This method is intended to be called from a worker.
+         *
+         * @return the matching view row or <code>-1</code> if not found.
+         */
+        private int scanRemainingChunks() {
+
+            final int firstChunk = this.getFirstChunkLength();
+            final int chunkCount = ((this.length - firstChunk) + TableWorkers.CHUNK_SIZE - 1) / TableWorkers.CHUNK_SIZE;
+            final int[] results = new int[chunkCount];
+            Arrays.fill(results, -1);
+
+            // The first chunk (in search order) with a match, chunks after it are not scanned
+            final AtomicInteger firstMatchingChunk = new AtomicInteger(chunkCount);
+
+            final List<Runnable> tasks = new ArrayList<Runnable>(chunkCount);
+            for (int i = 0; i < chunkCount; ++i) {
+                final int chunk = i;
+                final int chunkStart = firstChunk + (chunk * TableWorkers.CHUNK_SIZE);
+                final int chunkEnd = Math.min(this.length, chunkStart + TableWorkers.CHUNK_SIZE);
+                tasks.add(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        if (chunk > firstMatchingChunk.get()) {
+                            return;
+                        }
+
+                        results[chunk] = Search.this.scan(chunkStart, chunkEnd);
+                        int current = firstMatchingChunk.get();
+                        while ((results[chunk] >= 0) && (chunk < current)
+                                && !firstMatchingChunk.compareAndSet(current, chunk)) {
+                            current = firstMatchingChunk.get();
+                        }
+                    }
+                });
+            }
+
+            // The calling worker runs chunks not started yet by the shared pool instead of just blocking on them
+            TableWorkers.invokeAll(tasks);
+
+            final int chunk = firstMatchingChunk.get();
+
+            return (chunk < chunkCount) ? results[chunk] : -1;
+        }
+
+        /**
+         * Gets the number of positions of the first chunk.
+         *
+         * @return the length of the first chunk.
+         */
+        private int getFirstChunkLength() {
+
+            return Math.min(this.length, TableWorkers.CHUNK_SIZE);
+        }
+
+        /**
+         * Scans a range of positions in search order.
+         *
+         * @param start
+         *            the first position (inclusive).
+         * @param end
+         *            the last position (exclusive).
+         * @return the first matching view row or <code>-1</code> if not found.
+         */
+        private int scan(int start, int end) {
+
+            final int rowCount = this.snapshot.texts.length;
+            final int count = (this.viewToModel != null) ? this.viewToModel.length : rowCount;
+            for (int position = start; position < end; ++position) {
+                final int viewRow = this.forward ? (this.from + position) % count //
+                        : (((this.from - position) % count) + count) % count;
+                final int row = (this.viewToModel != null) ? this.viewToModel[viewRow] : viewRow;
+
+                if ((row < rowCount) && ((this.snapshot.signatures[row] & this.signature) == this.signature)
+                        && (this.snapshot.texts[row].indexOf(this.query) >= 0)) {
+                    return viewRow;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * Converts cell values into the text users search for.
+     * <p>
+     * Implementations are invoked from worker threads, so they must be thread safe and must not use renderers.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    public interface CellTextConverter {
+
+        /**
+         * Converts a cell value into text.
+         *
+         * @param value
+         *            the cell value, never <code>null</code>.
+         * @param column
+         *            the model index of the column.
+         * @return the text, may be <code>null</code>.
+         */
+        String toText(Object value, int column);
+    }
+
+    /**
+     * Receives the result of a search completed in background.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    public interface FindCallback {
+
+        /**
+         * Receives the result of a search, from the Event Dispatcher Thread.
+         *
+         * @param viewRow
+         *            the view index of the found row, <code>-1</code> if not found.
+         */
+        void found(int viewRow);
+    }
+}
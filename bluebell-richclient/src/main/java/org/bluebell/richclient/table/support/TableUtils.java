@@ -24,7 +24,6 @@ import java.util.List;
 
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
-import javax.swing.event.TableModelListener;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.bluebell.richclient.swing.util.SwingUtils;
@@ -310,7 +309,7 @@ public final class TableUtils {
      * Show the given entities in a table.
      * <p>
      * When dealing with <code>EventList</code> performance is important. This method ensures table model events are
-     * launched just once at the end.
+     * launched just once per operation: clearing the table (if not attaching) and adding the new entities.
      * 
      * @param <Q>
      *            the type of the rows.
@@ -348,12 +347,7 @@ public final class TableUtils {
                 TableUtils.LOGGER.debug("About to show entities " + entities);
             }
 
-            // Avoid notifying in every single change, instead do it at the end
-            final TableModelListener[] listeners = tableModel.getTableModelListeners();
-            for (final TableModelListener listener : listeners) {
-                tableModel.removeTableModelListener(listener);
-            }
-
+            // Clearing and adding are notified as a single change each
             SwingUtils.runInEventDispatcherThread(new Runnable() {
 
                 @Override
@@ -373,17 +367,59 @@ public final class TableUtils {
                     }
                 }
             });
+        }
 
-            // Enable notifying: install listeners again
-            for (final TableModelListener listener : listeners) {
-                tableModel.addTableModelListener(listener);
-            }
+        return proceed;
+    }
+
+    /**
+     * Replaces some entities shown in a table with their new versions.
+     * <p>
+     * Entities are replaced in place, so selection is kept. Row updates are notified once per frame by
+     * {@link BbGlazedTableModel}. Entities not shown in the table are ignored.
+     * 
+     * @param <Q>
+     *            the type of the rows.
+     * @param tableModel
+     *            the table model.
+     * @param oldEntities
+     *            the entities to be replaced.
+     * @param newEntities
+     *            the new entities, in the same order.
+     */
+    public static <Q> void replaceEntities(GlazedTableModel tableModel, final List<Q> oldEntities,
+            final List<Q> newEntities) {
 
-            // Since listeners were uninstalled notification should be explicit
-            tableModel.fireTableDataChanged();
+        Assert.notNull(tableModel, TableUtils.TABLE_MODEL);
+        Assert.notNull(oldEntities, "oldEntities");
+        Assert.notNull(newEntities, "newEntities");
+        Assert.isTrue(oldEntities.size() == newEntities.size(), "oldEntities.size() == newEntities.size()");
+
+        if (oldEntities.isEmpty()) {
+            return;
         }
 
-        return proceed;
+        final EventList<Q> eventList = TableUtils.getSource(tableModel);
+
+        // Row updates are coalesced by the table model (see BbGlazedTableModel)
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                eventList.getReadWriteLock().writeLock().lock();
+                try {
+                    for (int i = 0; i < oldEntities.size(); ++i) {
+                        final int index = eventList.indexOf(oldEntities.get(i));
+                        if (index >= 0) {
+                            eventList.set(index, newEntities.get(i));
+                        }
+                    }
+                } finally {
+                    eventList.getReadWriteLock().writeLock().unlock();
+                }
+            }
+        });
     }
 
     /**
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+
+import javax.swing.table.TableModel;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The worker pool shared by table support classes that process table rows in background, together with the text
+ * normalization they use for matching and the row snapshots workers read cells from.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+final class TableWorkers {
+
+    /**
+     * The worker pool, with a daemon thread per processor.
+     */
+    static final ExecutorService EXECUTOR_SERVICE = Executors.newFixedThreadPool(//
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+
+                    final Thread thread = new Thread(runnable, "Table worker");
+                    thread.setDaemon(Boolean.TRUE);
+
+                    return thread;
+                }
+            });
+
+    /**
+     * The number of rows processed by a single task.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The pattern matching diacritical marks after normalization.
+     */
+    private static final Pattern DIACRITICAL_MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    /**
+     * Utility class constructor.
+     */
+    private TableWorkers() {
+
+        super();
+    }
+
+    /**
+     * Normalizes a text for matching: removes diacritical marks and converts it to lower case.
+     *
+     * @param text
+     *            the text.
+     * @return the normalized text.
+     */
+    static String normalize(String text) {
+
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+
+        return TableWorkers.DIACRITICAL_MARKS.matcher(decomposed).replaceAll(StringUtils.EMPTY).toLowerCase();
+    }
+
+    /**
+     * Takes a snapshot of the rows of a table model, so workers can read its cells while the model changes.
+     * <p>
+     * This method must be called from the Event Dispatcher Thread.
+     *
+     * @param tableModel
+     *            the table model.
+     * @return the snapshot.
+     */
+    static RowSnapshot snapshot(TableModel tableModel) {
+
+        return new RowSnapshot(tableModel);
+    }
+
+    /**
+     * Runs the given tasks on the worker pool and waits for them.
+     * <p>
+     * The calling thread runs the tasks not started yet instead of just waiting, so this method can be safely called
+     * from a worker.
+     *
+     * @param tasks
+     *            the tasks.
+     */
+    static void invokeAll(List<Runnable> tasks) {
+
+        final List<FutureTask<Object>> futureTasks = new ArrayList<FutureTask<Object>>(tasks.size());
+        for (final Runnable task : tasks) {
+            final FutureTask<Object> futureTask = new FutureTask<Object>(task, null);
+            futureTasks.add(futureTask);
+            TableWorkers.EXECUTOR_SERVICE.execute(futureTask);
+        }
+
+        try {
+            for (final FutureTask<Object> futureTask : futureTasks) {
+                // Does nothing if already started by the pool
+                futureTask.run();
+                futureTask.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for table workers", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Sorts an array with a stable parallel merge sort: chunks are sorted by the workers and then merged pairwise.
+     *
+     * @param <T>
+     *            the type of the elements.
+     * @param array
+     *            the array to be sorted.
+     * @param comparator
+     *            the comparator, it must be thread safe.
+     */
+    static <T> void sort(T[] array, final Comparator<? super T> comparator) {
+
+        final int chunks = Math.min(Runtime.getRuntime().availableProcessors(), array.length / TableWorkers.CHUNK_SIZE);
+        if (chunks <= 1) {
+            Arrays.sort(array, comparator);
+            return;
+        }
+
+        final int[] bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; ++i) {
+            bounds[i] = (int) (((long) array.length * i) / chunks);
+        }
+
+        // Sort every chunk
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < chunks; ++i) {
+            final T[] target = array;
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    Arrays.sort(target, from, to, comparator);
+                }
+            });
+        }
+        TableWorkers.invokeAll(tasks);
+
+        // Merge sorted runs pairwise
+        T[] source = array;
+        T[] destination = array.clone();
+        for (int width = 1; width < chunks; width *= 2) {
+            tasks.clear();
+            for (int i = 0; i < chunks; i += 2 * width) {
+                final T[] from = source;
+                final T[] to = destination;
+                final int low = bounds[i];
+                final int middle = bounds[Math.min(i + width, chunks)];
+                final int high = bounds[Math.min(i + (2 * width), chunks)];
+                tasks.add(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        TableWorkers.merge(from, to, low, middle, high, comparator);
+                    }
+                });
+            }
+            TableWorkers.invokeAll(tasks);
+
+            final T[] swap = source;
+            source = destination;
+            destination = swap;
+        }
+
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, array.length);
+        }
+    }
+
+    /**
+     * Merges two consecutive sorted runs.
+     *
+     * @param <T>
+     *            the type of the elements.
+     * @param source
+     *            the array containing the runs.
+     * @param destination
+     *            the array where runs are merged.
+     * @param low
+     *            the start of the first run (inclusive).
+     * @param middle
+     *            the end of the first run and start of the second one.
+     * @param high
+     *            the end of the second run (exclusive).
+     * @param comparator
+     *            the comparator.
+     */
+    private static <T> void merge(T[] source, T[] destination, int low, int middle, int high,
+            Comparator<? super T> comparator) {
+
+        int left = low;
+        int right = middle;
+        for (int i = low; i < high; ++i) {
+            if ((right >= high) || ((left < middle) && (comparator.compare(source[left], source[right]) <= 0))) {
+                destination[i] = source[left++];
+            } else {
+                destination[i] = source[right++];
+            }
+        }
+    }
+
+    /**
+     * An immutable copy of the rows of a table model whose cells can be read from any thread.
+     * <p>
+     * The rows of a {@link BbGlazedTableModel} are copied under the read lock of its list and their cells are read
+     * later through its column accessors, so no getter is invoked from the Event Dispatcher Thread. Cell values of any
+     * other table model are copied right away.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    static final class RowSnapshot {
+
+        /**
+         * The table model whose column accessors read cells, <code>null</code> if cell values were copied.
+         */
+        private final BbGlazedTableModel tableModel;
+
+        /**
+         * The copied rows, or the copied cell values of every row.
+         */
+        private final Object[] rows;
+
+        /**
+         * The number of columns.
+         */
+        private final int columnCount;
+
+        /**
+         * Creates the snapshot.
+         * <p>
+         * This method must be called from the Event Dispatcher Thread.
+         *
+         * @param tableModel
+         *            the table model.
+         */
+        private RowSnapshot(TableModel tableModel) {
+
+            this.columnCount = tableModel.getColumnCount();
+
+            if (tableModel instanceof BbGlazedTableModel) {
+                this.tableModel = (BbGlazedTableModel) tableModel;
+                this.rows = this.tableModel.getRows();
+            } else {
+                this.tableModel = null;
+                this.rows = new Object[tableModel.getRowCount()];
+                for (int row = 0; row < this.rows.length; ++row) {
+                    final Object[] values = new Object[this.columnCount];
+                    for (int column = 0; column < this.columnCount; ++column) {
+                        values[column] = tableModel.getValueAt(row, column);
+                    }
+                    this.rows[row] = values;
+                }
+            }
+        }
+
+        /**
+         * Gets the number of rows.
+         *
+         * @return the row count.
+         */
+        int getRowCount() {
+
+            return this.rows.length;
+        }
+
+        /**
+         * Gets the number of columns.
+         *
+         * @return the column count.
+         */
+        int getColumnCount() {
+
+            return this.columnCount;
+        }
+
+        /**
+         * Reads a cell.
+         *
+         * @param row
+         *            the model index of the row.
+         * @param column
+         *            the model index of the column.
+         * @return the cell value.
+         */
+        Object getValueAt(int row, int column) {
+
+            if (this.tableModel != null) {
+                return this.tableModel.getColumnValue(this.rows[row], column);
+            }
+
+            return ((Object[]) this.rows[row])[column];
+        }
+    }
+}
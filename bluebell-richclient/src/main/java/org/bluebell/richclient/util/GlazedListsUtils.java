@@ -21,13 +21,17 @@
  */
 package org.bluebell.richclient.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.collections.Predicate;
 import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.util.Assert;
 
+import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.TransformedList;
+import ca.odell.glazedlists.event.ListEventAssembler;
 
 /**
  * Utility class for dealing with glazed lists.
@@ -109,4 +113,66 @@ public final class GlazedListsUtils {
         return Boolean.TRUE;
     }
 
+    /**
+     * Begins a change made of several list operations, so they are notified as a single list event once the change is
+     * committed.
+     * <p>
+     * A nested event is begun in the event assembler of every list in the chain, so operations are accumulated instead
+     * of notified. The caller must hold the write lock of the list and must call
+     * {@link #commitAtomicChange(EventList)} afterwards, even if an operation fails.
+     * 
+     * @param eventList
+     *            the event list.
+     * 
+     * @see AtomicObservableEventList
+     */
+    public static void beginAtomicChange(EventList<?> eventList) {
+
+        for (final ListEventAssembler<?> updates : GlazedListsUtils.getEventAssemblers(eventList)) {
+            updates.beginEvent(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Commits a change begun with {@link #beginAtomicChange(EventList)}.
+     * <p>
+     * Events are committed from the deepest list in the chain outwards, so every list forwards a single event to the
+     * next one.
+     * 
+     * @param eventList
+     *            the event list.
+     */
+    public static void commitAtomicChange(EventList<?> eventList) {
+
+        final List<ListEventAssembler<?>> assemblers = GlazedListsUtils.getEventAssemblers(eventList);
+        Collections.reverse(assemblers);
+        for (final ListEventAssembler<?> updates : assemblers) {
+            updates.commitEvent();
+        }
+    }
+
+    /**
+     * Gets the event assembler of every list in the chain, including the one given as argument.
+     * 
+     * @param eventList
+     *            the event list.
+     * @return the event assemblers, from the given list to the deepest one.
+     */
+    private static List<ListEventAssembler<?>> getEventAssemblers(EventList<?> eventList) {
+
+        final List<ListEventAssembler<?>> assemblers = new ArrayList<ListEventAssembler<?>>();
+        final ObjectToFieldValueTransformer transformer = ObjectToFieldValueTransformer.getInstance("updates");
+        GlazedListsUtils.forAllDo(eventList, new Predicate() {
+
+            @Override
+            public boolean evaluate(Object object) {
+
+                assemblers.add((ListEventAssembler<?>) transformer.transform(object));
+
+                return Boolean.TRUE;
+            }
+        });
+
+        return assemblers;
+    }
 }
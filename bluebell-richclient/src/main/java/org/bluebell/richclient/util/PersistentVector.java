@@ -0,0 +1,573 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.springframework.util.Assert;
+
+/**
+ * An immutable list that shares structure between versions, so it can be read from any thread without locking.
+ * <p>
+ * Elements are stored in a balanced tree of up to 32 wide nodes whose leaves are all at the same depth, every inner
+ * node keeps the accumulated sizes of its children. Reading, replacing, inserting and deleting an element anywhere
+ * take <code>O(log32 n)</code> time and only copy the nodes in the path to that element, every other node is shared
+ * with the former version.
+ * <p>
+ * Full nodes are split on insertion (leaving the left node full when appending), whereas nodes are dropped once
+ * empty on deletion, so the tree never gets deeper than required by the largest version it comes from.
+ * <p>
+ * Mutators inherited from <code>List</code> throw <code>UnsupportedOperationException</code>; instead, the methods of
+ * this class return a new version and leave the receiver unchanged.
+ *
+ * @param <E>
+ *            the type of the elements.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * The maximum width of every node.
+     */
+    private static final int WIDTH = 32;
+
+    /**
+     * The empty vector.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final PersistentVector EMPTY = new PersistentVector(0, 0, new Object[0]);
+
+    /**
+     * The number of elements.
+     */
+    private final int size;
+
+    /**
+     * The number of inner levels above the leaves.
+     */
+    private final int height;
+
+    /**
+     * The root node, an {@link Inner} node or a leaf (an array of elements) if height is <code>0</code>.
+     */
+    private final Object root;
+
+    /**
+     * Creates a vector.
+     *
+     * @param size
+     *            the number of elements.
+     * @param height
+     *            the number of inner levels above the leaves.
+     * @param root
+     *            the root node.
+     */
+    private PersistentVector(int size, int height, Object root) {
+
+        super();
+
+        this.size = size;
+        this.height = height;
+        this.root = root;
+    }
+
+    /**
+     * Gets the empty vector.
+     *
+     * @param <Q>
+     *            the type of the elements.
+     * @return the empty vector.
+     */
+    @SuppressWarnings("unchecked")
+    public static <Q> PersistentVector<Q> empty() {
+
+        return PersistentVector.EMPTY;
+    }
+
+    /**
+     * Creates a vector with the elements of a collection.
+     *
+     * @param <Q>
+     *            the type of the elements.
+     * @param elements
+     *            the elements.
+     * @return the vector.
+     */
+    public static <Q> PersistentVector<Q> copyOf(Collection<? extends Q> elements) {
+
+        return PersistentVector.<Q> empty().appendAll(elements);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+
+        this.checkIndex(index, this.size);
+
+        Object node = this.root;
+        int offset = index;
+        for (int level = this.height; level > 0; --level) {
+            final Inner inner = (Inner) node;
+            final int child = inner.childFor(offset);
+            offset -= inner.offsetOf(child);
+            node = inner.children[child];
+        }
+
+        return (E) ((Object[]) node)[offset];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+
+        return this.size;
+    }
+
+    /**
+     * Returns a new version with an element appended.
+     *
+     * @param element
+     *            the element.
+     * @return the new version.
+     */
+    public PersistentVector<E> append(E element) {
+
+        return this.insert(this.size, element);
+    }
+
+    /**
+     * Returns a new version with some elements appended.
+     * <p>
+     * Appending to an empty vector builds the tree bottom up in linear time.
+     *
+     * @param elements
+     *            the elements.
+     * @return the new version.
+     */
+    public PersistentVector<E> appendAll(Collection<? extends E> elements) {
+
+        Assert.notNull(elements, "elements");
+
+        if (this.isEmpty()) {
+            return PersistentVector.build(elements);
+        }
+
+        PersistentVector<E> vector = this;
+        for (final E element : elements) {
+            vector = vector.append(element);
+        }
+
+        return vector;
+    }
+
+    /**
+     * Returns a new version with an element replaced.
+     *
+     * @param index
+     *            the index of the element to replace.
+     * @param element
+     *            the new element.
+     * @return the new version.
+     */
+    public PersistentVector<E> replace(int index, E element) {
+
+        this.checkIndex(index, this.size);
+
+        return new PersistentVector<E>(this.size, this.height, //
+                PersistentVector.doReplace(this.height, this.root, index, element));
+    }
+
+    /**
+     * Returns a new version with an element inserted.
+     *
+     * @param index
+     *            the index at which to insert the element.
+     * @param element
+     *            the element.
+     * @return the new version.
+     */
+    public PersistentVector<E> insert(int index, E element) {
+
+        this.checkIndex(index, this.size + 1);
+
+        final Object[] nodes = PersistentVector.doInsert(this.height, this.root, index, element);
+        if (nodes.length == 1) {
+            return new PersistentVector<E>(this.size + 1, this.height, nodes[0]);
+        }
+
+        // The root has been split, grow a new level
+        return new PersistentVector<E>(this.size + 1, this.height + 1, Inner.of(this.height, nodes));
+    }
+
+    /**
+     * Returns a new version with an element deleted.
+     *
+     * @param index
+     *            the index of the element to delete.
+     * @return the new version.
+     */
+    public PersistentVector<E> delete(int index) {
+
+        this.checkIndex(index, this.size);
+
+        if (this.size == 1) {
+            return PersistentVector.empty();
+        }
+
+        // Drop levels above a root with a single child
+        Object newRoot = PersistentVector.doDelete(this.height, this.root, index);
+        int newHeight = this.height;
+        while ((newHeight > 0) && (((Inner) newRoot).children.length == 1)) {
+            newRoot = ((Inner) newRoot).children[0];
+            --newHeight;
+        }
+
+        return new PersistentVector<E>(this.size - 1, newHeight, newRoot);
+    }
+
+    /**
+     * Builds a vector with full nodes, bottom up.
+     *
+     * @param <Q>
+     *            the type of the elements.
+     * @param elements
+     *            the elements.
+     * @return the vector.
+     */
+    private static <Q> PersistentVector<Q> build(Collection<? extends Q> elements) {
+
+        final Object[] array = elements.toArray();
+        if (array.length == 0) {
+            return PersistentVector.empty();
+        }
+
+        List<Object> nodes = new ArrayList<Object>();
+        for (int from = 0; from < array.length; from += PersistentVector.WIDTH) {
+            final Object[] leaf = new Object[Math.min(PersistentVector.WIDTH, array.length - from)];
+            System.arraycopy(array, from, leaf, 0, leaf.length);
+            nodes.add(leaf);
+        }
+
+        int height = 0;
+        while (nodes.size() > 1) {
+            final List<Object> parents = new ArrayList<Object>();
+            for (int from = 0; from < nodes.size(); from += PersistentVector.WIDTH) {
+                final int to = Math.min(nodes.size(), from + PersistentVector.WIDTH);
+                parents.add(Inner.of(height, nodes.subList(from, to).toArray()));
+            }
+            nodes = parents;
+            ++height;
+        }
+
+        return new PersistentVector<Q>(array.length, height, nodes.get(0));
+    }
+
+    /**
+     * Copies the path to an element replacing it.
+     *
+     * @param level
+     *            the level of the node, <code>0</code> for leaves.
+     * @param node
+     *            the node.
+     * @param index
+     *            the index of the element within the node.
+     * @param element
+     *            the new element.
+     * @return the copy of the node.
+     */
+    private static Object doReplace(int level, Object node, int index, Object element) {
+
+        if (level == 0) {
+            final Object[] leaf = ((Object[]) node).clone();
+            leaf[index] = element;
+
+            return leaf;
+        }
+
+        final Inner inner = (Inner) node;
+        final int child = inner.childFor(index);
+        final Object[] children = inner.children.clone();
+        children[child] = PersistentVector.doReplace(//
+                level - 1, children[child], index - inner.offsetOf(child), element);
+
+        return new Inner(children, inner.sizes);
+    }
+
+    /**
+     * Copies the path to an element inserting it, splitting full nodes.
+     *
+     * @param level
+     *            the level of the node, <code>0</code> for leaves.
+     * @param node
+     *            the node.
+     * @param index
+     *            the index within the node at which to insert the element.
+     * @param element
+     *            the element.
+     * @return the copy of the node, or the two nodes it has been split into.
+     */
+    private static Object[] doInsert(int level, Object node, int index, Object element) {
+
+        final Object[] entries;
+        final int position;
+        if (level == 0) {
+            final Object[] leaf = (Object[]) node;
+            entries = PersistentVector.insertAt(leaf, index, new Object[] { element });
+            position = index;
+        } else {
+            final Inner inner = (Inner) node;
+            position = (index == inner.size()) ? inner.children.length - 1 : inner.childFor(index);
+            final Object[] newChildren = PersistentVector.doInsert(//
+                    level - 1, inner.children[position], index - inner.offsetOf(position), element);
+
+            final Object[] children = inner.children.clone();
+            children[position] = newChildren[0];
+            entries = (newChildren.length == 1) ? children
+                    : PersistentVector.insertAt(children, position + 1, new Object[] { newChildren[1] });
+        }
+
+        if (entries.length <= PersistentVector.WIDTH) {
+            return new Object[] { PersistentVector.newNode(level, entries) };
+        }
+
+        // Leave the left node full when appending, so sequentially built vectors are compact
+        final int split = (position >= entries.length - 2) ? PersistentVector.WIDTH : entries.length / 2;
+        final Object[] left = new Object[split];
+        final Object[] right = new Object[entries.length - split];
+        System.arraycopy(entries, 0, left, 0, left.length);
+        System.arraycopy(entries, split, right, 0, right.length);
+
+        return new Object[] { PersistentVector.newNode(level, left), PersistentVector.newNode(level, right) };
+    }
+
+    /**
+     * Copies the path to an element deleting it, dropping empty nodes.
+     *
+     * @param level
+     *            the level of the node, <code>0</code> for leaves.
+     * @param node
+     *            the node.
+     * @param index
+     *            the index of the element within the node.
+     * @return the copy of the node or <code>null</code> if empty.
+     */
+    private static Object doDelete(int level, Object node, int index) {
+
+        final Object[] entries;
+        final int position;
+        if (level == 0) {
+            entries = (Object[]) node;
+            position = index;
+        } else {
+            final Inner inner = (Inner) node;
+            position = inner.childFor(index);
+            final Object child = PersistentVector.doDelete(//
+                    level - 1, inner.children[position], index - inner.offsetOf(position));
+            if (child != null) {
+                final Object[] children = inner.children.clone();
+                children[position] = child;
+
+                return Inner.of(level - 1, children);
+            }
+            entries = inner.children;
+        }
+
+        if (entries.length == 1) {
+            return null;
+        }
+
+        final Object[] remaining = new Object[entries.length - 1];
+        System.arraycopy(entries, 0, remaining, 0, position);
+        System.arraycopy(entries, position + 1, remaining, position, remaining.length - position);
+
+        return PersistentVector.newNode(level, remaining);
+    }
+
+    /**
+     * Creates a node.
+     *
+     * @param level
+     *            the level of the node, <code>0</code> for leaves.
+     * @param entries
+     *            the elements of a leaf or the children of an inner node.
+     * @return the node.
+     */
+    private static Object newNode(int level, Object[] entries) {
+
+        return (level == 0) ? entries : Inner.of(level - 1, entries);
+    }
+
+    /**
+     * Copies an array inserting some entries.
+     *
+     * @param array
+     *            the array.
+     * @param index
+     *            the index at which to insert the entries.
+     * @param entries
+     *            the entries.
+     * @return the new array.
+     */
+    private static Object[] insertAt(Object[] array, int index, Object[] entries) {
+
+        final Object[] result = new Object[array.length + entries.length];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(entries, 0, result, index, entries.length);
+        System.arraycopy(array, index, result, index + entries.length, array.length - index);
+
+        return result;
+    }
+
+    /**
+     * Gets the number of elements under a node.
+     *
+     * @param level
+     *            the level of the node, <code>0</code> for leaves.
+     * @param node
+     *            the node.
+     * @return the number of elements.
+     */
+    private static int sizeOf(int level, Object node) {
+
+        return (level == 0) ? ((Object[]) node).length : ((Inner) node).size();
+    }
+
+    /**
+     * Checks an index is within bounds.
+     *
+     * @param index
+     *            the index.
+     * @param bound
+     *            the exclusive upper bound.
+     */
+    private void checkIndex(int index, int bound) {
+
+        if ((index < 0) || (index >= bound)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+    /**
+     * An inner node: its children and their accumulated sizes.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class Inner {
+
+        /**
+         * The children.
+         */
+        private final Object[] children;
+
+        /**
+         * The number of elements under every child plus the ones under the children before it.
+         */
+        private final int[] sizes;
+
+        /**
+         * Creates the node.
+         *
+         * @param children
+         *            the children.
+         * @param sizes
+         *            the accumulated sizes of the children.
+         */
+        private Inner(Object[] children, int[] sizes) {
+
+            this.children = children;
+            this.sizes = sizes;
+        }
+
+        /**
+         * Creates a node computing the accumulated sizes of its children.
+         *
+         * @param childLevel
+         *            the level of the children, <code>0</code> for leaves.
+         * @param children
+         *            the children.
+         * @return the node.
+         */
+        private static Inner of(int childLevel, Object[] children) {
+
+            final int[] sizes = new int[children.length];
+            int accumulated = 0;
+            for (int i = 0; i < children.length; ++i) {
+                accumulated += PersistentVector.sizeOf(childLevel, children[i]);
+                sizes[i] = accumulated;
+            }
+
+            return new Inner(children, sizes);
+        }
+
+        /**
+         * Gets the number of elements under this node.
+         *
+         * @return the number of elements.
+         */
+        private int size() {
+
+            return this.sizes[this.sizes.length - 1];
+        }
+
+        /**
+         * Gets the child holding an element.
+         *
+         * @param index
+         *            the index of the element within this node.
+         * @return the index of the child.
+         */
+        private int childFor(int index) {
+
+            int low = 0;
+            int high = this.sizes.length - 1;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (this.sizes[middle] > index) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * Gets the index of the first element under a child.
+         *
+         * @param child
+         *            the index of the child.
+         * @return the offset of the child.
+         */
+        private int offsetOf(int child) {
+
+            return (child == 0) ? 0 : this.sizes[child - 1];
+        }
+    }
+}
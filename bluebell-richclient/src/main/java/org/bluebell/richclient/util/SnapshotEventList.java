@@ -0,0 +1,739 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.util;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bluebell.richclient.swing.util.BatchingEventDispatcher;
+import org.springframework.util.Assert;
+
+import ca.odell.glazedlists.AbstractEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+
+/**
+ * An event list whose contents are immutable snapshots ({@link PersistentVector}), intended for master tables fed
+ * from background threads.
+ * <p>
+ * Writers on any thread publish new snapshots without locking (see {@link #update(Update)}), and changes are applied
+ * from the event dispatch thread: every change published meanwhile is applied at once and notified as a single list
+ * event. Reading methods ({@link #get(int)}, {@link #size()}...) never lock: from the EDT they return the snapshot
+ * already applied, consistent with the events listeners have received, whereas from any other thread they return the
+ * latest published snapshot (see {@link #getSnapshot()}), so writers read their own changes.
+ * <p>
+ * Changes made from the event dispatch thread are applied immediately. Indexes given to mutators always refer to the
+ * latest published snapshot.
+ * <p>
+ * {@link #mirror(EventList)} creates a list replicating the changes of another one, that way a table can be fed from
+ * a list modified in background. Changes made to a mirror are written through to its source list, so both never
+ * diverge.
+ * <p>
+ * The read/write lock is only taken from the event dispatch thread while notifying, as required by list pipelines
+ * built on top of this list.
+ *
+ * @param <E>
+ *            the type of the elements.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class SnapshotEventList<E> extends AbstractEventList<E> {
+
+    /**
+     * The latest published snapshot.
+     */
+    private final AtomicReference<PersistentVector<E>> latest;
+
+    /**
+     * Whether applying the latest snapshot is already scheduled.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(Boolean.FALSE);
+
+    /**
+     * The task applying the latest snapshot from the event dispatch thread.
+     */
+    private final Runnable applier = new Runnable() {
+
+        @Override
+        public void run() {
+
+            // Reset flag before applying, so snapshots published from now on schedule a new application
+            SnapshotEventList.this.scheduled.set(Boolean.FALSE);
+            SnapshotEventList.this.apply();
+        }
+    };
+
+    /**
+     * The applied snapshot, the one listeners have been notified about.
+     */
+    private volatile PersistentVector<E> current;
+
+    /**
+     * The list replicated by this one, <code>null</code> if none.
+     */
+    private EventList<E> source;
+
+    /**
+     * The listener replicating the changes of the source list, <code>null</code> if none.
+     */
+    private ListEventListener<E> sourceListener;
+
+    /**
+     * Creates an empty list.
+     */
+    public SnapshotEventList() {
+
+        this(PersistentVector.<E> empty());
+    }
+
+    /**
+     * Creates a list with the given contents.
+     *
+     * @param elements
+     *            the initial elements.
+     */
+    public SnapshotEventList(Collection<? extends E> elements) {
+
+        super(null);
+
+        Assert.notNull(elements, "elements");
+
+        this.readWriteLock = LockFactory.DEFAULT.createReadWriteLock();
+        this.current = PersistentVector.copyOf(elements);
+        this.latest = new AtomicReference<PersistentVector<E>>(this.current);
+    }
+
+    /**
+     * Creates a list replicating the contents of another one.
+     * <p>
+     * Every change of the source list is published as a new snapshot from the thread making it, while holding the
+     * source write lock. Changes made to the returned list are written through to the source one, holding its write
+     * lock, and then replicated back as any other change. Disposing the returned list stops replicating.
+     *
+     * @param <Q>
+     *            the type of the elements.
+     * @param source
+     *            the list to be replicated.
+     * @return the new list.
+     */
+    public static <Q> SnapshotEventList<Q> mirror(EventList<Q> source) {
+
+        Assert.notNull(source, "source");
+
+        source.getReadWriteLock().readLock().lock();
+        try {
+            final SnapshotEventList<Q> mirror = new SnapshotEventList<Q>(source);
+            mirror.source = source;
+            mirror.sourceListener = new SourceListener<Q>(mirror);
+            source.addListEventListener(mirror.sourceListener);
+
+            return mirror;
+        } finally {
+            source.getReadWriteLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the latest published snapshot, that may have not been applied yet.
+     *
+     * @return the snapshot.
+     */
+    public final PersistentVector<E> getSnapshot() {
+
+        return this.latest.get();
+    }
+
+    /**
+     * Publishes a new snapshot computed from the latest one and schedules its application.
+     * <p>
+     * Concurrent writers never wait for each other: if another snapshot was published in between, the update is
+     * computed again over the new one, so it must be free of side effects.
+     *
+     * @param update
+     *            the update computing the new snapshot.
+     * @return the snapshot the update was computed over.
+     */
+    public final PersistentVector<E> update(Update<E> update) {
+
+        Assert.notNull(update, "update");
+
+        PersistentVector<E> previous;
+        PersistentVector<E> next;
+        do {
+            previous = this.latest.get();
+            next = update.apply(previous);
+            Assert.notNull(next, "next");
+            if (next == previous) {
+                return previous;
+            }
+        } while (!this.latest.compareAndSet(previous, next));
+
+        this.schedule();
+
+        return previous;
+    }
+
+    /**
+     * Publishes new contents replacing the current ones.
+     *
+     * @param elements
+     *            the new contents.
+     */
+    public final void publish(Collection<? extends E> elements) {
+
+        Assert.notNull(elements, "elements");
+
+        final PersistentVector<E> snapshot = PersistentVector.copyOf(elements);
+        this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                return snapshot;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the applied snapshot from the event dispatch thread and the latest one elsewhere.
+     */
+    @Override
+    public E get(int index) {
+
+        return this.getReadSnapshot().get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the applied snapshot from the event dispatch thread and the latest one elsewhere.
+     */
+    @Override
+    public int size() {
+
+        return this.getReadSnapshot().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(final E value) {
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                return theSource.add(value);
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                return previous.append(value);
+            }
+        });
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(final int index, final E value) {
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                theSource.add(index, value);
+                return;
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                return previous.insert(index, value);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(final Collection<? extends E> values) {
+
+        return this.addAll(-1, values);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A negative index appends the values to the latest snapshot.
+     */
+    @Override
+    public boolean addAll(final int index, final Collection<? extends E> values) {
+
+        Assert.notNull(values, "values");
+
+        if (values.isEmpty()) {
+            return Boolean.FALSE;
+        }
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                return theSource.addAll((index < 0) ? theSource.size() : index, values);
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        final List<E> copy = new ArrayList<E>(values);
+        this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                if ((index < 0) || (index == previous.size())) {
+                    return previous.appendAll(copy);
+                }
+
+                final List<E> elements = new ArrayList<E>(previous);
+                elements.addAll(index, copy);
+
+                return PersistentVector.copyOf(elements);
+            }
+        });
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E set(final int index, final E value) {
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                return theSource.set(index, value);
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        return this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                return previous.replace(index, value);
+            }
+        }).get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E remove(final int index) {
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                return theSource.remove(index);
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        return this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                return previous.delete(index);
+            }
+        }).get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object value) {
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                return theSource.remove(value);
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        final PersistentVector<E> previous = this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> snapshot) {
+
+                final int index = snapshot.indexOf(value);
+
+                return (index >= 0) ? snapshot.delete(index) : snapshot;
+            }
+        });
+
+        return previous.contains(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(final Collection<?> values) {
+
+        return this.retain(values, Boolean.FALSE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(final Collection<?> values) {
+
+        return this.retain(values, Boolean.TRUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                theSource.clear();
+                return;
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        this.publish(PersistentVector.<E> empty());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Stops replicating the source list, if any.
+     */
+    @Override
+    public void dispose() {
+
+        if (this.source != null) {
+            this.source.removeListEventListener(this.sourceListener);
+            this.source = null;
+            this.sourceListener = null;
+        }
+    }
+
+    /**
+     * Applies the latest snapshot notifying listeners about the differences with the current one.
+     * <p>
+     * Must be invoked from the event dispatch thread.
+     */
+    protected void apply() {
+
+        this.getReadWriteLock().writeLock().lock();
+        try {
+            final PersistentVector<E> previous = this.current;
+            final PersistentVector<E> next = this.latest.get();
+            if (next == previous) {
+                return;
+            }
+
+            this.updates.beginEvent(Boolean.TRUE);
+            try {
+                this.current = next;
+                this.notifyDifferences(previous, next);
+            } finally {
+                this.updates.commitEvent();
+            }
+        } finally {
+            this.getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the snapshot seen by readers in the current thread.
+     *
+     * @return the applied snapshot if in the event dispatch thread and the latest one otherwise.
+     */
+    private PersistentVector<E> getReadSnapshot() {
+
+        return EventQueue.isDispatchThread() ? this.current : this.latest.get();
+    }
+
+    /**
+     * Applies the latest snapshot right now if in the event dispatch thread, otherwise schedules it unless already
+     * scheduled.
+     */
+    private void schedule() {
+
+        if (EventQueue.isDispatchThread()) {
+            this.apply();
+        } else if (this.scheduled.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+            BatchingEventDispatcher.getInstance().invokeLater(this.applier);
+        }
+    }
+
+    /**
+     * Removes the elements (not) contained in a collection.
+     *
+     * @param values
+     *            the collection.
+     * @param contained
+     *            whether to keep the contained elements (<code>true</code>) or the remaining ones.
+     * @return <code>true</code> if any element was removed.
+     */
+    private boolean retain(final Collection<?> values, final Boolean contained) {
+
+        Assert.notNull(values, "values");
+
+        final EventList<E> theSource = this.source;
+        if (theSource != null) {
+            theSource.getReadWriteLock().writeLock().lock();
+            try {
+                return contained ? theSource.retainAll(values) : theSource.removeAll(values);
+            } finally {
+                theSource.getReadWriteLock().writeLock().unlock();
+            }
+        }
+
+        final PersistentVector<E> previous = this.update(new Update<E>() {
+
+            @Override
+            public PersistentVector<E> apply(PersistentVector<E> snapshot) {
+
+                final List<E> elements = new ArrayList<E>(snapshot.size());
+                for (final E element : snapshot) {
+                    if (values.contains(element) == contained) {
+                        elements.add(element);
+                    }
+                }
+
+                return (elements.size() == snapshot.size()) ? snapshot : PersistentVector.copyOf(elements);
+            }
+        });
+
+        // Retaining is deterministic, so compute again over the very same snapshot instead of sharing state
+        return this.countRetained(previous, values, contained) != previous.size();
+    }
+
+    /**
+     * Counts the elements (not) contained in a collection.
+     *
+     * @param snapshot
+     *            the snapshot.
+     * @param values
+     *            the collection.
+     * @param contained
+     *            whether to count the contained elements (<code>true</code>) or the remaining ones.
+     * @return the count.
+     */
+    private int countRetained(PersistentVector<E> snapshot, Collection<?> values, Boolean contained) {
+
+        int count = 0;
+        for (final E element : snapshot) {
+            if (values.contains(element) == contained) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Adds to the current event the changes between two snapshots.
+     * <p>
+     * Unchanged leading and trailing elements are skipped (by identity), the remaining ones are notified as updates
+     * followed by either deletions or insertions.
+     *
+     * @param previous
+     *            the former snapshot.
+     * @param next
+     *            the new snapshot.
+     */
+    private void notifyDifferences(PersistentVector<E> previous, PersistentVector<E> next) {
+
+        final int previousSize = previous.size();
+        final int nextSize = next.size();
+        final int minSize = Math.min(previousSize, nextSize);
+
+        int prefix = 0;
+        while ((prefix < minSize) && (previous.get(prefix) == next.get(prefix))) {
+            ++prefix;
+        }
+        int suffix = 0;
+        while ((suffix < minSize - prefix)
+                && (previous.get(previousSize - 1 - suffix) == next.get(nextSize - 1 - suffix))) {
+            ++suffix;
+        }
+
+        final int previousCount = previousSize - prefix - suffix;
+        final int nextCount = nextSize - prefix - suffix;
+        final int updateCount = Math.min(previousCount, nextCount);
+
+        for (int i = prefix; i < prefix + updateCount; ++i) {
+            this.updates.elementUpdated(i, previous.get(i), next.get(i));
+        }
+        for (int i = updateCount; i < previousCount; ++i) {
+            this.updates.elementDeleted(prefix + updateCount, previous.get(prefix + i));
+        }
+        for (int i = updateCount; i < nextCount; ++i) {
+            this.updates.elementInserted(prefix + i, next.get(prefix + i));
+        }
+    }
+
+    /**
+     * Replicates the changes of a source list into a snapshot list.
+     *
+     * @param <E>
+     *            the type of the elements.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class SourceListener<E> implements ListEventListener<E> {
+
+        /**
+         * The snapshot list.
+         */
+        private final SnapshotEventList<E> target;
+
+        /**
+         * Creates the listener.
+         *
+         * @param target
+         *            the snapshot list.
+         */
+        private SourceListener(SnapshotEventList<E> target) {
+
+            this.target = target;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Publishes a snapshot with all the changes of the event, or with the whole source list if reordered.
+         */
+        @Override
+        public void listChanged(ListEvent<E> listChanges) {
+
+            final EventList<E> sourceList = listChanges.getSourceList();
+            if (listChanges.isReordering()) {
+                this.target.publish(sourceList);
+                return;
+            }
+
+            // Changes are captured now since the update may be computed again
+            final List<Integer> types = new ArrayList<Integer>();
+            final List<Integer> indexes = new ArrayList<Integer>();
+            final List<E> values = new ArrayList<E>();
+            while (listChanges.next()) {
+                final int type = listChanges.getType();
+                final int index = listChanges.getIndex();
+                types.add(type);
+                indexes.add(index);
+                values.add((type == ListEvent.DELETE) ? null : sourceList.get(index));
+            }
+
+            this.target.update(new Update<E>() {
+
+                @Override
+                public PersistentVector<E> apply(PersistentVector<E> previous) {
+
+                    PersistentVector<E> next = previous;
+                    for (int i = 0; i < types.size(); ++i) {
+                        switch (types.get(i)) {
+                            case ListEvent.INSERT:
+                                next = next.insert(indexes.get(i), values.get(i));
+                                break;
+                            case ListEvent.DELETE:
+                                next = next.delete(indexes.get(i));
+                                break;
+                            default:
+                                next = next.replace(indexes.get(i), values.get(i));
+                                break;
+                        }
+                    }
+
+                    return next;
+                }
+            });
+        }
+    }
+
+    /**
+     * Computes a new snapshot from the latest one.
+     *
+     * @param <E>
+     *            the type of the elements.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    public interface Update<E> {
+
+        /**
+         * Computes the new snapshot.
+         *
+         * @param previous
+         *            the latest snapshot.
+         * @return the new snapshot, may be the given one if nothing changes.
+         */
+        PersistentVector<E> apply(PersistentVector<E> previous);
+    }
+}
@@ -23,6 +23,7 @@ package org.bluebell.richclient.application.support;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Resource;
 import javax.swing.JComponent;
@@ -352,6 +353,134 @@ public class TestDefaultApplicationPageConfigurer extends AbstractBbSamplesTests
         this.doTestOpenAfterClose(this.getActivePage(), this.getValidationView());
     }
 
+    /**
+     * Tests classification models are cached, updated when page components are closed and discarded once the page gets
+     * empty.
+     */
+    @Test
+    public void testClassificationCache() {
+
+        this.testFullPageReverse();
+
+        final ApplicationPage applicationPage = this.getActivePage();
+        final DefaultApplicationPageConfigurer<Object> configurer = new DefaultApplicationPageConfigurer<Object>();
+        final PageComponent masterView = this.getMasterView();
+        final PageComponent childView = this.getChildView();
+        final String masterType = BbViewType.MASTER_TYPE.name();
+        final String childType = BbViewType.CHILD_TYPE.name();
+
+        /*
+         * 1. Classification is computed once and then cached
+         */
+        TestCase.assertFalse("hasClassification", configurer.hasClassification(applicationPage));
+
+        final Map<String, List<? extends PageComponent>> classification = //
+        configurer.classifyApplicationPage(applicationPage);
+
+        TestCase.assertTrue("hasClassification", configurer.hasClassification(applicationPage));
+        TestCase.assertSame(classification, configurer.classifyApplicationPage(applicationPage));
+        TestCase.assertTrue("classification.contains(masterView)", classification.get(masterType).contains(masterView));
+        TestCase.assertTrue("classification.contains(childView)", classification.get(childType).contains(childView));
+
+        /*
+         * 2. Closing the child view updates the classification
+         */
+        this.close(applicationPage, childView);
+
+        final Map<String, List<? extends PageComponent>> withoutChild = //
+        configurer.classifyApplicationPage(applicationPage);
+
+        TestCase.assertNotSame(classification, withoutChild);
+        TestCase.assertSame(withoutChild, configurer.classifyApplicationPage(applicationPage));
+        TestCase.assertFalse("withoutChild.contains(childView)", withoutChild.get(childType).contains(childView));
+        TestCase.assertTrue("withoutChild.contains(masterView)", withoutChild.get(masterType).contains(masterView));
+
+        /*
+         * 3. Closing the master view invalidates the classification, that is rebuilt on demand
+         */
+        this.close(applicationPage, masterView);
+
+        final Map<String, List<? extends PageComponent>> withoutMaster = //
+        configurer.classifyApplicationPage(applicationPage);
+
+        TestCase.assertSame(withoutMaster, configurer.classifyApplicationPage(applicationPage));
+        TestCase.assertTrue("withoutMaster.isEmpty()", withoutMaster.get(masterType).isEmpty());
+
+        /*
+         * 4. Once the page gets empty the classification is discarded, so the page can be collected
+         */
+        for (final PageComponent pageComponent : new ArrayList<PageComponent>(applicationPage.getPageComponents())) {
+            this.close(applicationPage, pageComponent);
+        }
+
+        TestCase.assertTrue("applicationPage.getPageComponents()", applicationPage.getPageComponents().isEmpty());
+        TestCase.assertFalse("hasClassification", configurer.hasClassification(applicationPage));
+    }
+
+    /**
+     * Tests configuring a page with an up to date classification model keeps it and associates page components in a
+     * single pass, whatever the position of the master view, and that page component events increase the
+     * modification count.
+     */
+    @Test
+    public void testConfigureWithCachedClassification() {
+
+        this.testFullPageReverse();
+
+        final ApplicationPage applicationPage = this.getActivePage();
+        final DefaultApplicationPageConfigurer<Object> configurer = new DefaultApplicationPageConfigurer<Object>();
+
+        /*
+         * 1. The first configuration builds the classification model
+         */
+        configurer.configureApplicationPage(applicationPage);
+
+        final Map<String, List<? extends PageComponent>> classification = //
+        configurer.classifyApplicationPage(applicationPage);
+
+        TestCase.assertEquals(Long.valueOf(0L), configurer.getModificationCount(applicationPage));
+        this.assertViewDescriptors(Boolean.FALSE, Boolean.FALSE, Boolean.FALSE, Boolean.FALSE);
+
+        /*
+         * 2. Following configurations reuse it
+         */
+        configurer.configureApplicationPage(applicationPage);
+        configurer.configureApplicationPage(applicationPage);
+
+        TestCase.assertSame(classification, configurer.classifyApplicationPage(applicationPage));
+        this.assertViewDescriptors(Boolean.FALSE, Boolean.FALSE, Boolean.FALSE, Boolean.FALSE);
+
+        /*
+         * 3. Every page component event is counted
+         */
+        this.close(applicationPage, this.getSearchView());
+
+        TestCase.assertEquals(Long.valueOf(1L), configurer.getModificationCount(applicationPage));
+        TestCase.assertNotSame(classification, configurer.classifyApplicationPage(applicationPage));
+        TestCase.assertTrue("classification.isEmpty()", //
+                configurer.classifyApplicationPage(applicationPage).get(BbViewType.SEARCH_TYPE.name()).isEmpty());
+    }
+
+    /**
+     * Closes a page component within the event dispatcher thread.
+     * 
+     * @param applicationPage
+     *            the application page.
+     * @param pageComponent
+     *            the page component.
+     */
+    private void close(final ApplicationPage applicationPage, final PageComponent pageComponent) {
+
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                applicationPage.close(pageComponent);
+            }
+        });
+    }
+
     /**
      * Tests the correct behaviour of opening after closing a pae component.
      * 
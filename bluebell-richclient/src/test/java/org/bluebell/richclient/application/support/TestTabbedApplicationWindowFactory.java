@@ -21,12 +21,19 @@
  */
 package org.bluebell.richclient.application.support;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.bluebell.richclient.application.ApplicationWindowException;
 import org.bluebell.richclient.application.support.TabbedApplicationWindowFactory.TabbedApplicationWindow;
+import org.bluebell.richclient.form.AbstractBbSearchForm;
+import org.bluebell.richclient.form.AbstractBbTableMasterForm;
+import org.bluebell.richclient.form.FormUtils;
+import org.bluebell.richclient.samples.simple.bean.Person;
 import org.bluebell.richclient.test.AbstractBbSamplesTests;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +41,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.richclient.application.Application;
 import org.springframework.richclient.application.ApplicationPage;
 import org.springframework.richclient.application.ApplicationWindow;
+import org.springframework.richclient.application.PageComponent;
 import org.springframework.richclient.application.PageDescriptor;
 import org.springframework.richclient.application.WindowManager;
 import org.springframework.richclient.application.support.AbstractPageDescriptor;
@@ -41,6 +49,7 @@ import org.springframework.richclient.application.support.EmptyPageDescriptor;
 import org.springframework.richclient.command.ActionCommand;
 import org.springframework.richclient.command.CommandManager;
 import org.springframework.richclient.command.support.NewWindowCommand;
+import org.springframework.richclient.form.Form;
 import org.springframework.test.context.ContextConfiguration;
 
 /**
@@ -51,6 +60,11 @@ import org.springframework.test.context.ContextConfiguration;
 @ContextConfiguration
 public class TestTabbedApplicationWindowFactory extends AbstractBbSamplesTests {
 
+    /**
+     * The number of persons shown by hibernated pages.
+     */
+    private static final int PERSON_COUNT = 4;
+
     /**
      * A page descriptor useful for testing.
      */
@@ -69,6 +83,12 @@ public class TestTabbedApplicationWindowFactory extends AbstractBbSamplesTests {
     @Autowired
     private PageDescriptor pageDescriptor3;
 
+    /**
+     * A page descriptor with master and search forms useful for testing hibernation.
+     */
+    @Autowired
+    private PageDescriptor hibernationPageDescriptor;
+
     /**
      * The new window command.
      */
@@ -85,6 +105,7 @@ public class TestTabbedApplicationWindowFactory extends AbstractBbSamplesTests {
         TestCase.assertNotNull("pageDescriptor1", this.pageDescriptor1);
         TestCase.assertNotNull("pageDescriptor2", this.pageDescriptor2);
         TestCase.assertNotNull("pageDescriptor3", this.pageDescriptor3);
+        TestCase.assertNotNull("hibernationPageDescriptor", this.hibernationPageDescriptor);
     }
 
     /**
@@ -150,6 +171,84 @@ public class TestTabbedApplicationWindowFactory extends AbstractBbSamplesTests {
         TestCase.assertTrue(emptyPage == activePage);
     }
 
+    /**
+     * Tests the correct behaviour of page hibernation.
+     * <p>
+     * Restored pages show the same entities, even those not coming from a search, with the same selection and search
+     * params. Dirty pages never hibernate.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testHibernation() {
+
+        final TabbedApplicationWindow window = (TabbedApplicationWindow) this.getActiveWindow();
+
+        final ApplicationPage page1 = this.showPage(this.pageDescriptor1);
+        final ApplicationPage page2 = this.showPage(this.pageDescriptor2);
+        final int index = window.getIndexOfPage(page1);
+
+        // The active page never hibernates
+        TestCase.assertFalse(window.hibernatePage(page2));
+
+        // Hibernate pd1 and ensure its tab remains
+        TestCase.assertTrue(window.hibernatePage(page1));
+        TestCase.assertTrue(window.isHibernatedAt(index));
+        TestCase.assertFalse(window.getPages().contains(page1));
+
+        // Show pd1 again and ensure a new page takes the same tab
+        final ApplicationPage newPage1 = this.showPage(this.pageDescriptor1);
+        TestCase.assertTrue(page1 != newPage1);
+        TestCase.assertEquals(this.pageDescriptor1.getId(), newPage1.getId());
+        TestCase.assertEquals(index, window.getIndexOfPage(newPage1));
+        TestCase.assertFalse(window.isHibernatedAt(index));
+
+        // Show persons programmatically, attach some more and select a few of them
+        final ApplicationPage page3 = this.showPage(this.hibernationPageDescriptor);
+        final AbstractBbTableMasterForm<Person> masterForm = //
+        TestTabbedApplicationWindowFactory.getBackingForm(page3, AbstractBbTableMasterForm.class);
+        final AbstractBbSearchForm<Person, Person> searchForm = //
+        TestTabbedApplicationWindowFactory.getBackingForm(page3, AbstractBbSearchForm.class);
+        final int index3 = window.getIndexOfPage(page3);
+
+        final List<Person> persons = Person.createPersons(TestTabbedApplicationWindowFactory.PERSON_COUNT);
+        final List<Person> selection = Arrays.asList(persons.get(1), persons.get(persons.size() - 1));
+        final Person searchParams = Person.createPerson("searchParams");
+        final Person lastSearchParams = Person.createPerson("lastSearchParams");
+        masterForm.showEntities(persons.subList(0, 2));
+        masterForm.showEntities(persons.subList(2, persons.size()), Boolean.TRUE);
+        masterForm.changeSelection(selection);
+        searchForm.setFormObject(searchParams);
+        searchForm.restoreLastSearch(lastSearchParams);
+
+        // Hibernate pd3 and show it again, the new page is rebuilt from the snapshot
+        this.showPage(this.pageDescriptor1);
+        TestCase.assertTrue(window.hibernatePage(page3));
+        TestCase.assertTrue(window.isHibernatedAt(index3));
+
+        final ApplicationPage newPage3 = this.showPage(this.hibernationPageDescriptor);
+        final AbstractBbTableMasterForm<Person> newMasterForm = //
+        TestTabbedApplicationWindowFactory.getBackingForm(newPage3, AbstractBbTableMasterForm.class);
+        final AbstractBbSearchForm<Person, Person> newSearchForm = //
+        TestTabbedApplicationWindowFactory.getBackingForm(newPage3, AbstractBbSearchForm.class);
+        TestCase.assertTrue(page3 != newPage3);
+        TestCase.assertTrue(masterForm != newMasterForm);
+        TestCase.assertEquals(persons, new ArrayList<Person>(newMasterForm.getMasterEventList()));
+        TestCase.assertEquals(new HashSet<Person>(selection), new HashSet<Person>(newMasterForm.getSelection()));
+        TestCase.assertEquals(searchParams, newSearchForm.getFormObject());
+        TestCase.assertEquals(lastSearchParams, newSearchForm.getLastSearchParams());
+
+        // Dirty pages never hibernate
+        newSearchForm.getFormModel().getValueModel("name").setValue("dirty");
+        TestCase.assertTrue(newSearchForm.isDirty());
+        this.showPage(this.pageDescriptor1);
+        TestCase.assertFalse(window.hibernatePage(newPage3));
+        TestCase.assertFalse(window.isHibernatedAt(window.getIndexOfPage(newPage3)));
+        TestCase.assertTrue(window.getPages().contains(newPage3));
+
+        newSearchForm.getFormModel().revert();
+        TestCase.assertTrue(window.hibernatePage(newPage3));
+    }
+
     /**
      * Tests the correct behaviour of opening a new window when the active page is empty.
      */
@@ -396,6 +495,29 @@ public class TestTabbedApplicationWindowFactory extends AbstractBbSamplesTests {
         }
     }
 
+    /**
+     * Gets the first form of a page of a given type.
+     * 
+     * @param <Q>
+     *            the type of the form.
+     * @param page
+     *            the page.
+     * @param formClass
+     *            the type of the form.
+     * @return the form or <code>null</code> if not found.
+     */
+    private static <Q extends Form> Q getBackingForm(ApplicationPage page, Class<Q> formClass) {
+
+        for (final PageComponent pageComponent : page.getPageComponents()) {
+            final Form form = FormUtils.getBackingForm(pageComponent);
+            if (formClass.isInstance(form)) {
+                return formClass.cast(form);
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Shows a page given its descriptor.
      * 
@@ -574,6 +574,59 @@ public class TestAbstractBbTableMasterForm extends AbstractBbSamplesTests {
         this.doTestRequestUserConfirmation(masterForm, Boolean.TRUE, actionCommand, ++requestCount, newSelection);
     }
 
+    /**
+     * Tests the correct behaviour of memory budget mode: rows hold projections, evicted entities are fetched or never
+     * edited and rows no longer selected are projected again once they exceed the cache capacity.
+     */
+    @Test
+    public void testMemoryBudget() {
+
+        final MockPersonMasterForm masterForm = (MockPersonMasterForm) FormUtils.getBackingForm(this.getMasterView());
+        final List<Person> persons = TestAbstractBbTableMasterForm.PERSONS_1;
+        final String idPropertyName = masterForm.getIdPropertyName();
+        final int pos03 = 3;
+
+        // A budget smaller than any graph lets the cache hold just one
+        masterForm.setIdPropertyName("name");
+        masterForm.setMemoryBudget(1L);
+        try {
+            // Rows hold projections
+            masterForm.showEntities(persons);
+            for (final Person person : persons) {
+                TestCase.assertEquals(person, this.getRow(masterForm, person));
+                TestCase.assertNotSame(person, this.getRow(masterForm, person));
+            }
+
+            // The last shown graph is cached, so it gets refreshed and edited
+            masterForm.changeSelection(Arrays.asList(persons.get(pos03)));
+            TestCase.assertEquals(masterForm.getMasterEventList().indexOf(persons.get(pos03)), //
+                    masterForm.getDetailForm().getSelectedIndex());
+            TestCase.assertNotNull(this.getRow(masterForm, persons.get(pos03)).getAddress());
+
+            // Evicted graphs cannot be fetched, so projections are neither refreshed nor edited
+            masterForm.changeSelection(Arrays.asList(persons.get(0)));
+            TestCase.assertEquals(-1, masterForm.getDetailForm().getSelectedIndex());
+            TestCase.assertNull(this.getRow(masterForm, persons.get(0)).getAddress());
+
+            // Evicted graphs are fetched by id
+            masterForm.setFetch(Boolean.TRUE);
+            masterForm.changeSelection(Arrays.asList(persons.get(1)));
+            TestCase.assertEquals(masterForm.getMasterEventList().indexOf(persons.get(1)), //
+                    masterForm.getDetailForm().getSelectedIndex());
+            TestCase.assertNotNull(this.getRow(masterForm, persons.get(1)).getAddress());
+
+            // Exceeding the cache capacity projects again the rows no longer selected
+            TestCase.assertNull(this.getRow(masterForm, persons.get(pos03)).getAddress());
+
+            TestCase.assertTrue(masterForm.estimateHeapUsage() > 0);
+        } finally {
+            masterForm.changeSelection(ListUtils.EMPTY_LIST);
+            masterForm.setFetch(Boolean.FALSE);
+            masterForm.setMemoryBudget(null);
+            masterForm.setIdPropertyName(idPropertyName);
+        }
+    }
+
     /**
      * Method invoked at startup.
      * <p/>
@@ -605,6 +658,22 @@ public class TestAbstractBbTableMasterForm extends AbstractBbSamplesTests {
         return this.getInitializedPage().getView(TestAbstractBbTableMasterForm.MOCK_MASTER_VIEW_DESCRIPTOR_BEAN_NAME);
     }
 
+    /**
+     * Gets the row of the master event list showing a person.
+     * 
+     * @param masterForm
+     *            the master form.
+     * @param person
+     *            the person.
+     * @return the row entity.
+     */
+    private Person getRow(AbstractBbTableMasterForm<Person> masterForm, Person person) {
+
+        final List<Person> masterEventList = masterForm.getMasterEventList();
+
+        return masterEventList.get(masterEventList.indexOf(person));
+    }
+
     /**
      * Checks view and selection are as expected.
      * 
@@ -730,6 +799,11 @@ public class TestAbstractBbTableMasterForm extends AbstractBbSamplesTests {
          */
         private int count = 0;
 
+        /**
+         * Whether to fetch entities evicted in memory budget mode.
+         */
+        private Boolean fetch = Boolean.FALSE;
+
         /**
          * Default constructor.
          */
@@ -761,6 +835,28 @@ public class TestAbstractBbTableMasterForm extends AbstractBbSamplesTests {
             this.confirm = confirm;
         }
 
+        /**
+         * Sets whether to fetch entities evicted in memory budget mode.
+         * 
+         * @param fetch
+         *            whether to fetch.
+         */
+        public void setFetch(Boolean fetch) {
+
+            Assert.notNull(fetch, "fetch");
+
+            this.fetch = fetch;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Person doFetch(Object id) {
+
+            return this.fetch ? new Person((String) id) : null;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -45,6 +45,7 @@ import org.bluebell.richclient.form.TestBbDispatcherForm.CountersListener.Counte
 import org.bluebell.richclient.form.builder.support.DirtyTrackingUtils;
 import org.bluebell.richclient.samples.simple.bean.Person;
 import org.bluebell.richclient.samples.simple.form.PersonMasterForm;
+import org.bluebell.richclient.samples.simple.service.PersonService;
 import org.bluebell.richclient.swing.util.SwingUtils;
 import org.bluebell.richclient.table.support.TableUtils;
 import org.bluebell.richclient.test.AbstractBbSamplesTests;
@@ -52,11 +53,17 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.richclient.application.Application;
 import org.springframework.richclient.application.PageDescriptor;
+import org.springframework.richclient.application.config.ApplicationLifecycleAdvisor;
+import org.springframework.richclient.exceptionhandling.AbstractRegisterableExceptionHandler;
+import org.springframework.richclient.exceptionhandling.RegisterableExceptionHandler;
 import org.springframework.richclient.form.AbstractForm;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.util.Assert;
 
+import ca.odell.glazedlists.EventList;
+
 /**
  * Tests the correct behaviour of {@link BbDispatcherForm}.
  * 
@@ -324,6 +331,214 @@ public class TestBbDispatcherForm extends AbstractBbSamplesTests {
                 selection, TableUtils.getSelection(masterForm.getMasterTable(), masterForm.getMasterTableModel())));
     }
 
+    /**
+     * Tests batch editing mode: edits are buffered on selection change, restored on selection, saved at once keeping
+     * those that failed and discarded on revert.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testBatchEditing() {
+
+        final PersonMasterForm masterForm = (PersonMasterForm) FormUtils.getBackingForm(this.getMasterView());
+        final BbDispatcherForm<Person> dispatcherForm = masterForm.getDispatcherForm();
+        final AbstractBbChildForm<Person> childForm = FormUtils.getBackingForm(this.getChildView());
+        final PersonService personService = masterForm.getPersonService();
+        final List<Person> entities = TestBbDispatcherForm.PERSONS_1;
+
+        dispatcherForm.setBatchEditing(Boolean.TRUE);
+        try {
+            masterForm.showEntities(entities);
+
+            /*
+             * 1. Edit first entity and select the second one: edits are buffered instead of requesting confirmation
+             */
+            masterForm.changeSelection(entities.subList(0, 1));
+            this.userAction(childForm, "age", "1");
+            final Object firstAge = childForm.getFormModel().getValueModel("age").getValue();
+
+            TestCase.assertTrue("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+
+            masterForm.changeSelection(entities.subList(1, 2));
+
+            TestCase.assertEquals(entities.get(1), dispatcherForm.getFormObject());
+            TestCase.assertFalse("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+            TestCase.assertTrue("dispatcherForm.hasBufferedEdits()", dispatcherForm.hasBufferedEdits());
+            TestCase.assertTrue("hasBufferedEdits(0)", dispatcherForm.hasBufferedEdits(entities.get(0)));
+
+            // Buffered edits keep the form model dirty, so the save command remains enabled
+            TestCase.assertTrue("formModel.isDirty()", dispatcherForm.getFormModel().isDirty());
+            TestCase.assertTrue("commitCommand.isEnabled()", dispatcherForm.getCommitCommand().isEnabled());
+            TestCase.assertTrue("saveCommand.isEnabled()", masterForm.getSaveCommand().isEnabled());
+
+            /*
+             * 2. Edit second entity and select the first one again: its edits are restored
+             */
+            this.userAction(childForm, "age", "2");
+            masterForm.changeSelection(entities.subList(0, 1));
+
+            TestCase.assertEquals(entities.get(0), dispatcherForm.getFormObject());
+            TestCase.assertTrue("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+            TestCase.assertEquals(firstAge, childForm.getFormModel().getValueModel("age").getValue());
+            TestCase.assertFalse("hasBufferedEdits(0)", dispatcherForm.hasBufferedEdits(entities.get(0)));
+            TestCase.assertTrue("hasBufferedEdits(1)", dispatcherForm.hasBufferedEdits(entities.get(1)));
+
+            /*
+             * 3. Save everything while second entity fails: first one is replaced, second one keeps its edits
+             */
+            masterForm.setPersonService(//
+                    new StubPersonService(personService, null).fail(entities.get(1).getName(), null));
+            SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    dispatcherForm.commitAll();
+                }
+            });
+
+            final EventList<Person> eventList = masterForm.getMasterEventList();
+            final Person saved = eventList.get(eventList.indexOf(entities.get(0)));
+            TestCase.assertTrue("saved.getAddress()", saved.getAddress().endsWith("doUpdate"));
+            TestCase.assertEquals(firstAge, saved.getAge());
+            TestCase.assertSame(saved, dispatcherForm.getFormObject());
+            TestCase.assertFalse("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+            TestCase.assertFalse("hasBufferedEdits(0)", dispatcherForm.hasBufferedEdits(entities.get(0)));
+            TestCase.assertTrue("hasBufferedEdits(1)", dispatcherForm.hasBufferedEdits(entities.get(1)));
+            TestCase.assertTrue("saveCommand.isEnabled()", masterForm.getSaveCommand().isEnabled());
+
+            final Person failed = eventList.get(eventList.indexOf(entities.get(1)));
+            TestCase.assertFalse("failed.getAddress()", failed.getAddress().endsWith("doUpdate"));
+
+            /*
+             * 4. Revert everything: no edits remain
+             */
+            masterForm.setPersonService(personService);
+            SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    dispatcherForm.revertAll();
+                }
+            });
+
+            TestCase.assertFalse("dispatcherForm.hasBufferedEdits()", dispatcherForm.hasBufferedEdits());
+            TestCase.assertFalse("formModel.isDirty()", dispatcherForm.getFormModel().isDirty());
+            TestCase.assertFalse("saveCommand.isEnabled()", masterForm.getSaveCommand().isEnabled());
+        } finally {
+            masterForm.setPersonService(personService);
+            dispatcherForm.setBatchEditing(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Tests background saving: selection and shown entities cannot change meanwhile, managed entity is merged on
+     * success and edits are restored when save returns <code>null</code> or fails, even when inserting.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAsyncCommit() {
+
+        final PersonMasterForm masterForm = (PersonMasterForm) FormUtils.getBackingForm(this.getMasterView());
+        final BbDispatcherForm<Person> dispatcherForm = masterForm.getDispatcherForm();
+        final AbstractBbChildForm<Person> childForm = FormUtils.getBackingForm(this.getChildView());
+        final PersonService personService = masterForm.getPersonService();
+        final ApplicationLifecycleAdvisor lifecycleAdvisor = Application.instance().getLifecycleAdvisor();
+        final RegisterableExceptionHandler exceptionHandler = lifecycleAdvisor.getRegisterableExceptionHandler();
+        final RecordingExceptionHandler recordingExceptionHandler = new RecordingExceptionHandler();
+        final List<Person> entities = TestBbDispatcherForm.PERSONS_1;
+        final IllegalStateException exception = new IllegalStateException("Save failed");
+        final String newName = "JAF";
+        final int pos2 = 2;
+        final int pos3 = 3;
+
+        // Background commands run synchronously, so these changes are requested while the save is in progress
+        final List<Boolean> rejections = new ArrayList<Boolean>();
+        final Runnable whileSaving = new Runnable() {
+
+            @Override
+            public void run() {
+
+                rejections.add(dispatcherForm.isSaving() && !dispatcherForm.isEnabled());
+                rejections.add(!masterForm.showEntities(TestBbDispatcherForm.PERSONS_2, Boolean.FALSE, Boolean.TRUE));
+                masterForm.changeSelection(entities.subList(pos3, pos3 + 1));
+            }
+        };
+
+        dispatcherForm.setAsyncCommit(Boolean.TRUE);
+        lifecycleAdvisor.setRegisterableExceptionHandler(recordingExceptionHandler);
+        masterForm.setPersonService(new StubPersonService(personService, whileSaving) //
+                .fail(entities.get(1).getName(), null) //
+                .fail(entities.get(pos2).getName(), exception) //
+                .fail(newName, null));
+        try {
+            masterForm.showEntities(entities);
+            final EventList<Person> eventList = masterForm.getMasterEventList();
+
+            /*
+             * 1. Save succeeds: managed entity is merged into the row being edited
+             */
+            masterForm.changeSelection(entities.subList(0, 1));
+            this.userAction(childForm, "age", "1");
+            final Object firstAge = childForm.getFormModel().getValueModel("age").getValue();
+            SwingUtils.runInEventDispatcherThread(masterForm.getSaveCommand());
+
+            TestCase.assertEquals(Arrays.asList(Boolean.TRUE, Boolean.TRUE), rejections);
+            TestCase.assertTrue(ListUtils.isEqualList(entities, eventList));
+            final Person saved = eventList.get(0);
+            TestCase.assertTrue("saved.getAddress()", saved.getAddress().endsWith("doUpdate"));
+            TestCase.assertEquals(firstAge, saved.getAge());
+            TestCase.assertSame(saved, dispatcherForm.getFormObject());
+            TestBbDispatcherForm.assertSaved(dispatcherForm, Boolean.FALSE);
+
+            /*
+             * 2. Save returns null: entity and edits are restored
+             */
+            masterForm.changeSelection(entities.subList(1, 2));
+            this.userAction(childForm, "age", "2");
+            final Object secondAge = childForm.getFormModel().getValueModel("age").getValue();
+            SwingUtils.runInEventDispatcherThread(masterForm.getSaveCommand());
+
+            TestCase.assertEquals(entities.get(1), dispatcherForm.getFormObject());
+            TestCase.assertEquals(secondAge, childForm.getFormModel().getValueModel("age").getValue());
+            TestCase.assertFalse("secondAge", secondAge.equals(eventList.get(1).getAge()));
+            TestBbDispatcherForm.assertSaved(dispatcherForm, Boolean.TRUE);
+            this.revert(dispatcherForm);
+
+            /*
+             * 3. Save fails: exception is handled and entity and edits are restored
+             */
+            masterForm.changeSelection(entities.subList(pos2, pos2 + 1));
+            this.userAction(childForm, "age", "3");
+            final Object thirdAge = childForm.getFormModel().getValueModel("age").getValue();
+            SwingUtils.runInEventDispatcherThread(masterForm.getSaveCommand());
+
+            TestCase.assertEquals(Arrays.asList(exception), recordingExceptionHandler.getExceptions());
+            TestCase.assertEquals(entities.get(pos2), dispatcherForm.getFormObject());
+            TestCase.assertEquals(thirdAge, childForm.getFormModel().getValueModel("age").getValue());
+            TestCase.assertFalse("thirdAge", thirdAge.equals(eventList.get(pos2).getAge()));
+            TestBbDispatcherForm.assertSaved(dispatcherForm, Boolean.TRUE);
+            this.revert(dispatcherForm);
+
+            /*
+             * 4. Insert returns null: form keeps editing a new object with the same edits
+             */
+            SwingUtils.runInEventDispatcherThread(masterForm.getNewFormObjectCommand());
+            this.userAction(childForm, "name", newName);
+            SwingUtils.runInEventDispatcherThread(masterForm.getSaveCommand());
+
+            TestCase.assertTrue("dispatcherForm.isEditingNewFormObject()", dispatcherForm.isEditingNewFormObject());
+            TestCase.assertEquals(newName, childForm.getFormModel().getValueModel("name").getValue());
+            TestCase.assertFalse("eventList.contains(newName)", eventList.contains(new Person(newName)));
+            TestBbDispatcherForm.assertSaved(dispatcherForm, Boolean.TRUE);
+            this.revert(dispatcherForm);
+        } finally {
+            masterForm.setPersonService(personService);
+            lifecycleAdvisor.setRegisterableExceptionHandler(exceptionHandler);
+            dispatcherForm.setAsyncCommit(Boolean.FALSE);
+        }
+    }
+
     /**
      * Method invoked at startup.
      * <p/>
@@ -345,6 +560,7 @@ public class TestBbDispatcherForm extends AbstractBbSamplesTests {
         final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
         final BbDispatcherForm<Person> dispatcherForm = masterForm.getDispatcherForm();
 
+        dispatcherForm.discardBufferedEdits();
         DirtyTrackingUtils.clearDirty(dispatcherForm.getFormModel());
         masterForm.showEntities(ListUtils.EMPTY_LIST);
     }
@@ -593,6 +809,40 @@ public class TestBbDispatcherForm extends AbstractBbSamplesTests {
         TestBbDispatcherForm.assertDispatcherFormPropagatesChanges(dispatcherForm);
     }
 
+    /**
+     * Reverts the dispatcher form within the event dispatcher thread.
+     * 
+     * @param dispatcherForm
+     *            the dispatcher form.
+     */
+    private void revert(final BbDispatcherForm<Person> dispatcherForm) {
+
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                dispatcherForm.revert();
+            }
+        });
+    }
+
+    /**
+     * Ensures a background save has finished and the dispatcher form is enabled again.
+     * 
+     * @param dispatcherForm
+     *            the dispatcher form.
+     * @param dirty
+     *            whether edits should remain pending.
+     */
+    private static void assertSaved(BbDispatcherForm<Person> dispatcherForm, Boolean dirty) {
+
+        TestCase.assertFalse("dispatcherForm.isSaving()", dispatcherForm.isSaving());
+        TestCase.assertTrue("dispatcherForm.isEnabled()", dispatcherForm.isEnabled());
+        TestCase.assertEquals(dirty, Boolean.valueOf(dispatcherForm.isDirty()));
+        TestBbDispatcherForm.assertDispatcherFormPropagatesChanges(dispatcherForm);
+    }
+
     /**
      * Ensures changes are propagated from dispatcher form to every child form.
      * 
@@ -827,4 +1077,155 @@ public class TestBbDispatcherForm extends AbstractBbSamplesTests {
             this.increment(this.getCounters(), counterName);
         }
     }
+
+    /**
+     * A person service whose inserts and updates fail for the given persons, running an action before every save.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class StubPersonService implements PersonService {
+
+        /**
+         * The service to delegate to.
+         */
+        private final PersonService personService;
+
+        /**
+         * The action to run before every save, may be <code>null</code>.
+         */
+        private final Runnable beforeSave;
+
+        /**
+         * The exceptions to be thrown per person name, <code>null</code> values make saves return <code>null</code>.
+         */
+        private final Map<String, RuntimeException> failures = new HashMap<String, RuntimeException>();
+
+        /**
+         * Creates the service.
+         * 
+         * @param personService
+         *            the service to delegate to.
+         * @param beforeSave
+         *            the action to run before every save, may be <code>null</code>.
+         */
+        public StubPersonService(PersonService personService, Runnable beforeSave) {
+
+            this.personService = personService;
+            this.beforeSave = beforeSave;
+        }
+
+        /**
+         * Makes saves fail for a given person.
+         * 
+         * @param name
+         *            the name of the person.
+         * @param exception
+         *            the exception to be thrown, <code>null</code> to return <code>null</code> instead.
+         * @return <code>this</code>.
+         */
+        public StubPersonService fail(String name, RuntimeException exception) {
+
+            this.failures.put(name, exception);
+
+            return this;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Person insertPerson(Person person) {
+
+            return this.canSave(person) ? this.personService.insertPerson(person) : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Person updatePerson(Person person) {
+
+            return this.canSave(person) ? this.personService.updatePerson(person) : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Person refreshPerson(Person person) {
+
+            return this.personService.refreshPerson(person);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Person deletePerson(Person person) {
+
+            return this.personService.deletePerson(person);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<Person> searchPersons(Person params) {
+
+            return this.personService.searchPersons(params);
+        }
+
+        /**
+         * Runs the action before saving and checks whether a person can be saved.
+         * 
+         * @param person
+         *            the person.
+         * @return <code>true</code> if success and <code>false</code> if save must return <code>null</code>.
+         */
+        private Boolean canSave(Person person) {
+
+            if (this.beforeSave != null) {
+                this.beforeSave.run();
+            }
+
+            final RuntimeException exception = this.failures.get(person.getName());
+            if (exception != null) {
+                throw exception;
+            }
+
+            return !this.failures.containsKey(person.getName());
+        }
+    }
+
+    /**
+     * An exception handler that records the handled exceptions.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class RecordingExceptionHandler extends AbstractRegisterableExceptionHandler {
+
+        /**
+         * The handled exceptions.
+         */
+        private final List<Throwable> exceptions = new ArrayList<Throwable>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+
+            this.exceptions.add(e);
+        }
+
+        /**
+         * Gets the handled exceptions.
+         * 
+         * @return the exceptions.
+         */
+        public List<Throwable> getExceptions() {
+
+            return this.exceptions;
+        }
+    }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.bluebell.richclient.form.builder.support.DirtyTrackingUtils;
+import org.bluebell.richclient.form.support.InMemoryEntityChangeFeed;
+import org.bluebell.richclient.samples.simple.bean.Person;
+import org.bluebell.richclient.swing.util.SwingUtils;
+import org.bluebell.richclient.test.AbstractBbSamplesTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.richclient.application.PageDescriptor;
+import org.springframework.test.context.ContextConfiguration;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+
+/**
+ * Tests the correct behaviour of {@link EntityChangeMerger} through the entity change feed of a master form.
+ *
+ * @see AbstractBbMasterForm#setEntityChangeFeed(EntityChangeFeed)
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+@ContextConfiguration
+public class TestEntityChangeMerger extends AbstractBbSamplesTests {
+
+    /**
+     * The id property of persons.
+     */
+    private static final String ID_PROPERTY_NAME = "name";
+
+    /**
+     * The number of persons shown.
+     */
+    private static final int SIZE = 10;
+
+    /**
+     * The page descriptor used for testing.
+     */
+    @Autowired
+    private PageDescriptor pageDescriptor;
+
+    /**
+     * The entity change feed the master form is subscribed to.
+     */
+    private InMemoryEntityChangeFeed<Person> entityChangeFeed;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Test
+    public void testDependencyInjection() {
+
+        TestCase.assertNotNull("pageDescriptor", this.pageDescriptor);
+    }
+
+    /**
+     * Tests updates, insertions and deletions are merged into the master event list as a single list event.
+     */
+    @Test
+    public void testMerge() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final List<Person> persons = Person.createPersons(TestEntityChangeMerger.SIZE);
+        masterForm.showEntities(persons);
+
+        final EventList<Person> eventList = masterForm.getMasterEventList();
+        final AtomicInteger listEvents = new AtomicInteger();
+        final ListEventListener<Person> listener = new ListEventListener<Person>() {
+
+            @Override
+            public void listChanged(ListEvent<Person> listChanges) {
+
+                listEvents.incrementAndGet();
+            }
+        };
+        eventList.addListEventListener(listener);
+        try {
+            final Person updated = Person.createPerson(persons.get(1).getName());
+            final Person inserted = Person.createPerson();
+            this.entityChangeFeed.publish(Arrays.asList(//
+                    EntityChange.<Person> delete(persons.get(0).getName()), //
+                    EntityChange.upsert(updated.getName(), updated), //
+                    EntityChange.<Person> delete(persons.get(TestEntityChangeMerger.SIZE - 1).getName()), //
+                    EntityChange.upsert(inserted.getName(), inserted)));
+            this.waitForMerge();
+
+            final List<Person> expected = new ArrayList<Person>(persons.subList(1, TestEntityChangeMerger.SIZE - 1));
+            expected.add(inserted);
+            TestCase.assertEquals(expected, eventList);
+            TestCase.assertSame(updated, eventList.get(0));
+            TestCase.assertSame(inserted, eventList.get(eventList.size() - 1));
+            TestCase.assertEquals(1, listEvents.get());
+
+            // The index follows, so that later changes hit the right positions
+            final Person reupdated = Person.createPerson(inserted.getName());
+            this.entityChangeFeed.publishUpsert(reupdated.getName(), reupdated);
+            this.waitForMerge();
+
+            TestCase.assertEquals(expected.size(), eventList.size());
+            TestCase.assertSame(reupdated, eventList.get(eventList.size() - 1));
+        } finally {
+            eventList.removeListEventListener(listener);
+        }
+    }
+
+    /**
+     * Tests changes over the same entity are coalesced, so that only the last one is applied.
+     */
+    @Test
+    public void testCoalescing() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final List<Person> persons = Person.createPersons(TestEntityChangeMerger.SIZE);
+        masterForm.showEntities(persons);
+
+        final String id = persons.get(2).getName();
+        final Person first = Person.createPerson(id);
+        final Person last = Person.createPerson(id);
+        final Person created = Person.createPerson();
+
+        this.entityChangeFeed.publish(Arrays.asList(//
+                EntityChange.upsert(id, first), //
+                EntityChange.upsert(id, last), //
+                EntityChange.upsert(created.getName(), created), //
+                EntityChange.<Person> delete(created.getName())));
+        this.waitForMerge();
+
+        final EventList<Person> eventList = masterForm.getMasterEventList();
+        TestCase.assertEquals(persons, eventList);
+        TestCase.assertSame(last, eventList.get(2));
+    }
+
+    /**
+     * Tests a change over the entity being edited with unsaved edits is retained as a conflict and that resolving it
+     * applies the change discarding those edits.
+     */
+    @Test
+    public void testConflictWithDirtyForm() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final BbDispatcherForm<Person> dispatcherForm = masterForm.getDispatcherForm();
+        final AbstractBbChildForm<Person> childForm = FormUtils.getBackingForm(this.getChildView());
+        final List<Person> persons = Person.createPersons(TestEntityChangeMerger.SIZE);
+        masterForm.showEntities(persons);
+
+        masterForm.changeSelection(persons.subList(0, 1));
+        this.userAction(childForm, "age", "1");
+        TestCase.assertTrue("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+
+        // Edited entity is kept, whereas other changes are applied
+        final String id = persons.get(0).getName();
+        final Person changed = Person.createPerson(id);
+        final Person other = Person.createPerson(persons.get(1).getName());
+        this.entityChangeFeed.publish(Arrays.asList(//
+                EntityChange.upsert(id, changed), EntityChange.upsert(other.getName(), other)));
+        this.waitForMerge();
+
+        final EventList<Person> eventList = masterForm.getMasterEventList();
+        TestCase.assertEquals(Collections.singletonList(id), masterForm.getEntityChangeConflicts());
+        TestCase.assertSame(persons.get(0), eventList.get(0));
+        TestCase.assertSame(other, eventList.get(1));
+        TestCase.assertTrue("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+
+        // Resolving conflicts discards user edits
+        this.resolveEntityChangeConflicts(masterForm);
+
+        TestCase.assertTrue(masterForm.getEntityChangeConflicts().isEmpty());
+        TestCase.assertSame(changed, eventList.get(0));
+        TestCase.assertSame(changed, dispatcherForm.getFormObject());
+        TestCase.assertFalse("dispatcherForm.isDirty()", dispatcherForm.isDirty());
+    }
+
+    /**
+     * Tests a change over an entity with edits buffered in batch editing mode is retained as a conflict and that
+     * resolving it applies the change discarding those edits.
+     */
+    @Test
+    public void testConflictWithBufferedEdits() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final BbDispatcherForm<Person> dispatcherForm = masterForm.getDispatcherForm();
+        final AbstractBbChildForm<Person> childForm = FormUtils.getBackingForm(this.getChildView());
+        final List<Person> persons = Person.createPersons(TestEntityChangeMerger.SIZE);
+
+        dispatcherForm.setBatchEditing(Boolean.TRUE);
+        try {
+            masterForm.showEntities(persons);
+
+            // Buffer the edits over the first entity
+            masterForm.changeSelection(persons.subList(0, 1));
+            this.userAction(childForm, "age", "1");
+            masterForm.changeSelection(persons.subList(1, 2));
+            TestCase.assertTrue("hasBufferedEdits(0)", dispatcherForm.hasBufferedEdits(persons.get(0)));
+
+            final String id = persons.get(0).getName();
+            final Person changed = Person.createPerson(id);
+            this.entityChangeFeed.publishUpsert(id, changed);
+            this.waitForMerge();
+
+            final EventList<Person> eventList = masterForm.getMasterEventList();
+            TestCase.assertEquals(Collections.singletonList(id), masterForm.getEntityChangeConflicts());
+            TestCase.assertSame(persons.get(0), eventList.get(0));
+            TestCase.assertTrue("hasBufferedEdits(0)", dispatcherForm.hasBufferedEdits(persons.get(0)));
+
+            // Resolving conflicts discards buffered edits
+            this.resolveEntityChangeConflicts(masterForm);
+
+            TestCase.assertTrue(masterForm.getEntityChangeConflicts().isEmpty());
+            TestCase.assertSame(changed, eventList.get(0));
+            TestCase.assertFalse("dispatcherForm.hasBufferedEdits()", dispatcherForm.hasBufferedEdits());
+        } finally {
+            dispatcherForm.setBatchEditing(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Method invoked at startup.
+     * <p/>
+     * Initializes test cases and subscribes the master form to an entity change feed.
+     */
+    @Before
+    public void startup() {
+
+        this.initializeVariables(this.pageDescriptor);
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        this.entityChangeFeed = new InMemoryEntityChangeFeed<Person>();
+        masterForm.setIdPropertyName(TestEntityChangeMerger.ID_PROPERTY_NAME);
+        masterForm.setEntityChangeFeed(this.entityChangeFeed);
+    }
+
+    /**
+     * Unsubscribes the master form and cleans master event list after every test execution.
+     */
+    @After
+    public void cleanMasterEventList() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final BbDispatcherForm<Person> dispatcherForm = masterForm.getDispatcherForm();
+
+        masterForm.setEntityChangeFeed(null);
+        masterForm.setIdPropertyName(AbstractBbMasterForm.DEFAULT_ID_PROPERTY_NAME);
+        dispatcherForm.discardBufferedEdits();
+        DirtyTrackingUtils.clearDirty(dispatcherForm.getFormModel());
+        masterForm.showEntities(Collections.<Person> emptyList());
+    }
+
+    /**
+     * Waits until the changes published so far are merged.
+     */
+    private void waitForMerge() {
+
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                // Nothing to do, just waiting for the merge queued before
+            }
+        });
+    }
+
+    /**
+     * Resolves entity change conflicts from the event dispatch thread.
+     *
+     * @param masterForm
+     *            the master form.
+     */
+    private void resolveEntityChangeConflicts(final AbstractBbMasterForm<Person> masterForm) {
+
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                masterForm.resolveEntityChangeConflicts();
+            }
+        });
+    }
+}
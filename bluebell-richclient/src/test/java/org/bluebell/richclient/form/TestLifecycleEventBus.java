@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.springframework.richclient.application.event.LifecycleApplicationEvent;
+
+/**
+ * Tests the correct behaviour of {@link LifecycleEventBus}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestLifecycleEventBus extends TestCase {
+
+    /**
+     * The maximum time to wait for a delivery, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * A coalescing delay long enough to publish several events within the same window, in milliseconds.
+     */
+    private static final Long COALESCING_DELAY = 200L;
+
+    /**
+     * Tests a creation followed by a deletion is dropped, a creation followed by a modification is reported as a
+     * creation of the latest version and that otherwise the latest event prevails.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    @Test
+    public void testCoalescing() throws InterruptedException {
+
+        final LifecycleEventBus bus = LifecycleEventBus.getInstance();
+        final RecordingListener listener = new RecordingListener();
+        final Object created = new Object();
+        final Object dropped = new Object();
+        final Object modified = new Object();
+
+        bus.setCoalescingDelay(TestLifecycleEventBus.COALESCING_DELAY);
+        bus.addListener(listener, Boolean.FALSE);
+        try {
+            bus.publish(TestLifecycleEventBus.event(EventType.CREATED, created));
+            bus.publish(TestLifecycleEventBus.event(EventType.CREATED, dropped));
+            bus.publish(TestLifecycleEventBus.event(EventType.MODIFIED, modified));
+            bus.publish(TestLifecycleEventBus.event(EventType.MODIFIED, created));
+            bus.publish(TestLifecycleEventBus.event(EventType.DELETED, dropped));
+            bus.publish(TestLifecycleEventBus.event(EventType.REFRESHED, modified));
+
+            final List<LifecycleApplicationEvent> events = listener.nextBatch();
+            TestCase.assertEquals(2, events.size());
+            TestLifecycleEventBus.assertEvent(EventType.CREATED, created, events.get(0));
+            TestLifecycleEventBus.assertEvent(EventType.REFRESHED, modified, events.get(1));
+        } finally {
+            bus.removeListener(listener);
+            bus.setCoalescingDelay(LifecycleEventBus.DEFAULT_COALESCING_DELAY);
+        }
+    }
+
+    /**
+     * Tests entities are told apart by reference, so equal entities are not combined and entities whose hash code
+     * changes while pending are still combined.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    @Test
+    public void testEntitiesByReference() throws InterruptedException {
+
+        final LifecycleEventBus bus = LifecycleEventBus.getInstance();
+        final RecordingListener listener = new RecordingListener();
+        final List<String> mutable = new ArrayList<String>();
+        final List<String> equal = new ArrayList<String>();
+        final List<String> anotherEqual = new ArrayList<String>();
+
+        bus.setCoalescingDelay(TestLifecycleEventBus.COALESCING_DELAY);
+        bus.addListener(listener, Boolean.FALSE);
+        try {
+            bus.publish(TestLifecycleEventBus.event(EventType.CREATED, mutable));
+            mutable.add("changes equals and hashCode");
+            bus.publish(TestLifecycleEventBus.event(EventType.DELETED, mutable));
+
+            bus.publish(TestLifecycleEventBus.event(EventType.CREATED, equal));
+            bus.publish(TestLifecycleEventBus.event(EventType.DELETED, anotherEqual));
+
+            final List<LifecycleApplicationEvent> events = listener.nextBatch();
+            TestCase.assertEquals(2, events.size());
+            TestLifecycleEventBus.assertEvent(EventType.CREATED, equal, events.get(0));
+            TestLifecycleEventBus.assertEvent(EventType.DELETED, anotherEqual, events.get(1));
+        } finally {
+            bus.removeListener(listener);
+            bus.setCoalescingDelay(LifecycleEventBus.DEFAULT_COALESCING_DELAY);
+        }
+    }
+
+    /**
+     * Tests every listener receives events in publication order and in deliveries that never overlap, while a slow
+     * listener does not delay the others.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    @Test
+    public void testPerListenerOrdering() throws InterruptedException {
+
+        final LifecycleEventBus bus = LifecycleEventBus.getInstance();
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingListener fastListener = new RecordingListener();
+        final RecordingListener slowListener = new RecordingListener() {
+
+            @Override
+            protected void process(List<LifecycleApplicationEvent> events) throws InterruptedException {
+
+                release.await(TestLifecycleEventBus.TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        };
+        final List<Object> entities = Arrays.asList(new Object(), new Object(), new Object(), new Object());
+
+        bus.setCoalescingDelay(0L);
+        bus.addListener(fastListener, Boolean.FALSE);
+        bus.addListener(slowListener, Boolean.FALSE);
+        try {
+            // Both listeners receive the first event, then the slow one gets blocked
+            bus.publish(TestLifecycleEventBus.event(EventType.MODIFIED, entities.get(0)));
+            TestLifecycleEventBus.assertEvent(EventType.MODIFIED, entities.get(0), fastListener.nextBatch().get(0));
+            TestLifecycleEventBus.assertEvent(EventType.MODIFIED, entities.get(0), slowListener.nextBatch().get(0));
+
+            // The fast one receives the following events meanwhile
+            final List<Object> received = new ArrayList<Object>();
+            for (final Object entity : entities.subList(1, entities.size())) {
+                bus.publish(TestLifecycleEventBus.event(EventType.MODIFIED, entity));
+                received.add(fastListener.nextBatch().get(0).getObject());
+            }
+            TestCase.assertEquals(entities.subList(1, entities.size()), received);
+
+            // Once released, the slow one receives them in order
+            release.countDown();
+            received.clear();
+            while (received.size() < entities.size() - 1) {
+                for (final LifecycleApplicationEvent event : slowListener.nextBatch()) {
+                    received.add(event.getObject());
+                }
+            }
+            TestCase.assertEquals(entities.subList(1, entities.size()), received);
+            TestCase.assertFalse("fastListener.overlapped", fastListener.hasOverlapped());
+            TestCase.assertFalse("slowListener.overlapped", slowListener.hasOverlapped());
+        } finally {
+            release.countDown();
+            bus.removeListener(fastListener);
+            bus.removeListener(slowListener);
+            bus.setCoalescingDelay(LifecycleEventBus.DEFAULT_COALESCING_DELAY);
+        }
+    }
+
+    /**
+     * Tests listeners are notified in the event dispatch thread by default.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    @Test
+    public void testInEventDispatchThread() throws InterruptedException {
+
+        final LifecycleEventBus bus = LifecycleEventBus.getInstance();
+        final RecordingListener listener = new RecordingListener();
+
+        bus.addListener(listener);
+        try {
+            bus.publish(TestLifecycleEventBus.event(EventType.CREATED, new Object()));
+            listener.nextBatch();
+
+            TestCase.assertTrue("inEventDispatchThread", listener.isInEventDispatchThread());
+        } finally {
+            bus.removeListener(listener);
+        }
+    }
+
+    /**
+     * Creates a lifecycle event.
+     *
+     * @param eventType
+     *            the event type.
+     * @param entity
+     *            the entity.
+     * @return the event.
+     */
+    private static LifecycleApplicationEvent event(EventType eventType, Object entity) {
+
+        return new LifecycleApplicationEvent(eventType.toString(), entity);
+    }
+
+    /**
+     * Checks an event type and entity.
+     *
+     * @param eventType
+     *            the expected event type.
+     * @param entity
+     *            the expected entity.
+     * @param event
+     *            the event.
+     */
+    private static void assertEvent(EventType eventType, Object entity, LifecycleApplicationEvent event) {
+
+        TestCase.assertEquals(eventType.toString(), event.getEventType());
+        TestCase.assertSame(entity, event.getObject());
+    }
+
+    /**
+     * A listener that records the batches it receives.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class RecordingListener implements LifecycleEventListener {
+
+        /**
+         * The batches received and not yet checked.
+         */
+        private final BlockingQueue<List<LifecycleApplicationEvent>> batches = //
+        new LinkedBlockingQueue<List<LifecycleApplicationEvent>>();
+
+        /**
+         * The number of deliveries in progress.
+         */
+        private final AtomicInteger inProgress = new AtomicInteger();
+
+        /**
+         * Whether two deliveries have ever been in progress at the same time.
+         */
+        private final AtomicBoolean overlapped = new AtomicBoolean();
+
+        /**
+         * Whether the last delivery was made in the event dispatch thread.
+         */
+        private final AtomicBoolean inEventDispatchThread = new AtomicBoolean();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLifecycleEvents(List<LifecycleApplicationEvent> events) {
+
+            if (this.inProgress.incrementAndGet() > 1) {
+                this.overlapped.set(Boolean.TRUE);
+            }
+            try {
+                this.inEventDispatchThread.set(EventQueue.isDispatchThread());
+                this.batches.add(events);
+                this.process(events);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.inProgress.decrementAndGet();
+            }
+        }
+
+        /**
+         * Waits for the next batch.
+         *
+         * @return the batch.
+         * @throws InterruptedException
+         *             if interrupted while waiting.
+         */
+        public List<LifecycleApplicationEvent> nextBatch() throws InterruptedException {
+
+            final List<LifecycleApplicationEvent> batch = //
+            this.batches.poll(TestLifecycleEventBus.TIMEOUT, TimeUnit.MILLISECONDS);
+            TestCase.assertNotNull("batch", batch);
+
+            return batch;
+        }
+
+        /**
+         * Indicates whether two deliveries have ever been in progress at the same time.
+         *
+         * @return <code>true</code> if so.
+         */
+        public Boolean hasOverlapped() {
+
+            return this.overlapped.get();
+        }
+
+        /**
+         * Indicates whether the last delivery was made in the event dispatch thread.
+         *
+         * @return <code>true</code> if so.
+         */
+        public Boolean isInEventDispatchThread() {
+
+            return this.inEventDispatchThread.get();
+        }
+
+        /**
+         * Processes a batch once recorded. Default implementation does nothing.
+         *
+         * @param events
+         *            the events.
+         * @throws InterruptedException
+         *             if interrupted while processing.
+         */
+        protected void process(List<LifecycleApplicationEvent> events) throws InterruptedException {
+
+            // Nothing to do
+        }
+    }
+}
@@ -0,0 +1,675 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.RowSorter;
+import javax.swing.table.TableModel;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.bluebell.richclient.samples.simple.bean.Person;
+import org.bluebell.richclient.swing.util.SwingUtils;
+import org.bluebell.richclient.table.support.BbGlazedTableModel;
+import org.bluebell.richclient.table.support.BbTableRowSorter;
+import org.bluebell.richclient.test.AbstractBbSamplesTests;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performance regression suite of {@link AbstractBbTableMasterForm} master/detail operations.
+ * <p>
+ * Every operation is measured at every configured number of rows, recording both the elapsed time and the bytes
+ * allocated by the test thread and the EDT while it runs. The clock stops once background sorting and coalesced
+ * table updates are done too. Every operation is run a few times unmeasured to warm up the JVM and then the median of
+ * several measured runs is taken. Medians are compared against the baselines stored in
+ * <code>TestPerformanceOnAbstractBbTableMasterForm-baselines.properties</code>, operations with no baseline are just
+ * recorded.
+ * <p>
+ * Since baselines depend on the machine, regular builds just record measurements and log the ones exceeding their
+ * baselines. Thresholds are only enforced when the <code>bb.performance.enforce</code> system property is
+ * <code>true</code>, as in the <code>performance</code> profile, then the test fails if any measurement exceeds its
+ * baseline beyond the configured tolerance.
+ * <p>
+ * Every run writes its measurements, in the same format as baselines, into the directory given by the
+ * <code>bb.performance.outputDirectory</code> system property, so baselines can be updated by copying that file.
+ * <p>
+ * Numbers of rows are read from the <code>bb.performance.rows</code> system property (comma separated), defaulting
+ * to <code>1000,10000</code> for regular builds. The numbers of warm-up and measured runs are read from the
+ * <code>bb.performance.warmupRuns</code> and <code>bb.performance.runs</code> system properties. The
+ * <code>performance</code> profile runs the whole scale
+ * (1k, 10k, 100k and 1M rows). Since a real window is shown, run it headless under Xvfb:
+ * 
+ * <pre>
+ * xvfb-run mvn -Pperformance test
+ * </pre>
+ * 
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestPerformanceOnAbstractBbTableMasterForm extends AbstractBbSamplesTests {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestPerformanceOnAbstractBbTableMasterForm.class);
+
+    /**
+     * The system property with the numbers of rows to be tested.
+     */
+    private static final String ROWS_PROPERTY = "bb.performance.rows";
+
+    /**
+     * The default numbers of rows to be tested.
+     */
+    private static final String DEFAULT_ROWS = "1000,10000";
+
+    /**
+     * The system property with the number of unmeasured runs of every operation.
+     */
+    private static final String WARMUP_RUNS_PROPERTY = "bb.performance.warmupRuns";
+
+    /**
+     * The default number of unmeasured runs of every operation.
+     */
+    private static final int DEFAULT_WARMUP_RUNS = 2;
+
+    /**
+     * The system property with the number of measured runs of every operation.
+     */
+    private static final String RUNS_PROPERTY = "bb.performance.runs";
+
+    /**
+     * The default number of measured runs of every operation.
+     */
+    private static final int DEFAULT_RUNS = 5;
+
+    /**
+     * The milliseconds to sleep between checks of whether background sorting is done.
+     */
+    private static final long POLL_MILLIS = 1;
+
+    /**
+     * The system property with the directory where measurements are written.
+     */
+    private static final String OUTPUT_DIRECTORY_PROPERTY = "bb.performance.outputDirectory";
+
+    /**
+     * The system property telling whether to fail on measurements exceeding their baselines.
+     */
+    private static final String ENFORCE_PROPERTY = "bb.performance.enforce";
+
+    /**
+     * The default directory where measurements are written.
+     */
+    private static final String DEFAULT_OUTPUT_DIRECTORY = "target/performance";
+
+    /**
+     * The classpath resource with the baselines.
+     */
+    private static final String BASELINES_RESOURCE = "TestPerformanceOnAbstractBbTableMasterForm-baselines.properties";
+
+    /**
+     * The baseline key pattern, <code>{0}</code> is the operation, <code>{1}</code> the number of rows and
+     * <code>{2}</code> the metric.
+     */
+    private static final MessageFormat KEY_FMT = new MessageFormat("{0}.{1,number,#}.{2}");
+
+    /**
+     * The regression message pattern.
+     */
+    private static final MessageFormat REGRESSION_FMT = new MessageFormat(
+            "{0}: measured {1,number,#} is over baseline {2,number,#} with tolerance {3}");
+
+    /**
+     * The time metric, in milliseconds.
+     */
+    private static final String TIME = "time";
+
+    /**
+     * The allocated bytes metric.
+     */
+    private static final String BYTES = "bytes";
+
+    /**
+     * The number of rows deleted at every scale.
+     */
+    private static final int DELETED_ROWS = 10;
+
+    /**
+     * The baselines and tolerances.
+     */
+    private static final Properties BASELINES = TestPerformanceOnAbstractBbTableMasterForm.loadBaselines();
+
+    /**
+     * The measurements taken by every test.
+     */
+    private static final Properties MEASUREMENTS = new Properties();
+
+    /**
+     * The regressions detected by the running test.
+     */
+    private final List<String> regressions = new ArrayList<String>();
+
+    /**
+     * Tests <code>showEntities</code>, both replacing and attaching entities.
+     */
+    @Test
+    public void testShowEntities() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+
+        for (final Integer rows : TestPerformanceOnAbstractBbTableMasterForm.getRows()) {
+            final List<Person> persons = Person.createPersons(rows);
+            final List<Person> attached = Person.createPersons(Math.max(1, rows / 10));
+
+            this.measure("showEntities.replace", rows, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.showEntities(Collections.<Person> emptyList());
+                }
+            }, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.showEntities(persons);
+                }
+            });
+            this.measure("showEntities.attach", rows, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.showEntities(persons);
+                }
+            }, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.showEntities(attached, Boolean.TRUE);
+                }
+            });
+            this.cleanMasterEventList();
+        }
+
+        this.assertNoRegressions();
+    }
+
+    /**
+     * Tests selecting all entities and a multiple selection of a tenth of them.
+     */
+    @Test
+    public void testSelection() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+
+        for (final Integer rows : TestPerformanceOnAbstractBbTableMasterForm.getRows()) {
+            final List<Person> persons = Person.createPersons(rows);
+            final Runnable clearSelection = new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.changeSelection(Collections.<Person> emptyList());
+                }
+            };
+            masterForm.showEntities(persons);
+
+            this.measure("selectAll", rows, clearSelection, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    SwingUtils.runInEventDispatcherThread(masterForm.getSelectAllCommand());
+                }
+            });
+            this.measure("multiSelection", rows, clearSelection, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.changeSelection(persons.subList(0, Math.max(1, persons.size() / 10)));
+                }
+            });
+            this.cleanMasterEventList();
+        }
+
+        this.assertNoRegressions();
+    }
+
+    /**
+     * Tests refreshing the selected entity.
+     */
+    @Test
+    public void testRefresh() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+
+        for (final Integer rows : TestPerformanceOnAbstractBbTableMasterForm.getRows()) {
+            final List<Person> persons = Person.createPersons(rows);
+            masterForm.showEntities(persons);
+
+            this.measure("refresh", rows, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.changeSelection(persons.subList(rows / 2, rows / 2 + 1));
+                }
+            }, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    SwingUtils.runInEventDispatcherThread(masterForm.getRefreshCommand());
+                }
+            });
+            this.cleanMasterEventList();
+        }
+
+        this.assertNoRegressions();
+    }
+
+    /**
+     * Tests committing changes on the selected entity.
+     */
+    @Test
+    public void testCommit() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final AbstractBbChildForm<Person> childForm = FormUtils.getBackingForm(this.getChildView());
+
+        for (final Integer rows : TestPerformanceOnAbstractBbTableMasterForm.getRows()) {
+            final List<Person> persons = Person.createPersons(rows);
+            final int[] run = new int[] { 0 };
+            masterForm.showEntities(persons);
+
+            this.measure("commit", rows, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    // Every run commits a different value, otherwise the child form would not be dirty
+                    masterForm.changeSelection(persons.subList(rows / 2, rows / 2 + 1));
+                    TestPerformanceOnAbstractBbTableMasterForm.this.userAction(childForm, "name", "JAF" + run[0]++);
+                }
+            }, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    SwingUtils.runInEventDispatcherThread(masterForm.getSaveCommand());
+                }
+            });
+            this.cleanMasterEventList();
+        }
+
+        this.assertNoRegressions();
+    }
+
+    /**
+     * Tests deleting a few selected entities.
+     */
+    @Test
+    public void testDelete() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+
+        for (final Integer rows : TestPerformanceOnAbstractBbTableMasterForm.getRows()) {
+            final List<Person> persons = Person.createPersons(rows);
+            final int deletedRows = Math.min(rows, TestPerformanceOnAbstractBbTableMasterForm.DELETED_ROWS);
+
+            this.measure("delete", rows, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    masterForm.showEntities(persons);
+                    masterForm.changeSelection(persons.subList(rows - deletedRows, rows));
+                }
+            }, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                        @Override
+                        public void run() {
+
+                            masterForm.deleteSelectedItems();
+                        }
+                    });
+                }
+            });
+            TestCase.assertEquals(rows - deletedRows, masterForm.getMasterEventList().size());
+            this.cleanMasterEventList();
+        }
+
+        this.assertNoRegressions();
+    }
+
+    /**
+     * Method invoked at startup.
+     * <p/>
+     * Initializes test cases.
+     */
+    @Before
+    public void startup() {
+
+        this.initializeVariables(this.getPersonPageDescriptor());
+        this.regressions.clear();
+    }
+
+    /**
+     * Cleans master event list after every test execution.
+     */
+    @After
+    public void cleanMasterEventList() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        masterForm.getDispatcherForm().revertAll();
+        masterForm.showEntities(Collections.<Person> emptyList());
+    }
+
+    /**
+     * Writes the measurements of every test.
+     */
+    @AfterClass
+    public static void writeMeasurements() {
+
+        final String outputDirectory = System.getProperty(//
+                TestPerformanceOnAbstractBbTableMasterForm.OUTPUT_DIRECTORY_PROPERTY,
+                TestPerformanceOnAbstractBbTableMasterForm.DEFAULT_OUTPUT_DIRECTORY);
+        final File file = new File(outputDirectory, TestPerformanceOnAbstractBbTableMasterForm.BASELINES_RESOURCE);
+
+        OutputStream outputStream = null;
+        try {
+            file.getParentFile().mkdirs();
+            outputStream = new FileOutputStream(file);
+            TestPerformanceOnAbstractBbTableMasterForm.MEASUREMENTS.store(outputStream, "Measured baselines");
+        } catch (IOException e) {
+            TestPerformanceOnAbstractBbTableMasterForm.LOGGER.warn("Unable to write measurements", e);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Measures the elapsed time and the allocated bytes of an operation and compares their medians against the
+     * baselines.
+     * <p>
+     * The operation is run a few times unmeasured before the measured runs. The set up runs before every run, out of
+     * the clock, and every run includes the background sorting and the coalesced table updates it triggers.
+     * 
+     * @param operation
+     *            the operation name.
+     * @param rows
+     *            the number of rows.
+     * @param setUp
+     *            restores the state the operation expects.
+     * @param runnable
+     *            the operation.
+     */
+    private void measure(String operation, Integer rows, Runnable setUp, Runnable runnable) {
+
+        final int warmupRuns = Integer.getInteger(TestPerformanceOnAbstractBbTableMasterForm.WARMUP_RUNS_PROPERTY,
+                TestPerformanceOnAbstractBbTableMasterForm.DEFAULT_WARMUP_RUNS);
+        final int runs = Math.max(1, Integer.getInteger(TestPerformanceOnAbstractBbTableMasterForm.RUNS_PROPERTY,
+                TestPerformanceOnAbstractBbTableMasterForm.DEFAULT_RUNS));
+
+        final long[] times = new long[runs];
+        final long[] bytes = new long[runs];
+        Boolean bytesSupported = Boolean.TRUE;
+        for (int run = -warmupRuns; run < runs; ++run) {
+            setUp.run();
+            this.awaitDeferredWork();
+            System.gc();
+
+            final long[] threadIds = TestPerformanceOnAbstractBbTableMasterForm.getMeasuredThreadIds();
+            final long bytesBefore = TestPerformanceOnAbstractBbTableMasterForm.getAllocatedBytes(threadIds);
+            final long before = System.nanoTime();
+            runnable.run();
+            this.awaitDeferredWork();
+            final long after = System.nanoTime();
+            final long bytesAfter = TestPerformanceOnAbstractBbTableMasterForm.getAllocatedBytes(threadIds);
+
+            if (run >= 0) {
+                times[run] = TimeUnit.NANOSECONDS.toMillis(after - before);
+                bytes[run] = bytesAfter - bytesBefore;
+                bytesSupported &= (bytesBefore >= 0) && (bytesAfter >= 0);
+            }
+        }
+
+        this.check(operation, rows, TestPerformanceOnAbstractBbTableMasterForm.TIME, //
+                TestPerformanceOnAbstractBbTableMasterForm.median(times));
+        if (bytesSupported) {
+            this.check(operation, rows, TestPerformanceOnAbstractBbTableMasterForm.BYTES, //
+                    TestPerformanceOnAbstractBbTableMasterForm.median(bytes));
+        }
+    }
+
+    /**
+     * Waits until the master table is done with background sorting and then notifies its coalesced updates.
+     */
+    private void awaitDeferredWork() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final Boolean[] done = new Boolean[] { Boolean.FALSE };
+
+        while (!done[0]) {
+            SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    final RowSorter<? extends TableModel> rowSorter = masterForm.getMasterTable().getRowSorter();
+                    done[0] = !(rowSorter instanceof BbTableRowSorter) || !((BbTableRowSorter) rowSorter).isSorting();
+
+                    final TableModel tableModel = masterForm.getMasterTable().getModel();
+                    if (done[0] && (tableModel instanceof BbGlazedTableModel)) {
+                        ((BbGlazedTableModel) tableModel).flushPendingUpdates();
+                    }
+                }
+            });
+
+            if (!done[0]) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(TestPerformanceOnAbstractBbTableMasterForm.POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    TestCase.fail("Interrupted while waiting for background sorting");
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a measurement and compares it against its baseline, if any.
+     * 
+     * @param operation
+     *            the operation name.
+     * @param rows
+     *            the number of rows.
+     * @param metric
+     *            the metric.
+     * @param value
+     *            the measured value.
+     */
+    private void check(String operation, Integer rows, String metric, long value) {
+
+        final String key = TestPerformanceOnAbstractBbTableMasterForm.KEY_FMT.format(//
+                new Object[] { operation, rows, metric });
+        final String baseline = TestPerformanceOnAbstractBbTableMasterForm.BASELINES.getProperty(key);
+        final String tolerance = TestPerformanceOnAbstractBbTableMasterForm.BASELINES.getProperty(//
+                "tolerance." + metric);
+
+        TestPerformanceOnAbstractBbTableMasterForm.MEASUREMENTS.setProperty(key, String.valueOf(value));
+        if (TestPerformanceOnAbstractBbTableMasterForm.LOGGER.isInfoEnabled()) {
+            TestPerformanceOnAbstractBbTableMasterForm.LOGGER.info(key + "=" + value);
+        }
+
+        if (StringUtils.isNotBlank(baseline) && StringUtils.isNotBlank(tolerance)) {
+            final long expected = Long.valueOf(baseline.trim());
+            if (value > expected * Double.valueOf(tolerance.trim())) {
+                this.regressions.add(TestPerformanceOnAbstractBbTableMasterForm.REGRESSION_FMT.format(//
+                        new Object[] { key, value, expected, tolerance.trim() }));
+            }
+        }
+    }
+
+    /**
+     * Fails if any regression was detected and thresholds are enforced, otherwise just logs them.
+     */
+    private void assertNoRegressions() {
+
+        final String message = StringUtils.join(this.regressions, "\n");
+        if (Boolean.getBoolean(TestPerformanceOnAbstractBbTableMasterForm.ENFORCE_PROPERTY)) {
+            TestCase.assertTrue(message, this.regressions.isEmpty());
+        } else if (!this.regressions.isEmpty()) {
+            TestPerformanceOnAbstractBbTableMasterForm.LOGGER.warn("Measurements over baselines (not enforced):\n"
+                    + message);
+        }
+    }
+
+    /**
+     * Gets the numbers of rows to be tested.
+     * 
+     * @return the numbers of rows.
+     */
+    private static List<Integer> getRows() {
+
+        final String rows = System.getProperty(TestPerformanceOnAbstractBbTableMasterForm.ROWS_PROPERTY,
+                TestPerformanceOnAbstractBbTableMasterForm.DEFAULT_ROWS);
+
+        final List<Integer> result = new ArrayList<Integer>();
+        for (final String row : StringUtils.split(rows, ',')) {
+            result.add(Integer.valueOf(row.trim()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the median of some measurements.
+     * 
+     * @param values
+     *            the measurements, sorted in place.
+     * @return the median.
+     */
+    private static long median(long[] values) {
+
+        Arrays.sort(values);
+
+        return values[values.length / 2];
+    }
+
+    /**
+     * Gets the ids of the threads whose allocations are measured: the current one and the event dispatch thread.
+     * 
+     * @return the thread ids.
+     */
+    private static long[] getMeasuredThreadIds() {
+
+        final long[] threadIds = new long[] { Thread.currentThread().getId(), -1 };
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                threadIds[1] = Thread.currentThread().getId();
+            }
+        });
+
+        return (threadIds[0] == threadIds[1]) ? new long[] { threadIds[0] } : threadIds;
+    }
+
+    /**
+     * Gets the bytes allocated so far by some threads.
+     * 
+     * @param threadIds
+     *            the thread ids.
+     * @return the allocated bytes or <code>-1</code> if the JVM does not support allocation tracking.
+     */
+    private static long getAllocatedBytes(long[] threadIds) {
+
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long allocatedBytes = 0;
+        for (final long threadAllocatedBytes : sunThreadMXBean.getThreadAllocatedBytes(threadIds)) {
+            allocatedBytes += Math.max(0, threadAllocatedBytes);
+        }
+
+        return allocatedBytes;
+    }
+
+    /**
+     * Loads the baselines.
+     * 
+     * @return the baselines.
+     */
+    private static Properties loadBaselines() {
+
+        final Properties baselines = new Properties();
+        final InputStream inputStream = TestPerformanceOnAbstractBbTableMasterForm.class.getResourceAsStream(//
+                TestPerformanceOnAbstractBbTableMasterForm.BASELINES_RESOURCE);
+        try {
+            if (inputStream != null) {
+                baselines.load(inputStream);
+            }
+        } catch (IOException e) {
+            TestPerformanceOnAbstractBbTableMasterForm.LOGGER.warn("Unable to read baselines", e);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+
+        return baselines;
+    }
+}
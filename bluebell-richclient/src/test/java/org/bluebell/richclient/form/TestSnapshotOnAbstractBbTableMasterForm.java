@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bluebell.richclient.application.support.FormBackedView;
+import org.bluebell.richclient.samples.simple.bean.Person;
+import org.bluebell.richclient.swing.util.SwingUtils;
+import org.bluebell.richclient.test.AbstractBbSamplesTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.richclient.application.PageDescriptor;
+import org.springframework.richclient.table.support.GlazedTableModel;
+import org.springframework.test.context.ContextConfiguration;
+
+import ca.odell.glazedlists.EventList;
+
+/**
+ * Tests the correct behaviour of {@link AbstractBbTableMasterForm} when its master table reflects a snapshot of the
+ * master event list.
+ *
+ * @see AbstractBbTableMasterForm#setSnapshotTableModel(Boolean)
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+@ContextConfiguration
+public class TestSnapshotOnAbstractBbTableMasterForm extends AbstractBbSamplesTests {
+
+    /**
+     * The snapshot master view descriptor bean name.
+     */
+    protected static final String SNAPSHOT_MASTER_VIEW_DESCRIPTOR_BEAN_NAME = "snapshotPersonMasterViewDescriptor";
+
+    /**
+     * The number of persons shown.
+     */
+    private static final int SIZE = 10;
+
+    /**
+     * The page descriptor used for testing.
+     */
+    @Autowired
+    private PageDescriptor pageDescriptor;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Test
+    public void testDependencyInjection() {
+
+        TestCase.assertNotNull("pageDescriptor", this.pageDescriptor);
+    }
+
+    /**
+     * Tests showing, selecting and deleting entities keeps the master event list and the table in sync.
+     */
+    @Test
+    public void testShowSelectAndDelete() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        final List<Person> persons = Person.createPersons(TestSnapshotOnAbstractBbTableMasterForm.SIZE);
+        final int half = TestSnapshotOnAbstractBbTableMasterForm.SIZE / 2;
+
+        TestCase.assertTrue(masterForm.getSnapshotTableModel());
+
+        // Shown entities reach the master event list
+        masterForm.showEntities(persons.subList(0, half));
+        TestCase.assertEquals(persons.subList(0, half), masterForm.getMasterEventList());
+        this.assertInSync(masterForm);
+
+        // Attached entities too
+        masterForm.showEntities(persons, Boolean.TRUE);
+        TestCase.assertEquals(persons, masterForm.getMasterEventList());
+        this.assertInSync(masterForm);
+
+        // Selection
+        final List<Person> selection = persons.subList(half, half + 2);
+        masterForm.changeSelection(selection);
+        TestCase.assertEquals(selection, masterForm.getSelection());
+        this.assertInSync(masterForm);
+
+        // Deleting selected entities
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                masterForm.deleteSelectedItems();
+            }
+        });
+        final List<Person> expected = new ArrayList<Person>(persons);
+        expected.removeAll(selection);
+        TestCase.assertEquals(expected, masterForm.getMasterEventList());
+        this.assertInSync(masterForm);
+
+        // Index based changes on the master event list are replicated onto the table
+        final EventList<Person> masterEventList = masterForm.getMasterEventList();
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                masterEventList.getReadWriteLock().writeLock().lock();
+                try {
+                    masterEventList.remove(0);
+                    masterEventList.remove(masterEventList.size() - 1);
+                } finally {
+                    masterEventList.getReadWriteLock().writeLock().unlock();
+                }
+            }
+        });
+        TestCase.assertEquals(expected.subList(1, expected.size() - 1), masterEventList);
+        this.assertInSync(masterForm);
+
+        // Replacing shown entities
+        masterForm.showEntities(persons.subList(0, 2));
+        TestCase.assertEquals(persons.subList(0, 2), masterForm.getMasterEventList());
+        this.assertInSync(masterForm);
+    }
+
+    /**
+     * Method invoked at startup.
+     * <p/>
+     * Initializes test cases.
+     */
+    @Before
+    public void startup() {
+
+        this.initializeVariables(this.pageDescriptor);
+    }
+
+    /**
+     * Cleans master event list after every test execution.
+     */
+    @After
+    public void cleanMasterEventList() {
+
+        final AbstractBbTableMasterForm<Person> masterForm = FormUtils.getBackingForm(this.getMasterView());
+        masterForm.showEntities(Collections.<Person> emptyList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected FormBackedView<AbstractBbTableMasterForm<Person>> getMasterView() {
+
+        return this.getInitializedPage().getView(//
+                TestSnapshotOnAbstractBbTableMasterForm.SNAPSHOT_MASTER_VIEW_DESCRIPTOR_BEAN_NAME);
+    }
+
+    /**
+     * Checks the master table shows the very same rows as the master event list, from the event dispatch thread.
+     *
+     * @param masterForm
+     *            the master form.
+     */
+    private void assertInSync(final AbstractBbTableMasterForm<Person> masterForm) {
+
+        final List<Object> rows = new ArrayList<Object>();
+        SwingUtils.runInEventDispatcherThread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final GlazedTableModel tableModel = masterForm.getMasterTableModel();
+                for (int i = 0; i < tableModel.getRowCount(); ++i) {
+                    rows.add(tableModel.getElementAt(i));
+                }
+            }
+        });
+
+        final List<Person> masterEventList = masterForm.getMasterEventList();
+        TestCase.assertEquals(masterEventList.size(), rows.size());
+        for (int i = 0; i < rows.size(); ++i) {
+            TestCase.assertSame(masterEventList.get(i), rows.get(i));
+        }
+    }
+}
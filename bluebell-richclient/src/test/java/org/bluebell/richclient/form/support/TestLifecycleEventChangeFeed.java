@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.form.support;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.bluebell.richclient.form.EntityChange;
+import org.bluebell.richclient.form.EntityChangeListener;
+import org.bluebell.richclient.form.EventType;
+import org.bluebell.richclient.form.LifecycleEventBus;
+import org.bluebell.richclient.samples.simple.bean.Person;
+import org.junit.Test;
+import org.springframework.richclient.application.event.LifecycleApplicationEvent;
+
+/**
+ * Tests the correct behaviour of {@link LifecycleEventChangeFeed}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestLifecycleEventChangeFeed extends TestCase {
+
+    /**
+     * The maximum time to wait for a delivery, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * Tests lifecycle events over entities of the feed type are published as entity changes identified by their id,
+     * whereas those over other types are ignored.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    @Test
+    public void testLifecycleEventsToEntityChanges() throws InterruptedException {
+
+        final LifecycleEventChangeFeed<Person> feed = new LifecycleEventChangeFeed<Person>(Person.class, "name");
+        final BlockingQueue<List<EntityChange<Person>>> batches = new LinkedBlockingQueue<List<EntityChange<Person>>>();
+        final EntityChangeListener<Person> listener = new EntityChangeListener<Person>() {
+
+            @Override
+            public void onEntityChanges(List<EntityChange<Person>> changes) {
+
+                batches.add(changes);
+            }
+        };
+        final Person modified = Person.createPerson("modified");
+        final Person deleted = Person.createPerson("deleted");
+
+        feed.subscribe(listener);
+        try {
+            final LifecycleEventBus bus = LifecycleEventBus.getInstance();
+            bus.publish(new LifecycleApplicationEvent(EventType.MODIFIED.toString(), modified));
+            bus.publish(new LifecycleApplicationEvent(EventType.CREATED.toString(), "Not a person"));
+            bus.publish(new LifecycleApplicationEvent(EventType.DELETED.toString(), deleted));
+
+            final List<EntityChange<Person>> changes = batches.poll(//
+                    TestLifecycleEventChangeFeed.TIMEOUT, TimeUnit.MILLISECONDS);
+            TestCase.assertNotNull("changes", changes);
+            TestCase.assertEquals(2, changes.size());
+
+            TestCase.assertEquals(EntityChange.Type.UPSERT, changes.get(0).getType());
+            TestCase.assertEquals(modified.getName(), changes.get(0).getId());
+            TestCase.assertSame(modified, changes.get(0).getEntity());
+
+            TestCase.assertEquals(EntityChange.Type.DELETE, changes.get(1).getType());
+            TestCase.assertEquals(deleted.getName(), changes.get(1).getId());
+        } finally {
+            feed.unsubscribe(listener);
+            LifecycleEventBus.getInstance().removeListener(feed);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ *
+ */
+package org.bluebell.richclient.swing.util;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link BatchingEventDispatcher}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestBatchingEventDispatcher extends TestCase {
+
+    /**
+     * The number of tasks queued.
+     */
+    private static final int TASK_COUNT = 1000;
+
+    /**
+     * A frame rate slow enough to notice whether a drain waits for the next frame.
+     */
+    private static final int SLOW_FRAME_RATE = 1;
+
+    /**
+     * The maximum time to wait for a synchronous invocation, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * Tests tasks queued from outside the EDT run in the EDT, in order and in a few drains.
+     */
+    @Test
+    public void testBatchingAndOrdering() {
+
+        final BatchingEventDispatcher dispatcher = BatchingEventDispatcher.getInstance();
+        final List<Integer> ran = Collections.synchronizedList(new ArrayList<Integer>());
+        final Boolean[] onlyFromEdt = new Boolean[] { Boolean.TRUE };
+
+        final long drainCount = dispatcher.getDrainCount();
+        for (int i = 0; i < TestBatchingEventDispatcher.TASK_COUNT; ++i) {
+            final Integer value = i;
+            dispatcher.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    onlyFromEdt[0] &= EventQueue.isDispatchThread();
+                    ran.add(value);
+                }
+            });
+        }
+        dispatcher.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                // Nothing to do, just waiting for queued tasks
+            }
+        });
+
+        TestCase.assertTrue(onlyFromEdt[0]);
+        TestCase.assertEquals(TestBatchingEventDispatcher.TASK_COUNT, ran.size());
+        for (int i = 0; i < TestBatchingEventDispatcher.TASK_COUNT; ++i) {
+            TestCase.assertEquals(Integer.valueOf(i), ran.get(i));
+        }
+        TestCase.assertTrue(dispatcher.getDrainCount() - drainCount < TestBatchingEventDispatcher.TASK_COUNT);
+    }
+
+    /**
+     * Tests synchronous invocations do not wait for the next frame, but run after the tasks queued before them.
+     */
+    @Test
+    public void testInvokeAndWaitIsUrgent() {
+
+        final BatchingEventDispatcher dispatcher = BatchingEventDispatcher.getInstance();
+        final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+        dispatcher.setFrameRate(TestBatchingEventDispatcher.SLOW_FRAME_RATE);
+        try {
+            // A drain right now, so the next one should wait for a whole frame
+            dispatcher.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    ran.add("first");
+                }
+            });
+
+            dispatcher.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    ran.add("later");
+                }
+            });
+
+            final long start = System.nanoTime();
+            dispatcher.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    ran.add("urgent");
+                }
+            });
+            final long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            final long frameMillis = TimeUnit.SECONDS.toMillis(1) / TestBatchingEventDispatcher.SLOW_FRAME_RATE;
+            TestCase.assertEquals(Arrays.asList("first", "later", "urgent"), new ArrayList<String>(ran));
+            TestCase.assertTrue(waitMillis < frameMillis);
+        } finally {
+            dispatcher.setFrameRate(BatchingEventDispatcher.DEFAULT_FRAME_RATE);
+        }
+    }
+
+    /**
+     * Tests a task throwing an error does not leave the tasks queued after it in the same drain waiting for an
+     * unrelated task to be queued.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    @Test
+    public void testErrorDoesNotBlockQueuedTasks() throws InterruptedException {
+
+        final BatchingEventDispatcher dispatcher = BatchingEventDispatcher.getInstance();
+        final CountDownLatch edtBlocked = new CountDownLatch(1);
+        final CountDownLatch queued = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        // Keep the EDT busy until both tasks are queued, so they are drained together
+        EventQueue.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+
+                edtBlocked.countDown();
+                try {
+                    queued.await(TestBatchingEventDispatcher.TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        edtBlocked.await(TestBatchingEventDispatcher.TIMEOUT, TimeUnit.MILLISECONDS);
+
+        dispatcher.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+
+                throw new Error("Thrown on purpose by the test");
+            }
+        });
+        dispatcher.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+
+                ran.countDown();
+            }
+        });
+        queued.countDown();
+
+        TestCase.assertTrue(ran.await(TestBatchingEventDispatcher.TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ *
+ */
+package org.bluebell.richclient.swing.util;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.springframework.richclient.progress.ProgressMonitor;
+
+/**
+ * Tests the correct behaviour of {@link FrameRateProgressMonitor}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestFrameRateProgressMonitor extends TestCase {
+
+    /**
+     * The number of work units reported.
+     */
+    private static final int TOTAL_WORK = 1000;
+
+    /**
+     * The time to wait for at least one frame to be rendered.
+     */
+    private static final long FRAME_WAIT = 200;
+
+    /**
+     * Tests progress is rendered into the target monitor from the EDT, collapsing intermediate updates.
+     *
+     * @throws Exception
+     *             in case of error.
+     */
+    @Test
+    public void testRendering() throws Exception {
+
+        final RecordingProgressMonitor target = new RecordingProgressMonitor();
+        final FrameRateProgressMonitor progressMonitor = new FrameRateProgressMonitor(target);
+
+        progressMonitor.taskStarted("task", TestFrameRateProgressMonitor.TOTAL_WORK);
+        for (int i = 0; i < TestFrameRateProgressMonitor.TOTAL_WORK; ++i) {
+            progressMonitor.subTaskStarted("subTask" + i);
+            progressMonitor.worked(1);
+        }
+        progressMonitor.done();
+
+        this.waitForFrames();
+
+        TestCase.assertTrue(target.onlyFromEdt);
+        TestCase.assertEquals("task", target.taskName);
+        TestCase.assertEquals("subTask" + (TestFrameRateProgressMonitor.TOTAL_WORK - 1), target.subTaskName);
+        TestCase.assertEquals(TestFrameRateProgressMonitor.TOTAL_WORK, target.workDone);
+        TestCase.assertEquals(1, target.doneCount);
+        TestCase.assertTrue(target.invocations < TestFrameRateProgressMonitor.TOTAL_WORK);
+    }
+
+    /**
+     * Tests cancelation is visible immediately and propagated to the target monitor.
+     *
+     * @throws Exception
+     *             in case of error.
+     */
+    @Test
+    public void testCancelation() throws Exception {
+
+        final RecordingProgressMonitor target = new RecordingProgressMonitor();
+        final FrameRateProgressMonitor progressMonitor = new FrameRateProgressMonitor(target);
+
+        progressMonitor.setCanceled(Boolean.TRUE);
+        TestCase.assertTrue(progressMonitor.isCanceled());
+
+        this.waitForFrames();
+
+        TestCase.assertTrue(target.isCanceled());
+    }
+
+    /**
+     * Waits until some frames are rendered.
+     *
+     * @throws InterruptedException
+     *             if interrupted.
+     * @throws InvocationTargetException
+     *             in case of error.
+     */
+    private void waitForFrames() throws InterruptedException, InvocationTargetException {
+
+        Thread.sleep(TestFrameRateProgressMonitor.FRAME_WAIT);
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                // Nothing to do, just waiting for pending frames
+            }
+        });
+    }
+
+    /**
+     * A progress monitor that records received invocations.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class RecordingProgressMonitor implements ProgressMonitor {
+
+        /**
+         * Whether every invocation was received from the EDT, <code>null</code> if no invocation has been received.
+         */
+        private Boolean onlyFromEdt;
+
+        /**
+         * The number of received invocations.
+         */
+        private int invocations;
+
+        /**
+         * The last task name.
+         */
+        private String taskName;
+
+        /**
+         * The last sub task name.
+         */
+        private String subTaskName;
+
+        /**
+         * The accumulated work.
+         */
+        private int workDone;
+
+        /**
+         * The number of times done was invoked.
+         */
+        private int doneCount;
+
+        /**
+         * Whether is canceled.
+         */
+        private boolean canceled;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void taskStarted(String name, int totalWork) {
+
+            this.record();
+            this.taskName = name;
+            this.workDone = 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void subTaskStarted(String name) {
+
+            this.record();
+            this.subTaskName = name;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void worked(int work) {
+
+            this.record();
+            this.workDone += work;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void done() {
+
+            this.record();
+            ++this.doneCount;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCanceled() {
+
+            return this.canceled;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setCanceled(boolean b) {
+
+            this.record();
+            this.canceled = b;
+        }
+
+        /**
+         * Records an invocation.
+         */
+        private void record() {
+
+            ++this.invocations;
+            this.onlyFromEdt = ((this.onlyFromEdt == null) || this.onlyFromEdt) && EventQueue.isDispatchThread();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.swing.util;
+
+import java.awt.Component;
+import java.awt.EventQueue;
+
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link NamedComponentRegistry} through {@link SwingUtils#getDescendantNamed(String,
+ * Component)}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestNamedComponentRegistry extends TestCase {
+
+    /**
+     * Tests components added to, removed from and renamed within a window are found accordingly.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testAddRemoveAndRename() throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JFrame frame = new JFrame();
+                try {
+                    final JPanel panel = TestNamedComponentRegistry.createPanel("panel");
+                    frame.getContentPane().add(panel);
+
+                    // The first lookup indexes the window
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("label", frame));
+
+                    // Adding
+                    final JLabel label = TestNamedComponentRegistry.createLabel("label");
+                    panel.add(label);
+                    TestCase.assertSame(label, SwingUtils.getDescendantNamed("label", frame));
+                    TestCase.assertSame(label, SwingUtils.getDescendantNamed("label", panel));
+
+                    // Adding a hierarchy indexes its descendants too
+                    final JPanel nested = TestNamedComponentRegistry.createPanel("nested");
+                    final JLabel nestedLabel = TestNamedComponentRegistry.createLabel("nestedLabel");
+                    nested.add(nestedLabel);
+                    panel.add(nested);
+                    TestCase.assertSame(nestedLabel, SwingUtils.getDescendantNamed("nestedLabel", frame));
+
+                    // Renaming
+                    label.setName("renamed");
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("label", frame));
+                    TestCase.assertSame(label, SwingUtils.getDescendantNamed("renamed", frame));
+
+                    // Removing
+                    panel.remove(nested);
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("nestedLabel", frame));
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("nested", frame));
+
+                    // Renaming a removed component does not index it again
+                    nestedLabel.setName("removed");
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("removed", frame));
+                } finally {
+                    frame.dispose();
+                }
+            }
+        });
+    }
+
+    /**
+     * Tests the first component in pre-order is found when several share a name, and that only descendants of the
+     * given parent are found.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testPreOrderAndScope() throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JFrame frame = new JFrame();
+                try {
+                    final JPanel first = TestNamedComponentRegistry.createPanel("first");
+                    final JPanel second = TestNamedComponentRegistry.createPanel("second");
+                    final JLabel deep = TestNamedComponentRegistry.createLabel("duplicated");
+                    final JLabel shallow = TestNamedComponentRegistry.createLabel("duplicated");
+                    final JPanel deeper = TestNamedComponentRegistry.createPanel("deeper");
+                    deeper.add(deep);
+                    first.add(deeper);
+                    second.add(shallow);
+                    frame.getContentPane().add(first);
+                    frame.getContentPane().add(second);
+
+                    TestCase.assertSame(deep, SwingUtils.getDescendantNamed("duplicated", frame));
+                    TestCase.assertSame(shallow, SwingUtils.getDescendantNamed("duplicated", second));
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("second", first));
+                    TestCase.assertSame(first, SwingUtils.getDescendantNamed("first", first));
+                } finally {
+                    frame.dispose();
+                }
+            }
+        });
+    }
+
+    /**
+     * Tests components not within a window are searched recursively and then through the registry once added to a
+     * window.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testOutsideWindow() throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JPanel panel = TestNamedComponentRegistry.createPanel("panel");
+                final JLabel label = TestNamedComponentRegistry.createLabel("label");
+                panel.add(label);
+                TestCase.assertSame(label, SwingUtils.getDescendantNamed("label", panel));
+
+                label.setName("renamed");
+                TestCase.assertNull(SwingUtils.getDescendantNamed("label", panel));
+                TestCase.assertSame(label, SwingUtils.getDescendantNamed("renamed", panel));
+
+                final JFrame frame = new JFrame();
+                try {
+                    frame.getContentPane().add(panel);
+                    TestCase.assertSame(label, SwingUtils.getDescendantNamed("renamed", frame));
+
+                    frame.getContentPane().remove(panel);
+                    TestCase.assertNull(SwingUtils.getDescendantNamed("renamed", frame));
+                    TestCase.assertSame(label, SwingUtils.getDescendantNamed("renamed", panel));
+                } finally {
+                    frame.dispose();
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates a named panel.
+     *
+     * @param name
+     *            the name.
+     * @return the panel.
+     */
+    private static JPanel createPanel(String name) {
+
+        final JPanel panel = new JPanel();
+        panel.setName(name);
+
+        return panel;
+    }
+
+    /**
+     * Creates a named label.
+     *
+     * @param name
+     *            the name.
+     * @return the label.
+     */
+    private static JLabel createLabel(String name) {
+
+        final JLabel label = new JLabel(name);
+        label.setName(name);
+
+        return label;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import junit.framework.TestCase;
+
+import org.bluebell.richclient.samples.simple.bean.Person;
+import org.junit.Test;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+
+/**
+ * Tests the correct behaviour of {@link BbGlazedTableModel} coalescing row updates, specially how pending updates are
+ * shifted through insertions and deletions.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestBbGlazedTableModel extends TestCase {
+
+    /**
+     * The number of rows.
+     */
+    private static final int ROW_COUNT = 20;
+
+    /**
+     * A coalescing delay long enough to flush pending updates by hand, in milliseconds.
+     */
+    private static final Integer LONG_DELAY = 60000;
+
+    /**
+     * Tests row updates are notified as a single event spanning every updated row.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(2, 2);
+                tableModel.fireTableRowsUpdated(5, 6);
+                TestCase.assertTrue("events.isEmpty()", events.isEmpty());
+
+                tableModel.flushPendingUpdates();
+                TestBbGlazedTableModel.assertEvents(events, TableModelEvent.UPDATE, 2, 6);
+            }
+        });
+    }
+
+    /**
+     * Tests insertions shift pending updates after them, and only those.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testInsertion() throws Exception {
+
+        // Before the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsInserted(0, 1);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 6, 8, //
+                        TableModelEvent.INSERT, 0, 1);
+            }
+        });
+
+        // Within the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsInserted(5, 5);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 4, 7, //
+                        TableModelEvent.INSERT, 5, 5);
+            }
+        });
+
+        // After the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsInserted(7, 9);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 4, 6, //
+                        TableModelEvent.INSERT, 7, 9);
+            }
+        });
+    }
+
+    /**
+     * Tests deletions shift pending updates after them and clip the ones deleted.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testDeletion() throws Exception {
+
+        // Before the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsDeleted(0, 1);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 2, 4, //
+                        TableModelEvent.DELETE, 0, 1);
+            }
+        });
+
+        // Overlapping the beginning of the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsDeleted(3, 4);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 3, 4, //
+                        TableModelEvent.DELETE, 3, 4);
+            }
+        });
+
+        // Within the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsDeleted(5, 5);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 4, 5, //
+                        TableModelEvent.DELETE, 5, 5);
+            }
+        });
+
+        // Overlapping the end of the pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsDeleted(6, 8);
+                TestBbGlazedTableModel.assertEvents(events, //
+                        TableModelEvent.UPDATE, 4, 5, //
+                        TableModelEvent.DELETE, 6, 8);
+            }
+        });
+
+        // Spanning the whole pending range
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableRowsDeleted(3, 7);
+                TestBbGlazedTableModel.assertEvents(events, TableModelEvent.DELETE, 3, 7);
+            }
+        });
+    }
+
+    /**
+     * Tests full changes discard pending updates.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testDataChanged() throws Exception {
+
+        this.doTest(new Scenario() {
+
+            @Override
+            public void run(BbGlazedTableModel tableModel, List<TableModelEvent> events) {
+
+                tableModel.fireTableRowsUpdated(4, 6);
+                tableModel.fireTableDataChanged();
+                TestCase.assertEquals(1, events.size());
+                TestCase.assertEquals(0, events.get(0).getFirstRow());
+                TestCase.assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+
+                tableModel.flushPendingUpdates();
+                TestCase.assertEquals(1, events.size());
+            }
+        });
+    }
+
+    /**
+     * Runs a scenario in the event dispatch thread over a new table model.
+     *
+     * @param scenario
+     *            the scenario.
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    private void doTest(final Scenario scenario) throws Exception {
+
+        final EventList<Person> eventList = new BasicEventList<Person>();
+        eventList.addAll(Person.createPersons(TestBbGlazedTableModel.ROW_COUNT));
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final BbGlazedTableModel tableModel = new BbGlazedTableModel(//
+                        eventList, new String[] { "name", "age" }, "person");
+                final List<TableModelEvent> events = new ArrayList<TableModelEvent>();
+                tableModel.setCoalescingDelay(TestBbGlazedTableModel.LONG_DELAY);
+                tableModel.addTableModelListener(new TableModelListener() {
+
+                    @Override
+                    public void tableChanged(TableModelEvent e) {
+
+                        events.add(e);
+                    }
+                });
+
+                try {
+                    scenario.run(tableModel, events);
+                } finally {
+                    tableModel.dispose();
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks the events notified so far.
+     *
+     * @param events
+     *            the events.
+     * @param expected
+     *            the type, first row and last row of every expected event.
+     */
+    private static void assertEvents(List<TableModelEvent> events, int... expected) {
+
+        TestCase.assertEquals(expected.length / 3, events.size());
+        for (int i = 0; i < events.size(); ++i) {
+            final TableModelEvent event = events.get(i);
+            TestCase.assertEquals(expected[3 * i], event.getType());
+            TestCase.assertEquals(expected[(3 * i) + 1], event.getFirstRow());
+            TestCase.assertEquals(expected[(3 * i) + 2], event.getLastRow());
+        }
+    }
+
+    /**
+     * A sequence of table model events and the checks over the notified ones.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private interface Scenario {
+
+        /**
+         * Runs the scenario.
+         *
+         * @param tableModel
+         *            the table model.
+         * @param events
+         *            the events notified to listeners so far.
+         */
+        void run(BbGlazedTableModel tableModel, List<TableModelEvent> events);
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.EventQueue;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.DefaultTableModel;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link BbTableRowSorter}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestBbTableRowSorter extends TestCase {
+
+    /**
+     * The maximum time to wait for background sorting, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * The number of rows of the tested models.
+     */
+    private static final int ROW_COUNT = 100;
+
+    /**
+     * The background threshold used for testing, below {@link #ROW_COUNT}.
+     */
+    private static final int BACKGROUND_THRESHOLD = 10;
+
+    /**
+     * Tests the view keeps model order until the order sorted in background is published as a single change.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testBackgroundSort() throws Exception {
+
+        final DefaultTableModel model = TestBbTableRowSorter.createModel(TestBbTableRowSorter.ROW_COUNT);
+        final BbTableRowSorter sorter = TestBbTableRowSorter.createSorter(model);
+        final AtomicInteger sortedEvents = TestBbTableRowSorter.countSortedEvents(sorter);
+        final List<SortKey> sortKeys = Arrays.asList(new SortKey(0, SortOrder.DESCENDING));
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                sorter.setSortKeys(sortKeys);
+
+                TestCase.assertEquals(sortKeys, sorter.getSortKeys());
+                TestCase.assertTrue("sorter.isSorting()", sorter.isSorting());
+                for (int row = 0; row < TestBbTableRowSorter.ROW_COUNT; ++row) {
+                    TestCase.assertEquals(row, sorter.convertRowIndexToModel(row));
+                }
+            }
+        });
+        TestBbTableRowSorter.awaitSorting(sorter);
+
+        TestBbTableRowSorter.assertSorted(sorter, model, Boolean.TRUE);
+        TestCase.assertEquals(1, sortedEvents.get());
+        TestCase.assertEquals(sortKeys, sorter.getSortKeys());
+    }
+
+    /**
+     * Tests inserted rows are shown last and deleted ones are dropped keeping the current order until rows are sorted
+     * again.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testModelChanges() throws Exception {
+
+        final DefaultTableModel model = TestBbTableRowSorter.createModel(TestBbTableRowSorter.ROW_COUNT);
+        final BbTableRowSorter sorter = TestBbTableRowSorter.createSorter(model);
+        final int[] sortedOrder = new int[TestBbTableRowSorter.ROW_COUNT];
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                sorter.setSortKeys(Arrays.asList(new SortKey(0, SortOrder.ASCENDING)));
+            }
+        });
+        TestBbTableRowSorter.awaitSorting(sorter);
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                for (int row = 0; row < sortedOrder.length; ++row) {
+                    sortedOrder[row] = sorter.convertRowIndexToModel(row);
+                }
+
+                // Insertion at the beginning: previous rows shift, the new one is shown last
+                model.insertRow(0, new Object[] { Integer.valueOf(-1), "inserted" });
+                TestCase.assertEquals(TestBbTableRowSorter.ROW_COUNT + 1, sorter.getViewRowCount());
+                for (int row = 0; row < sortedOrder.length; ++row) {
+                    TestCase.assertEquals(sortedOrder[row] + 1, sorter.convertRowIndexToModel(row));
+                }
+                TestCase.assertEquals(0, sorter.convertRowIndexToModel(TestBbTableRowSorter.ROW_COUNT));
+                TestCase.assertEquals(TestBbTableRowSorter.ROW_COUNT, sorter.convertRowIndexToView(0));
+
+                // Deletion of the inserted row: back to the sorted order
+                model.removeRow(0);
+                for (int row = 0; row < sortedOrder.length; ++row) {
+                    TestCase.assertEquals(sortedOrder[row], sorter.convertRowIndexToModel(row));
+                    TestCase.assertEquals(row, sorter.convertRowIndexToView(sortedOrder[row]));
+                }
+
+                model.insertRow(0, new Object[] { Integer.valueOf(-1), "inserted" });
+            }
+        });
+        TestBbTableRowSorter.awaitSorting(sorter);
+
+        // Once sorted again the inserted row goes first
+        TestBbTableRowSorter.assertSorted(sorter, model, Boolean.FALSE);
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                TestCase.assertEquals(0, sorter.convertRowIndexToModel(0));
+            }
+        });
+    }
+
+    /**
+     * Tests small and filtered models are sorted at once.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testSortedAtOnce() throws Exception {
+
+        final DefaultTableModel model = TestBbTableRowSorter.createModel(TestBbTableRowSorter.ROW_COUNT);
+        final BbTableRowSorter sorter = TestBbTableRowSorter.createSorter(model);
+        final DefaultTableModel smallModel = //
+        TestBbTableRowSorter.createModel(TestBbTableRowSorter.BACKGROUND_THRESHOLD - 1);
+        final BbTableRowSorter smallSorter = TestBbTableRowSorter.createSorter(smallModel);
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                smallSorter.setSortKeys(Arrays.asList(new SortKey(0, SortOrder.ASCENDING)));
+                TestCase.assertFalse("smallSorter.isSorting()", smallSorter.isSorting());
+
+                sorter.setSortKeys(Arrays.asList(new SortKey(0, SortOrder.ASCENDING)));
+                sorter.setRowFilter(RowFilter.regexFilter("."));
+                TestCase.assertFalse("sorter.isSorting()", sorter.isSorting());
+            }
+        });
+
+        TestBbTableRowSorter.assertSorted(smallSorter, smallModel, Boolean.FALSE);
+        TestBbTableRowSorter.assertSorted(sorter, model, Boolean.FALSE);
+    }
+
+    /**
+     * Creates a model whose first column contains random integers and whose second one their text.
+     *
+     * @param rowCount
+     *            the number of rows.
+     * @return the model.
+     */
+    private static DefaultTableModel createModel(int rowCount) {
+
+        final Random random = new Random(rowCount);
+        final Object[][] data = new Object[rowCount][];
+        for (int row = 0; row < rowCount; ++row) {
+            final Integer value = random.nextInt(rowCount);
+            data[row] = new Object[] { value, value.toString() };
+        }
+
+        return new DefaultTableModel(data, new Object[] { "value", "text" }) {
+
+            /**
+             * This is a <code>Serializable</code> class.
+             */
+            private static final long serialVersionUID = 1L;
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public Class<?> getColumnClass(int columnIndex) {
+
+                return (columnIndex == 0) ? Integer.class : String.class;
+            }
+        };
+    }
+
+    /**
+     * Creates a row sorter for a model.
+     *
+     * @param model
+     *            the model.
+     * @return the row sorter.
+     */
+    private static BbTableRowSorter createSorter(DefaultTableModel model) {
+
+        final BbTableRowSorter sorter = new BbTableRowSorter(model);
+        sorter.setBackgroundThreshold(TestBbTableRowSorter.BACKGROUND_THRESHOLD);
+        model.addTableModelListener(new SorterNotifier(sorter));
+
+        return sorter;
+    }
+
+    /**
+     * Counts the sorted events of a row sorter.
+     *
+     * @param sorter
+     *            the row sorter.
+     * @return the counter.
+     */
+    private static AtomicInteger countSortedEvents(BbTableRowSorter sorter) {
+
+        final AtomicInteger sortedEvents = new AtomicInteger();
+        sorter.addRowSorterListener(new RowSorterListener() {
+
+            @Override
+            public void sorterChanged(RowSorterEvent e) {
+
+                if (e.getType() == RowSorterEvent.Type.SORTED) {
+                    sortedEvents.incrementAndGet();
+                }
+            }
+        });
+
+        return sortedEvents;
+    }
+
+    /**
+     * Waits until a row sorter is done with background sorting.
+     *
+     * @param sorter
+     *            the row sorter.
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    private static void awaitSorting(final BbTableRowSorter sorter) throws Exception {
+
+        final long deadline = System.currentTimeMillis() + TestBbTableRowSorter.TIMEOUT;
+        final Boolean[] sorting = new Boolean[] { Boolean.TRUE };
+        while (sorting[0]) {
+            TestCase.assertTrue("Background sorting timed out", System.currentTimeMillis() < deadline);
+            EventQueue.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    sorting[0] = sorter.isSorting();
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks the view shows every model row sorted by its first column, ties in model order.
+     *
+     * @param sorter
+     *            the row sorter.
+     * @param model
+     *            the model.
+     * @param descending
+     *            whether the first column is sorted in descending order.
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    private static void assertSorted(final BbTableRowSorter sorter, final DefaultTableModel model,
+            final Boolean descending) throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                TestCase.assertEquals(model.getRowCount(), sorter.getViewRowCount());
+                for (int row = 1; row < sorter.getViewRowCount(); ++row) {
+                    final int previous = sorter.convertRowIndexToModel(row - 1);
+                    final int current = sorter.convertRowIndexToModel(row);
+                    final int result = ((Integer) model.getValueAt(previous, 0)).compareTo(//
+                            (Integer) model.getValueAt(current, 0));
+
+                    TestCase.assertTrue("sorted", descending ? (result >= 0) : (result <= 0));
+                    TestCase.assertTrue("stable", (result != 0) || (previous < current));
+                    TestCase.assertEquals(row, sorter.convertRowIndexToView(current));
+                }
+            }
+        });
+    }
+
+    /**
+     * Notifies model changes to a row sorter, as a table does.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static class SorterNotifier implements TableModelListener {
+
+        /**
+         * The row sorter.
+         */
+        private final BbTableRowSorter sorter;
+
+        /**
+         * Creates the notifier.
+         *
+         * @param sorter
+         *            the row sorter.
+         */
+        public SorterNotifier(BbTableRowSorter sorter) {
+
+            this.sorter = sorter;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void tableChanged(TableModelEvent e) {
+
+            switch (e.getType()) {
+                case TableModelEvent.INSERT:
+                    this.sorter.rowsInserted(e.getFirstRow(), e.getLastRow());
+                    break;
+                case TableModelEvent.DELETE:
+                    this.sorter.rowsDeleted(e.getFirstRow(), e.getLastRow());
+                    break;
+                default:
+                    this.sorter.allRowsChanged();
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link TableFilter}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestTableFilter extends TestCase {
+
+    /**
+     * The maximum time to wait for filtering, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * The time between checks while waiting for filtering, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 10;
+
+    /**
+     * A short filtering delay, in milliseconds.
+     */
+    private static final int SHORT_DELAY = 10;
+
+    /**
+     * A filtering delay long enough to check nothing is filtered before it, in milliseconds.
+     */
+    private static final int LONG_DELAY = 1000;
+
+    /**
+     * The number of rows of small tables.
+     */
+    private static final int SMALL_ROW_COUNT = 30;
+
+    /**
+     * The number of rows of large tables, matched in several chunks.
+     */
+    private static final int LARGE_ROW_COUNT = (TableWorkers.CHUNK_SIZE * 2) + 100;
+
+    /**
+     * One out of this number of rows is in Cádiz.
+     */
+    private static final int CADIZ_RATIO = 3;
+
+    /**
+     * The filtered column.
+     */
+    private static final int CITY_COLUMN = 1;
+
+    /**
+     * Tests every chunk of a large table is matched and clearing filters shows every row again.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testChunkedMatching() throws Exception {
+
+        final TableFilter tableFilter = TestTableFilter.createTableFilter(TestTableFilter.LARGE_ROW_COUNT);
+        final JTable table = tableFilter.getTable();
+
+        TestTableFilter.setFilterText(tableFilter, "CADIZ");
+        TestTableFilter.awaitViewRowCount(table, TestTableFilter.countCadiz(TestTableFilter.LARGE_ROW_COUNT));
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                for (int i = 0; i < table.getRowCount(); ++i) {
+                    TestCase.assertEquals("Cádiz", table.getValueAt(i, TestTableFilter.CITY_COLUMN));
+                }
+            }
+        });
+
+        TestTableFilter.setFilterText(tableFilter, null);
+        TestTableFilter.awaitViewRowCount(table, TestTableFilter.LARGE_ROW_COUNT);
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                TestCase.assertNull(table.getRowSorter());
+                tableFilter.dispose();
+            }
+        });
+    }
+
+    /**
+     * Tests filter text changes are debounced: nothing is filtered until the delay since the last change elapses and
+     * then only the last text is applied.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testDebounce() throws Exception {
+
+        final TableFilter tableFilter = TestTableFilter.createTableFilter(TestTableFilter.SMALL_ROW_COUNT);
+        final JTable table = tableFilter.getTable();
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                tableFilter.setDelay(TestTableFilter.LONG_DELAY);
+                tableFilter.setFilterText(TestTableFilter.CITY_COLUMN, "mad");
+                tableFilter.setFilterText(TestTableFilter.CITY_COLUMN, "cad");
+            }
+        });
+
+        final long start = System.currentTimeMillis();
+        Thread.sleep(TestTableFilter.LONG_DELAY / 2);
+        final int[] viewRowCount = new int[1];
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                viewRowCount[0] = table.getRowCount();
+            }
+        });
+        if ((System.currentTimeMillis() - start) < TestTableFilter.LONG_DELAY) {
+            TestCase.assertEquals(TestTableFilter.SMALL_ROW_COUNT, viewRowCount[0]);
+        }
+
+        TestTableFilter.awaitViewRowCount(table, TestTableFilter.countCadiz(TestTableFilter.SMALL_ROW_COUNT));
+    }
+
+    /**
+     * Tests results computed while the table model changed are discarded and rows are matched again, whereas new rows
+     * are shown in the meantime.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testGenerationDiscard() throws Exception {
+
+        final TableFilter tableFilter = TestTableFilter.createTableFilter(TestTableFilter.SMALL_ROW_COUNT);
+        final JTable table = tableFilter.getTable();
+        final DefaultTableModel tableModel = (DefaultTableModel) table.getModel();
+        final int cadizCount = TestTableFilter.countCadiz(TestTableFilter.SMALL_ROW_COUNT);
+
+        // Keep every worker busy, so matching waits
+        final int workers = Runtime.getRuntime().availableProcessors();
+        final CountDownLatch busy = new CountDownLatch(workers);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < workers; ++i) {
+            TableWorkers.EXECUTOR_SERVICE.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    busy.countDown();
+                    try {
+                        release.await(TestTableFilter.TIMEOUT, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        TestCase.assertTrue(busy.await(TestTableFilter.TIMEOUT, TimeUnit.MILLISECONDS));
+
+        try {
+            TestTableFilter.setFilterText(tableFilter, "cadiz");
+
+            // Wait for matching to be started, then change the table model and postpone matching again
+            Thread.sleep(TestTableFilter.SHORT_DELAY * 10);
+            EventQueue.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    tableFilter.setDelay(TestTableFilter.LONG_DELAY * 10);
+                    tableModel.addRow(new Object[] { "New", "Madrid" });
+                }
+            });
+        } finally {
+            release.countDown();
+        }
+
+        // Stale results are discarded, so nothing is filtered yet
+        final AtomicInteger viewRowCount = new AtomicInteger();
+        Thread.sleep(TestTableFilter.SHORT_DELAY * 10);
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                viewRowCount.set(table.getRowCount());
+            }
+        });
+        TestCase.assertEquals(TestTableFilter.SMALL_ROW_COUNT + 1, viewRowCount.get());
+
+        // Matching again filters the new row out too
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                tableFilter.setDelay(TestTableFilter.SHORT_DELAY);
+                tableFilter.setFilterText(TestTableFilter.CITY_COLUMN, "cadiz");
+            }
+        });
+        TestTableFilter.awaitViewRowCount(table, cadizCount);
+
+        // Once filtered, new rows are shown until matched
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                tableFilter.setDelay(TestTableFilter.LONG_DELAY);
+                tableModel.addRow(new Object[] { "Newer", "Madrid" });
+                TestCase.assertEquals(cadizCount + 1, table.getRowCount());
+            }
+        });
+        TestTableFilter.awaitViewRowCount(table, cadizCount);
+    }
+
+    /**
+     * Creates a filtered table whose rows are in Madrid but one out of {@link #CADIZ_RATIO}, which is in Cádiz.
+     *
+     * @param rowCount
+     *            the number of rows.
+     * @return the table filter.
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    private static TableFilter createTableFilter(final int rowCount) throws Exception {
+
+        final TableFilter[] tableFilter = new TableFilter[1];
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final DefaultTableModel tableModel = new DefaultTableModel(new Object[] { "name", "city" }, 0);
+                for (int i = 0; i < rowCount; ++i) {
+                    tableModel.addRow(new Object[] { "Row " + i, ((i % TestTableFilter.CADIZ_RATIO) == 0) ? "Cádiz"
+                            : "Madrid" });
+                }
+
+                tableFilter[0] = new TableFilter(new JTable(tableModel));
+                tableFilter[0].setDelay(TestTableFilter.SHORT_DELAY);
+            }
+        });
+
+        return tableFilter[0];
+    }
+
+    /**
+     * Counts the rows in Cádiz.
+     *
+     * @param rowCount
+     *            the number of rows.
+     * @return the number of rows in Cádiz.
+     */
+    private static int countCadiz(int rowCount) {
+
+        return (rowCount + TestTableFilter.CADIZ_RATIO - 1) / TestTableFilter.CADIZ_RATIO;
+    }
+
+    /**
+     * Sets the filter text of the city column from the event dispatch thread.
+     *
+     * @param tableFilter
+     *            the table filter.
+     * @param text
+     *            the filter text.
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    private static void setFilterText(final TableFilter tableFilter, final String text) throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                tableFilter.setFilterText(TestTableFilter.CITY_COLUMN, text);
+            }
+        });
+    }
+
+    /**
+     * Waits until the table shows a given number of rows.
+     *
+     * @param table
+     *            the table.
+     * @param viewRowCount
+     *            the expected number of rows.
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     * @throws InvocationTargetException
+     *             if the event dispatch thread fails.
+     */
+    private static void awaitViewRowCount(final JTable table, int viewRowCount) throws InterruptedException,
+            InvocationTargetException {
+
+        final AtomicInteger current = new AtomicInteger(-1);
+        final long deadline = System.currentTimeMillis() + TestTableFilter.TIMEOUT;
+        while ((current.get() != viewRowCount) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(TestTableFilter.POLL_INTERVAL);
+            EventQueue.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    current.set(table.getRowCount());
+                }
+            });
+        }
+
+        TestCase.assertEquals(viewRowCount, current.get());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.EventQueue;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.table.DefaultTableModel;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link TableFilterHeader}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestTableFilterHeader extends TestCase {
+
+    /**
+     * The column names.
+     */
+    private static final Object[] COLUMN_NAMES = new Object[] { "name", "city", "country" };
+
+    /**
+     * Tests there is a single filter header per table, with a text field per column.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testGetInstance() throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JTable table = TestTableFilterHeader.createTable();
+                final TableFilterHeader filterHeader = TableFilterHeader.getInstance(table);
+
+                TestCase.assertSame(filterHeader, TableFilterHeader.getInstance(table));
+                TestCase.assertSame(table, filterHeader.getTableFilter().getTable());
+                TestCase.assertFalse(filterHeader.isActive());
+                TestCase.assertEquals(TestTableFilterHeader.COLUMN_NAMES.length, filterHeader.getComponentCount());
+            }
+        });
+    }
+
+    /**
+     * Tests activating the filter header shows it below the table header and deactivating it clears filters.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testSetActive() throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JTable table = TestTableFilterHeader.createTable();
+                final JScrollPane scrollPane = new JScrollPane(table);
+                // As the table does once displayable
+                scrollPane.setColumnHeaderView(table.getTableHeader());
+                final TableFilterHeader filterHeader = TableFilterHeader.getInstance(table);
+
+                filterHeader.setActive(Boolean.TRUE);
+                TestCase.assertTrue(filterHeader.isActive());
+                TestCase.assertSame(scrollPane.getColumnHeader().getView(), filterHeader.getParent());
+                TestCase.assertSame(filterHeader.getParent(), table.getTableHeader().getParent());
+
+                TestTableFilterHeader.getTextField(filterHeader, 1).setText("cadiz");
+                TestCase.assertTrue(filterHeader.getTableFilter().isActive());
+
+                filterHeader.setActive(Boolean.FALSE);
+                TestCase.assertFalse(filterHeader.isActive());
+                TestCase.assertFalse(filterHeader.getTableFilter().isActive());
+                TestCase.assertSame(table.getTableHeader(), scrollPane.getColumnHeader().getView());
+                TestCase.assertEquals("", TestTableFilterHeader.getTextField(filterHeader, 1).getText());
+            }
+        });
+    }
+
+    /**
+     * Tests text fields follow column moves, keeping their texts, and are cleared when the table model changes.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testColumnChanges() throws Exception {
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JTable table = TestTableFilterHeader.createTable();
+                final TableFilterHeader filterHeader = TableFilterHeader.getInstance(table);
+
+                TestTableFilterHeader.getTextField(filterHeader, 1).setText("cadiz");
+                table.getColumnModel().moveColumn(1, 0);
+                TestCase.assertEquals("cadiz", TestTableFilterHeader.getTextField(filterHeader, 0).getText());
+                TestCase.assertEquals("", TestTableFilterHeader.getTextField(filterHeader, 1).getText());
+
+                // Typing into a moved column filters by its model index
+                TestTableFilterHeader.getTextField(filterHeader, 0).setText(null);
+                TestCase.assertFalse(filterHeader.getTableFilter().isActive());
+
+                TestTableFilterHeader.getTextField(filterHeader, 2).setText("spain");
+                table.setModel(new DefaultTableModel(TestTableFilterHeader.COLUMN_NAMES, 0));
+                TestCase.assertFalse(filterHeader.getTableFilter().isActive());
+                for (int i = 0; i < filterHeader.getComponentCount(); ++i) {
+                    TestCase.assertEquals("", TestTableFilterHeader.getTextField(filterHeader, i).getText());
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates a table with a row.
+     *
+     * @return the table.
+     */
+    private static JTable createTable() {
+
+        final DefaultTableModel tableModel = new DefaultTableModel(TestTableFilterHeader.COLUMN_NAMES, 0);
+        tableModel.addRow(new Object[] { "Julio", "Cádiz", "Spain" });
+
+        return new JTable(tableModel);
+    }
+
+    /**
+     * Gets the text field of a view column.
+     *
+     * @param filterHeader
+     *            the filter header.
+     * @param viewColumn
+     *            the view index of the column.
+     * @return the text field.
+     */
+    private static JTextField getTextField(TableFilterHeader filterHeader, int viewColumn) {
+
+        return (JTextField) filterHeader.getComponent(viewColumn);
+    }
+}
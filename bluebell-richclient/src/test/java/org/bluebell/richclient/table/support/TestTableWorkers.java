@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.table.support;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.table.DefaultTableModel;
+
+import junit.framework.TestCase;
+
+import org.bluebell.richclient.table.support.TableWorkers.RowSnapshot;
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link TableWorkers}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestTableWorkers extends TestCase {
+
+    /**
+     * The maximum time to wait for workers, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * The number of sorted elements, enough for several chunks and an incomplete one.
+     */
+    private static final int SORT_SIZE = (TableWorkers.CHUNK_SIZE * 4) + 3;
+
+    /**
+     * The number of distinct sort keys, few so that stability matters.
+     */
+    private static final int SORT_KEYS = 10;
+
+    /**
+     * Tests texts are normalized ignoring case and diacritical marks.
+     */
+    @Test
+    public void testNormalize() {
+
+        TestCase.assertEquals("nandu de cadiz", TableWorkers.normalize("Ñandú de CÁDIZ"));
+    }
+
+    /**
+     * Tests every task is run, even when invoked from a worker with more tasks than workers.
+     *
+     * @throws Exception
+     *             if the worker fails.
+     */
+    @Test
+    public void testInvokeAll() throws Exception {
+
+        final int taskCount = Runtime.getRuntime().availableProcessors() * 4;
+        final AtomicInteger ran = new AtomicInteger();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < taskCount; ++i) {
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    ran.incrementAndGet();
+                }
+            });
+        }
+
+        // Every worker invoking tasks at the same time must not deadlock
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); ++i) {
+            futures.add(TableWorkers.EXECUTOR_SERVICE.submit(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    TableWorkers.invokeAll(tasks);
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get(TestTableWorkers.TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        TestCase.assertEquals(taskCount * futures.size(), ran.get());
+    }
+
+    /**
+     * Tests exceptions thrown by tasks are rethrown to the invoker.
+     */
+    @Test
+    public void testInvokeAllRethrows() {
+
+        final IllegalArgumentException exception = new IllegalArgumentException("Thrown on purpose by the test");
+        try {
+            TableWorkers.invokeAll(Arrays.<Runnable> asList(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    throw exception;
+                }
+            }));
+            TestCase.fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            TestCase.assertSame(exception, e);
+        }
+    }
+
+    /**
+     * Tests the parallel sort is stable and sorts the same way a sequential sort does.
+     */
+    @Test
+    public void testSort() {
+
+        final Random random = new Random(TestTableWorkers.SORT_SIZE);
+        final int[][] array = new int[TestTableWorkers.SORT_SIZE][];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = new int[] { random.nextInt(TestTableWorkers.SORT_KEYS), i };
+        }
+        final Comparator<int[]> byKey = new Comparator<int[]>() {
+
+            @Override
+            public int compare(int[] o1, int[] o2) {
+
+                return (o1[0] < o2[0]) ? -1 : ((o1[0] == o2[0]) ? 0 : 1);
+            }
+        };
+
+        final int[][] expected = array.clone();
+        Arrays.sort(expected, byKey);
+        TableWorkers.sort(array, byKey);
+
+        for (int i = 0; i < array.length; ++i) {
+            TestCase.assertSame(expected[i], array[i]);
+        }
+    }
+
+    /**
+     * Tests a snapshot keeps the cell values at the moment it was taken.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+
+        final RowSnapshot[] snapshot = new RowSnapshot[1];
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final DefaultTableModel tableModel = new DefaultTableModel(new Object[][] { { "a", 1 }, { "b", 2 } },
+                        new Object[] { "name", "value" });
+                snapshot[0] = TableWorkers.snapshot(tableModel);
+
+                tableModel.setValueAt("c", 0, 0);
+                tableModel.removeRow(1);
+            }
+        });
+
+        TestCase.assertEquals(2, snapshot[0].getRowCount());
+        TestCase.assertEquals(2, snapshot[0].getColumnCount());
+        TestCase.assertEquals("a", snapshot[0].getValueAt(0, 0));
+        TestCase.assertEquals(2, snapshot[0].getValueAt(1, 1));
+    }
+}
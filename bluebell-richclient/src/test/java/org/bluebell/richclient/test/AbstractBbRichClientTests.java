@@ -44,6 +44,7 @@ import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.bluebell.richclient.application.config.BbApplicationConfig;
+import org.bluebell.richclient.command.support.BackgroundCommandExecutor;
 import org.bluebell.richclient.swing.util.SwingUtils;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -130,6 +131,15 @@ public abstract class AbstractBbRichClientTests extends AbstractJUnit4SpringCont
         }
     }
 
+    /**
+     * Runs long running commands synchronously, so tests can make assertions right after executing them.
+     */
+    @BeforeClass
+    public static void runBackgroundCommandsSynchronously() {
+
+        BackgroundCommandExecutor.getInstance().setSynchronous(Boolean.TRUE);
+    }
+
     /**
      * Close the application after every test is executed.
      * <p>
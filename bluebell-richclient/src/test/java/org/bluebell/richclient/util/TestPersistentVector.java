@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Tests the correct behaviour of {@link PersistentVector}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestPersistentVector extends TestCase {
+
+    /**
+     * A size big enough to require three tree levels.
+     */
+    private static final int SIZE = 40000;
+
+    /**
+     * Tests appended elements are read back in order and former versions remain unchanged.
+     */
+    @Test
+    public void testAppend() {
+
+        final List<Integer> expected = new ArrayList<Integer>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < TestPersistentVector.SIZE; ++i) {
+            final PersistentVector<Integer> previous = vector;
+            vector = vector.append(i);
+            expected.add(i);
+
+            TestCase.assertEquals(i, previous.size());
+            TestCase.assertEquals(i + 1, vector.size());
+        }
+
+        TestCase.assertEquals(expected, vector);
+        TestCase.assertEquals(expected, PersistentVector.copyOf(expected));
+        TestCase.assertTrue(PersistentVector.empty().isEmpty());
+    }
+
+    /**
+     * Tests replacing, inserting and deleting elements return new versions leaving the receiver unchanged.
+     */
+    @Test
+    public void testVersions() {
+
+        final List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < TestPersistentVector.SIZE; ++i) {
+            expected.add(i);
+        }
+        final PersistentVector<Integer> vector = PersistentVector.copyOf(expected);
+
+        // Replace an element in the middle and the last one
+        final int inTree = 1234;
+        final int inTail = TestPersistentVector.SIZE - 1;
+        final PersistentVector<Integer> replaced = vector.replace(inTree, -1).replace(inTail, -2);
+        TestCase.assertEquals(Integer.valueOf(-1), replaced.get(inTree));
+        TestCase.assertEquals(Integer.valueOf(-2), replaced.get(inTail));
+        TestCase.assertEquals(expected, vector);
+
+        // Insert and delete
+        final PersistentVector<Integer> inserted = vector.insert(0, -1);
+        TestCase.assertEquals(TestPersistentVector.SIZE + 1, inserted.size());
+        TestCase.assertEquals(Integer.valueOf(-1), inserted.get(0));
+        TestCase.assertEquals(expected, inserted.delete(0));
+        TestCase.assertEquals(expected, vector);
+
+        // Out of bounds
+        try {
+            vector.get(TestPersistentVector.SIZE);
+            TestCase.fail("Index out of bounds");
+        } catch (IndexOutOfBoundsException e) {
+            TestCase.assertTrue(e.getMessage(), Boolean.TRUE);
+        }
+
+        // Immutable
+        try {
+            vector.add(-1);
+            TestCase.fail("Immutable");
+        } catch (UnsupportedOperationException e) {
+            TestCase.assertTrue(e.getMessage(), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Tests random insertions, deletions and replacements anywhere against an <code>ArrayList</code>, splitting and
+     * dropping nodes at every level.
+     */
+    @Test
+    public void testInsertDelete() {
+
+        final Random random = new Random(TestPersistentVector.SIZE);
+        final List<Integer> expected = new ArrayList<Integer>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < TestPersistentVector.SIZE * 2; ++i) {
+            final int operation = random.nextInt(4);
+            if ((operation < 2) || expected.isEmpty()) {
+                final int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                vector = vector.insert(index, i);
+            } else if (operation == 2) {
+                final int index = random.nextInt(expected.size());
+                expected.remove(index);
+                vector = vector.delete(index);
+            } else {
+                final int index = random.nextInt(expected.size());
+                expected.set(index, -i);
+                vector = vector.replace(index, -i);
+            }
+        }
+        TestCase.assertEquals(expected, vector);
+
+        // Delete everything from the middle
+        while (!expected.isEmpty()) {
+            final int index = expected.size() / 2;
+            expected.remove(index);
+            vector = vector.delete(index);
+        }
+        TestCase.assertEquals(expected, vector);
+        TestCase.assertTrue(vector.isEmpty());
+    }
+}
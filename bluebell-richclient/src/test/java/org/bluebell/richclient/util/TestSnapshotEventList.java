@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell Rich Client.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.util;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+
+/**
+ * Tests the correct behaviour of {@link SnapshotEventList}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestSnapshotEventList extends TestCase {
+
+    /**
+     * The maximum time to wait for the event dispatch thread, in milliseconds.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * The time between checks while waiting for the event dispatch thread, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 10;
+
+    /**
+     * Tests the differences between snapshots are notified as a single event with updates and insertions.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testDifferences() throws Exception {
+
+        final SnapshotEventList<String> list = new SnapshotEventList<String>(Arrays.asList("a", "b", "c", "d"));
+        final RecordingListener<String> listener = new RecordingListener<String>();
+        list.addListEventListener(listener);
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                // Applied right now from the EDT
+                list.publish(Arrays.asList("a", "x", "c", "d", "e"));
+                TestCase.assertEquals(Arrays.asList("a", "x", "c", "d", "e"), list);
+
+                list.remove(0);
+                list.remove("c");
+                TestCase.assertEquals(Arrays.asList("x", "d", "e"), list);
+            }
+        });
+
+        TestCase.assertEquals(3, listener.getEventCount());
+        // Elements between the first and last changed ones are notified as updates
+        TestCase.assertEquals(Arrays.asList("U1", "U2", "U3", "I4", "D0", "D1"), listener.getChanges());
+    }
+
+    /**
+     * Tests readers outside the event dispatch thread see the latest snapshot, whereas readers in the event dispatch
+     * thread see the applied one until changes are notified.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testReads() throws Exception {
+
+        final SnapshotEventList<String> list = new SnapshotEventList<String>(Arrays.asList("a", "b", "c", "d"));
+        final RecordingListener<String> listener = new RecordingListener<String>();
+        list.addListEventListener(listener);
+
+        // Block the EDT until the list has been changed
+        final CountDownLatch changed = new CountDownLatch(1);
+        final AtomicInteger sizeInEdt = new AtomicInteger(-1);
+        EventQueue.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    changed.await(TestSnapshotEventList.TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sizeInEdt.set(list.size());
+            }
+        });
+
+        list.add("e");
+        list.set(0, "z");
+        TestCase.assertEquals(5, list.size());
+        TestCase.assertEquals("z", list.get(0));
+        TestCase.assertSame(list.getSnapshot().get(4), list.get(4));
+        changed.countDown();
+
+        TestSnapshotEventList.awaitApplied(list, 5);
+        TestCase.assertEquals(4, sizeInEdt.get());
+        TestCase.assertEquals(Arrays.asList("z", "b", "c", "d", "e"), list);
+
+        // Both changes are notified at once
+        TestCase.assertEquals(1, listener.getEventCount());
+        TestCase.assertEquals(Arrays.asList("U0", "U1", "U2", "U3", "I4"), listener.getChanges());
+    }
+
+    /**
+     * Tests a mirror replicates the changes of its source list until disposed.
+     *
+     * @throws Exception
+     *             if the event dispatch thread fails.
+     */
+    @Test
+    public void testMirror() throws Exception {
+
+        final EventList<String> source = new BasicEventList<String>();
+        source.addAll(Arrays.asList("a", "b", "c"));
+
+        final SnapshotEventList<String> mirror = SnapshotEventList.mirror(source);
+        final RecordingListener<String> listener = new RecordingListener<String>();
+        mirror.addListEventListener(listener);
+        TestCase.assertEquals(source, mirror);
+
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                source.add(1, "x");
+                source.remove("c");
+                source.set(0, "y");
+                TestCase.assertEquals(Arrays.asList("y", "x", "b"), mirror);
+            }
+        });
+        TestCase.assertEquals(3, listener.getEventCount());
+
+        // Changes made outside the EDT are seen right away from there
+        source.getReadWriteLock().writeLock().lock();
+        try {
+            source.add("d");
+        } finally {
+            source.getReadWriteLock().writeLock().unlock();
+        }
+        TestCase.assertEquals(Arrays.asList("y", "x", "b", "d"), mirror);
+        TestSnapshotEventList.awaitApplied(mirror, 4);
+        TestCase.assertEquals(Arrays.asList("I1", "D3", "U0", "I3"), listener.getChanges());
+
+        // Events with several changes
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                GlazedLists.replaceAll(source, Arrays.asList("d", "b", "x", "y", "z"), Boolean.TRUE);
+                TestCase.assertEquals(source, mirror);
+            }
+        });
+
+        // Disposed mirrors do not change
+        mirror.dispose();
+        EventQueue.invokeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+
+                source.clear();
+                TestCase.assertEquals(5, mirror.size());
+            }
+        });
+    }
+
+    /**
+     * Waits until the event dispatch thread sees a given list size.
+     *
+     * @param list
+     *            the list.
+     * @param size
+     *            the expected size.
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     * @throws InvocationTargetException
+     *             if the event dispatch thread fails.
+     */
+    private static void awaitApplied(final EventList<?> list, int size) throws InterruptedException,
+            InvocationTargetException {
+
+        final AtomicInteger sizeInEdt = new AtomicInteger(-1);
+        final long deadline = System.currentTimeMillis() + TestSnapshotEventList.TIMEOUT;
+        while ((sizeInEdt.get() != size) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(TestSnapshotEventList.POLL_INTERVAL);
+            EventQueue.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    sizeInEdt.set(list.size());
+                }
+            });
+        }
+
+        TestCase.assertEquals(size, sizeInEdt.get());
+    }
+
+    /**
+     * Records list events: the number of events and their changes, as the change type initial followed by the index.
+     *
+     * @param <E>
+     *            the type of the elements.
+     *
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    private static final class RecordingListener<E> implements ListEventListener<E> {
+
+        /**
+         * The number of events.
+         */
+        private int eventCount;
+
+        /**
+         * The changes.
+         */
+        private final List<String> changes = new ArrayList<String>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void listChanged(ListEvent<E> listChanges) {
+
+            ++this.eventCount;
+            while (listChanges.next()) {
+                final int type = listChanges.getType();
+                final String initial = (type == ListEvent.INSERT) ? "I" : ((type == ListEvent.DELETE) ? "D" : "U");
+                this.changes.add(initial + listChanges.getIndex());
+            }
+        }
+
+        /**
+         * Gets the number of events.
+         *
+         * @return the number of events.
+         */
+        private int getEventCount() {
+
+            return this.eventCount;
+        }
+
+        /**
+         * Gets the changes.
+         *
+         * @return the changes.
+         */
+        private List<String> getChanges() {
+
+            return this.changes;
+        }
+    }
+}
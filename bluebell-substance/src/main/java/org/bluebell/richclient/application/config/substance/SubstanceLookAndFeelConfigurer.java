@@ -22,6 +22,7 @@
 package org.bluebell.richclient.application.config.substance;
 
 import java.awt.Color;
+import java.awt.EventQueue;
 
 import javax.swing.JDialog;
 import javax.swing.JFrame;
@@ -29,11 +30,15 @@ import javax.swing.JTabbedPane;
 import javax.swing.UIManager;
 
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.bluebell.richclient.application.RcpMain;
 import org.bluebell.richclient.application.config.vldocking.VLDockingLookAndFeelConfigurer;
 import org.bluebell.richclient.application.docking.vldocking.VLDockingUtils;
+import org.bluebell.richclient.swing.util.FrameRateProgressMonitor;
 import org.bluebell.richclient.swing.util.SwingUtils;
 import org.pushingpixels.lafwidget.LafWidget;
 import org.pushingpixels.lafwidget.animation.AnimationConfigurationManager;
@@ -47,6 +52,7 @@ import org.pushingpixels.substance.api.SubstanceLookAndFeel;
 import org.pushingpixels.substance.api.SubstanceSkin;
 import org.pushingpixels.substance.api.skin.DustSkin;
 import org.pushingpixels.substance.api.skin.SkinChangeListener;
+import org.springframework.richclient.progress.ProgressMonitor;
 import org.springframework.util.Assert;
 
 /**
@@ -101,7 +107,8 @@ import org.springframework.util.Assert;
  * </pre>
  * <p>
  * The extra beans are needed to intercept progress monitor operations and execute them into the Event Dispatcher
- * Thread. Since progress monitor is not a bean an additional work is needed in order to intercept invocations:
+ * Thread without blocking the context loading thread (see {@link FrameRateProgressMonitor}). Since progress monitor is
+ * not a bean an additional work is needed in order to intercept invocations:
  * <ol>
  * <li>Declare it as a bean: <code>progressMonitor</code> bean.
  * <li>Once it's already a bean intecept required operations: {@link #progressMonitorOperation()}.
@@ -124,6 +131,11 @@ public class SubstanceLookAndFeelConfigurer extends VLDockingLookAndFeelConfigur
      */
     private Object progressMonitorProxyBean;
 
+    /**
+     * The non blocking progress monitor decorating the splash screen one.
+     */
+    private FrameRateProgressMonitor frameRateProgressMonitor;
+
     /**
      * The default Substance skin to be set if failure or not provided.
      */
@@ -196,7 +208,10 @@ public class SubstanceLookAndFeelConfigurer extends VLDockingLookAndFeelConfigur
     }
 
     /**
-     * This advice ensures the intercepted method is executed in the EDT.
+     * This advice ensures the intercepted method is executed in the EDT without blocking the invoking thread.
+     * <p>
+     * Methods returning nothing are queued into the EDT and the invoking thread continues immediately, any other
+     * method (i.e.: <code>isCanceled</code>) just reads state and proceeds in the current thread.
      * 
      * @param pjp
      *            the isProceeding join point.
@@ -207,31 +222,34 @@ public class SubstanceLookAndFeelConfigurer extends VLDockingLookAndFeelConfigur
     @Around("progressMonitorOperation()")
     public final Object doInEventDispatcherThread(final ProceedingJoinPoint pjp) throws Throwable {
 
-        final Object[] returnValue = new Object[1];
-        final Throwable[] throwable = new Throwable[1];
+        final Signature signature = pjp.getSignature();
+        final Boolean isVoid = (signature instanceof MethodSignature)
+                && Void.TYPE.equals(((MethodSignature) signature).getReturnType());
+
+        if (EventQueue.isDispatchThread() || !isVoid) {
+            return pjp.proceed();
+        }
 
         SwingUtils.runInEventDispatcherThread(new Runnable() {
             public void run() {
 
                 try {
-                    returnValue[0] = pjp.proceed();
+                    pjp.proceed();
                 } catch (final Throwable e) {
-                    throwable[0] = e;
+                    RcpMain.handleException(e);
                 }
             }
-        });
+        }, Boolean.FALSE);
 
-        // Re-throw throwable
-        if (throwable[0] != null) {
-            throw throwable[0];
-        }
-
-        return returnValue[0];
+        return null;
     }
 
     /**
      * This advice replaces the object returned by the target method with the proxy bean instantiated by the bean
      * factory, capable of being intercepted using AOP mechanism.
+     * <p>
+     * The returned progress monitor is decorated with a {@link FrameRateProgressMonitor}, so the context loading
+     * thread never waits for the EDT while reporting progress.
      * 
      * @param pjp
      *            the isProceeding join point.
@@ -244,9 +262,15 @@ public class SubstanceLookAndFeelConfigurer extends VLDockingLookAndFeelConfigur
     @Around("monitoringSplashScreenGetProgressMonitorOperation()")
     public final Object replaceProgressMonitorAdvice(final ProceedingJoinPoint pjp) throws Throwable {
 
-        final Object returnValue = this.doInEventDispatcherThread(pjp);
+        final Object returnValue = pjp.proceed();
+        final Object progressMonitor = (this.getProgressMonitorProxyBean() != null) ? this
+                .getProgressMonitorProxyBean() : returnValue;
 
-        return (this.getProgressMonitorProxyBean() != null) ? this.getProgressMonitorProxyBean() : returnValue;
+        if (progressMonitor instanceof ProgressMonitor) {
+            return this.getFrameRateProgressMonitor((ProgressMonitor) progressMonitor);
+        }
+
+        return progressMonitor;
     }
 
     /**
@@ -423,4 +447,21 @@ public class SubstanceLookAndFeelConfigurer extends VLDockingLookAndFeelConfigur
 
         return this.progressMonitorProxyBean;
     }
+
+    /**
+     * Gets the non blocking progress monitor decorating the given one, creating it if needed.
+     * 
+     * @param targetProgressMonitor
+     *            the progress monitor to be decorated.
+     * @return the non blocking progress monitor.
+     */
+    private synchronized FrameRateProgressMonitor getFrameRateProgressMonitor(ProgressMonitor targetProgressMonitor) {
+
+        if ((this.frameRateProgressMonitor == null)
+                || (this.frameRateProgressMonitor.getTargetProgressMonitor() != targetProgressMonitor)) {
+            this.frameRateProgressMonitor = new FrameRateProgressMonitor(targetProgressMonitor);
+        }
+
+        return this.frameRateProgressMonitor;
+    }
 }
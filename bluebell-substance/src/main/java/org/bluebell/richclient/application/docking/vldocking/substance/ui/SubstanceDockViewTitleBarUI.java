@@ -35,6 +35,8 @@ import com.vlsolutions.swing.docking.DockViewTitleBar;
  * Extends {@link BbDockViewTitleBarUI} in the following way:
  * <ul>
  * <li>Re-installs font and repaint background when painting.
+ * <li>Caches whether a Substance skin is available, the cache is discarded every time the UI is installed (i.e.: on
+ * skin changes).
  * </ul>
  * 
  * @see <a href="http://forum.springsource.org/showthread.php?t=73183">Related Spring forum topic</a>
@@ -45,6 +47,11 @@ import com.vlsolutions.swing.docking.DockViewTitleBar;
  */
 public class SubstanceDockViewTitleBarUI extends BbDockViewTitleBarUI {
 
+    /**
+     * Whether the title bar has a Substance skin, <code>null</code> if unknown.
+     */
+    private Boolean skinned;
+
     /**
      * Creates the UI.
      * 
@@ -85,12 +92,27 @@ public class SubstanceDockViewTitleBarUI extends BbDockViewTitleBarUI {
      */
     public void activate(JComponent target, Boolean active) {
 
-        final SubstanceSkin skin = SubstanceCoreUtilities.getSkin((DockViewTitleBar) target);
-        if (skin != null) {
+        if (this.skinned == null) {
+            final SubstanceSkin skin = SubstanceCoreUtilities.getSkin((DockViewTitleBar) target);
+            this.skinned = (skin != null);
+        }
+
+        if (this.skinned) {
             super.activate(target, active);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate() {
+
+        super.invalidate();
+
+        this.skinned = null;
+    }
+
     /**
      * Factory method for creating the UI.
      * 
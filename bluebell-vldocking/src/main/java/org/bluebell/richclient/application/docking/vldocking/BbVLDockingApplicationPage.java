@@ -18,49 +18,54 @@
 
 package org.bluebell.richclient.application.docking.vldocking;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.StringWriter;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
 
 import javax.swing.JComponent;
 import javax.xml.parsers.ParserConfigurationException;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.bluebell.richclient.application.ApplicationPageConfigurer;
 import org.bluebell.richclient.application.ApplicationPageException;
 import org.bluebell.richclient.application.support.ApplicationUtils;
 import org.bluebell.richclient.application.support.DefaultApplicationPageConfigurer;
 import org.bluebell.richclient.application.support.DefaultApplicationPageConfigurer.BbViewType;
+import org.bluebell.richclient.application.support.FormBackedView;
 import org.bluebell.richclient.util.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.richclient.application.ApplicationWindow;
 import org.springframework.richclient.application.PageComponent;
+import org.springframework.richclient.application.PageComponentDescriptor;
 import org.springframework.richclient.application.PageDescriptor;
 import org.springframework.richclient.application.View;
 import org.springframework.richclient.application.docking.vldocking.VLDockingApplicationPage;
 import org.springframework.richclient.application.docking.vldocking.VLDockingLayoutManager;
 import org.springframework.richclient.application.docking.vldocking.VLDockingPageDescriptor;
 import org.springframework.richclient.application.docking.vldocking.ViewDescriptorDockable;
-import org.springframework.ui.velocity.VelocityEngineUtils;
 import org.springframework.util.Assert;
 import org.xml.sax.SAXException;
 
@@ -84,6 +89,10 @@ import com.vlsolutions.swing.docking.DockingDesktop;
  * This implementation is able to reuse dockable after have been closed although their page components have changed in
  * time.
  * </p>
+ * <p>
+ * Closed views are either fully disposed or reset and kept warm in a small pool to be reused the next time they are
+ * shown, depending on the {@link ViewClosePolicy} configured for their view descriptor.
+ * </p>
  * 
  * @param <T>
  *            the type of entities managed by this page.
@@ -124,6 +133,31 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
      */
     private static final String PAGE_ID_IF_NULL = "emptyPage";
 
+    /**
+     * The maximum number of generated auto layouts cached per velocity engine.
+     */
+    private static final int MAX_CACHED_AUTO_LAYOUTS = 32;
+
+    /**
+     * The load factor of the auto layout caches.
+     */
+    private static final float AUTO_LAYOUTS_LOAD_FACTOR = 0.75f;
+
+    /**
+     * The generated auto layouts indexed by velocity engine and by the key of the classification they were generated
+     * for. The least recently used ones are discarded first.
+     * 
+     * @see #getAutoLayout()
+     */
+    private static final Map<VelocityEngine, Map<String, byte[]>> AUTO_LAYOUTS = //
+    new WeakHashMap<VelocityEngine, Map<String, byte[]>>();
+
+    /**
+     * The compiled auto layout templates indexed by velocity engine and template location.
+     */
+    private static final Map<VelocityEngine, Map<String, Template>> COMPILED_TEMPLATES = //
+    new WeakHashMap<VelocityEngine, Map<String, Template>>();
+
     /**
      * The successfully build layout resource.
      */
@@ -159,6 +193,26 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
      */
     private Resource autoLayoutTemplate;
 
+    /**
+     * The close policies indexed by view descriptor id.
+     */
+    private Map<String, ViewClosePolicy> viewClosePolicies = new HashMap<String, ViewClosePolicy>();
+
+    /**
+     * The close policy for views with no explicit policy.
+     */
+    private ViewClosePolicy defaultViewClosePolicy = ViewClosePolicy.DISPOSE;
+
+    /**
+     * The maximum number of pooled views per view descriptor.
+     */
+    private Integer viewPoolSize = 2;
+
+    /**
+     * The pooled views indexed by view descriptor id.
+     */
+    private final Map<String, LinkedList<PageComponent>> viewPool = new HashMap<String, LinkedList<PageComponent>>();
+
     /**
      * Creates the page given its window and page descriptor.
      * 
@@ -208,7 +262,7 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
         while (itr.hasNext() && !layoutSuccess) {
 
             final Resource tryWithLayout = itr.next();
-            if ((tryWithLayout == null) || tryWithLayout.exists()) {
+            if ((tryWithLayout == null) || BbVLDockingLayoutStore.getInstance().exists(tryWithLayout)) {
                 layoutSuccess = this.buildLayout(dockingDesktop, tryWithLayout, exceptions);
             }
         }
@@ -253,8 +307,8 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
             // (JAF), 20100411, deprecated, resource may be a ByteArrayResource
             // layout.getFile(); // Force an exception if file doesn't exist
 
-            // Read layout file
-            final InputStream in = layout.getInputStream();
+            // Read layout file (may have been prefetched)
+            final InputStream in = BbVLDockingLayoutStore.getInstance().openLayout(layout);
             dockingDesktop.getContext().readXML(in);
             in.close();
 
@@ -288,6 +342,9 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
     /**
      * Saves a desktop layout given the appropiate resource destination.
      * <p />
+     * The layout is serialized immediately but written in background, atomically replacing the destination. Failures
+     * of a background write are raised by the next save of the same layout.
+     * <p />
      * If an exception is raised then its envolved and rethrown using an <code>ApplicationPageException</code>.
      * 
      * @param dockingDesktop
@@ -301,16 +358,7 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
         Assert.notNull(dest, "dest");
 
         try {
-            // Create file if doesn't exist
-            final File userLayoutFile = dest.getFile();
-            if (!dest.exists()) {
-                FileUtils.touch(userLayoutFile);
-            }
-
-            // Write XML
-            final OutputStream out = new FileOutputStream(userLayoutFile);
-            dockingDesktop.getContext().writeXML(out);
-            out.close();
+            BbVLDockingLayoutStore.getInstance().saveLayout(dockingDesktop, dest);
         } catch (final IOException e) {
             throw new ApplicationPageException("Error writing workspace layout \"" + dest + "\"", e, this.getId());
         }
@@ -376,7 +424,10 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
 
         this.beforeShowView(id);
 
-        return super.showView(id);
+        final View view = super.showView(id);
+        this.showDockable(view);
+
+        return view;
     }
 
     /**
@@ -387,7 +438,10 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
 
         this.beforeShowView(id);
 
-        return super.showView(id, input);
+        final View view = super.showView(id, input);
+        this.showDockable(view);
+
+        return view;
     }
 
     /**
@@ -397,10 +451,15 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
     public boolean close(PageComponent pageComponent) {
 
         final Dockable dockable = this.getDockable(pageComponent);
+        final Boolean pooled = this.beforeClosePageComponent(pageComponent);
 
         final Boolean success = super.close(pageComponent);
-        if (success) {
+        if (success && pooled) {
+            this.viewPool.get(pageComponent.getId()).addLast(pageComponent);
+        } else if (success) {
             this.afterClosePageComponent(dockable, pageComponent);
+        } else if (pooled) {
+            ((FormBackedView<?>) pageComponent).setRecyclable(Boolean.FALSE);
         }
 
         return success;
@@ -492,6 +551,72 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
         return this;
     }
 
+    /**
+     * Sets the close policies indexed by view descriptor id.
+     * 
+     * @param viewClosePolicies
+     *            the close policies to set.
+     * 
+     * @return <code>this</code>.
+     */
+    public final BbVLDockingApplicationPage<T> setViewClosePolicies(Map<String, ViewClosePolicy> viewClosePolicies) {
+
+        Assert.notNull(viewClosePolicies, "viewClosePolicies");
+
+        this.viewClosePolicies = viewClosePolicies;
+
+        return this;
+    }
+
+    /**
+     * Sets the close policy for views with no explicit policy.
+     * 
+     * @param defaultViewClosePolicy
+     *            the close policy to set.
+     * 
+     * @return <code>this</code>.
+     */
+    public final BbVLDockingApplicationPage<T> setDefaultViewClosePolicy(ViewClosePolicy defaultViewClosePolicy) {
+
+        Assert.notNull(defaultViewClosePolicy, "defaultViewClosePolicy");
+
+        this.defaultViewClosePolicy = defaultViewClosePolicy;
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pooled views per view descriptor.
+     * 
+     * @param viewPoolSize
+     *            the pool size to set.
+     * 
+     * @return <code>this</code>.
+     */
+    public final BbVLDockingApplicationPage<T> setViewPoolSize(Integer viewPoolSize) {
+
+        Assert.notNull(viewPoolSize, "viewPoolSize");
+        Assert.isTrue(viewPoolSize >= 0, "viewPoolSize >= 0");
+
+        this.viewPoolSize = viewPoolSize;
+
+        return this;
+    }
+
+    /**
+     * Gets the close policy of a view descriptor.
+     * 
+     * @param viewDescriptorId
+     *            the view descriptor id.
+     * @return the close policy, never <code>null</code>.
+     */
+    public final ViewClosePolicy getViewClosePolicy(String viewDescriptorId) {
+
+        final ViewClosePolicy viewClosePolicy = this.viewClosePolicies.get(viewDescriptorId);
+
+        return (viewClosePolicy != null) ? viewClosePolicy : this.defaultViewClosePolicy;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -645,6 +770,10 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
      * Gets the auto layout.
      * <p>
      * Never returns <code>null</code> but note returned resource may be useless (i.e.: velocity engine fails).
+     * <p>
+     * Generated layouts are cached by a fingerprint of the page classification (the identifiers of the page components
+     * of every type) and the template is compiled once, so pages with the same classification never merge the template
+     * again.
      * 
      * @return the auto layout.
      */
@@ -652,13 +781,12 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
 
         Assert.notNull(this.getAutoLayoutTemplate(), "this.getVelocityTemplate()");
 
-        // No me gusta esta forma de obtener el contexto
-        final VelocityEngine vm = this.getApplicationContext().getBean("velocityEngine", VelocityEngine.class);
-
         // TODO, (JAF), 20100408, applicationPageConfigurer is not compulsory
         final ApplicationPageConfigurer<?> pageConfigurer = (ApplicationPageConfigurer<?>) this.getService(//
                 ApplicationPageConfigurer.class);
-        final Map<String, List<? extends PageComponent>> classification = pageConfigurer.classifyApplicationPage(this);
+        // Classification is unmodifiable, so copy it before changing
+        final Map<String, List<? extends PageComponent>> classification = //
+        new HashMap<String, List<? extends PageComponent>>(pageConfigurer.classifyApplicationPage(this));
 
         /*
          * Trait unknown views as master views: *This code should be moved to the template*
@@ -668,6 +796,19 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
         newMasterViews.addAll(classification.get(DefaultApplicationPageConfigurer.BbViewType.UNKNOWN_TYPE.name()));
         classification.put(DefaultApplicationPageConfigurer.BbViewType.MASTER_TYPE.name(), newMasterViews);
 
+        // No me gusta esta forma de obtener el contexto
+        final VelocityEngine vm = this.getApplicationContext().getBean("velocityEngine", VelocityEngine.class);
+
+        // Reuse the layout generated for an equivalent classification if any
+        final String autoLayoutKey = this.getAutoLayoutKey(classification);
+        final Map<String, byte[]> autoLayouts = BbVLDockingApplicationPage.getCachedAutoLayouts(vm);
+        synchronized (BbVLDockingApplicationPage.AUTO_LAYOUTS) {
+            final byte[] cachedAutoLayout = autoLayouts.get(autoLayoutKey);
+            if (cachedAutoLayout != null) {
+                return new ByteArrayResource(cachedAutoLayout);
+            }
+        }
+
         // Merge context
         final Map<String, Object> context = new HashMap<String, Object>();
         context.put("classification", classification);
@@ -679,10 +820,16 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
 
         Resource resource;
         try {
-            final String templateLocation = this.getAutoLayoutTemplate().getFilename();
-            final String string = VelocityEngineUtils.mergeTemplateIntoString(vm, templateLocation, context);
+            final Template template = this.getCompiledAutoLayoutTemplate(vm);
+            final StringWriter writer = new StringWriter();
+            template.merge(new VelocityContext(context), writer);
 
-            resource = new ByteArrayResource(string.getBytes());
+            final byte[] autoLayout = writer.toString().getBytes();
+            synchronized (BbVLDockingApplicationPage.AUTO_LAYOUTS) {
+                autoLayouts.put(autoLayoutKey, autoLayout);
+            }
+
+            resource = new ByteArrayResource(autoLayout);
         } catch (Throwable e) {
             // (JAF), 20101224, this resource is useless but doesn't break the contract!
             // VLDocking will fail to build this layout: never mind, handlers on this class will treat the exception
@@ -722,6 +869,129 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
         return this.autoLayoutTemplate;
     }
 
+    /**
+     * Reuses a pooled view if available, otherwise creates a new one.
+     * 
+     * @param descriptor
+     *            the page component descriptor.
+     * @return the page component.
+     */
+    @Override
+    protected PageComponent createPageComponent(PageComponentDescriptor descriptor) {
+
+        final LinkedList<PageComponent> pooledViews = this.viewPool.get(descriptor.getId());
+        if ((pooledViews == null) || pooledViews.isEmpty()) {
+            return super.createPageComponent(descriptor);
+        }
+
+        final PageComponent pageComponent = pooledViews.removeFirst();
+        ((FormBackedView<?>) pageComponent).recycle();
+
+        // Parent implementation unregisters page components on close
+        if ((pageComponent instanceof ApplicationListener) && (this.getApplicationEventMulticaster() != null)) {
+            this.getApplicationEventMulticaster().addApplicationListener((ApplicationListener) pageComponent);
+        }
+
+        if (BbVLDockingApplicationPage.LOGGER.isDebugEnabled()) {
+            BbVLDockingApplicationPage.LOGGER.debug("Reusing pooled view \"" + descriptor.getId() + "\"");
+        }
+
+        return pageComponent;
+    }
+
+    /**
+     * Gets the auto layouts generated with a given velocity engine, creating the bounded cache the first time it is
+     * requested.
+     * <p>
+     * Returned map must be accessed while holding the {@link #AUTO_LAYOUTS} lock.
+     * 
+     * @param velocityEngine
+     *            the velocity engine.
+     * @return the generated auto layouts indexed by classification key.
+     */
+    private static Map<String, byte[]> getCachedAutoLayouts(VelocityEngine velocityEngine) {
+
+        synchronized (BbVLDockingApplicationPage.AUTO_LAYOUTS) {
+            Map<String, byte[]> autoLayouts = BbVLDockingApplicationPage.AUTO_LAYOUTS.get(velocityEngine);
+            if (autoLayouts == null) {
+                autoLayouts = new LinkedHashMap<String, byte[]>(BbVLDockingApplicationPage.MAX_CACHED_AUTO_LAYOUTS,
+                        BbVLDockingApplicationPage.AUTO_LAYOUTS_LOAD_FACTOR, Boolean.TRUE) {
+
+                    /**
+                     * This is a <code>Serializable</code> class.
+                     */
+                    private static final long serialVersionUID = 4409126311476356342L;
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+
+                        return this.size() > BbVLDockingApplicationPage.MAX_CACHED_AUTO_LAYOUTS;
+                    }
+                };
+                BbVLDockingApplicationPage.AUTO_LAYOUTS.put(velocityEngine, autoLayouts);
+            }
+
+            return autoLayouts;
+        }
+    }
+
+    /**
+     * Gets the compiled auto layout template, compiling it the first time it is requested for the given engine.
+     * 
+     * @param velocityEngine
+     *            the velocity engine.
+     * @return the compiled template.
+     * 
+     * @throws Exception
+     *             if the template cannot be found or compiled.
+     */
+    private Template getCompiledAutoLayoutTemplate(VelocityEngine velocityEngine) throws Exception {
+
+        final String templateLocation = this.getAutoLayoutTemplate().getFilename();
+
+        synchronized (BbVLDockingApplicationPage.COMPILED_TEMPLATES) {
+            Map<String, Template> templates = BbVLDockingApplicationPage.COMPILED_TEMPLATES.get(velocityEngine);
+            if (templates == null) {
+                templates = new HashMap<String, Template>();
+                BbVLDockingApplicationPage.COMPILED_TEMPLATES.put(velocityEngine, templates);
+            }
+
+            Template template = templates.get(templateLocation);
+            if (template == null) {
+                template = velocityEngine.getTemplate(templateLocation);
+                templates.put(templateLocation, template);
+            }
+
+            return template;
+        }
+    }
+
+    /**
+     * Gets the key identifying the auto layout of a given classification: the template description followed by the
+     * identifiers of the page components of every type.
+     * 
+     * @param classification
+     *            the page classification.
+     * @return the key.
+     */
+    private String getAutoLayoutKey(Map<String, List<? extends PageComponent>> classification) {
+
+        final StringBuilder sb = new StringBuilder(this.getAutoLayoutTemplate().getDescription());
+        for (final Map.Entry<String, List<? extends PageComponent>> entry : //
+        new TreeMap<String, List<? extends PageComponent>>(classification).entrySet()) {
+
+            sb.append('|').append(entry.getKey()).append('=');
+            for (final PageComponent pageComponent : entry.getValue()) {
+                sb.append(pageComponent.getId()).append(',');
+            }
+        }
+
+        return sb.toString();
+    }
+
     /**
      * Parent implementation is not aware of existing dockables in closed state that may be opened again.
      * 
@@ -730,8 +1000,20 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
      */
     private void beforeShowView(String pageComponentId) {
 
-        final PageComponent pageComponent = this.findPageComponent(pageComponentId);
-        final Dockable dockable = this.getDockable(pageComponent);
+        this.showDockable(this.findPageComponent(pageComponentId));
+    }
+
+    /**
+     * Shows the dockable of a page component if it is in closed state.
+     * <p>
+     * Pooled views keep their dockable, so parent implementation does not add it again once reused.
+     * 
+     * @param pageComponent
+     *            the page component, may be <code>null</code>.
+     */
+    private void showDockable(PageComponent pageComponent) {
+
+        final Dockable dockable = (pageComponent != null) ? this.getDockable(pageComponent) : null;
         if ((pageComponent != null) && (dockable != null)) {
 
             final DockingDesktop dockingDesktop = this.getDockingDesktop();
@@ -749,12 +1031,53 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
                 layoutManager.addDockable(dockingDesktop, dockable);
                 if (BbVLDockingApplicationPage.LOGGER.isDebugEnabled()) {
                     BbVLDockingApplicationPage.LOGGER.debug(//
-                            "Showing a previously closed dockable: \"" + pageComponentId + "\"");
+                            "Showing a previously closed dockable: \"" + pageComponent.getId() + "\"");
                 }
             }
         }
     }
 
+    /**
+     * Decides whether a page component is going to be pooled after closing and, if so, makes its disposal just reset
+     * it.
+     * 
+     * @param pageComponent
+     *            the page component to be closed.
+     * @return <code>true</code> if the page component is going to be pooled.
+     */
+    private Boolean beforeClosePageComponent(PageComponent pageComponent) {
+
+        if (!(pageComponent instanceof FormBackedView<?>)
+                || (this.getViewClosePolicy(pageComponent.getId()) != ViewClosePolicy.POOL)) {
+            return Boolean.FALSE;
+        }
+
+        LinkedList<PageComponent> pooledViews = this.viewPool.get(pageComponent.getId());
+        if (pooledViews == null) {
+            pooledViews = new LinkedList<PageComponent>();
+            this.viewPool.put(pageComponent.getId(), pooledViews);
+        }
+
+        final Boolean pooled = pooledViews.size() < this.viewPoolSize;
+        ((FormBackedView<?>) pageComponent).setRecyclable(pooled);
+
+        return pooled;
+    }
+
+    /**
+     * Fully disposes every pooled view.
+     */
+    private void disposeViewPool() {
+
+        for (final LinkedList<PageComponent> pooledViews : this.viewPool.values()) {
+            for (final PageComponent pageComponent : pooledViews) {
+                ((FormBackedView<?>) pageComponent).setRecyclable(Boolean.FALSE);
+                pageComponent.dispose();
+            }
+        }
+        this.viewPool.clear();
+    }
+
     /**
      * There is a memory leak after closing a page component.
      * <p/>
@@ -874,6 +1197,9 @@ public class BbVLDockingApplicationPage<T> extends VLDockingApplicationPage {
             }
 
             success = super.close();
+            if (success) {
+                this.disposeViewPool();
+            }
         } catch (Exception e) {
             final String description = (theUserLayout != null) ? theUserLayout.getDescription() : StringUtils.EMPTY;
             final String message = BbVLDockingApplicationPage.PAGE_CLOSING_FAILED_FMT.format(//
@@ -19,8 +19,11 @@
 package org.bluebell.richclient.application.docking.vldocking;
 
 import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.lang.SystemUtils;
+import org.bluebell.richclient.application.support.CachingApplicationPageFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.io.Resource;
 import org.springframework.richclient.application.Application;
@@ -48,7 +51,8 @@ import org.springframework.util.Assert;
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
  */
-public class BbVLDockingApplicationPageFactory<T> extends VLDockingApplicationPageFactory implements InitializingBean {
+public class BbVLDockingApplicationPageFactory<T> extends VLDockingApplicationPageFactory implements InitializingBean,
+        CachingApplicationPageFactory {
 
     /**
      * A message format with the user layout location template to be propagated to pages.
@@ -67,12 +71,37 @@ public class BbVLDockingApplicationPageFactory<T> extends VLDockingApplicationPa
      */
     private Resource autoLayoutTemplate;
 
+    /**
+     * The view close policies indexed by view descriptor id to be propagated to pages.
+     * 
+     * @see BbVLDockingApplicationPage#setViewClosePolicies(Map)
+     */
+    private Map<String, ViewClosePolicy> viewClosePolicies = new HashMap<String, ViewClosePolicy>();
+
+    /**
+     * The close policy for views with no explicit policy to be propagated to pages.
+     */
+    private ViewClosePolicy defaultViewClosePolicy = ViewClosePolicy.DISPOSE;
+
+    /**
+     * The maximum number of pooled views per view descriptor to be propagated to pages.
+     */
+    private Integer viewPoolSize = 2;
+
+    /**
+     * The cached pages indexed by window and page descriptor id, used instead of the (private) cache of the parent
+     * class so pages can be evicted.
+     */
+    private final Map<ApplicationWindow, Map<String, VLDockingApplicationPage>> pageCache = //
+    new HashMap<ApplicationWindow, Map<String, VLDockingApplicationPage>>();
+
     /**
      * Crea la página, que a diferencia de
      * {@link VLDockingApplicationPage#createApplicationPage(ApplicationWindow,PageDescriptor)} es de tipo
      * {@link BbVLDockingApplicationPage}.
      * <p>
-     * <b>Siempre</b> cachea las páginas creadas.
+     * <b>Siempre</b> cachea las páginas creadas y comienza a leer en segundo plano el <em>layout</em> de usuario
+     * mientras se construye la ventana.
      * 
      * @param window
      *            la ventana.
@@ -85,17 +114,71 @@ public class BbVLDockingApplicationPageFactory<T> extends VLDockingApplicationPa
 
         VLDockingApplicationPage page = this.findPage(window, descriptor);
         if (page == null) {
-            page = new BbVLDockingApplicationPage<T>(window, descriptor)//
+            final BbVLDockingApplicationPage<T> bbPage = new BbVLDockingApplicationPage<T>(window, descriptor)//
                     .setUserLayoutLocationFmt(this.getUserLayoutLocationFmt()) //
                     .setInitialLayoutLocationFmt(this.getInitialLayoutLocationFmt()) //
-                    .setAutoLayoutTemplate(this.getAutoLayoutTemplate());
+                    .setAutoLayoutTemplate(this.getAutoLayoutTemplate()) //
+                    .setViewClosePolicies(this.getViewClosePolicies()) //
+                    .setDefaultViewClosePolicy(this.getDefaultViewClosePolicy()) //
+                    .setViewPoolSize(this.getViewPoolSize());
+
+            // Read user layout off the EDT while the page control is not created yet
+            BbVLDockingLayoutStore.getInstance().prefetch(bbPage.getUserLayout());
 
+            page = bbPage;
             this.cachePage(page);
         }
 
         return page;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evictPage(ApplicationPage page) {
+
+        Assert.notNull(page, "page");
+
+        final Map<String, VLDockingApplicationPage> pages = this.pageCache.get(page.getWindow());
+        if ((pages != null) && (pages.get(page.getId()) == page)) {
+            pages.remove(page.getId());
+            if (pages.isEmpty()) {
+                this.pageCache.remove(page.getWindow());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Looks up the page in the cache of this class.
+     */
+    @Override
+    protected VLDockingApplicationPage findPage(ApplicationWindow window, PageDescriptor descriptor) {
+
+        final Map<String, VLDockingApplicationPage> pages = this.pageCache.get(window);
+
+        return (pages != null) ? pages.get(descriptor.getId()) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Caches the page in the cache of this class.
+     */
+    @Override
+    protected void cachePage(VLDockingApplicationPage page) {
+
+        Map<String, VLDockingApplicationPage> pages = this.pageCache.get(page.getWindow());
+        if (pages == null) {
+            pages = new HashMap<String, VLDockingApplicationPage>();
+            this.pageCache.put(page.getWindow(), pages);
+        }
+
+        pages.put(page.getId(), page);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -146,6 +229,45 @@ public class BbVLDockingApplicationPageFactory<T> extends VLDockingApplicationPa
         this.autoLayoutTemplate = autoLayoutTemplate;
     }
 
+    /**
+     * Sets the view close policies indexed by view descriptor id.
+     * 
+     * @param viewClosePolicies
+     *            the close policies to set.
+     */
+    public final void setViewClosePolicies(Map<String, ViewClosePolicy> viewClosePolicies) {
+
+        Assert.notNull(viewClosePolicies, "viewClosePolicies");
+
+        this.viewClosePolicies = viewClosePolicies;
+    }
+
+    /**
+     * Sets the close policy for views with no explicit policy.
+     * 
+     * @param defaultViewClosePolicy
+     *            the close policy to set.
+     */
+    public final void setDefaultViewClosePolicy(ViewClosePolicy defaultViewClosePolicy) {
+
+        Assert.notNull(defaultViewClosePolicy, "defaultViewClosePolicy");
+
+        this.defaultViewClosePolicy = defaultViewClosePolicy;
+    }
+
+    /**
+     * Sets the maximum number of pooled views per view descriptor.
+     * 
+     * @param viewPoolSize
+     *            the pool size to set.
+     */
+    public final void setViewPoolSize(Integer viewPoolSize) {
+
+        Assert.notNull(viewPoolSize, "viewPoolSize");
+
+        this.viewPoolSize = viewPoolSize;
+    }
+
     /**
      * Gets the user layout message format.
      * <p>
@@ -210,6 +332,36 @@ public class BbVLDockingApplicationPageFactory<T> extends VLDockingApplicationPa
         return this.autoLayoutTemplate;
     }
 
+    /**
+     * Gets the view close policies indexed by view descriptor id.
+     * 
+     * @return the close policies. Default value is an empty map.
+     */
+    protected final Map<String, ViewClosePolicy> getViewClosePolicies() {
+
+        return this.viewClosePolicies;
+    }
+
+    /**
+     * Gets the close policy for views with no explicit policy.
+     * 
+     * @return the close policy. Default value is {@link ViewClosePolicy#DISPOSE}.
+     */
+    protected final ViewClosePolicy getDefaultViewClosePolicy() {
+
+        return this.defaultViewClosePolicy;
+    }
+
+    /**
+     * Gets the maximum number of pooled views per view descriptor.
+     * 
+     * @return the pool size. Default value is <code>2</code>.
+     */
+    protected final Integer getViewPoolSize() {
+
+        return this.viewPoolSize;
+    }
+
     /**
      * Transforms placeholder like expressions into the associated text (i.e.: ${key} --> key).
      * <p>
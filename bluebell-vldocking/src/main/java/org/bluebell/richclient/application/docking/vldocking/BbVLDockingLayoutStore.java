@@ -0,0 +1,502 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell VLDocking.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.application.docking.vldocking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import com.vlsolutions.swing.docking.DockingDesktop;
+
+/**
+ * Stores VLDocking layouts without blocking the Event Dispatcher Thread on disk access.
+ * <p>
+ * Layouts are serialized in memory from the calling thread (docking desktop state must be read from the Event
+ * Dispatcher Thread) and then written by a background thread into a temporary file that replaces the destination, so
+ * a crash in the middle of a write never corrupts a previously saved layout. The replacement is atomic on platforms
+ * able to rename over an existing file; elsewhere the previous layout is renamed to a backup file first, and that
+ * backup is read instead if a crash leaves no destination file.
+ * <p>
+ * Write failures that cannot be detected before writing are reported by the next save of the same layout and by
+ * {@link #flush()}.
+ * <p>
+ * Reads can be prefetched in background while the window is still being built. Every file access is performed by the
+ * same thread, so a read always sees the outcome of previously requested writes.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public final class BbVLDockingLayoutStore {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BbVLDockingLayoutStore.class);
+
+    /**
+     * The singleton instance.
+     */
+    private static final BbVLDockingLayoutStore INSTANCE = new BbVLDockingLayoutStore();
+
+    /**
+     * The maximum time in seconds to wait for pending writes on shutdown.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10;
+
+    /**
+     * The suffix of temporary files.
+     */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * The suffix of backup files, holding the previous layout while it is being replaced.
+     */
+    private static final String BACKUP_FILE_SUFFIX = ".bak";
+
+    /**
+     * The thread performing every file access.
+     */
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            final Thread thread = new Thread(runnable, "VLDocking layout store");
+            thread.setDaemon(Boolean.TRUE);
+
+            return thread;
+        }
+    });
+
+    /**
+     * The prefetched layout contents indexed by file.
+     */
+    private final Map<File, Future<byte[]>> prefetchedLayouts = new ConcurrentHashMap<File, Future<byte[]>>();
+
+    /**
+     * The pending writes indexed by file, removed as soon as they complete.
+     */
+    private final ConcurrentMap<File, Future<?>> pendingWrites = new ConcurrentHashMap<File, Future<?>>();
+
+    /**
+     * The failures of background writes indexed by file, removed once reported or overcome by a later write.
+     */
+    private final ConcurrentMap<File, IOException> failedWrites = new ConcurrentHashMap<File, IOException>();
+
+    /**
+     * Constructs the layout store, ensuring pending writes are completed on shutdown.
+     */
+    private BbVLDockingLayoutStore() {
+
+        Runtime.getRuntime().addShutdownHook(this.createShutdownHook());
+    }
+
+    /**
+     * Starts reading a layout in background, so a later call to {@link #openLayout(Resource)} does not have to wait
+     * for disk access.
+     * <p>
+     * Layouts that are not backed by a file are ignored.
+     *
+     * @param layout
+     *            the layout to be read.
+     */
+    public void prefetch(Resource layout) {
+
+        Assert.notNull(layout, "layout");
+
+        final File file = BbVLDockingLayoutStore.getFile(layout);
+        if ((file == null) || this.prefetchedLayouts.containsKey(file)) {
+            return;
+        }
+
+        this.prefetchedLayouts.put(file, this.executorService.submit(new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() throws Exception {
+
+                return BbVLDockingLayoutStore.read(file);
+            }
+        }));
+    }
+
+    /**
+     * Determines whether a layout exists, taking into account writes not completed yet.
+     *
+     * @param layout
+     *            the layout.
+     * @return <code>true</code> if the layout exists or is going to exist.
+     */
+    public Boolean exists(Resource layout) {
+
+        Assert.notNull(layout, "layout");
+
+        final File file = BbVLDockingLayoutStore.getFile(layout);
+        final Boolean pendingOrBackedUp = (file != null) && (this.pendingWrites.containsKey(file) //
+                || BbVLDockingLayoutStore.getBackupFile(file).exists());
+
+        return pendingOrBackedUp || layout.exists();
+    }
+
+    /**
+     * Opens a layout for reading, using prefetched contents if available.
+     *
+     * @param layout
+     *            the layout to be read.
+     * @return the input stream with the layout XML.
+     *
+     * @throws IOException
+     *             if the layout cannot be read.
+     */
+    public InputStream openLayout(Resource layout) throws IOException {
+
+        Assert.notNull(layout, "layout");
+
+        final File file = BbVLDockingLayoutStore.getFile(layout);
+
+        byte[] bytes = null;
+        if (file != null) {
+            // Reads are queued after pending writes, so they are never missed
+            this.prefetch(layout);
+            bytes = this.await(this.prefetchedLayouts.remove(file), file);
+        }
+        if (bytes == null) {
+            final InputStream in = layout.getInputStream();
+            try {
+                bytes = IOUtils.toByteArray(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Saves the layout of a docking desktop.
+     * <p>
+     * The layout is serialized in memory from the calling thread and written in background. The destination is
+     * checked to be writable beforehand, so most failures are still raised by this method.
+     *
+     * @param dockingDesktop
+     *            the docking desktop.
+     * @param dest
+     *            the destination resource, it must be backed by a file.
+     *
+     * @throws IOException
+     *             if the layout cannot be serialized, the destination is not a writable file or a previous write of
+     *             the same layout failed in background.
+     */
+    public void saveLayout(DockingDesktop dockingDesktop, Resource dest) throws IOException {
+
+        Assert.notNull(dockingDesktop, "dockingDesktop");
+        Assert.notNull(dest, "dest");
+
+        final File file = dest.getFile().getAbsoluteFile();
+        BbVLDockingLayoutStore.checkWritable(file);
+
+        // Serialize the layout now, docking desktop state may change later
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        dockingDesktop.getContext().writeXML(bytes);
+
+        // Prefetched contents are out of date from now on
+        this.prefetchedLayouts.remove(file);
+
+        final FutureTask<Object> write = new FutureTask<Object>(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    BbVLDockingLayoutStore.write(file, bytes.toByteArray());
+                    BbVLDockingLayoutStore.this.failedWrites.remove(file);
+                } catch (IOException e) {
+                    BbVLDockingLayoutStore.this.failedWrites.put(file, e);
+                }
+            }
+        }, null) {
+
+            @Override
+            protected void done() {
+
+                // Either succeeded or not the write is no longer pending, unless replaced by a newer one
+                BbVLDockingLayoutStore.this.pendingWrites.remove(file, this);
+            }
+        };
+
+        this.pendingWrites.put(file, write);
+        this.executorService.execute(write);
+
+        // The new write is already scheduled, so reporting a previous failure does not lose the current layout
+        this.reportFailure(file);
+    }
+
+    /**
+     * Waits until every pending write is completed, reporting the first failure if any.
+     *
+     * @throws IOException
+     *             if a write failed or did not complete in time.
+     */
+    public void flush() throws IOException {
+
+        final List<Map.Entry<File, Future<?>>> writes = //
+        new ArrayList<Map.Entry<File, Future<?>>>(this.pendingWrites.entrySet());
+        for (final Map.Entry<File, Future<?>> write : writes) {
+            try {
+                write.getValue().get(BbVLDockingLayoutStore.SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing workspace layout \"" + write.getKey() + "\"");
+            } catch (ExecutionException e) {
+                final IOException ioException = new IOException(//
+                        "Error writing workspace layout \"" + write.getKey() + "\"");
+                ioException.initCause(e.getCause());
+
+                throw ioException;
+            } catch (TimeoutException e) {
+                throw new IOException("Timeout writing workspace layout \"" + write.getKey() + "\"");
+            }
+        }
+
+        for (final File file : new ArrayList<File>(this.failedWrites.keySet())) {
+            this.reportFailure(file);
+        }
+    }
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance.
+     */
+    public static BbVLDockingLayoutStore getInstance() {
+
+        return BbVLDockingLayoutStore.INSTANCE;
+    }
+
+    /**
+     * Creates the thread that completes pending writes on shutdown.
+     *
+     * @return the shutdown hook.
+     */
+    Thread createShutdownHook() {
+
+        return new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    BbVLDockingLayoutStore.this.flush();
+                } catch (IOException e) {
+                    BbVLDockingLayoutStore.LOGGER.error("Error writing workspace layouts on shutdown", e);
+                }
+            }
+        }, "VLDocking layout store shutdown");
+    }
+
+    /**
+     * Reports the failure of a background write, if any, so it is reported only once.
+     *
+     * @param file
+     *            the written file.
+     *
+     * @throws IOException
+     *             if the last write of the file failed.
+     */
+    private void reportFailure(File file) throws IOException {
+
+        final IOException failure = this.failedWrites.remove(file);
+        if (failure != null) {
+            final IOException ioException = new IOException("Error writing workspace layout \"" + file + "\"");
+            ioException.initCause(failure);
+
+            throw ioException;
+        }
+    }
+
+    /**
+     * Waits for a read to complete.
+     *
+     * @param read
+     *            the read, may be <code>null</code>.
+     * @param file
+     *            the file being read.
+     * @return the read contents, <code>null</code> if read is <code>null</code> or file does not exist.
+     *
+     * @throws IOException
+     *             if the read failed.
+     */
+    private byte[] await(Future<byte[]> read, File file) throws IOException {
+
+        if (read == null) {
+            return null;
+        }
+
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading workspace layout \"" + file + "\"");
+        } catch (ExecutionException e) {
+            final IOException ioException = new IOException("Error reading workspace layout \"" + file + "\"");
+            ioException.initCause(e.getCause());
+
+            throw ioException;
+        }
+    }
+
+    /**
+     * Reads the contents of a file, or those of its backup if a crash happened while replacing it.
+     *
+     * @param file
+     *            the file.
+     * @return the contents or <code>null</code> if neither the file nor its backup exist.
+     *
+     * @throws IOException
+     *             in case of error.
+     */
+    static byte[] read(File file) throws IOException {
+
+        final File backupFile = BbVLDockingLayoutStore.getBackupFile(file);
+        if (file.exists()) {
+            return FileUtils.readFileToByteArray(file);
+        } else if (backupFile.exists()) {
+            return FileUtils.readFileToByteArray(backupFile);
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the given contents into a file replacing it atomically if the platform is able to rename over an existing
+     * file, through a backup of the previous contents otherwise.
+     *
+     * @param file
+     *            the file.
+     * @param bytes
+     *            the contents.
+     *
+     * @throws IOException
+     *             in case of error.
+     */
+    static void write(File file, byte[] bytes) throws IOException {
+
+        BbVLDockingLayoutStore.checkWritable(file);
+
+        final File directory = file.getParentFile();
+
+        final File tempFile = File.createTempFile(file.getName(), BbVLDockingLayoutStore.TEMP_FILE_SUFFIX, directory);
+        try {
+            final FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                out.write(bytes);
+                out.flush();
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+
+            // Some platforms cannot rename over an existing file, previous contents are backed up meanwhile
+            final File backupFile = BbVLDockingLayoutStore.getBackupFile(file);
+            if (!tempFile.renameTo(file)) {
+                backupFile.delete();
+                if (!file.renameTo(backupFile)) {
+                    throw new IOException("Unable to back up \"" + file + "\" into \"" + backupFile + "\"");
+                } else if (!tempFile.renameTo(file)) {
+                    backupFile.renameTo(file);
+                    throw new IOException("Unable to replace \"" + file + "\" with \"" + tempFile + "\"");
+                }
+            }
+            backupFile.delete();
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Checks a file can be written, creating its directory if needed.
+     *
+     * @param file
+     *            the file.
+     *
+     * @throws IOException
+     *             if the directory cannot be created or the file cannot be written.
+     */
+    private static void checkWritable(File file) throws IOException {
+
+        final File directory = file.getParentFile();
+        FileUtils.forceMkdir(directory);
+
+        if (file.isDirectory() || !directory.canWrite()) {
+            throw new IOException("Unable to write \"" + file + "\"");
+        }
+    }
+
+    /**
+     * Gets the backup file holding the previous contents of a file while it is being replaced.
+     *
+     * @param file
+     *            the file.
+     * @return the backup file.
+     */
+    static File getBackupFile(File file) {
+
+        return new File(file.getPath() + BbVLDockingLayoutStore.BACKUP_FILE_SUFFIX);
+    }
+
+    /**
+     * Gets the file backing a resource.
+     *
+     * @param resource
+     *            the resource.
+     * @return the absolute file or <code>null</code> if resource is not backed by a file.
+     */
+    private static File getFile(Resource resource) {
+
+        try {
+            return resource.getFile().getAbsoluteFile();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell VLDocking.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.application.docking.vldocking;
+
+import org.bluebell.richclient.application.support.FormBackedView;
+
+/**
+ * What a {@link BbVLDockingApplicationPage} does with a view once it is closed.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ *
+ * @see BbVLDockingApplicationPage#setViewClosePolicies(java.util.Map)
+ */
+public enum ViewClosePolicy {
+
+    /**
+     * The view is fully disposed: it is unregistered from every event source and its backing form releases its
+     * entities, so it can be garbage collected.
+     */
+    DISPOSE,
+
+    /**
+     * The view is reset and kept warm in a small per page pool, so opening it again does not rebuild its controls.
+     * While pooled it is unregistered from every event source and registered again once reused.
+     * <p>
+     * Only applies to {@link FormBackedView} instances, any other view is disposed.
+     */
+    POOL
+}
@@ -46,12 +46,24 @@ import com.vlsolutions.swing.docking.ui.DockViewTitleBarUI;
  * <li>Implements <code>ActivationAware</code>.
  * <li>Every time the "active" property is changed the dockable container is activated/deactivated accordinly.
  * <li>Re-installs font and repaint background when painting.
+ * <li>Caches the activation colors, so painting just updates the title bar when its activation state changes. Colors
+ * are resolved again every time the UI is installed (i.e.: on look and feel or skin changes).
  * </ul>
  * 
  * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
  */
 public class BbDockViewTitleBarUI extends DockViewTitleBarUI implements ActivationAware {
 
+    /**
+     * The cached active color, <code>null</code> if not resolved yet.
+     */
+    private Color activeColor;
+
+    /**
+     * The cached inactive color, <code>null</code> if not resolved yet.
+     */
+    private Color inactiveColor;
+
     /**
      * Creates the UI.
      * 
@@ -63,6 +75,19 @@ public class BbDockViewTitleBarUI extends DockViewTitleBarUI implements Activati
         super(tb);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also discards cached colors.
+     */
+    @Override
+    public void installUI(JComponent c) {
+
+        this.invalidate();
+
+        super.installUI(c);
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -83,13 +108,25 @@ public class BbDockViewTitleBarUI extends DockViewTitleBarUI implements Activati
 
         final DockViewTitleBar dockViewTitleBar = (DockViewTitleBar) target;
 
-        final Color color;
-        if (active) {
-            color = VLDockingUtils.DockingColor.ACTIVE_WIDGET.getColor();
-        } else {
-            color = VLDockingUtils.DockingColor.INACTIVE_WIDGET.getColor();
+        if (this.activeColor == null) {
+            this.activeColor = VLDockingUtils.DockingColor.ACTIVE_WIDGET.getColor();
+            this.inactiveColor = VLDockingUtils.DockingColor.INACTIVE_WIDGET.getColor();
+        }
+
+        // Avoid firing events (and so repainting again) when background does not change
+        final Color color = active ? this.activeColor : this.inactiveColor;
+        if (color != dockViewTitleBar.getBackground()) {
+            dockViewTitleBar.setBackground(color);
         }
-        dockViewTitleBar.setBackground(color);
+    }
+
+    /**
+     * Discards cached colors, so they are resolved again next time they are needed.
+     */
+    public void invalidate() {
+
+        this.activeColor = null;
+        this.inactiveColor = null;
     }
 
     /**
@@ -101,7 +138,9 @@ public class BbDockViewTitleBarUI extends DockViewTitleBarUI implements Activati
 
         final JLabel titleLabel = titleBar.getTitleLabel();
         final Font font = UIManager.getFont("DockViewTitleBar.titleFont");
-        titleLabel.setFont(font);
+        if (font != titleLabel.getFont()) {
+            titleLabel.setFont(font);
+        }
         // titleLabel.setForeground(notSelectedTextColor);
         // titleBar.setBackground(notSelectedTitleColor);
     }
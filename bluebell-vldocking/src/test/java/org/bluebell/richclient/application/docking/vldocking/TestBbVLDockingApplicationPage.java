@@ -21,8 +21,10 @@
  */
 package org.bluebell.richclient.application.docking.vldocking;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.swing.JComponent;
@@ -33,6 +35,11 @@ import org.apache.commons.lang.exception.ExceptionUtils;
 import org.bluebell.richclient.application.ApplicationPageException;
 import org.bluebell.richclient.application.support.DefaultApplicationPageConfigurer;
 import org.bluebell.richclient.application.support.DefaultApplicationPageConfigurer.BbViewType;
+import org.bluebell.richclient.application.support.FormBackedView;
+import org.bluebell.richclient.form.AbstractBbTableMasterForm;
+import org.bluebell.richclient.form.EntityChangeListener;
+import org.bluebell.richclient.form.support.InMemoryEntityChangeFeed;
+import org.bluebell.richclient.samples.simple.bean.Person;
 import org.bluebell.richclient.samples.simple.form.PersonChildForm;
 import org.bluebell.richclient.samples.simple.form.PersonSearchForm;
 import org.bluebell.richclient.test.AbstractBbSamplesTests;
@@ -43,6 +50,7 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.richclient.application.Application;
 import org.springframework.richclient.application.PageComponent;
 import org.springframework.richclient.application.PageDescriptor;
+import org.springframework.richclient.application.View;
 import org.springframework.richclient.application.support.MultiViewPageDescriptor;
 import org.springframework.richclient.exceptionhandling.AbstractRegisterableExceptionHandler;
 import org.springframework.richclient.exceptionhandling.RegisterableExceptionHandler;
@@ -349,6 +357,67 @@ public class TestBbVLDockingApplicationPage extends AbstractBbSamplesTests {
         Assert.isNull(page.getLayout(), "page.getLayout()");
     }
 
+    /**
+     * Tests pooled views are unsubscribed from the entity change feed while pooled and subscribed again once reused.
+     */
+    @Test
+    public void testPoolClosedViews() {
+
+        this.initializeVariables(this.validImplicitLayoutPageDescriptor);
+
+        final BbVLDockingApplicationPage<?> page = (BbVLDockingApplicationPage<?>) this.getInitializedPage();
+        final FormBackedView<AbstractBbTableMasterForm<Person>> masterView = this.getMasterView();
+        final AbstractBbTableMasterForm<Person> masterForm = masterView.getBackingForm();
+        final CountingEntityChangeFeed entityChangeFeed = new CountingEntityChangeFeed();
+
+        masterForm.setEntityChangeFeed(entityChangeFeed);
+        page.setDefaultViewClosePolicy(ViewClosePolicy.POOL);
+        try {
+            TestCase.assertEquals(1, entityChangeFeed.getSubscriberCount());
+
+            // Pooled views keep their backing form but stop receiving changes
+            TestCase.assertTrue(page.close(masterView));
+            TestCase.assertSame(masterForm, masterView.getBackingForm());
+            TestCase.assertSame(entityChangeFeed, masterForm.getEntityChangeFeed());
+            TestCase.assertEquals(0, entityChangeFeed.getSubscriberCount());
+
+            // Reused views receive changes again
+            final View reusedView = page.showView(masterView.getId());
+            TestCase.assertSame(masterView, reusedView);
+            TestCase.assertFalse(masterView.isRecyclable());
+            TestCase.assertEquals(1, entityChangeFeed.getSubscriberCount());
+        } finally {
+            page.setDefaultViewClosePolicy(ViewClosePolicy.DISPOSE);
+        }
+    }
+
+    /**
+     * Tests disposed views release their backing form and the entity change feed subscription.
+     */
+    @Test
+    public void testDisposeClosedViews() {
+
+        this.initializeVariables(this.validImplicitLayoutPageDescriptor);
+
+        final BbVLDockingApplicationPage<?> page = (BbVLDockingApplicationPage<?>) this.getInitializedPage();
+        final FormBackedView<AbstractBbTableMasterForm<Person>> masterView = this.getMasterView();
+        final AbstractBbTableMasterForm<Person> masterForm = masterView.getBackingForm();
+        final CountingEntityChangeFeed entityChangeFeed = new CountingEntityChangeFeed();
+
+        masterForm.setEntityChangeFeed(entityChangeFeed);
+        TestCase.assertEquals(ViewClosePolicy.DISPOSE, page.getViewClosePolicy(masterView.getId()));
+
+        // Disposed views release everything
+        TestCase.assertTrue(page.close(masterView));
+        TestCase.assertNull(masterView.getBackingForm());
+        TestCase.assertNull(masterForm.getEntityChangeFeed());
+        TestCase.assertEquals(0, entityChangeFeed.getSubscriberCount());
+
+        // Views are built again once shown
+        final View newView = page.showView(masterView.getId());
+        TestCase.assertNotSame(masterView, newView);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -442,6 +511,49 @@ public class TestBbVLDockingApplicationPage extends AbstractBbSamplesTests {
         }
     }
 
+    /**
+     * Entity change feed that counts its subscribers.
+     * 
+     * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+     */
+    public static class CountingEntityChangeFeed extends InMemoryEntityChangeFeed<Person> {
+
+        /**
+         * The subscribed listeners.
+         */
+        private final Set<EntityChangeListener<Person>> subscribers = new HashSet<EntityChangeListener<Person>>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void subscribe(EntityChangeListener<Person> listener) {
+
+            super.subscribe(listener);
+            this.subscribers.add(listener);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void unsubscribe(EntityChangeListener<Person> listener) {
+
+            super.unsubscribe(listener);
+            this.subscribers.remove(listener);
+        }
+
+        /**
+         * Gets the number of subscribed listeners.
+         * 
+         * @return the number of subscribers.
+         */
+        public int getSubscriberCount() {
+
+            return this.subscribers.size();
+        }
+    }
+
     /**
      * Registerable exception handler that remembers last exception thrown.
      * 
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2009 Julio Arg\u00fcello <julio.arguello@gmail.com>
+ *
+ * This file is part of Bluebell VLDocking.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bluebell.richclient.application.docking.vldocking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.vlsolutions.swing.docking.DockingDesktop;
+
+/**
+ * Class that test the correct behaviour of {@link BbVLDockingLayoutStore}.
+ *
+ * @author <a href = "mailto:julio.arguello@gmail.com" >Julio Argüello (JAF)</a>
+ */
+public class TestBbVLDockingLayoutStore extends TestCase {
+
+    /**
+     * The directory containing the tested layouts.
+     */
+    private File directory;
+
+    /**
+     * The tested layout file.
+     */
+    private File file;
+
+    /**
+     * Creates an empty directory for the tested layouts.
+     *
+     * @throws Exception
+     *             if the directory cannot be created.
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        this.directory = File.createTempFile("layouts", null);
+        this.directory.delete();
+        FileUtils.forceMkdir(this.directory);
+
+        this.file = new File(this.directory, "layout.xml");
+    }
+
+    /**
+     * Deletes the directory containing the tested layouts.
+     *
+     * @throws Exception
+     *             if the directory cannot be deleted.
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        FileUtils.deleteDirectory(this.directory);
+
+        super.tearDown();
+    }
+
+    /**
+     * Tests a layout is replaced through a temporary file that does not survive the write, neither does the backup.
+     *
+     * @throws Exception
+     *             in case of error.
+     */
+    public void testWriteAndRename() throws Exception {
+
+        BbVLDockingLayoutStore.write(this.file, "first".getBytes());
+        TestCase.assertEquals("first", FileUtils.readFileToString(this.file));
+
+        BbVLDockingLayoutStore.write(this.file, "second".getBytes());
+        TestCase.assertEquals("second", FileUtils.readFileToString(this.file));
+
+        // Only the layout remains
+        TestCase.assertEquals(Arrays.asList(this.file.getName()), Arrays.asList(this.directory.list()));
+    }
+
+    /**
+     * Tests the backup is used when a crash while replacing a layout leaves no layout file, and that it is dropped
+     * once the layout is written again.
+     *
+     * @throws Exception
+     *             in case of error.
+     */
+    public void testBackupFallback() throws Exception {
+
+        final File backupFile = BbVLDockingLayoutStore.getBackupFile(this.file);
+        final Resource layout = new FileSystemResource(this.file);
+        final BbVLDockingLayoutStore store = BbVLDockingLayoutStore.getInstance();
+
+        // Crash after backing up the previous layout and before renaming the new one
+        FileUtils.writeStringToFile(backupFile, "previous");
+        TestCase.assertFalse(this.file.exists());
+        TestCase.assertTrue(store.exists(layout));
+        TestCase.assertEquals("previous", new String(BbVLDockingLayoutStore.read(this.file)));
+        TestCase.assertEquals("previous", TestBbVLDockingLayoutStore.read(store, layout));
+
+        // The layout file takes precedence over the backup
+        FileUtils.writeStringToFile(this.file, "current");
+        TestCase.assertEquals("current", new String(BbVLDockingLayoutStore.read(this.file)));
+
+        // Writing drops the backup
+        BbVLDockingLayoutStore.write(this.file, "next".getBytes());
+        TestCase.assertFalse(backupFile.exists());
+        TestCase.assertEquals("next", TestBbVLDockingLayoutStore.read(store, layout));
+    }
+
+    /**
+     * Tests the shutdown hook completes pending writes.
+     *
+     * @throws Exception
+     *             in case of error.
+     */
+    public void testShutdownFlush() throws Exception {
+
+        final DockingDesktop dockingDesktop = new DockingDesktop();
+        final Resource layout = new FileSystemResource(this.file);
+        final BbVLDockingLayoutStore store = BbVLDockingLayoutStore.getInstance();
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        dockingDesktop.getContext().writeXML(expected);
+
+        store.saveLayout(dockingDesktop, layout);
+        TestCase.assertTrue(store.exists(layout));
+
+        final Thread shutdownHook = store.createShutdownHook();
+        shutdownHook.start();
+        shutdownHook.join();
+
+        TestCase.assertEquals(expected.toString(), FileUtils.readFileToString(this.file));
+        TestCase.assertEquals(Arrays.asList(this.file.getName()), Arrays.asList(this.directory.list()));
+    }
+
+    /**
+     * Tests layouts that cannot be written raise an exception to the caller instead of failing in background.
+     *
+     * @throws Exception
+     *             in case of error.
+     */
+    public void testWriteFailure() throws Exception {
+
+        final DockingDesktop dockingDesktop = new DockingDesktop();
+        final BbVLDockingLayoutStore store = BbVLDockingLayoutStore.getInstance();
+
+        // The parent of the layout is not a directory
+        FileUtils.writeStringToFile(this.file, "file");
+        try {
+            store.saveLayout(dockingDesktop, new FileSystemResource(new File(this.file, "layout.xml")));
+            TestCase.fail("IOException expected");
+        } catch (IOException e) {
+            TestCase.assertNotNull(e);
+        }
+
+        // The layout is a directory
+        try {
+            store.saveLayout(dockingDesktop, new FileSystemResource(this.directory));
+            TestCase.fail("IOException expected");
+        } catch (IOException e) {
+            TestCase.assertNotNull(e);
+        }
+
+        store.flush();
+    }
+
+    /**
+     * Reads a layout through a layout store.
+     *
+     * @param store
+     *            the layout store.
+     * @param layout
+     *            the layout.
+     * @return the layout contents.
+     *
+     * @throws IOException
+     *             in case of error.
+     */
+    private static String read(BbVLDockingLayoutStore store, Resource layout) throws IOException {
+
+        final InputStream in = store.openLayout(layout);
+        try {
+            return IOUtils.toString(in);
+        } finally {
+            in.close();
+        }
+    }
+}